@@ -0,0 +1,105 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.adaplib.Executor;
+import br.adaplib.SimboloDeSaida;
+import br.adaplib.adaptativo.DispositivoAdaptativo;
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.exemplo.ExemploAutomatoAdaptativo;
+import br.adaplib.subjacente.automato.Estado;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.StringDeEntrada;
+import br.adaplib.subjacente.automato.Transicao;
+
+/**
+ * Mede a execuo do autmato adaptativo a<sup>n</sup>b<sup>n</sup>c<sup>n</sup>
+ * do exemplo, em que cada "a" consumido cria dois estados e quatro
+ * transies.<br>
+ * Como a execuo altera o dispositivo, cada invocao usa uma bifurcao
+ * nova do modelo (feita fora da medio).
+ * @author FLevy
+ * @since 2.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AdaptativoBenchmark {
+	@Param({"10", "100", "1000"})
+	public int n;
+
+	private DispositivoAdaptativo<Estado, Simbolo, Transicao> modelo;
+	private DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo;
+	private String aceita;
+	private String rejeitada;
+
+	@Setup
+	public void preparar() {
+		modelo = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+		aceita = Modelos.anbncn(n);
+		rejeitada = aceita.substring(0, aceita.length() - 1);
+	}
+
+	@Setup(Level.Invocation)
+	public void bifurcarModelo() {
+		dispositivo = modelo.bifurcar();
+	}
+
+	@Benchmark
+	public SimboloDeSaida aceitar() throws ErroDeExecucao {
+		return Executor.executar(dispositivo, new StringDeEntrada(aceita, ""));
+	}
+
+	@Benchmark
+	public SimboloDeSaida rejeitar() throws ErroDeExecucao {
+		return Executor.executar(dispositivo, new StringDeEntrada(rejeitada, ""));
+	}
+
+	@Benchmark
+	public DispositivoAdaptativo<Estado, Simbolo, Transicao> copiar() {
+		return modelo.copiar();
+	}
+
+	@Benchmark
+	public DispositivoAdaptativo<Estado, Simbolo, Transicao> bifurcar() {
+		return modelo.bifurcar();
+	}
+
+	@Benchmark
+	public SimboloDeSaida bifurcarEExecutar() throws ErroDeExecucao {
+		return Executor.executar(modelo.bifurcar(), new StringDeEntrada(aceita, ""));
+	}
+}
@@ -0,0 +1,44 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Executa os benchmarks da biblioteca, sempre com o perfil de coleta de lixo
+ * (alocao por operao e nmero de coletas).<br>
+ * Aceita os mesmos argumentos da linha de comando do JMH; por exemplo,
+ * "ExecutorBenchmark -p estados=1000" executa apenas os benchmarks do
+ * Executor com 1000 estados.
+ * @author FLevy
+ * @since 2.1
+ */
+public class Benchmarks {
+	public static void main(String[] args) throws Exception {
+		Options opcoes = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(opcoes).run();
+	}
+}
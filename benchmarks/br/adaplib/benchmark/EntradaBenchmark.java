@@ -0,0 +1,97 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.benchmark;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.adaplib.CadeiaDeEntrada;
+import br.adaplib.subjacente.automato.LeitorDeEntrada;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.StringDeEntrada;
+
+/**
+ * Mede a separao da cadeia de entrada em smbolos e o consumo deles, com
+ * a StringDeEntrada e com o LeitorDeEntrada.
+ * @author FLevy
+ * @since 2.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EntradaBenchmark {
+	@Param({"100", "100000"})
+	public int tamanho;
+
+	/** O separador: vazio (um smbolo por caractere) ou o separador padro. */
+	@Param({"", StringDeEntrada.SEPARADOR})
+	public String separador;
+
+	private String cadeia;
+
+	@Setup
+	public void preparar() {
+		String simbolos = Modelos.cadeiaAleatoria(tamanho, 26);
+		if ("".equals(separador)) {
+			cadeia = simbolos;
+		} else {
+			StringBuilder sb = new StringBuilder(2 * tamanho);
+			for (int i = 0; i < simbolos.length(); i++) {
+				if (i > 0) sb.append(separador);
+				sb.append(simbolos.charAt(i));
+			}
+			cadeia = sb.toString();
+		}
+	}
+
+	@Benchmark
+	public StringDeEntrada criarString() {
+		return new StringDeEntrada(cadeia, separador);
+	}
+
+	@Benchmark
+	public void consumirString(Blackhole bh) {
+		consumir(new StringDeEntrada(cadeia, separador), bh);
+	}
+
+	@Benchmark
+	public void consumirLeitor(Blackhole bh) {
+		consumir(new LeitorDeEntrada(new StringReader(cadeia), separador), bh);
+	}
+
+	private static void consumir(CadeiaDeEntrada<Simbolo> entrada, Blackhole bh) {
+		while (entrada.temProximo())
+			bh.consume(entrada.consumir());
+	}
+}
@@ -0,0 +1,114 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.adaplib.Executor;
+import br.adaplib.SimboloDeSaida;
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.AutomatoCompilado;
+import br.adaplib.subjacente.automato.Minimizacao;
+import br.adaplib.subjacente.automato.SimuladorNaoDeterministico;
+import br.adaplib.subjacente.automato.StringDeEntrada;
+
+/**
+ * Mede a execuo de autmatos finitos (no adaptativos) de tamanhos e
+ * alfabetos variados, pelo Executor, pelo autmato compilado e pelo
+ * simulador no determinstico.<br>
+ * O autmato  completo, portanto toda a cadeia  sempre consumida.
+ * @author FLevy
+ * @since 2.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ExecutorBenchmark {
+	@Param({"10", "1000", "10000"})
+	public int estados;
+
+	@Param({"2", "26"})
+	public int simbolos;
+
+	@Param({"10000"})
+	public int tamanho;
+
+	private Automato automato;
+	private AutomatoCompilado compilado;
+	private SimuladorNaoDeterministico simulador;
+	private String cadeia;
+	private int[] numerada;
+
+	@Setup
+	public void preparar() {
+		automato = Modelos.automatoAleatorio(estados, simbolos);
+		compilado = automato.compilar();
+		simulador = automato.criarSimulador();
+		cadeia = Modelos.cadeiaAleatoria(tamanho, simbolos);
+
+		numerada = new int[cadeia.length()];
+		for (int i = 0; i < numerada.length; i++)
+			numerada[i] = compilado.indice(String.valueOf(cadeia.charAt(i)));
+	}
+
+	@Benchmark
+	public SimboloDeSaida executor() throws ErroDeExecucao {
+		return Executor.executar(automato, new StringDeEntrada(cadeia, ""));
+	}
+
+	@Benchmark
+	public SimboloDeSaida compilado() throws ErroDeExecucao {
+		return compilado.executar(new StringDeEntrada(cadeia, ""));
+	}
+
+	@Benchmark
+	public SimboloDeSaida compiladoNumerado() throws ErroDeExecucao {
+		return compilado.executar(numerada);
+	}
+
+	@Benchmark
+	public SimboloDeSaida simulador() throws ErroDeExecucao {
+		return simulador.executar(new StringDeEntrada(cadeia, ""));
+	}
+
+	@Benchmark
+	public AutomatoCompilado compilar() {
+		return automato.compilar();
+	}
+
+	@Benchmark
+	public Minimizacao minimizar() {
+		return automato.minimizar();
+	}
+}
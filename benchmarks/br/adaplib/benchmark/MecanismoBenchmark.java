@@ -0,0 +1,102 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.adaplib.adaptativo.DispositivoAdaptativo;
+import br.adaplib.adaptativo.MecanismoAdaptativo;
+import br.adaplib.excecao.MensagemDeErro;
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.Estado;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.Transicao;
+
+/**
+ * Mede a insero e a remoo de regras adaptativas pelo mecanismo
+ * adaptativo, como fazem as aes adaptativas.<br>
+ * Cada invocao recebe um dispositivo novo com {@link #REGRAS} estados em
+ * cadeia, cada um com uma regra adaptativa para o prximo; o tempo 
+ * informado por regra.
+ * @author FLevy
+ * @since 2.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MecanismoBenchmark {
+	/** O nmero de regras inseridas ou removidas por invocao. */
+	static final int REGRAS = 1000;
+
+	private DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo;
+	private MecanismoAdaptativo<Estado, Simbolo, Transicao> mecanismo;
+	private Estado[] estados;
+
+	@Setup(Level.Invocation)
+	public void preparar() {
+		dispositivo = new DispositivoAdaptativo<Estado, Simbolo, Transicao>(new Automato());
+		mecanismo = dispositivo.getMecanismoAdaptativo();
+
+		estados = new Estado[REGRAS + 1];
+		for (int i = 0; i < estados.length; i++) {
+			estados[i] = new Estado("m" + i);
+			dispositivo.adicionarConfiguracao(estados[i], i == 0, i == REGRAS);
+		}
+
+		for (int i = 0; i < REGRAS; i++)
+			mecanismo.adicionarRegraAdaptativa(null, estados[i], "a", estados[i + 1], null);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REGRAS)
+	public void inserir(Blackhole bh) {
+		for (int i = 0; i < REGRAS; i++)
+			bh.consume(mecanismo.adicionarRegraAdaptativa(null, estados[i], "b", estados[i + 1], null));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REGRAS)
+	public void remover(Blackhole bh) throws MensagemDeErro {
+		for (int i = 0; i < REGRAS; i++)
+			bh.consume(mecanismo.removeRegras(estados[i], "a", estados[i + 1]));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REGRAS)
+	public void removerAdaptativas(Blackhole bh) throws MensagemDeErro {
+		for (int i = 0; i < REGRAS; i++)
+			bh.consume(mecanismo.removeRegrasAdaptativas(estados[i], "a", estados[i + 1]));
+	}
+}
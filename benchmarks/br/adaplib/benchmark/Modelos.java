@@ -0,0 +1,103 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.benchmark;
+
+import java.util.Random;
+
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.Estado;
+
+/**
+ * Modelos usados pelos benchmarks.<br>
+ * Os modelos so gerados a partir de uma semente fixa, para que as medies
+ * sejam comparveis entre execues.
+ * @author FLevy
+ * @since 2.1
+ */
+final class Modelos {
+	/** Semente usada para gerar os modelos. */
+	static final long SEMENTE = 20081005L;
+
+	private Modelos() {
+	}
+
+	/**
+	 * Obtm o i-simo smbolo de um alfabeto de letras ('a', 'b', ...).
+	 * @param i O nmero do smbolo (at 51).
+	 * @return O smbolo.
+	 */
+	static String simbolo(int i) {
+		if (i < 0 || i >= 52)
+			throw new IllegalArgumentException("O alfabeto dos benchmarks tem no mximo 52 smbolos.");
+		return String.valueOf((char) ((i < 26)? 'a' + i : 'A' + i - 26));
+	}
+
+	/**
+	 * Cria um autmato determinstico e completo: cada estado tem uma
+	 * transio para cada smbolo e metade dos estados (aproximadamente)  de
+	 * aceite.
+	 * @param estados O nmero de estados.
+	 * @param simbolos O nmero de smbolos do alfabeto.
+	 * @return O autmato criado.
+	 */
+	static Automato automatoAleatorio(int estados, int simbolos) {
+		Random aleatorio = new Random(SEMENTE);
+		Automato automato = new Automato();
+
+		Estado[] criados = new Estado[estados];
+		for (int i = 0; i < estados; i++) {
+			criados[i] = new Estado("q" + i);
+			automato.adicionarConfiguracao(criados[i], i == 0, aleatorio.nextBoolean());
+		}
+
+		for (int i = 0; i < estados; i++) {
+			for (int s = 0; s < simbolos; s++)
+				automato.adicionarRegra(criados[i], simbolo(s), criados[aleatorio.nextInt(estados)]);
+		}
+
+		return automato;
+	}
+
+	/**
+	 * Cria uma cadeia aleatria com smbolos de uma letra.
+	 * @param tamanho O nmero de smbolos.
+	 * @param simbolos O nmero de smbolos do alfabeto.
+	 * @return A cadeia (sem separador).
+	 */
+	static String cadeiaAleatoria(int tamanho, int simbolos) {
+		Random aleatorio = new Random(SEMENTE + tamanho);
+		StringBuilder cadeia = new StringBuilder(tamanho);
+		for (int i = 0; i < tamanho; i++)
+			cadeia.append(simbolo(aleatorio.nextInt(simbolos)));
+		return cadeia.toString();
+	}
+
+	/**
+	 * Cria a cadeia a<sup>n</sup>b<sup>n</sup>c<sup>n</sup>.
+	 * @param n O nmero de repeties de cada smbolo.
+	 * @return A cadeia (sem separador).
+	 */
+	static String anbncn(int n) {
+		StringBuilder cadeia = new StringBuilder(3 * n);
+		for (char c = 'a'; c <= 'c'; c++) {
+			for (int i = 0; i < n; i++)
+				cadeia.append(c);
+		}
+		return cadeia.toString();
+	}
+}
@@ -0,0 +1,104 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.adaplib.excecao.MensagemDeErro;
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.Estado;
+
+/**
+ * Mede as combinaes de Automato.removeRegras (as mesmas usadas pela ao
+ * adaptativa de remoo).<br>
+ * Cada invocao recebe um autmato novo, em que cada estado tem uma
+ * transio para cada smbolo; a variante indica quais dos parmetros (de,
+ * smbolo, para) so informados. A remoo  feita uma vez para cada estado,
+ * exceto a variante "simbolo", que remove o smbolo do autmato todo de uma
+ * s vez.
+ * @author FLevy
+ * @since 2.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+public class RemocaoBenchmark {
+	@Param({"1000"})
+	public int estados;
+
+	@Param({"4"})
+	public int simbolos;
+
+	@Param({"de-simbolo-para", "de-simbolo", "de-para", "de", "simbolo-para", "para", "simbolo"})
+	public String variante;
+
+	private Automato automato;
+	private Estado[] criados;
+	private boolean de, simbolo, para;
+
+	@Setup(Level.Invocation)
+	public void preparar() {
+		automato = new Automato();
+		criados = new Estado[estados];
+		for (int i = 0; i < estados; i++) {
+			criados[i] = new Estado("r" + i);
+			automato.adicionarConfiguracao(criados[i], i == 0, false);
+		}
+
+		for (int i = 0; i < estados; i++) {
+			for (int s = 0; s < simbolos; s++)
+				automato.adicionarRegra(criados[i], Modelos.simbolo(s), criados[(i + s + 1) % estados]);
+		}
+
+		de = variante.startsWith("de");
+		simbolo = variante.contains("simbolo");
+		para = variante.endsWith("para");
+	}
+
+	@Benchmark
+	public void remover(Blackhole bh) throws MensagemDeErro {
+		if (!de && !para) {
+			bh.consume(automato.removeRegras(null, Modelos.simbolo(0), null));
+			return;
+		}
+
+		for (int i = 0; i < estados; i++) {
+			bh.consume(automato.removeRegras(
+					de? criados[i] : null,
+					simbolo? Modelos.simbolo(0) : null,
+					para? criados[(i + 1) % estados] : null));
+		}
+	}
+}
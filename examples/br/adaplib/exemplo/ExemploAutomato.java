@@ -20,6 +20,7 @@ package br.adaplib.exemplo;
 import java.util.Scanner;
 
 import br.adaplib.Executor;
+import br.adaplib.OuvinteLog4j;
 import br.adaplib.SimboloDeSaida;
 import br.adaplib.excecao.ErroDeExecucao;
 import br.adaplib.subjacente.automato.*;
@@ -35,6 +36,9 @@ public class ExemploAutomato {
 		Scanner s = new Scanner(System.in);
 		s.useDelimiter("\r\n");
 
+		// registrando a execuo no log
+		Executor.setOuvinte(new OuvinteLog4j());
+
 		System.out.println("Exemplos de Autmato (no adaptativo)");
 		System.out.println("-------------------------------------\n");
 
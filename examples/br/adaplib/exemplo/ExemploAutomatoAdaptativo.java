@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Scanner;
 
 import br.adaplib.Executor;
+import br.adaplib.OuvinteLog4j;
 import br.adaplib.SimboloDeSaida;
 import br.adaplib.adaptativo.ChamadaFuncaoAdaptativa;
 import br.adaplib.adaptativo.DispositivoAdaptativo;
@@ -34,6 +35,9 @@ public class ExemploAutomatoAdaptativo {
 	public static void main(String[] args) {
 		Scanner s = new Scanner(System.in);
 		s.useDelimiter("\r\n");
+
+		// registrando a execuo no log
+		Executor.setOuvinte(new OuvinteLog4j());
 		String cadeia = null;
 		
 		System.out.println("Exemplo de Autmato Adaptativo");
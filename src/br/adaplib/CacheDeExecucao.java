@@ -0,0 +1,378 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import br.adaplib.adaptativo.DispositivoAdaptativo;
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.excecao.MensagemDeErro;
+
+/**
+ * Guarda os resultados das execues de um dispositivo, para que entradas
+ * repetidas no precisem ser executadas de novo.<br>
+ * A chave  a seqncia de eventos da entrada. Junto com o resultado so
+ * guardadas as configuraes pelas quais a execuo passou e um resumo
+ * delas (das suas regras para os eventos da entrada, em ordem de
+ * prioridade, e de serem ou no de aceite) e da configurao inicial. Quando o dispositivo  alterado (ver
+ * {@link Dispositivos#getRevisao(Dispositivo)}), cada resultado  verificado
+ * na prxima vez em que for procurado: ele continua valendo caso o resumo
+ * das suas configuraes no tenha mudado, e  descartado caso contrrio.
+ * Assim, alterar uma parte do dispositivo no descarta os resultados das
+ * entradas que no passam por ela.<br>
+ * Como a execuo de um dispositivo adaptativo o altera, cada entrada
+ * executada por um DispositivoAdaptativo comea de uma bifurcao do
+ * dispositivo (como no ExecutorEmLote): o dispositivo no  alterado e o
+ * resultado depende apenas da sua estrutura no incio da execuo. Caso ele
+ * no possa ser bifurcado (ver {@link Dispositivos#podeBifurcar(Dispositivo)}),
+ * a entrada  executada sobre o prprio dispositivo, e o resultado s 
+ * guardado se a execuo no o alterar. Os resultados de um dispositivo
+ * adaptativo dependem tambm das funes adaptativas, e por isso valem
+ * apenas para a reviso em que foram calculados. As alteraes feitas
+ * diretamente no corpo de uma funo adaptativa j registrada (por exemplo,
+ * com FuncaoAdaptativa.setGeradores ou adicionarAcao, ou nas funes
+ * anterior e posterior de uma AcaoAdaptativaInsercao) no alteram a reviso
+ * e, portanto, no so detectadas: nesse caso, chame {@link #limpar()}.<br>
+ * O nmero de resultados  limitado: quando a capacidade  atingida, o
+ * resultado usado h mais tempo  descartado. As execues interrompidas
+ * (ver Executor.INTERROMPIDA) e as que lanam exceo no so guardadas. Os
+ * resultados guardados so devolvidos sem chamar o ouvinte de execuo. O
+ * cache pode ser usado por vrias threads, desde que o dispositivo no seja
+ * alterado enquanto isso.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class CacheDeExecucao<C extends Configuracao, E extends Evento, R extends Regra<C>> {
+	private final Dispositivo<C, E, R> dispositivo;
+	private final boolean adaptativo;
+	private final boolean bifurcar;
+	private final int capacidade;
+	private final Resultados resultados;
+	// resumos das configuraes na reviso revisaoDosResumos
+	private final Map<C, Map<String, Long>> resumos = new HashMap<C, Map<String, Long>>();
+	private long revisaoDosResumos;
+	private long acertos = 0;
+	private long faltas = 0;
+	private long descartes = 0;
+	private long invalidacoes = 0;
+
+	/**
+	 * Cria um cache para os resultados de um dispositivo.
+	 * @param dispositivo O dispositivo.
+	 * @param capacidade O nmero mximo de resultados guardados.
+	 */
+	public CacheDeExecucao(Dispositivo<C, E, R> dispositivo, int capacidade) {
+		if (dispositivo == null)
+			throw new IllegalArgumentException("No  possvel criar o cache sem o dispositivo.");
+		if (capacidade < 1)
+			throw new IllegalArgumentException("A capacidade do cache deve ser positiva.");
+
+		this.dispositivo = dispositivo;
+		this.adaptativo = dispositivo instanceof DispositivoAdaptativo;
+		this.bifurcar = adaptativo && Dispositivos.podeBifurcar(dispositivo);
+		this.capacidade = capacidade;
+		this.resultados = new Resultados();
+		this.revisaoDosResumos = Dispositivos.getRevisao(dispositivo);
+	}
+
+	/**
+	 * Executa o dispositivo (ver {@link Executor#executar(Dispositivo, CadeiaDeEntrada)}),
+	 * usando o resultado guardado caso a mesma entrada j tenha sido
+	 * executada e o resultado ainda valha para o dispositivo atual.
+	 * @param entrada Os eventos de entrada (a cadeia no  consumida).
+	 * @return O smbolo de sada.
+	 * @throws ErroDeExecucao Caso haja um erro ao executar o dispositivo.
+	 */
+	public SimboloDeSaida executar(CadeiaDeEntrada<E> entrada) throws ErroDeExecucao {
+		if (entrada == null)
+			throw new IllegalArgumentException("A cadeia de entrada no pode ser nula.");
+
+		// a mesma cpia da entrada serve de chave e de cadeia para a execuo
+		CadeiaComRetrocesso<E> cadeia = new CadeiaComRetrocesso<E>(entrada);
+		Chave chave = new Chave(cadeia);
+		long atual = Dispositivos.getRevisao(dispositivo);
+
+		synchronized (this) {
+			Resultado<C, E> guardado = resultados.get(chave);
+			if (guardado != null) {
+				if (guardado.revisao == atual || revalidar(guardado, atual)) {
+					acertos++;
+					return guardado.saida;
+				}
+				// o dispositivo mudou em uma das configuraes da execuo
+				resultados.remove(chave);
+				invalidacoes++;
+			}
+			faltas++;
+		}
+
+		List<C> visitadas = adaptativo? null : new ArrayList<C>();
+		SimboloDeSaida saida = Executor.executar(bifurcar? Dispositivos.bifurcar(dispositivo) : dispositivo, cadeia,
+				Executor.getLimiteDePassos(), Executor.getLimiteDeTempo(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS, visitadas);
+		if (saida != Executor.INTERROMPIDA && saida != null) {
+			synchronized (this) {
+				// o dispositivo pode ter mudado durante a execuo
+				if (Dispositivos.getRevisao(dispositivo) == atual) {
+					if (adaptativo) {
+						resultados.put(chave, new Resultado<C, E>(saida, atual, null, null, 0));
+					} else {
+						List<C> configuracoes = new ArrayList<C>(new LinkedHashSet<C>(visitadas));
+						List<E> eventos = eventos(cadeia);
+						resultados.put(chave, new Resultado<C, E>(saida, atual, configuracoes, eventos, resumo(configuracoes, eventos, atual)));
+					}
+				}
+			}
+		}
+		return saida;
+	}
+
+	/**
+	 * Verifica se um resultado calculado em outra reviso ainda vale: se as
+	 * configuraes pelas quais a execuo passou no mudaram.
+	 * @param resultado O resultado guardado.
+	 * @param atual A reviso atual do dispositivo.
+	 * @return Se o resultado ainda vale (a sua reviso  atualizada).
+	 */
+	private boolean revalidar(Resultado<C, E> resultado, long atual) {
+		if (adaptativo || resumo(resultado.configuracoes, resultado.eventos, atual) != resultado.resumo)
+			return false;
+		resultado.revisao = atual;
+		return true;
+	}
+
+	/**
+	 * Calcula o resumo da configurao inicial e das regras de um conjunto de
+	 * configuraes para os eventos de uma entrada (as nicas consultadas na
+	 * execuo). Os resumos de cada configurao so guardados enquanto o
+	 * dispositivo no mudar.
+	 * @param configuracoes As configuraes.
+	 * @param eventos Os eventos da entrada, sem repeties.
+	 * @param atual A reviso atual do dispositivo.
+	 * @return O resumo.
+	 */
+	private long resumo(List<C> configuracoes, List<E> eventos, long atual) {
+		if (atual != revisaoDosResumos) {
+			resumos.clear();
+			revisaoDosResumos = atual;
+		}
+
+		long h = ImpressaoDigital.deInicial(dispositivo.configuracaoInicial());
+		for (C configuracao : configuracoes) {
+			Map<String, Long> daConfiguracao = resumos.get(configuracao);
+			if (daConfiguracao == null) {
+				daConfiguracao = new HashMap<String, Long>();
+				resumos.put(configuracao, daConfiguracao);
+			}
+			h = ImpressaoDigital.misturar(h + resumo(daConfiguracao, configuracao, null));
+			for (E evento : eventos)
+				h = ImpressaoDigital.misturar(h + resumo(daConfiguracao, configuracao, evento));
+		}
+		return h;
+	}
+
+	/**
+	 * Obtm o resumo das regras de uma configurao para um evento, na ordem
+	 * de prioridade. O resumo do evento vazio inclui tambm a configurao
+	 * em si (o seu nome e se ela  de aceite).
+	 * @param daConfiguracao Os resumos j calculados para a configurao, por
+	 * smbolo (o evento vazio tem chave nula).
+	 * @param configuracao A configurao.
+	 * @param evento O evento (ou nulo, caso seja um evento vazio).
+	 * @return O resumo (zero, caso a configurao no faa mais parte do
+	 * dispositivo).
+	 */
+	private long resumo(Map<String, Long> daConfiguracao, C configuracao, E evento) {
+		String simbolo = (evento == null)? null : evento.getSimbolo();
+		Long resumo = daConfiguracao.get(simbolo);
+		if (resumo != null) return resumo;
+
+		long h = 0;
+		if (dispositivo.getConfiguracao(configuracao.getNome()) == configuracao) {
+			ContextoDeExecucao<C, E, R> execucao = dispositivo.iniciarExecucao();
+			try {
+				execucao.mudarConfiguracao(configuracao);
+				List<R> regras = execucao.getRegras(evento);
+				if (regras != null) {
+					for (R regra : regras)
+						h = ImpressaoDigital.misturar(h + ImpressaoDigital.deRegra(regra));
+				}
+				if (evento == null) {
+					h ^= ImpressaoDigital.deConfiguracao(configuracao);
+					if (dispositivo.configuracoesDeAceite().contains(configuracao))
+						h ^= ImpressaoDigital.deAceite(configuracao);
+				}
+			} catch (MensagemDeErro m) {
+				h = 0;
+			}
+		}
+		daConfiguracao.put(simbolo, h);
+		return h;
+	}
+
+	/**
+	 * Obtm os eventos de uma entrada, sem repeties de smbolo.
+	 * @param cadeia A entrada.
+	 * @return Os eventos.
+	 */
+	private static <E extends Evento> List<E> eventos(CadeiaComRetrocesso<E> cadeia) {
+		Map<String, E> porSimbolo = new LinkedHashMap<String, E>();
+		for (int i = 0; i < cadeia.tamanho(); i++) {
+			E evento = cadeia.getEvento(i);
+			if (!porSimbolo.containsKey(evento.getSimbolo()))
+				porSimbolo.put(evento.getSimbolo(), evento);
+		}
+		return new ArrayList<E>(porSimbolo.values());
+	}
+
+	/**
+	 * Descarta todos os resultados guardados (as estatsticas so mantidas).
+	 */
+	public synchronized void limpar() {
+		resultados.clear();
+	}
+
+	/**
+	 * Obtm o dispositivo cujos resultados so guardados.
+	 * @return O dispositivo.
+	 */
+	public Dispositivo<C, E, R> getDispositivo() {
+		return dispositivo;
+	}
+
+	/**
+	 * Obtm o nmero mximo de resultados guardados.
+	 * @return A capacidade.
+	 */
+	public int getCapacidade() {
+		return capacidade;
+	}
+
+	/**
+	 * Obtm o nmero de resultados guardados.
+	 * @return O nmero de resultados.
+	 */
+	public synchronized int tamanho() {
+		return resultados.size();
+	}
+
+	/**
+	 * Obtm o nmero de execues que usaram um resultado guardado.
+	 * @return O nmero de acertos.
+	 */
+	public synchronized long getAcertos() {
+		return acertos;
+	}
+
+	/**
+	 * Obtm o nmero de execues que no encontraram um resultado guardado.
+	 * @return O nmero de faltas.
+	 */
+	public synchronized long getFaltas() {
+		return faltas;
+	}
+
+	/**
+	 * Obtm o nmero de resultados descartados por falta de espao.
+	 * @return O nmero de descartes.
+	 */
+	public synchronized long getDescartes() {
+		return descartes;
+	}
+
+	/**
+	 * Obtm o nmero de resultados descartados porque o dispositivo foi
+	 * alterado em uma das configuraes pelas quais a execuo passou (ou,
+	 * nos dispositivos adaptativos, em qualquer parte).
+	 * @return O nmero de invalidaes.
+	 */
+	public synchronized long getInvalidacoes() {
+		return invalidacoes;
+	}
+
+	/**
+	 * Os resultados, na ordem de uso (o usado h mais tempo primeiro).
+	 */
+	private final class Resultados extends LinkedHashMap<Chave, Resultado<C, E>> {
+		// Para o Eclipse parar de reclamar...
+		private static final long serialVersionUID = 1L;
+
+		Resultados() {
+			super(16, 0.75f, true);
+		}
+
+		protected boolean removeEldestEntry(Map.Entry<Chave, Resultado<C, E>> maisAntigo) {
+			if (size() <= capacidade) return false;
+			descartes++;
+			return true;
+		}
+	}
+
+	/**
+	 * Um resultado guardado.
+	 */
+	private static final class Resultado<C, E> {
+		final SimboloDeSaida saida;
+		// a ltima reviso em que o resultado foi verificado
+		long revisao;
+		// as configuraes pelas quais a execuo passou, os eventos da
+		// entrada e o resumo das suas regras
+		final List<C> configuracoes;
+		final List<E> eventos;
+		final long resumo;
+
+		Resultado(SimboloDeSaida saida, long revisao, List<C> configuracoes, List<E> eventos, long resumo) {
+			this.saida = saida;
+			this.revisao = revisao;
+			this.configuracoes = configuracoes;
+			this.eventos = eventos;
+			this.resumo = resumo;
+		}
+	}
+
+	/**
+	 * A seqncia de smbolos de uma entrada.
+	 */
+	private static final class Chave {
+		private final String[] simbolos;
+		private final int hash;
+
+		Chave(CadeiaComRetrocesso<? extends Evento> cadeia) {
+			simbolos = new String[cadeia.tamanho()];
+			for (int i = 0; i < simbolos.length; i++)
+				simbolos[i] = cadeia.getEvento(i).getSimbolo();
+			hash = Arrays.hashCode(simbolos);
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Chave)) return false;
+			Chave outra = (Chave) o;
+			return hash == outra.hash && Arrays.equals(simbolos, outra.simbolos);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cadeia de entrada cuja posio pode ser alterada: usada pela busca para
+ * voltar a entrada ao ponto de uma alternativa anterior.<br>
+ * Os eventos so os restantes da cadeia original no momento da criao.
+ * @author FLevy
+ * @since 2.1
+ */
+final class CadeiaComRetrocesso<E extends Evento> implements CadeiaDeEntrada<E> {
+	private final ArrayList<E> eventos;
+	private final String separador;
+	private int posicao = 0;
+
+	CadeiaComRetrocesso(CadeiaDeEntrada<E> original) {
+		this.eventos = new ArrayList<E>(original.restante());
+		this.separador = original.separador();
+	}
+
+	/**
+	 * Cria uma cadeia na mesma posio de outra, compartilhando os eventos
+	 * (que no so alterados).
+	 * @param outra A outra cadeia.
+	 */
+	CadeiaComRetrocesso(CadeiaComRetrocesso<E> outra) {
+		this.eventos = outra.eventos;
+		this.separador = outra.separador;
+		this.posicao = outra.posicao;
+	}
+
+	/**
+	 * Obtm a posio atual (o nmero de eventos consumidos).
+	 * @return A posio.
+	 */
+	int getPosicao() {
+		return posicao;
+	}
+
+	/**
+	 * Volta (ou avana) a cadeia para uma posio.
+	 * @param posicao A nova posio.
+	 */
+	void setPosicao(int posicao) {
+		this.posicao = posicao;
+	}
+
+	/**
+	 * Obtm o nmero de eventos da cadeia.
+	 * @return O tamanho.
+	 */
+	int tamanho() {
+		return eventos.size();
+	}
+
+	/**
+	 * Obtm o evento de uma posio (consumido ou no).
+	 * @param posicao A posio.
+	 * @return O evento.
+	 */
+	E getEvento(int posicao) {
+		return eventos.get(posicao);
+	}
+
+	public List<E> entrada() {
+		return new ArrayList<E>(eventos);
+	}
+
+	public List<E> consumida() {
+		return new ArrayList<E>(eventos.subList(0, posicao));
+	}
+
+	public List<E> original() {
+		return new ArrayList<E>(eventos);
+	}
+
+	public List<E> restante() {
+		return new ArrayList<E>(eventos.subList(posicao, eventos.size()));
+	}
+
+	public E consumir() {
+		if (posicao >= eventos.size()) return null;
+		return eventos.get(posicao++);
+	}
+
+	public boolean temProximo() {
+		return posicao < eventos.size();
+	}
+
+	public E verProximo() {
+		if (posicao >= eventos.size()) return null;
+		return eventos.get(posicao);
+	}
+
+	public String separador() {
+		return separador;
+	}
+}
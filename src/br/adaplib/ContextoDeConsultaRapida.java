@@ -0,0 +1,45 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+/**
+ * Um contexto de execuo que obtm a regra de maior prioridade sem criar
+ * objetos.<br>
+ * Os executores consultam uma regra a cada passo da execuo: para os
+ * contextos que no implementam esta interface, a regra  o primeiro
+ * elemento de {@link ContextoDeExecucao#getRegras(Evento)} (ver
+ * {@link Dispositivos#getRegra(ContextoDeExecucao, Evento)}).
+ * @param <C> O tipo de configurao usado pelo dispositivo.
+ * @param <E> O tipo de evento usado pelo dispositivo.
+ * @param <R> O tipo de regra usado pelo dispositivo.
+ * @author FLevy
+ * @since 2.1
+ */
+public interface ContextoDeConsultaRapida<C extends Configuracao, E extends Evento, R extends Regra<C>> extends ContextoDeExecucao<C, E, R> {
+
+	/**
+	 * Obtm a regra de maior prioridade relativa a um evento especfico para
+	 * a configurao atual.<BR>
+	 * Equivale ao primeiro elemento de getRegras, mas no deve criar objetos
+	 * a cada chamada ( a consulta usada a cada passo da execuo).
+	 * @param evento O evento especfico (ou nulo, caso seja um evento vazio).
+	 * @return A regra de maior prioridade relativa ao evento passado, ou nulo
+	 * caso no hajam regras.
+	 */
+	public R getRegra(E evento);
+}
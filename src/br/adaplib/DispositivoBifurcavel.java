@@ -0,0 +1,57 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+/**
+ * Um dispositivo que pode ser copiado e bifurcado, para executar vrias
+ * vezes um mesmo modelo sem alter-lo (como fazem os executores com os
+ * dispositivos adaptativos).<br>
+ * A interface  opcional: os executores verificam se o dispositivo pode ser
+ * bifurcado (ver {@link Dispositivos#podeBifurcar(Dispositivo)}) e, caso
+ * contrrio, executam as cadeias em ordem sobre o prprio dispositivo, como
+ * o Executor.
+ * @param <C> O tipo de configurao usado pelo dispositivo.
+ * @param <E> O tipo de evento usado pelo dispositivo.
+ * @param <R> O tipo de regra usado pelo dispositivo.
+ * @author FLevy
+ * @since 2.1
+ */
+public interface DispositivoBifurcavel<C extends Configuracao, E extends Evento, R extends Regra<C>> extends Dispositivo<C, E, R> {
+
+	/**
+	 * Cria uma cpia independente do dispositivo: as alteraes feitas em
+	 * uma das cpias no afetam a outra.
+	 * @return A cpia do dispositivo.
+	 * @throws UnsupportedOperationException Caso o dispositivo dependa de
+	 * outro que no possa ser copiado (como um DispositivoAdaptativo cujo
+	 * dispositivo subjacente no implementa esta interface).
+	 */
+	public DispositivoBifurcavel<C, E, R> copiar();
+
+	/**
+	 * Cria um dispositivo independente deste, mas que compartilha com ele as
+	 * configuraes e as regras existentes, sem copi-las: as alteraes
+	 * feitas depois em um deles no afetam o outro.<br>
+	 * Deve ser barato (idealmente em tempo constante), j que  usado para
+	 * executar vrias vezes um mesmo modelo.
+	 * @return O dispositivo bifurcado.
+	 * @throws UnsupportedOperationException Caso o dispositivo dependa de
+	 * outro que no possa ser bifurcado.
+	 */
+	public DispositivoBifurcavel<C, E, R> bifurcar();
+}
@@ -0,0 +1,47 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.List;
+
+import br.adaplib.excecao.MensagemDeErro;
+
+/**
+ * Um dispositivo do qual as configuraes podem ser removidas.<br>
+ * A interface  opcional: ela  necessria apenas para a coleta das
+ * configuraes inalcanveis de um dispositivo adaptativo (ver
+ * DispositivoAdaptativo.coletarConfiguracoes), que precisa que o seu
+ * dispositivo subjacente a implemente.
+ * @param <C> O tipo de configurao usado pelo dispositivo.
+ * @param <E> O tipo de evento usado pelo dispositivo.
+ * @param <R> O tipo de regra usado pelo dispositivo.
+ * @author FLevy
+ * @since 2.1
+ */
+public interface DispositivoColetavel<C extends Configuracao, E extends Evento, R extends Regra<C>> extends Dispositivo<C, E, R> {
+
+	/**
+	 * Remove uma configurao do dispositivo, junto com todas as regras que
+	 * partem dela ou chegam a ela.<br>
+	 * Mtodo necessrio para a coleta das configuraes inalcanveis.
+	 * @param configuracao A configurao (no pode ser a inicial).
+	 * @return As regras removidas.
+	 * @throws MensagemDeErro caso acontea um erro ao remover as regras.
+	 */
+	public List<R> removerConfiguracao(C configuracao) throws MensagemDeErro;
+}
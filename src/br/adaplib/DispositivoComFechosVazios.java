@@ -0,0 +1,45 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.Set;
+
+/**
+ * Um dispositivo que conhece os fechos em vazio das suas configuraes.<br>
+ * Os executores usam o fecho para detectar mais cedo uma execuo presa em
+ * um ciclo de regras sem eventos: sem alteraes no dispositivo, as regras
+ * em vazio aplicadas a partir de uma configurao no saem do seu fecho.
+ * Para os demais dispositivos, o limite  o nmero de configuraes.
+ * @param <C> O tipo de configurao usado pelo dispositivo.
+ * @param <E> O tipo de evento usado pelo dispositivo.
+ * @param <R> O tipo de regra usado pelo dispositivo.
+ * @author FLevy
+ * @since 2.1
+ */
+public interface DispositivoComFechosVazios<C extends Configuracao, E extends Evento, R extends Regra<C>> extends Dispositivo<C, E, R> {
+
+	/**
+	 * Obtm o fecho em vazio de uma configurao: ela mesma e todas as
+	 * configuraes alcanveis a partir dela apenas por regras em vazio.<br>
+	 * Pode ser chamado por vrias threads ao mesmo tempo, desde que o
+	 * dispositivo no esteja sendo alterado.
+	 * @param configuracao A configurao.
+	 * @return O fecho em vazio (no pode ser alterado).
+	 */
+	public Set<C> getFechoVazio(C configuracao);
+}
@@ -0,0 +1,72 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+/**
+ * Um dispositivo cujas alteraes podem ser desfeitas, voltando a um ponto
+ * marcado ou desfazendo uma transao.<br>
+ * A interface  opcional: as funes adaptativas so aplicadas de forma
+ * atmica apenas quando o dispositivo subjacente a implementa (ver
+ * {@link Dispositivos#podeRestaurar(Dispositivo)}); caso contrrio, as aes
+ * j aplicadas por uma funo que falha no so desfeitas. Da mesma forma,
+ * o ExecutorEmArvore s compartilha os prefixos das cadeias, e o
+ * ExecutorDeBusca s aplica regras que alteram o dispositivo, quando ele
+ * pode ser restaurado.
+ * @param <C> O tipo de configurao usado pelo dispositivo.
+ * @param <E> O tipo de evento usado pelo dispositivo.
+ * @param <R> O tipo de regra usado pelo dispositivo.
+ * @author FLevy
+ * @since 2.1
+ */
+public interface DispositivoRestauravel<C extends Configuracao, E extends Evento, R extends Regra<C>> extends Dispositivo<C, E, R> {
+
+	/**
+	 * Marca o estado atual do dispositivo, para que ele possa voltar a esse
+	 * estado depois (desfazendo todas as alteraes feitas desde a marcao).
+	 * @return O ponto de restaurao.
+	 * @throws UnsupportedOperationException Caso o dispositivo dependa de
+	 * outro que no possa ser restaurado.
+	 */
+	public PontoDeRestauracao marcar();
+
+	/**
+	 * Volta o dispositivo ao estado de um ponto de restaurao criado por ele.
+	 * @param ponto O ponto de restaurao.
+	 */
+	public void restaurar(PontoDeRestauracao ponto);
+
+	/**
+	 * Inicia uma transao: as alteraes feitas a partir daqui podem ser
+	 * desfeitas de uma nica vez. As transaes podem ser aninhadas.<br>
+	 * Usado para aplicar as funes adaptativas de forma atmica.
+	 * @throws UnsupportedOperationException Caso o dispositivo dependa de
+	 * outro que no possa ser restaurado.
+	 */
+	public void iniciarTransacao();
+
+	/**
+	 * Confirma a transao mais interna, mantendo as suas alteraes.
+	 */
+	public void confirmarTransacao();
+
+	/**
+	 * Desfaz as alteraes feitas desde o incio da transao mais interna e
+	 * a encerra.
+	 */
+	public void desfazerTransacao();
+}
@@ -0,0 +1,55 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+/**
+ * Um dispositivo que mantm a impresso digital e o nmero de reviso da sua
+ * estrutura a cada alterao.<br>
+ * A interface  opcional: para os outros dispositivos, a impresso digital 
+ * calculada a partir das configuraes e regras sempre que for pedida (ver
+ * {@link Dispositivos#getImpressaoDigital(Dispositivo)}), o que custa tempo
+ * proporcional ao tamanho do dispositivo.
+ * @param <C> O tipo de configurao usado pelo dispositivo.
+ * @param <E> O tipo de evento usado pelo dispositivo.
+ * @param <R> O tipo de regra usado pelo dispositivo.
+ * @author FLevy
+ * @since 2.1
+ */
+public interface DispositivoVersionado<C extends Configuracao, E extends Evento, R extends Regra<C>> extends Dispositivo<C, E, R> {
+
+	/**
+	 * Obtm a impresso digital da estrutura do dispositivo: um resumo de 64
+	 * bits das suas configuraes (inicial e de aceite) e regras, mantido a
+	 * cada alterao (ver {@link ImpressaoDigital}).<br>
+	 * Dispositivos com a mesma estrutura tm a mesma impresso digital; a
+	 * recproca vale com probabilidade muito alta (mas no certeza). A ordem
+	 * das regras no  considerada.
+	 * @return A impresso digital.
+	 */
+	public long getImpressaoDigital();
+
+	/**
+	 * Obtm o nmero de reviso da estrutura do dispositivo, que cresce a
+	 * cada alterao (inclusive quando um ponto de restaurao  restaurado
+	 * ou uma transao  desfeita). Uma bifurcao comea com a reviso do
+	 * dispositivo original; por isso, revises s devem ser comparadas em um
+	 * mesmo dispositivo.
+	 * @return O nmero de reviso.
+	 */
+	public long getRevisao();
+}
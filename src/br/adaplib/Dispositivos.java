@@ -0,0 +1,152 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.List;
+
+import br.adaplib.adaptativo.DispositivoAdaptativo;
+
+/**
+ * Operaes sobre dispositivos e contextos de execuo que usam as
+ * interfaces opcionais (como {@link ContextoDeConsultaRapida}) quando elas
+ * so implementadas, e uma alternativa equivalente (s vezes mais lenta)
+ * quando no so. Os executores usam estas operaes para que qualquer
+ * implementao de {@link Dispositivo} continue podendo ser executada.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class Dispositivos {
+
+	private Dispositivos() {
+	}
+
+	/**
+	 * Obtm a regra de maior prioridade relativa a um evento para a
+	 * configurao atual de uma execuo: sem criar objetos, caso o contexto
+	 * implemente {@link ContextoDeConsultaRapida}, ou o primeiro elemento de
+	 * getRegras.
+	 * @param execucao O contexto da execuo.
+	 * @param evento O evento (ou nulo, caso seja um evento vazio).
+	 * @return A regra de maior prioridade, ou nulo caso no hajam regras.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> R getRegra(ContextoDeExecucao<C, E, R> execucao, E evento) {
+		if (execucao instanceof ContextoDeConsultaRapida)
+			return ((ContextoDeConsultaRapida<C, E, R>) execucao).getRegra(evento);
+
+		List<R> regras = execucao.getRegras(evento);
+		return (regras == null || regras.isEmpty())? null : regras.get(0);
+	}
+
+	/**
+	 * Informa se o dispositivo pode ser bifurcado: se ele implementa
+	 * {@link DispositivoBifurcavel} e, no caso de um DispositivoAdaptativo, se
+	 * o seu dispositivo subjacente tambm pode ser bifurcado.
+	 * @param dispositivo O dispositivo.
+	 * @return Se o dispositivo pode ser bifurcado.
+	 */
+	public static boolean podeBifurcar(Dispositivo<?, ?, ?> dispositivo) {
+		if (dispositivo instanceof DispositivoAdaptativo)
+			return podeBifurcar(((DispositivoAdaptativo<?, ?, ?>) dispositivo).getDispositivoSubjacente());
+		return dispositivo instanceof DispositivoBifurcavel;
+	}
+
+	/**
+	 * Informa se as alteraes do dispositivo podem ser desfeitas: se ele
+	 * implementa {@link DispositivoRestauravel} e, no caso de um
+	 * DispositivoAdaptativo, se o seu dispositivo subjacente tambm pode ser
+	 * restaurado.
+	 * @param dispositivo O dispositivo.
+	 * @return Se o dispositivo pode ser restaurado.
+	 */
+	public static boolean podeRestaurar(Dispositivo<?, ?, ?> dispositivo) {
+		if (dispositivo instanceof DispositivoAdaptativo)
+			return podeRestaurar(((DispositivoAdaptativo<?, ?, ?>) dispositivo).getDispositivoSubjacente());
+		return dispositivo instanceof DispositivoRestauravel;
+	}
+
+	/**
+	 * Marca o estado atual de um dispositivo (ver
+	 * {@link DispositivoRestauravel#marcar()}), caso ele possa ser restaurado.
+	 * @param dispositivo O dispositivo.
+	 * @return O ponto de restaurao, ou nulo caso o dispositivo no possa ser
+	 * restaurado (ver {@link #podeRestaurar(Dispositivo)}).
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> PontoDeRestauracao marcar(Dispositivo<C, E, R> dispositivo) {
+		if (!podeRestaurar(dispositivo)) return null;
+		return ((DispositivoRestauravel<C, E, R>) dispositivo).marcar();
+	}
+
+	/**
+	 * Volta um dispositivo ao estado de um ponto de restaurao criado por
+	 * ele (ver {@link DispositivoRestauravel#restaurar(PontoDeRestauracao)}).
+	 * @param dispositivo O dispositivo.
+	 * @param ponto O ponto de restaurao (no pode ser nulo).
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> void restaurar(Dispositivo<C, E, R> dispositivo, PontoDeRestauracao ponto) {
+		if (ponto == null)
+			throw new IllegalArgumentException("O ponto de restaurao no pode ser nulo.");
+		((DispositivoRestauravel<C, E, R>) dispositivo).restaurar(ponto);
+	}
+
+	/**
+	 * Obtm a impresso digital de um dispositivo: a mantida por ele, caso
+	 * implemente {@link DispositivoVersionado}, ou a calculada a partir de
+	 * todos os seus elementos (ver
+	 * {@link ImpressaoDigital#deDispositivo(Dispositivo)}).
+	 * @param dispositivo O dispositivo.
+	 * @return A impresso digital.
+	 */
+	public static long getImpressaoDigital(Dispositivo<?, ?, ?> dispositivo) {
+		if (dispositivo instanceof DispositivoVersionado)
+			return ((DispositivoVersionado<?, ?, ?>) dispositivo).getImpressaoDigital();
+		return ImpressaoDigital.deDispositivo(dispositivo);
+	}
+
+	/**
+	 * Obtm a reviso de um dispositivo: a mantida por ele, caso implemente
+	 * {@link DispositivoVersionado}, ou a impresso digital calculada (ver
+	 * {@link #getImpressaoDigital(Dispositivo)}). Nesse ltimo caso o valor
+	 * no cresce a cada alterao e serve apenas para saber se a estrutura do
+	 * dispositivo mudou, comparando-o com um valor anterior.
+	 * @param dispositivo O dispositivo.
+	 * @return A reviso.
+	 */
+	public static long getRevisao(Dispositivo<?, ?, ?> dispositivo) {
+		if (dispositivo instanceof DispositivoVersionado)
+			return ((DispositivoVersionado<?, ?, ?>) dispositivo).getRevisao();
+		return ImpressaoDigital.deDispositivo(dispositivo);
+	}
+
+	/**
+	 * Bifurca um dispositivo (ver {@link DispositivoBifurcavel#bifurcar()}).
+	 * @param dispositivo O dispositivo, que deve poder ser bifurcado (ver
+	 * {@link #podeBifurcar(Dispositivo)}).
+	 * @return O dispositivo bifurcado.
+	 * @throws UnsupportedOperationException Caso o dispositivo no possa ser
+	 * bifurcado.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> Dispositivo<C, E, R> bifurcar(Dispositivo<C, E, R> dispositivo) {
+		if (!podeBifurcar(dispositivo))
+			throw new UnsupportedOperationException("O dispositivo no pode ser bifurcado: ele no implementa DispositivoBifurcavel.");
+		return ((DispositivoBifurcavel<C, E, R>) dispositivo).bifurcar();
+	}
+}
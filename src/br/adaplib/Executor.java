@@ -17,106 +17,317 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib;
 
-import org.apache.log4j.Logger;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 import br.adaplib.excecao.ErroDeExecucao;
 
-import java.util.List;
-
 /**
  * Classe que representa um executor de um dispositivo.<br>
+ * Os passos da execuo so informados ao ouvinte definido (por padro, um
+ * ouvinte que no faz nada).<br>
+ * Uma execuo pode ser limitada em nmero de passos (regras aplicadas) e em
+ * tempo; ao exceder um dos limites, ela  interrompida e a sada 
+ * INTERROMPIDA. Ciclos de regras sem eventos que no alteram o dispositivo
+ * tambm interrompem a execuo, j que nunca terminariam.
  * @author FLevy
  * @since 2.0
  */
 public final class Executor {
-	private static final Logger LOG = Logger.getLogger(Executor.class);
+	/**
+	 * Sada de uma execuo interrompida (por exceder o limite de passos ou de
+	 * tempo, ou por entrar em um ciclo de regras sem eventos).
+	 * @since 2.1
+	 */
+	public static final SimboloDeSaida INTERROMPIDA = new SimboloDeSaida() {
+		public String getSimbolo() {
+			return "interrompida";
+		}
+
+		public String toString() {
+			return getSimbolo();
+		}
+	};
+
+	/** Indica a ausncia de limite de passos ou de tempo. */
+	public static final long SEM_LIMITE = 0;
+
+	// o relgio s  consultado a cada tantos passos
+	private static final int PASSOS_POR_CONSULTA_DO_TEMPO = 1024;
+
+	private static volatile OuvinteDeExecucao ouvinte = OuvinteNulo.INSTANCIA;
+	private static volatile long limiteDePassos = SEM_LIMITE;
+	private static volatile long limiteDeTempo = SEM_LIMITE;
 
 	/**
-	 * Executa um dispositivo.
+	 * Define o ouvinte das execues (de todos os dispositivos).
+	 * @param novo O novo ouvinte, ou nulo para no ouvir as execues.
+	 */
+	public static void setOuvinte(OuvinteDeExecucao novo) {
+		ouvinte = (novo == null)? OuvinteNulo.INSTANCIA : novo;
+	}
+
+	/**
+	 * Obtm o ouvinte das execues.
+	 * @return O ouvinte (nunca  nulo).
+	 */
+	public static OuvinteDeExecucao getOuvinte() {
+		return ouvinte;
+	}
+
+	/**
+	 * Define o nmero mximo de regras aplicadas em uma execuo (de todos os
+	 * dispositivos).
+	 * @param passos O nmero mximo de passos, ou SEM_LIMITE.
+	 * @since 2.1
+	 */
+	public static void setLimiteDePassos(long passos) {
+		if (passos < 0)
+			throw new IllegalArgumentException("O limite de passos no pode ser negativo.");
+		limiteDePassos = passos;
+	}
+
+	/**
+	 * Obtm o nmero mximo de regras aplicadas em uma execuo.
+	 * @return O nmero mximo de passos, ou SEM_LIMITE.
+	 * @since 2.1
+	 */
+	public static long getLimiteDePassos() {
+		return limiteDePassos;
+	}
+
+	/**
+	 * Define o tempo mximo de uma execuo (de todos os dispositivos).
+	 * @param tempo O tempo mximo, ou SEM_LIMITE.
+	 * @param unidade A unidade do tempo.
+	 * @since 2.1
+	 */
+	public static void setLimiteDeTempo(long tempo, TimeUnit unidade) {
+		if (tempo < 0)
+			throw new IllegalArgumentException("O limite de tempo no pode ser negativo.");
+		limiteDeTempo = unidade.toNanos(tempo);
+	}
+
+	/**
+	 * Obtm o tempo mximo de uma execuo.
+	 * @param unidade A unidade desejada.
+	 * @return O tempo mximo, ou SEM_LIMITE.
+	 * @since 2.1
+	 */
+	public static long getLimiteDeTempo(TimeUnit unidade) {
+		return unidade.convert(limiteDeTempo, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Executa um dispositivo, usando os limites de passos e de tempo definidos
+	 * para todas as execues.
 	 * @param <C> O tipo de configurao usada pelo dispositivo.
 	 * @param <E> O tipo do evento usado pelo dispositivo.
 	 * @param <R> O tipo de regra usado pelo dispositivo.
 	 * @param dispositivo O dispositivo a ser executado.
 	 * @param entrada Os eventos de entrada.
-	 * @return Um smbolo de sada do dispositivo ou null caso termine em
-	 * condio de erro.
+	 * @return Um smbolo de sada do dispositivo, INTERROMPIDA caso a execuo
+	 * seja interrompida, ou null caso termine em condio de erro.
 	 * @throws ErroDeExecucao Caso haja um erro na execuo do dispositivo.
 	 */
 	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> SimboloDeSaida executar(Dispositivo<C, E, R> dispositivo, CadeiaDeEntrada<E> entrada) throws ErroDeExecucao {
+		return executar(dispositivo, entrada, limiteDePassos, limiteDeTempo, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Executa um dispositivo com limites prprios de passos e de tempo.
+	 * @param <C> O tipo de configurao usada pelo dispositivo.
+	 * @param <E> O tipo do evento usado pelo dispositivo.
+	 * @param <R> O tipo de regra usado pelo dispositivo.
+	 * @param dispositivo O dispositivo a ser executado.
+	 * @param entrada Os eventos de entrada.
+	 * @param maximoDePassos O nmero mximo de regras aplicadas, ou
+	 * SEM_LIMITE.
+	 * @param tempo O tempo mximo da execuo, ou SEM_LIMITE.
+	 * @param unidade A unidade do tempo.
+	 * @return Um smbolo de sada do dispositivo, INTERROMPIDA caso a execuo
+	 * seja interrompida, ou null caso termine em condio de erro.
+	 * @throws ErroDeExecucao Caso haja um erro na execuo do dispositivo.
+	 * @since 2.1
+	 */
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> SimboloDeSaida executar(Dispositivo<C, E, R> dispositivo, CadeiaDeEntrada<E> entrada, long maximoDePassos, long tempo, TimeUnit unidade) throws ErroDeExecucao {
+		return executar(dispositivo, entrada, maximoDePassos, tempo, unidade, null);
+	}
+
+	/**
+	 * Executa um dispositivo com limites prprios de passos e de tempo,
+	 * guardando as configuraes pelas quais a execuo passa (usado pelo
+	 * CacheDeExecucao para saber de quais partes do dispositivo o resultado
+	 * depende).
+	 * @param visitadas Onde as configuraes so guardadas, na ordem em que
+	 * so alcanadas (com repeties), ou nulo.
+	 * @see #executar(Dispositivo, CadeiaDeEntrada, long, long, TimeUnit)
+	 */
+	static <C extends Configuracao, E extends Evento, R extends Regra<C>> SimboloDeSaida executar(Dispositivo<C, E, R> dispositivo, CadeiaDeEntrada<E> entrada, long maximoDePassos, long tempo, TimeUnit unidade, Collection<? super C> visitadas) throws ErroDeExecucao {
+		OuvinteDeExecucao ouvinte = Executor.ouvinte;
 		C atual = dispositivo.configuracaoInicial();
 		ContextoDeExecucao<C, E, R> execucao;
 		R regra;
-		List<R> listaDeRegras;
+		E evento;
+		long passos = 0;
+		long prazo = prazo(tempo, unidade);
+		ContadorDeVazias<C> vazias = new ContadorDeVazias<C>(dispositivo);
 
 		// Executando a configurao inicial
 		if (atual == null)
 			throw new ErroDeExecucao(" preciso de uma configurao inicial para executar o dispositivo.", null, null, entrada);
 
-		LOG.info("Configurao inicial: " + atual + ".");
+		ouvinte.execucaoIniciada(dispositivo, atual);
+		if (visitadas != null) visitadas.add(atual);
 		execucao = dispositivo.iniciarExecucao();
 		atual.executar(entrada, execucao);
 
-		// 1. A camada subjacente escolhe o conjunto de regras a serem aplicadas
+		// 1. A camada subjacente escolhe a regra a ser aplicada
 		// 2. Se no h regras, a entrada  rejeitada
 		// 3. Para a regra:
 		// 	3.a Executa-se a funo adaptativa anterior.
 		// 	3.b Aplica-se a regra subjacente
 		// 	3.c Executa-se a funo adaptativa posterior
-		while(entrada.temProximo() || (!execucao.getRegras(null).isEmpty() && !dispositivo.configuracoesDeAceite().contains(execucao.getConfiguracaoAtual()))) {
-			regra = null;
-
-			// 1. A camada subjacente escolhe o conjunto de regras a serem aplicadas
+		// Nos contextos que implementam ContextoDeConsultaRapida, a consulta
+		// das regras no cria listas: a execuo de uma cadeia faz um nmero
+		// constante de alocaes (alm das feitas pelas regras).
+		while (true) {
+			// 1. A camada subjacente escolhe a regra a ser aplicada
 			if (!entrada.temProximo()) {
-				LOG.debug("Procurando regras sem eventos, j que a entrada terminou.");
-				listaDeRegras = execucao.getRegras(null);
-				if (listaDeRegras.isEmpty())
-					throw new ErroDeExecucao("A lista de regras sem eventos para essa configurao no deveria ser vazia.", execucao.getConfiguracaoAtual(), null, entrada);
+				// Terminou a entrada: s continua com regras sem eventos, at
+				// chegar a uma configurao de aceite
+				if (dispositivo.configuracoesDeAceite().contains(execucao.getConfiguracaoAtual()))
+					break;
+
+				regra = Dispositivos.getRegra(execucao, null);
+				if (regra == null)
+					break;
 			} else {
-				LOG.debug("Procurando regras para a entrada '" + entrada.verProximo() + "'.");
-				listaDeRegras = execucao.getRegras(entrada.verProximo());
-
-				if (listaDeRegras.isEmpty()) {
-					LOG.debug("Procurando por regras com evento vazio (j que no h regras para o evento em questo).");
-					listaDeRegras = execucao.getRegras(null);
-					if (listaDeRegras.isEmpty()) {
-						LOG.info("Sem regra para o evento: " + entrada.verProximo() + ". Recusando a cadeia.");
+				evento = entrada.verProximo();
+				regra = Dispositivos.getRegra(execucao, evento);
+
+				if (regra == null) {
+					// Procurando por regras com evento vazio (j que no h regras para o evento em questo)
+					regra = Dispositivos.getRegra(execucao, null);
+					if (regra == null) {
+						ouvinte.cadeiaRejeitada(execucao.getConfiguracaoAtual(), evento);
 						execucao.terminar(false);
+						ouvinte.execucaoTerminada(execucao.getSaida());
 						return execucao.getSaida();
 					}
 				}
 			}
 
-			LOG.debug("Nmero de regras disponveis: " + listaDeRegras.size() + ".");
-			regra = listaDeRegras.get(0);
+			// Verificando os limites antes de aplicar a regra
+			if (vazias.emCiclo(regra) || excedeuLimites(passos, maximoDePassos, passos, prazo))
+				return interromper(ouvinte, execucao, passos);
 
-			LOG.info("Aplicando a regra " + regra + ".");
 			atual = execucao.aplicar(entrada, regra);
+			passos++;
 
 			if (atual == null)
 				throw new ErroDeExecucao("No h prxima configurao aps executar a regra.", null, regra, entrada);
 
-			LOG.debug("Executando a nova configurao.");
-			atual.executar(entrada, execucao);
+			ouvinte.regraAplicada(regra, atual);
+			if (visitadas != null) visitadas.add(atual);
 
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("Cadeia restante: " + imprimir(entrada.restante()));
-			}
+			// Executando a nova configurao
+			atual.executar(entrada, execucao);
 		}
 
 		execucao.terminar(true);
+		ouvinte.execucaoTerminada(execucao.getSaida());
 		return execucao.getSaida();
 	}
 
-	private static <E extends Evento> String imprimir(List<E> eventos) {
-		if (eventos == null || eventos.size() == 0)
-			return "";
+	/**
+	 * Calcula o instante limite de uma execuo.
+	 * @param tempo O tempo mximo da execuo, ou SEM_LIMITE.
+	 * @param unidade A unidade do tempo.
+	 * @return O instante limite (em System.nanoTime()), ou 0 caso no haja
+	 * limite.
+	 */
+	static long prazo(long tempo, TimeUnit unidade) {
+		return (tempo > 0)? System.nanoTime() + unidade.toNanos(tempo) : 0;
+	}
+
+	/**
+	 * Verifica os limites de passos e de tempo antes da aplicao de mais
+	 * uma regra (as mesmas regras valem para todos os executores).
+	 * @param passos O nmero de regras j aplicadas.
+	 * @param maximoDePassos O nmero mximo de regras aplicadas, ou
+	 * SEM_LIMITE.
+	 * @param contador O contador que define quando o relgio  consultado (a
+	 * cada PASSOS_POR_CONSULTA_DO_TEMPO passos).
+	 * @param prazo O instante limite (ver {@link #prazo(long, TimeUnit)}), ou 0.
+	 * @return Se algum limite foi excedido.
+	 */
+	static boolean excedeuLimites(long passos, long maximoDePassos, long contador, long prazo) {
+		if (maximoDePassos > 0 && passos >= maximoDePassos) return true;
+		return prazo != 0 && (contador % PASSOS_POR_CONSULTA_DO_TEMPO) == 0 && contador > 0 && System.nanoTime() - prazo > 0;
+	}
+
+	/**
+	 * Interrompe a execuo.
+	 * @param ouvinte O ouvinte da execuo.
+	 * @param execucao A execuo.
+	 * @param passos O nmero de regras aplicadas.
+	 * @return INTERROMPIDA.
+	 */
+	static SimboloDeSaida interromper(OuvinteDeExecucao ouvinte, ContextoDeExecucao<?, ?, ?> execucao, long passos) {
+		ouvinte.execucaoInterrompida(execucao.getConfiguracaoAtual(), passos);
+		execucao.terminar(false);
+		ouvinte.execucaoTerminada(INTERROMPIDA);
+		return INTERROMPIDA;
+	}
+
+	/**
+	 * Conta as regras sem eventos aplicadas seguidamente sem alterar o
+	 * dispositivo. Essas regras no saem do fecho em vazio da configurao
+	 * onde comearam (ver {@link DispositivoComFechosVazios}), ou, para os
+	 * demais dispositivos, do conjunto das configuraes: mais regras seguidas
+	 * do que configuraes nesse conjunto implica repetir uma configurao, e
+	 * a execuo nunca terminaria.
+	 */
+	static final class ContadorDeVazias<C extends Configuracao> {
+		private final Dispositivo<C, ?, ?> dispositivo;
+		private int vazias = 0;
+		// configurao onde comearam as regras em vazio
+		private C origem = null;
+		// nmero de configuraes alcanveis (s  consultado quando
+		// necessrio, j que pode criar um conjunto)
+		private int limite = 0;
 
-		String saida = "";
-		for (Evento e: eventos) {
-			if (e != null && e.getSimbolo() != null)
-				saida += e.getSimbolo();
+		ContadorDeVazias(Dispositivo<C, ?, ?> dispositivo) {
+			this.dispositivo = dispositivo;
 		}
 
-		return saida;
+		/**
+		 * Conta uma regra a ser aplicada.
+		 * @param regra A regra.
+		 * @return Se a regra repetiria uma configurao.
+		 */
+		boolean emCiclo(Regra<C> regra) {
+			if (!"".equals(regra.getEvento()) || regra.alteraDispositivo()) {
+				vazias = 0;
+				return false;
+			}
+			if (vazias++ == 0) {
+				origem = regra.getInicial();
+				limite = 0;
+			}
+			// uma nica regra nunca repete uma configurao
+			if (vazias == 1 || vazias <= limite) return false;
+
+			limite = alcancaveis();
+			return vazias > limite;
+		}
+
+		@SuppressWarnings("unchecked")
+		private int alcancaveis() {
+			if (dispositivo instanceof DispositivoComFechosVazios)
+				return ((DispositivoComFechosVazios<C, ?, ?>) dispositivo).getFechoVazio(origem).size();
+			return dispositivo.getConfiguracoes().size();
+		}
 	}
 }
@@ -0,0 +1,517 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.excecao.MensagemDeErro;
+
+/**
+ * Executa um dispositivo no determinstico considerando todas as regras
+ * aplicveis em cada passo (e no apenas a primeira, como o Executor).<br>
+ * A busca  em profundidade: antes de aplicar uma regra, o estado do
+ * dispositivo  marcado (ver {@link DispositivoRestauravel#marcar()}) e,
+ * caso a alternativa no leve  aceitao, o dispositivo e a entrada voltam
+ * a esse ponto para tentar a prxima. Os dispositivos que no podem ser
+ * restaurados (ver {@link Dispositivos#podeRestaurar(Dispositivo)}) no so
+ * marcados: a busca neles termina com erro caso precise aplicar uma regra
+ * que altera o dispositivo (ver {@link Regra#alteraDispositivo()}). A entrada  aceita assim que uma alternativa
+ * termina a cadeia em uma configurao de aceite; o dispositivo fica no
+ * estado dessa alternativa. Caso nenhuma aceite, ele volta ao estado
+ * inicial.<br>
+ * Os ns j visitados (configurao, posio na entrada e impresso digital
+ * do dispositivo) no so explorados novamente: uma sub-busca que j falhou
+ * falharia de novo, e revisitar um n da busca atual indica um ciclo. A
+ * impresso digital (ver {@link Dispositivos#getImpressaoDigital(Dispositivo)})  um
+ * resumo de 64 bits e, como todo resumo, pode (com probabilidade
+ * desprezvel) confundir dispositivos diferentes.<br>
+ * Como a busca pode no terminar em dispositivos que criam configuraes
+ * indefinidamente, os limites de passos e de tempo do Executor tambm valem
+ * para ela (contando todas as regras aplicadas, em todas as alternativas).<br>
+ * A busca tambm pode ser feita em paralelo (ver
+ * {@link #executarEmParalelo(Dispositivo, CadeiaDeEntrada, ForkJoinPool, int)}):
+ * nos pontos com mais de uma alternativa, as alternativas excedentes so
+ * exploradas por outras tarefas, cada uma sobre uma bifurcao do
+ * dispositivo.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class ExecutorDeBusca {
+	private ExecutorDeBusca() {
+	}
+
+	/**
+	 * Executa um dispositivo explorando as alternativas, usando os limites de
+	 * passos e de tempo definidos no Executor.
+	 * @param <C> O tipo de configurao usada pelo dispositivo.
+	 * @param <E> O tipo do evento usado pelo dispositivo.
+	 * @param <R> O tipo de regra usado pelo dispositivo.
+	 * @param dispositivo O dispositivo a ser executado.
+	 * @param entrada Os eventos de entrada (a cadeia no  consumida).
+	 * @return O smbolo de sada da alternativa que aceitou a entrada, o
+	 * smbolo de rejeio caso nenhuma aceite, ou INTERROMPIDA caso um limite
+	 * seja excedido.
+	 * @throws ErroDeExecucao Caso o dispositivo no tenha configurao
+	 * inicial.
+	 */
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> SimboloDeSaida executar(Dispositivo<C, E, R> dispositivo, CadeiaDeEntrada<E> entrada) throws ErroDeExecucao {
+		return executar(dispositivo, entrada, Executor.getLimiteDePassos(), Executor.getLimiteDeTempo(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Executa um dispositivo explorando as alternativas, com limites prprios.
+	 * @param <C> O tipo de configurao usada pelo dispositivo.
+	 * @param <E> O tipo do evento usado pelo dispositivo.
+	 * @param <R> O tipo de regra usado pelo dispositivo.
+	 * @param dispositivo O dispositivo a ser executado.
+	 * @param entrada Os eventos de entrada (a cadeia no  consumida).
+	 * @param maximoDePassos O nmero mximo de regras aplicadas (em todas as
+	 * alternativas), ou SEM_LIMITE.
+	 * @param tempo O tempo mximo da busca, ou SEM_LIMITE.
+	 * @param unidade A unidade do tempo.
+	 * @return O smbolo de sada da alternativa que aceitou a entrada, o
+	 * smbolo de rejeio caso nenhuma aceite, ou INTERROMPIDA caso um limite
+	 * seja excedido.
+	 * @throws ErroDeExecucao Caso o dispositivo no tenha configurao
+	 * inicial.
+	 */
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> SimboloDeSaida executar(Dispositivo<C, E, R> dispositivo, CadeiaDeEntrada<E> entrada, long maximoDePassos, long tempo, TimeUnit unidade) throws ErroDeExecucao {
+		if (dispositivo == null)
+			throw new IllegalArgumentException("No  possvel executar a busca sem o dispositivo.");
+
+		OuvinteDeExecucao ouvinte = Executor.getOuvinte();
+		C inicial = dispositivo.configuracaoInicial();
+		if (inicial == null)
+			throw new ErroDeExecucao(" preciso de uma configurao inicial para executar o dispositivo.", null, null, entrada);
+
+		Busca busca = new Busca(new HashSet<Visita>(), maximoDePassos, tempo, unidade, 1);
+		CadeiaComRetrocesso<E> cadeia = new CadeiaComRetrocesso<E>(entrada);
+		PontoDeRestauracao comeco = Dispositivos.marcar(dispositivo);
+
+		ouvinte.execucaoIniciada(dispositivo, inicial);
+		ContextoDeExecucao<C, E, R> execucao = dispositivo.iniciarExecucao();
+		inicial.executar(cadeia, execucao);
+		Ramo<C, E, R> ramo = new Ramo<C, E, R>(busca, dispositivo, cadeia, execucao, new No<C, R>(inicial, cadeia.getPosicao(), Dispositivos.getImpressaoDigital(dispositivo)));
+		ramo.explorar();
+
+		if (busca.aceite != null) {
+			// o dispositivo fica no estado da alternativa que aceitou
+			ouvinte.execucaoTerminada(busca.aceite);
+			return busca.aceite;
+		}
+
+		if (comeco != null) Dispositivos.restaurar(dispositivo, comeco);
+		if (busca.interrompida != null) {
+			ouvinte.execucaoInterrompida(busca.interrompida, busca.passos.get());
+			execucao.terminar(false);
+			ouvinte.execucaoTerminada(Executor.INTERROMPIDA);
+			return Executor.INTERROMPIDA;
+		}
+
+		// nenhuma alternativa aceitou
+		try {
+			execucao.mudarConfiguracao(inicial);
+		} catch (MensagemDeErro m) {
+			throw new ErroDeExecucao(m, inicial, null, entrada);
+		}
+		execucao.terminar(false);
+		ouvinte.execucaoTerminada(execucao.getSaida());
+		return execucao.getSaida();
+	}
+
+	/**
+	 * Executa um dispositivo explorando as alternativas em paralelo, usando o
+	 * pool comum, at tantos ramos simultneos quanto o seu paralelismo, e os
+	 * limites de passos e de tempo definidos no Executor.
+	 * @param <C> O tipo de configurao usada pelo dispositivo.
+	 * @param <E> O tipo do evento usado pelo dispositivo.
+	 * @param <R> O tipo de regra usado pelo dispositivo.
+	 * @param dispositivo O dispositivo a ser executado (no  alterado).
+	 * @param entrada Os eventos de entrada (a cadeia no  consumida).
+	 * @return O smbolo de sada da alternativa que aceitou a entrada, o
+	 * smbolo de rejeio caso nenhuma aceite, ou INTERROMPIDA caso um limite
+	 * seja excedido.
+	 * @throws ErroDeExecucao Caso o dispositivo no tenha configurao
+	 * inicial.
+	 */
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> SimboloDeSaida executarEmParalelo(Dispositivo<C, E, R> dispositivo, CadeiaDeEntrada<E> entrada) throws ErroDeExecucao {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		return executarEmParalelo(dispositivo, entrada, pool, pool.getParallelism());
+	}
+
+	/**
+	 * Executa um dispositivo explorando as alternativas em paralelo, usando os
+	 * limites de passos e de tempo definidos no Executor.<br>
+	 * Cada ramo da busca  executado sobre uma bifurcao prpria do
+	 * dispositivo, portanto o dispositivo original no  alterado (nem mesmo
+	 * quando a entrada  aceita). Quando um ramo aceita a entrada, os demais
+	 * so cancelados; como a ordem em que os ramos terminam depende do
+	 * escalonamento, a alternativa que aceita pode no ser a mesma da busca
+	 * sequencial. O ouvinte de execuo  chamado por vrias threads.<br>
+	 * Caso o dispositivo no possa ser bifurcado (ver
+	 * {@link Dispositivos#podeBifurcar(Dispositivo)}), a busca  sequencial
+	 * (ver {@link #executar(Dispositivo, CadeiaDeEntrada)}).
+	 * @param <C> O tipo de configurao usada pelo dispositivo.
+	 * @param <E> O tipo do evento usado pelo dispositivo.
+	 * @param <R> O tipo de regra usado pelo dispositivo.
+	 * @param dispositivo O dispositivo a ser executado (no  alterado).
+	 * @param entrada Os eventos de entrada (a cadeia no  consumida).
+	 * @param pool O pool que executa os ramos.
+	 * @param maximoDeRamos O nmero mximo de ramos explorados ao mesmo tempo.
+	 * Caso seja atingido, as alternativas so exploradas pelo prprio ramo,
+	 * sequencialmente.
+	 * @return O smbolo de sada da alternativa que aceitou a entrada, o
+	 * smbolo de rejeio caso nenhuma aceite, ou INTERROMPIDA caso um limite
+	 * seja excedido.
+	 * @throws ErroDeExecucao Caso o dispositivo no tenha configurao
+	 * inicial ou caso a troca de configurao falhe em algum ramo.
+	 */
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> SimboloDeSaida executarEmParalelo(Dispositivo<C, E, R> dispositivo, CadeiaDeEntrada<E> entrada, ForkJoinPool pool, int maximoDeRamos) throws ErroDeExecucao {
+		if (dispositivo == null)
+			throw new IllegalArgumentException("No  possvel executar a busca sem o dispositivo.");
+		if (pool == null)
+			throw new IllegalArgumentException("No  possvel executar a busca em paralelo sem o pool.");
+		if (maximoDeRamos < 1)
+			throw new IllegalArgumentException("O nmero mximo de ramos deve ser positivo.");
+
+		if (!Dispositivos.podeBifurcar(dispositivo))
+			return executar(dispositivo, entrada);
+
+		OuvinteDeExecucao ouvinte = Executor.getOuvinte();
+		C inicial = dispositivo.configuracaoInicial();
+		if (inicial == null)
+			throw new ErroDeExecucao(" preciso de uma configurao inicial para executar o dispositivo.", null, null, entrada);
+
+		Set<Visita> visitados = Collections.newSetFromMap(new ConcurrentHashMap<Visita, Boolean>());
+		Busca busca = new Busca(visitados, Executor.getLimiteDePassos(), Executor.getLimiteDeTempo(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS, maximoDeRamos);
+		CadeiaComRetrocesso<E> cadeia = new CadeiaComRetrocesso<E>(entrada);
+		Dispositivo<C, E, R> bifurcacao = Dispositivos.bifurcar(dispositivo);
+
+		ouvinte.execucaoIniciada(dispositivo, inicial);
+		ContextoDeExecucao<C, E, R> execucao = bifurcacao.iniciarExecucao();
+		inicial.executar(cadeia, execucao);
+		pool.invoke(new Ramo<C, E, R>(busca, bifurcacao, cadeia, execucao, new No<C, R>(inicial, cadeia.getPosicao(), Dispositivos.getImpressaoDigital(bifurcacao))));
+
+		if (busca.erro != null) throw busca.erro;
+
+		if (busca.aceite != null) {
+			ouvinte.execucaoTerminada(busca.aceite);
+			return busca.aceite;
+		}
+
+		if (busca.interrompida != null) {
+			ouvinte.execucaoInterrompida(busca.interrompida, busca.passos.get());
+			ouvinte.execucaoTerminada(Executor.INTERROMPIDA);
+			return Executor.INTERROMPIDA;
+		}
+
+		// nenhum ramo aceitou
+		ContextoDeExecucao<C, E, R> rejeicao = dispositivo.iniciarExecucao();
+		rejeicao.terminar(false);
+		ouvinte.execucaoTerminada(rejeicao.getSaida());
+		return rejeicao.getSaida();
+	}
+
+	/**
+	 * Obtm as regras aplicveis: as do prximo evento (caso exista) e as sem
+	 * eventos.
+	 */
+	private static <C extends Configuracao, E extends Evento, R extends Regra<C>> List<R> alternativas(ContextoDeExecucao<C, E, R> execucao, CadeiaDeEntrada<E> cadeia) {
+		ArrayList<R> alternativas = new ArrayList<R>();
+		if (cadeia.temProximo()) {
+			List<R> doEvento = execucao.getRegras(cadeia.verProximo());
+			if (doEvento != null) alternativas.addAll(doEvento);
+		}
+		List<R> vazias = execucao.getRegras(null);
+		if (vazias != null) alternativas.addAll(vazias);
+		return alternativas;
+	}
+
+	/**
+	 * O estado compartilhado pelos ramos de uma busca: os ns visitados, os
+	 * limites e o resultado.
+	 */
+	private static final class Busca {
+		final Set<Visita> visitados;
+		final AtomicLong passos = new AtomicLong();
+		final long maximoDePassos;
+		final long prazo;
+		// nmero de ramos em explorao
+		final AtomicInteger ramos = new AtomicInteger(1);
+		final int maximoDeRamos;
+		volatile boolean terminada = false;
+		volatile SimboloDeSaida aceite;
+		volatile Configuracao interrompida;
+		volatile ErroDeExecucao erro;
+
+		Busca(Set<Visita> visitados, long maximoDePassos, long tempo, TimeUnit unidade, int maximoDeRamos) {
+			this.visitados = visitados;
+			this.maximoDePassos = maximoDePassos;
+			this.prazo = Executor.prazo(tempo, unidade);
+			this.maximoDeRamos = maximoDeRamos;
+		}
+
+		/**
+		 * Conta um passo, informando se ele ainda est dentro dos limites.
+		 * @param locais O nmero de passos j dados pelo ramo.
+		 */
+		boolean passo(long locais) {
+			// os passos anteriores a este so os de todos os ramos
+			return !Executor.excedeuLimites(passos.incrementAndGet() - 1, maximoDePassos, locais, prazo);
+		}
+
+		/**
+		 * Reserva um novo ramo, caso o mximo ainda no tenha sido atingido.
+		 */
+		boolean reservarRamo() {
+			while (true) {
+				int atuais = ramos.get();
+				if (atuais >= maximoDeRamos) return false;
+				if (ramos.compareAndSet(atuais, atuais + 1)) return true;
+			}
+		}
+
+		synchronized void aceitar(ContextoDeExecucao<?, ?, ?> execucao) {
+			if (terminada) return;
+			execucao.terminar(true);
+			aceite = execucao.getSaida();
+			terminada = true;
+		}
+
+		synchronized void interromper(Configuracao atual) {
+			if (terminada) return;
+			interrompida = atual;
+			terminada = true;
+		}
+
+		synchronized void falhar(ErroDeExecucao e) {
+			if (terminada) return;
+			erro = e;
+			terminada = true;
+		}
+
+		synchronized void cancelar() {
+			terminada = true;
+		}
+	}
+
+	/**
+	 * Um ramo da busca: explora, em profundidade, as alternativas a partir de
+	 * um n, sobre um dispositivo que s ele usa. Quando executado em um
+	 * pool, entrega as alternativas excedentes a novos ramos (enquanto o
+	 * mximo de ramos no for atingido).
+	 */
+	private static final class Ramo<C extends Configuracao, E extends Evento, R extends Regra<C>> extends RecursiveAction {
+		// Para o Eclipse parar de reclamar...
+		private static final long serialVersionUID = 1L;
+		private final Busca busca;
+		private final Dispositivo<C, E, R> dispositivo;
+		private final CadeiaComRetrocesso<E> cadeia;
+		private final ContextoDeExecucao<C, E, R> execucao;
+		private final ArrayDeque<No<C, R>> pilha = new ArrayDeque<No<C, R>>();
+		private ArrayList<Ramo<C, E, R>> filhos;
+
+		Ramo(Busca busca, Dispositivo<C, E, R> dispositivo, CadeiaComRetrocesso<E> cadeia, ContextoDeExecucao<C, E, R> execucao, No<C, R> raiz) {
+			this.busca = busca;
+			this.dispositivo = dispositivo;
+			this.cadeia = cadeia;
+			this.execucao = execucao;
+			pilha.push(raiz);
+		}
+
+		protected void compute() {
+			try {
+				explorar();
+			} catch (ErroDeExecucao e) {
+				busca.falhar(e);
+			} catch (RuntimeException e) {
+				busca.cancelar();
+				throw e;
+			} finally {
+				busca.ramos.decrementAndGet();
+			}
+
+			if (filhos != null) {
+				for (Ramo<C, E, R> filho : filhos)
+					filho.join();
+			}
+		}
+
+		/**
+		 * Explora os ns da pilha at aceitar a entrada, esgotar as
+		 * alternativas ou a busca terminar.
+		 */
+		void explorar() throws ErroDeExecucao {
+			long locais = 0;
+
+			while (!pilha.isEmpty() && !busca.terminada) {
+				No<C, R> no = pilha.peek();
+
+				if (no.alternativas == null) {
+					// primeira visita ao n
+					if (!busca.visitados.add(new Visita(no.configuracao, no.posicao, no.impressao))) {
+						pilha.pop();
+						continue;
+					}
+
+					voltar(no);
+					if (!cadeia.temProximo() && dispositivo.configuracoesDeAceite().contains(no.configuracao)) {
+						// aceitou: o dispositivo fica no estado desta alternativa
+						busca.aceitar(execucao);
+						return;
+					}
+
+					no.alternativas = alternativas(execucao, cadeia);
+					no.ponto = Dispositivos.marcar(dispositivo);
+					if (no.alternativas.size() > 1 && busca.maximoDeRamos > 1)
+						dividir(no);
+				}
+
+				if (no.proxima == no.alternativas.size()) {
+					pilha.pop();
+					continue;
+				}
+
+				if (!busca.passo(++locais)) {
+					busca.interromper(no.configuracao);
+					return;
+				}
+
+				// aplicando a prxima alternativa a partir do estado do n
+				// (na primeira, o dispositivo ainda est no estado do n)
+				R regra = no.alternativas.get(no.proxima++);
+				if (no.ponto == null && regra.alteraDispositivo())
+					throw new ErroDeExecucao("A busca no pode aplicar uma regra que altera o dispositivo, pois ele no pode ser restaurado (ver DispositivoRestauravel).", no.configuracao, regra, cadeia);
+				if (no.proxima > 1 && no.ponto != null)
+					Dispositivos.restaurar(dispositivo, no.ponto);
+				voltar(no);
+
+				C proxima;
+				try {
+					proxima = execucao.aplicar(cadeia, regra);
+					if (proxima == null) continue;
+					Executor.getOuvinte().regraAplicada(regra, proxima);
+					proxima.executar(cadeia, execucao);
+				} catch (ErroDeExecucao e) {
+					// a alternativa falhou (as regras adaptativas j desfizeram
+					// as suas alteraes)
+					continue;
+				}
+
+				pilha.push(new No<C, R>(execucao.getConfiguracaoAtual(), cadeia.getPosicao(), Dispositivos.getImpressaoDigital(dispositivo)));
+			}
+		}
+
+		/**
+		 * Entrega as alternativas excedentes de um n (todas menos a primeira)
+		 * a novos ramos, enquanto houver ramos disponveis. O dispositivo deve
+		 * estar no estado do n.
+		 */
+		private void dividir(No<C, R> no) {
+			int i = 1;
+			while (i < no.alternativas.size() && busca.reservarRamo()) {
+				Dispositivo<C, E, R> bifurcacao = Dispositivos.bifurcar(dispositivo);
+				CadeiaComRetrocesso<E> outra = new CadeiaComRetrocesso<E>(cadeia);
+				No<C, R> raiz = new No<C, R>(no.configuracao, no.posicao, no.impressao);
+				raiz.alternativas = Collections.singletonList(no.alternativas.get(i++));
+				raiz.ponto = Dispositivos.marcar(bifurcacao);
+
+				Ramo<C, E, R> filho = new Ramo<C, E, R>(busca, bifurcacao, outra, bifurcacao.iniciarExecucao(), raiz);
+				if (filhos == null) filhos = new ArrayList<Ramo<C, E, R>>();
+				filhos.add(filho);
+				filho.fork();
+			}
+
+			if (i > 1) {
+				List<R> restantes = new ArrayList<R>(no.alternativas.size() - i + 1);
+				restantes.add(no.alternativas.get(0));
+				restantes.addAll(no.alternativas.subList(i, no.alternativas.size()));
+				no.alternativas = restantes;
+			}
+		}
+
+		/**
+		 * Volta a configurao atual e a entrada s de um n.
+		 */
+		private void voltar(No<C, R> no) throws ErroDeExecucao {
+			cadeia.setPosicao(no.posicao);
+			if (execucao.getConfiguracaoAtual() == no.configuracao) return;
+			try {
+				execucao.mudarConfiguracao(no.configuracao);
+			} catch (MensagemDeErro m) {
+				throw new ErroDeExecucao(m, no.configuracao, null, cadeia);
+			}
+		}
+	}
+
+	/**
+	 * Um n da busca: a configurao, a posio na entrada e o estado do
+	 * dispositivo, com as alternativas ainda no tentadas.
+	 */
+	private static final class No<C extends Configuracao, R> {
+		final C configuracao;
+		final int posicao;
+		final long impressao;
+		PontoDeRestauracao ponto;
+		List<R> alternativas;
+		int proxima = 0;
+
+		No(C configuracao, int posicao, long impressao) {
+			this.configuracao = configuracao;
+			this.posicao = posicao;
+			this.impressao = impressao;
+		}
+	}
+
+	/**
+	 * Chave dos ns visitados.
+	 */
+	private static final class Visita {
+		private final Configuracao configuracao;
+		private final int posicao;
+		private final long impressao;
+
+		Visita(Configuracao configuracao, int posicao, long impressao) {
+			this.configuracao = configuracao;
+			this.posicao = posicao;
+			this.impressao = impressao;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Visita)) return false;
+			Visita outra = (Visita) o;
+			return posicao == outra.posicao && impressao == outra.impressao && configuracao.equals(outra.configuracao);
+		}
+
+		public int hashCode() {
+			return (int) ImpressaoDigital.misturar(impressao + 31L * posicao + configuracao.hashCode());
+		}
+	}
+}
@@ -0,0 +1,404 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.excecao.MensagemDeErro;
+
+/**
+ * Executa um lote de cadeias de entrada sobre um mesmo dispositivo,
+ * compartilhando os prefixos comuns.<br>
+ * As cadeias so organizadas em uma rvore de prefixos (trie) e a rvore 
+ * percorrida uma nica vez: o dispositivo avana pelos prefixos comuns uma
+ * nica vez e s se divide onde as cadeias divergem. Assim, o trabalho 
+ * proporcional ao tamanho da rvore, e no  soma dos tamanhos das
+ * cadeias.<br>
+ * Nos pontos de diviso, o estado do dispositivo  marcado (ver
+ * {@link DispositivoRestauravel#marcar()}) e restaurado antes de cada ramo caso tenha
+ * sido alterado (por funes adaptativas). O dispositivo  bifurcado no
+ * incio do lote, portanto no  alterado; cada cadeia tem o mesmo
+ * resultado que teria no Executor a partir do estado inicial do
+ * dispositivo. Os dispositivos que no podem ser bifurcados ou restaurados
+ * (ver {@link Dispositivos#podeBifurcar(Dispositivo)} e
+ * {@link Dispositivos#podeRestaurar(Dispositivo)}) executam as cadeias sem
+ * compartilhar os prefixos, como no ExecutorEmLote.<br>
+ * O limite de passos do Executor vale para cada cadeia; o limite de tempo
+ * vale para o lote inteiro (as cadeias no terminadas quando ele  atingido
+ * so interrompidas). Os passos compartilhados so informados ao ouvinte de
+ * execuo uma nica vez.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class ExecutorEmArvore {
+	private ExecutorEmArvore() {
+	}
+
+	/**
+	 * Executa o lote.
+	 * @param <C> O tipo de configurao usada pelo dispositivo.
+	 * @param <E> O tipo do evento usado pelo dispositivo.
+	 * @param <R> O tipo de regra usado pelo dispositivo.
+	 * @param dispositivo O dispositivo a ser executado (no  alterado).
+	 * @param entradas As cadeias de entrada (no so consumidas).
+	 * @return O resultado do lote.
+	 * @throws ErroDeExecucao Caso o dispositivo no tenha configurao
+	 * inicial.
+	 */
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> ResultadoDoLote executar(Dispositivo<C, E, R> dispositivo, List<? extends CadeiaDeEntrada<E>> entradas) throws ErroDeExecucao {
+		if (dispositivo == null)
+			throw new IllegalArgumentException("No  possvel executar o lote sem o dispositivo.");
+		if (entradas == null)
+			throw new IllegalArgumentException("As cadeias de entrada do lote no podem ser nulas.");
+
+		if (!Dispositivos.podeBifurcar(dispositivo) || !Dispositivos.podeRestaurar(dispositivo)) {
+			// as cadeias so copiadas para no serem consumidas
+			List<CadeiaComRetrocesso<E>> copias = new ArrayList<CadeiaComRetrocesso<E>>(entradas.size());
+			for (CadeiaDeEntrada<E> entrada : entradas)
+				copias.add(new CadeiaComRetrocesso<E>(entrada));
+			return ExecutorEmLote.executar(dispositivo, copias);
+		}
+
+		Arvore<C, E, R> arvore = new Arvore<C, E, R>(Dispositivos.bifurcar(dispositivo), entradas);
+		if (!entradas.isEmpty())
+			arvore.percorrer();
+
+		BitSet aceitas = new BitSet(entradas.size());
+		for (int i = 0; i < arvore.saidas.length; i++) {
+			if (arvore.saidas[i] != null && ResultadoDoLote.ACEITE.equals(arvore.saidas[i].getSimbolo()))
+				aceitas.set(i);
+		}
+
+		return new ResultadoDoLote(aceitas, arvore.saidas, Collections.unmodifiableMap(arvore.erros));
+	}
+
+	/**
+	 * A rvore de prefixos de um lote e o seu percurso.
+	 */
+	private static final class Arvore<C extends Configuracao, E extends Evento, R extends Regra<C>> {
+		private final Dispositivo<C, E, R> dispositivo;
+		private final CadeiaComRetrocesso<E>[] cadeias;
+		private final SimboloDeSaida[] saidas;
+		private final Map<Integer, ErroDeExecucao> erros = new HashMap<Integer, ErroDeExecucao>();
+		private final No raiz = new No(0, 0);
+		private final long maximoDePassos;
+		private final long prazo;
+		private final OuvinteDeExecucao ouvinte = Executor.getOuvinte();
+		// passos do caminho atual e de todo o lote
+		private long passos;
+		private long total = 0;
+		// ltimo ponto restaurado e a reviso logo aps a restaurao
+		private PontoDeRestauracao restaurado = null;
+		private long revisaoRestaurada = 0;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Arvore(Dispositivo<C, E, R> dispositivo, List<? extends CadeiaDeEntrada<E>> entradas) {
+			this.dispositivo = dispositivo;
+			this.cadeias = new CadeiaComRetrocesso[entradas.size()];
+			this.saidas = new SimboloDeSaida[entradas.size()];
+			this.maximoDePassos = Executor.getLimiteDePassos();
+			this.prazo = Executor.prazo(Executor.getLimiteDeTempo(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+
+			for (int i = 0; i < cadeias.length; i++) {
+				CadeiaComRetrocesso<E> cadeia = new CadeiaComRetrocesso<E>(entradas.get(i));
+				cadeias[i] = cadeia;
+
+				No no = raiz;
+				for (int j = 0; j < cadeia.tamanho(); j++)
+					no = no.filho(cadeia.getEvento(j).getSimbolo(), i);
+				no.adicionarTerminal(i);
+			}
+		}
+
+		/**
+		 * Percorre a rvore em profundidade.
+		 */
+		void percorrer() throws ErroDeExecucao {
+			C inicial = dispositivo.configuracaoInicial();
+			if (inicial == null)
+				throw new ErroDeExecucao(" preciso de uma configurao inicial para executar o dispositivo.", null, null, cadeias[0]);
+
+			ouvinte.execucaoIniciada(dispositivo, inicial);
+			ArrayDeque<Ramo<C, E, R>> pilha = new ArrayDeque<Ramo<C, E, R>>();
+			ContextoDeExecucao<C, E, R> execucao = dispositivo.iniciarExecucao();
+			try {
+				inicial.executar(cadeias[0], execucao);
+				dividir(raiz, execucao, 0, pilha);
+			} catch (ErroDeExecucao e) {
+				atribuir(raiz, null, e);
+				return;
+			}
+
+			while (!pilha.isEmpty()) {
+				Ramo<C, E, R> ramo = pilha.pop();
+				try {
+					if (ramo.ponto != null)
+						restaurar(ramo);
+					execucao = ramo.execucao;
+					if (execucao == null) {
+						execucao = dispositivo.iniciarExecucao();
+						execucao.mudarConfiguracao(ramo.configuracao);
+					}
+
+					// consumindo o evento do n a partir do estado do pai
+					passos = ramo.passos;
+					CadeiaComRetrocesso<E> cadeia = cadeias[ramo.no.representante];
+					cadeia.setPosicao(ramo.no.profundidade - 1);
+					SimboloDeSaida saida = avancar(execucao, cadeia);
+					if (saida != null)
+						atribuir(ramo.no, saida, null);
+					else
+						dividir(ramo.no, execucao, passos, pilha);
+				} catch (ErroDeExecucao e) {
+					atribuir(ramo.no, null, e);
+				} catch (MensagemDeErro m) {
+					atribuir(ramo.no, null, new ErroDeExecucao(m, ramo.configuracao, null, cadeias[ramo.no.representante]));
+				}
+			}
+		}
+
+		/**
+		 * Coloca o dispositivo no estado marcado para o ramo, caso ele tenha
+		 * sido alterado desde a marcao ou desde a ltima restaurao para o
+		 * mesmo ponto (a restaurao tambm muda a reviso).
+		 */
+		private void restaurar(Ramo<C, E, R> ramo) {
+			long revisao = Dispositivos.getRevisao(dispositivo);
+			if (revisao == ramo.revisao || (ramo.ponto == restaurado && revisao == revisaoRestaurada))
+				return;
+			Dispositivos.restaurar(dispositivo, ramo.ponto);
+			restaurado = ramo.ponto;
+			revisaoRestaurada = Dispositivos.getRevisao(dispositivo);
+		}
+
+		/**
+		 * Termina as cadeias que acabam em um n e coloca os filhos dele na
+		 * pilha. O dispositivo e a execuo devem estar no estado do n.
+		 */
+		private void dividir(No no, ContextoDeExecucao<C, E, R> execucao, long passosDoNo, ArrayDeque<Ramo<C, E, R>> pilha) throws ErroDeExecucao {
+			int consumidores = ((no.terminais > 0)? 1 : 0) + ((no.filhos == null)? 0 : no.filhos.size());
+			PontoDeRestauracao ponto = null;
+			long revisao = 0;
+			if (consumidores > 1) {
+				ponto = Dispositivos.marcar(dispositivo);
+				revisao = Dispositivos.getRevisao(dispositivo);
+			}
+
+			C configuracao = execucao.getConfiguracaoAtual();
+			if (no.terminais > 0) {
+				// as cadeias que terminam aqui so iguais: uma nica execuo
+				ContextoDeExecucao<C, E, R> terminal = execucao;
+				if (consumidores > 1) {
+					terminal = dispositivo.iniciarExecucao();
+					try {
+						terminal.mudarConfiguracao(configuracao);
+					} catch (MensagemDeErro m) {
+						throw new ErroDeExecucao(m, configuracao, null, cadeias[no.indices[0]]);
+					}
+				}
+				CadeiaComRetrocesso<E> cadeia = cadeias[no.indices[0]];
+				cadeia.setPosicao(no.profundidade);
+				passos = passosDoNo;
+				SimboloDeSaida saida;
+				try {
+					saida = terminar(terminal, cadeia);
+				} catch (ErroDeExecucao e) {
+					for (int i = 0; i < no.terminais; i++)
+						erros.put(no.indices[i], e);
+					saida = null;
+				}
+				for (int i = 0; i < no.terminais; i++)
+					saidas[no.indices[i]] = saida;
+			}
+
+			if (no.filhos == null) return;
+
+			// o ltimo filho colocado na pilha  o primeiro a ser percorrido e
+			// continua a execuo do n (caso ela no tenha sido terminada)
+			boolean reusar = (no.terminais == 0);
+			int restantes = no.filhos.size();
+			for (No filho : no.filhos.values()) {
+				restantes--;
+				ContextoDeExecucao<C, E, R> deFilho = (reusar && restantes == 0)? execucao : null;
+				pilha.push(new Ramo<C, E, R>(filho, configuracao, deFilho, passosDoNo, ponto, revisao));
+			}
+		}
+
+		/**
+		 * Aplica regras at consumir o prximo evento (como o Executor).
+		 * @return Nulo caso o evento tenha sido consumido, ou a sada caso a
+		 * execuo tenha terminado antes.
+		 */
+		private SimboloDeSaida avancar(ContextoDeExecucao<C, E, R> execucao, CadeiaComRetrocesso<E> cadeia) throws ErroDeExecucao {
+			int posicao = cadeia.getPosicao();
+			Executor.ContadorDeVazias<C> vazias = new Executor.ContadorDeVazias<C>(dispositivo);
+
+			while (true) {
+				E evento = cadeia.verProximo();
+				R regra = Dispositivos.getRegra(execucao, evento);
+				if (regra == null) {
+					regra = Dispositivos.getRegra(execucao, null);
+					if (regra == null) {
+						ouvinte.cadeiaRejeitada(execucao.getConfiguracaoAtual(), evento);
+						execucao.terminar(false);
+						ouvinte.execucaoTerminada(execucao.getSaida());
+						return execucao.getSaida();
+					}
+				}
+
+				if (vazias.emCiclo(regra) || excedeuLimites())
+					return Executor.interromper(ouvinte, execucao, passos);
+
+				aplicar(execucao, cadeia, regra);
+				if (cadeia.getPosicao() > posicao) return null;
+			}
+		}
+
+		/**
+		 * Termina a execuo de uma cadeia que j foi toda consumida (como o
+		 * Executor: s com regras sem eventos, at uma configurao de
+		 * aceite).
+		 */
+		private SimboloDeSaida terminar(ContextoDeExecucao<C, E, R> execucao, CadeiaComRetrocesso<E> cadeia) throws ErroDeExecucao {
+			Executor.ContadorDeVazias<C> vazias = new Executor.ContadorDeVazias<C>(dispositivo);
+
+			while (!dispositivo.configuracoesDeAceite().contains(execucao.getConfiguracaoAtual())) {
+				R regra = Dispositivos.getRegra(execucao, null);
+				if (regra == null) break;
+
+				if (vazias.emCiclo(regra) || excedeuLimites())
+					return Executor.interromper(ouvinte, execucao, passos);
+
+				aplicar(execucao, cadeia, regra);
+			}
+
+			execucao.terminar(true);
+			ouvinte.execucaoTerminada(execucao.getSaida());
+			return execucao.getSaida();
+		}
+
+		private void aplicar(ContextoDeExecucao<C, E, R> execucao, CadeiaComRetrocesso<E> cadeia, R regra) throws ErroDeExecucao {
+			C atual = execucao.aplicar(cadeia, regra);
+			passos++;
+			total++;
+
+			if (atual == null)
+				throw new ErroDeExecucao("No h prxima configurao aps executar a regra.", null, regra, cadeia);
+
+			ouvinte.regraAplicada(regra, atual);
+			atual.executar(cadeia, execucao);
+		}
+
+		/**
+		 * Verifica os limites: os passos da cadeia e o tempo do lote.
+		 */
+		private boolean excedeuLimites() {
+			return Executor.excedeuLimites(passos, maximoDePassos, total, prazo);
+		}
+
+		/**
+		 * Atribui um resultado a todas as cadeias que passam por um n.
+		 */
+		private void atribuir(No no, SimboloDeSaida saida, ErroDeExecucao erro) {
+			ArrayDeque<No> pendentes = new ArrayDeque<No>();
+			pendentes.push(no);
+			while (!pendentes.isEmpty()) {
+				No atual = pendentes.pop();
+				for (int i = 0; i < atual.terminais; i++) {
+					saidas[atual.indices[i]] = saida;
+					if (erro != null) erros.put(atual.indices[i], erro);
+				}
+				if (atual.filhos != null) {
+					for (No filho : atual.filhos.values())
+						pendentes.push(filho);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Um n da rvore de prefixos: as cadeias que passam por ele tm os
+	 * mesmos eventos at a sua profundidade.
+	 */
+	private static final class No {
+		final int profundidade;
+		// uma das cadeias que passam pelo n
+		final int representante;
+		HashMap<String, No> filhos;
+		// as cadeias que terminam no n
+		int[] indices;
+		int terminais = 0;
+
+		No(int profundidade, int representante) {
+			this.profundidade = profundidade;
+			this.representante = representante;
+		}
+
+		No filho(String simbolo, int cadeia) {
+			if (filhos == null) filhos = new HashMap<String, No>(4);
+			No filho = filhos.get(simbolo);
+			if (filho == null) {
+				filho = new No(profundidade + 1, cadeia);
+				filhos.put(simbolo, filho);
+			}
+			return filho;
+		}
+
+		void adicionarTerminal(int cadeia) {
+			if (indices == null) {
+				indices = new int[1];
+			} else if (terminais == indices.length) {
+				int[] novos = new int[terminais * 2];
+				System.arraycopy(indices, 0, novos, 0, terminais);
+				indices = novos;
+			}
+			indices[terminais++] = cadeia;
+		}
+	}
+
+	/**
+	 * Um ramo a percorrer: o n e o estado do seu pai.
+	 */
+	private static final class Ramo<C extends Configuracao, E extends Evento, R extends Regra<C>> {
+		final No no;
+		final C configuracao;
+		// a execuo do pai, caso possa ser continuada (nulo: criar outra)
+		final ContextoDeExecucao<C, E, R> execucao;
+		final long passos;
+		// o estado do dispositivo no pai (nulo: o pai no se divide)
+		final PontoDeRestauracao ponto;
+		final long revisao;
+
+		Ramo(No no, C configuracao, ContextoDeExecucao<C, E, R> execucao, long passos, PontoDeRestauracao ponto, long revisao) {
+			this.no = no;
+			this.configuracao = configuracao;
+			this.execucao = execucao;
+			this.passos = passos;
+			this.ponto = ponto;
+			this.revisao = revisao;
+		}
+	}
+}
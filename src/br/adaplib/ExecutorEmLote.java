@@ -0,0 +1,158 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import br.adaplib.adaptativo.DispositivoAdaptativo;
+import br.adaplib.excecao.ErroDeExecucao;
+
+/**
+ * Executa um lote de cadeias de entrada independentes sobre um mesmo
+ * dispositivo, em paralelo (usando um ForkJoinPool).<br>
+ * O dispositivo  bifurcado no incio do lote e essa bifurcao 
+ * compartilhada, apenas para leitura, pelas execues. Como a execuo de um
+ * dispositivo adaptativo o altera, cada cadeia executada por um
+ * DispositivoAdaptativo comea de uma bifurcao prpria do dispositivo
+ * inicial (que no copia nada).<br>
+ * Os dispositivos que no podem ser bifurcados (ver
+ * {@link Dispositivos#podeBifurcar(Dispositivo)}) executam as cadeias em
+ * ordem, na thread que chama o executor, como o Executor faria.<br>
+ * O ouvinte de execuo (Executor.setOuvinte)  chamado por vrias threads.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class ExecutorEmLote {
+	// nmero mnimo de cadeias executadas por tarefa
+	private static final int LIMITE_TAREFA = 16;
+
+	private ExecutorEmLote() {
+	}
+
+	/**
+	 * Executa o lote usando o pool comum.
+	 * @param <C> O tipo de configurao usada pelo dispositivo.
+	 * @param <E> O tipo do evento usado pelo dispositivo.
+	 * @param <R> O tipo de regra usado pelo dispositivo.
+	 * @param dispositivo O dispositivo a ser executado.
+	 * @param entradas As cadeias de entrada. Cada cadeia  consumida pela
+	 * sua execuo.
+	 * @return O resultado do lote.
+	 */
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> ResultadoDoLote executar(Dispositivo<C, E, R> dispositivo, List<? extends CadeiaDeEntrada<E>> entradas) {
+		return executar(dispositivo, entradas, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Executa o lote usando o pool definido.
+	 * @param <C> O tipo de configurao usada pelo dispositivo.
+	 * @param <E> O tipo do evento usado pelo dispositivo.
+	 * @param <R> O tipo de regra usado pelo dispositivo.
+	 * @param dispositivo O dispositivo a ser executado.
+	 * @param entradas As cadeias de entrada. Cada cadeia  consumida pela
+	 * sua execuo.
+	 * @param pool O pool que executa as cadeias.
+	 * @return O resultado do lote.
+	 */
+	public static <C extends Configuracao, E extends Evento, R extends Regra<C>> ResultadoDoLote executar(Dispositivo<C, E, R> dispositivo, List<? extends CadeiaDeEntrada<E>> entradas, ForkJoinPool pool) {
+		if (dispositivo == null)
+			throw new IllegalArgumentException("No  possvel executar o lote sem o dispositivo.");
+		if (entradas == null)
+			throw new IllegalArgumentException("As cadeias de entrada do lote no podem ser nulas.");
+
+		Lote<C, E, R> lote;
+		if (Dispositivos.podeBifurcar(dispositivo)) {
+			lote = new Lote<C, E, R>(Dispositivos.bifurcar(dispositivo), entradas, dispositivo instanceof DispositivoAdaptativo);
+			if (!entradas.isEmpty())
+				pool.invoke(new Tarefa<C, E, R>(lote, 0, entradas.size()));
+		} else {
+			// sem bifurcaes, o prprio dispositivo executa as cadeias em ordem
+			lote = new Lote<C, E, R>(dispositivo, entradas, false);
+			for (int i = 0; i < entradas.size(); i++)
+				lote.executar(i);
+		}
+
+		BitSet aceitas = new BitSet(entradas.size());
+		for (int i = 0; i < lote.saidas.length; i++) {
+			if (lote.saidas[i] != null && ResultadoDoLote.ACEITE.equals(lote.saidas[i].getSimbolo()))
+				aceitas.set(i);
+		}
+
+		return new ResultadoDoLote(aceitas, lote.saidas, Collections.unmodifiableMap(lote.erros));
+	}
+
+	/**
+	 * Os dados compartilhados pelas tarefas de um lote.
+	 */
+	private static final class Lote<C extends Configuracao, E extends Evento, R extends Regra<C>> {
+		private final Dispositivo<C, E, R> dispositivo;
+		private final boolean bifurcarPorCadeia;
+		private final List<? extends CadeiaDeEntrada<E>> entradas;
+		private final SimboloDeSaida[] saidas;
+		private final Map<Integer, ErroDeExecucao> erros;
+
+		Lote(Dispositivo<C, E, R> dispositivo, List<? extends CadeiaDeEntrada<E>> entradas, boolean bifurcarPorCadeia) {
+			this.dispositivo = dispositivo;
+			this.bifurcarPorCadeia = bifurcarPorCadeia;
+			this.entradas = entradas;
+			this.saidas = new SimboloDeSaida[entradas.size()];
+			this.erros = new ConcurrentHashMap<Integer, ErroDeExecucao>();
+		}
+
+		void executar(int indice) {
+			Dispositivo<C, E, R> d = bifurcarPorCadeia? Dispositivos.bifurcar(dispositivo) : dispositivo;
+			try {
+				saidas[indice] = Executor.executar(d, entradas.get(indice));
+			} catch (ErroDeExecucao e) {
+				erros.put(indice, e);
+			}
+		}
+	}
+
+	/**
+	 * Executa um intervalo do lote, dividindo-o enquanto for grande.
+	 */
+	private static final class Tarefa<C extends Configuracao, E extends Evento, R extends Regra<C>> extends RecursiveAction {
+		// Para o Eclipse parar de reclamar...
+		private static final long serialVersionUID = 1L;
+		private final Lote<C, E, R> lote;
+		private final int inicio, fim;
+
+		Tarefa(Lote<C, E, R> lote, int inicio, int fim) {
+			this.lote = lote;
+			this.inicio = inicio;
+			this.fim = fim;
+		}
+
+		protected void compute() {
+			if (fim - inicio <= LIMITE_TAREFA) {
+				for (int i = inicio; i < fim; i++)
+					lote.executar(i);
+			} else {
+				int meio = (inicio + fim) >>> 1;
+				invokeAll(new Tarefa<C, E, R>(lote, inicio, meio), new Tarefa<C, E, R>(lote, meio, fim));
+			}
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+/**
+ * Resumos de 64 bits usados para calcular a impresso digital dos
+ * dispositivos (ver {@link DispositivoVersionado#getImpressaoDigital()}).<br>
+ * A impresso digital de um dispositivo  o ou-exclusivo dos resumos dos
+ * seus elementos (configuraes, configurao inicial, configuraes de
+ * aceite e regras). Assim, ela  atualizada em tempo constante a cada
+ * insero ou remoo: basta aplicar o ou-exclusivo do resumo do
+ * elemento.<br>
+ * Os resumos dependem apenas dos nomes das configuraes e dos eventos (e
+ * no da identidade dos objetos), portanto so os mesmos em execues
+ * diferentes da aplicao.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class ImpressaoDigital {
+	// constantes que distinguem os tipos de elemento
+	private static final long CONFIGURACAO = 0x2545f4914f6cdd1dL;
+	private static final long INICIAL = 0x9e3779b97f4a7c15L;
+	private static final long ACEITE = 0xc2b2ae3d27d4eb4fL;
+	private static final long NULO = 0x165667b19e3779f9L;
+
+	private ImpressaoDigital() {
+	}
+
+	/**
+	 * Espalha os bits de um valor (finalizador do SplitMix64).
+	 * @param z O valor.
+	 * @return O valor misturado.
+	 */
+	public static long misturar(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Calcula o resumo de um texto (FNV-1a de 64 bits, misturado).
+	 * @param texto O texto (pode ser nulo).
+	 * @return O resumo.
+	 */
+	public static long deTexto(String texto) {
+		if (texto == null) return NULO;
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < texto.length(); i++) {
+			h ^= texto.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return misturar(h);
+	}
+
+	/**
+	 * Calcula o resumo de uma configurao do dispositivo.
+	 * @param configuracao A configurao.
+	 * @return O resumo.
+	 */
+	public static long deConfiguracao(Configuracao configuracao) {
+		return misturar(deTexto(configuracao.getNome()) ^ CONFIGURACAO);
+	}
+
+	/**
+	 * Calcula o resumo da configurao inicial.
+	 * @param inicial A configurao inicial (pode ser nula).
+	 * @return O resumo (zero, caso no exista configurao inicial).
+	 */
+	public static long deInicial(Configuracao inicial) {
+		if (inicial == null) return 0;
+		return misturar(deTexto(inicial.getNome()) ^ INICIAL);
+	}
+
+	/**
+	 * Calcula o resumo de uma configurao de aceite (alm do resumo da
+	 * configurao em si).
+	 * @param aceite A configurao de aceite.
+	 * @return O resumo.
+	 */
+	public static long deAceite(Configuracao aceite) {
+		return misturar(deTexto(aceite.getNome()) ^ ACEITE);
+	}
+
+	/**
+	 * Calcula a impresso digital de um dispositivo a partir de todos os seus
+	 * elementos (em tempo proporcional ao tamanho do dispositivo).
+	 * @param dispositivo O dispositivo.
+	 * @return A impresso digital.
+	 */
+	public static long deDispositivo(Dispositivo<?, ?, ?> dispositivo) {
+		long h = deInicial(dispositivo.configuracaoInicial());
+		for (Configuracao configuracao : dispositivo.getConfiguracoes())
+			h ^= deConfiguracao(configuracao);
+		for (Configuracao aceite : dispositivo.configuracoesDeAceite())
+			h ^= deAceite(aceite);
+		for (Regra<?> regra : dispositivo.regras())
+			h ^= deRegra(regra);
+		return h;
+	}
+
+	/**
+	 * Calcula o resumo de uma regra: a configurao inicial, o evento e a
+	 * configurao final (os mesmos dados usados para comparar regras).
+	 * @param regra A regra.
+	 * @return O resumo.
+	 */
+	public static long deRegra(Regra<?> regra) {
+		long h = deTexto(regra.getInicial().getNome());
+		h = misturar(h + deTexto(regra.getEvento()));
+		return misturar(h + deTexto(regra.getFinal().getNome()));
+	}
+}
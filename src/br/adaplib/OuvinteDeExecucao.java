@@ -0,0 +1,113 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.List;
+
+import br.adaplib.adaptativo.funcao.AcaoAdaptativa;
+import br.adaplib.adaptativo.funcao.FuncaoAdaptativa;
+import br.adaplib.adaptativo.funcao.ParametroValor;
+
+/**
+ * Representa um ouvinte dos passos da execuo de um dispositivo.<br>
+ * Os mtodos recebem os prprios objetos envolvidos (nenhuma mensagem 
+ * montada), e so chamados na thread que executa o dispositivo. O ouvinte
+ * usado  definido em Executor.setOuvinte; por padro, nada  feito
+ * (OuvinteNulo). Para ter os logs textuais, use o OuvinteLog4j.
+ * @author FLevy
+ * @since 2.1
+ */
+public interface OuvinteDeExecucao {
+	/**
+	 * A execuo do dispositivo foi iniciada.
+	 * @param dispositivo O dispositivo executado.
+	 * @param inicial A configurao inicial.
+	 */
+	public void execucaoIniciada(Dispositivo<?, ?, ?> dispositivo, Configuracao inicial);
+
+	/**
+	 * Uma regra foi aplicada pelo executor.
+	 * @param regra A regra aplicada.
+	 * @param resultante A configurao resultante.
+	 */
+	public void regraAplicada(Regra<?> regra, Configuracao resultante);
+
+	/**
+	 * A configurao atual do dispositivo foi alterada por uma regra.
+	 * @param anterior A configurao anterior.
+	 * @param nova A nova configurao.
+	 */
+	public void configuracaoAlterada(Configuracao anterior, Configuracao nova);
+
+	/**
+	 * Um evento da cadeia de entrada foi consumido.
+	 * @param evento O evento consumido.
+	 */
+	public void eventoConsumido(Evento evento);
+
+	/**
+	 * A cadeia foi rejeitada, j que no h regra para o evento.
+	 * @param atual A configurao atual.
+	 * @param evento O evento sem regra.
+	 */
+	public void cadeiaRejeitada(Configuracao atual, Evento evento);
+
+	/**
+	 * A execuo do dispositivo terminou.
+	 * @param saida O smbolo de sada.
+	 */
+	public void execucaoTerminada(SimboloDeSaida saida);
+
+	/**
+	 * A execuo foi interrompida pelo Executor, por exceder o limite de
+	 * passos ou de tempo, ou por entrar em um ciclo de regras sem eventos.
+	 * @param atual A configurao atual.
+	 * @param passos O nmero de regras aplicadas at a interrupo.
+	 */
+	public void execucaoInterrompida(Configuracao atual, long passos);
+
+	/**
+	 * Uma funo adaptativa comeou a ser executada.
+	 * @param funcao A funo adaptativa.
+	 * @param parametros Os parmetros passados  funo.
+	 */
+	public void funcaoAdaptativaIniciada(FuncaoAdaptativa funcao, List<ParametroValor> parametros);
+
+	/**
+	 * Uma funo adaptativa terminou de ser executada.
+	 * @param funcao A funo adaptativa.
+	 * @param parametros Os parmetros passados  funo.
+	 */
+	public void funcaoAdaptativaTerminada(FuncaoAdaptativa funcao, List<ParametroValor> parametros);
+
+	/**
+	 * Uma ao adaptativa foi executada.
+	 * @param acao A ao adaptativa.
+	 * @param inicial A configurao inicial resolvida (ou nulo).
+	 * @param evento O evento resolvido (ou nulo).
+	 * @param fim A configurao final resolvida (ou nulo).
+	 */
+	public void acaoAdaptativaExecutada(AcaoAdaptativa acao, Configuracao inicial, String evento, Configuracao fim);
+
+	/**
+	 * Uma regra deixou de ser aplicada, j que foi removida pela sua funo
+	 * adaptativa anterior.
+	 * @param regra A regra removida.
+	 */
+	public void regraDescartada(Regra<?> regra);
+}
@@ -0,0 +1,97 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import br.adaplib.adaptativo.RegraAdaptativa;
+import br.adaplib.adaptativo.funcao.AcaoAdaptativa;
+import br.adaplib.adaptativo.funcao.FuncaoAdaptativa;
+import br.adaplib.adaptativo.funcao.ParametroValor;
+
+/**
+ * Ouvinte que registra a execuo usando o log4j.<br>
+ * As categorias so as das classes que geram os passos (Executor, Regra,
+ * RegraAdaptativa, FuncaoAdaptativa e AcaoAdaptativa) e as mensagens s so
+ * montadas quando o nvel correspondente est habilitado.
+ * @author FLevy
+ * @since 2.1
+ */
+public class OuvinteLog4j implements OuvinteDeExecucao {
+	private static final Logger LOG_EXECUTOR = Logger.getLogger(Executor.class);
+	private static final Logger LOG_REGRA = Logger.getLogger(Regra.class);
+	private static final Logger LOG_REGRA_ADAPTATIVA = Logger.getLogger(RegraAdaptativa.class);
+	private static final Logger LOG_FUNCAO = Logger.getLogger(FuncaoAdaptativa.class);
+	private static final Logger LOG_ACAO = Logger.getLogger(AcaoAdaptativa.class);
+
+	public void execucaoIniciada(Dispositivo<?, ?, ?> dispositivo, Configuracao inicial) {
+		if (LOG_EXECUTOR.isInfoEnabled())
+			LOG_EXECUTOR.info("Configurao inicial: " + inicial + ".");
+	}
+
+	public void regraAplicada(Regra<?> regra, Configuracao resultante) {
+		if (LOG_EXECUTOR.isInfoEnabled())
+			LOG_EXECUTOR.info("Regra aplicada: " + regra + ".");
+	}
+
+	public void configuracaoAlterada(Configuracao anterior, Configuracao nova) {
+		if (LOG_REGRA.isInfoEnabled())
+			LOG_REGRA.info("Nova configurao: " + nova + ".");
+	}
+
+	public void eventoConsumido(Evento evento) {
+		if (LOG_REGRA.isInfoEnabled())
+			LOG_REGRA.info("Evento consumido: " + evento.getSimbolo() + ".");
+	}
+
+	public void cadeiaRejeitada(Configuracao atual, Evento evento) {
+		if (LOG_EXECUTOR.isInfoEnabled())
+			LOG_EXECUTOR.info("Sem regra para o evento: " + evento + ". Recusando a cadeia.");
+	}
+
+	public void execucaoTerminada(SimboloDeSaida saida) {
+		if (LOG_EXECUTOR.isInfoEnabled())
+			LOG_EXECUTOR.info("Execuo terminada com a sada: " + ((saida == null)? null : saida.getSimbolo()) + ".");
+	}
+
+	public void execucaoInterrompida(Configuracao atual, long passos) {
+		LOG_EXECUTOR.warn("Execuo interrompida na configurao " + atual + " aps " + passos + " passos.");
+	}
+
+	public void funcaoAdaptativaIniciada(FuncaoAdaptativa funcao, List<ParametroValor> parametros) {
+		if (LOG_FUNCAO.isInfoEnabled())
+			LOG_FUNCAO.info("Executando funo adaptativa \"" + funcao.getNome() + "\" com os parmetros " + parametros + ".");
+	}
+
+	public void funcaoAdaptativaTerminada(FuncaoAdaptativa funcao, List<ParametroValor> parametros) {
+		if (LOG_FUNCAO.isDebugEnabled())
+			LOG_FUNCAO.debug("Funo adaptativa \"" + funcao.getNome() + "\" executada.");
+	}
+
+	public void acaoAdaptativaExecutada(AcaoAdaptativa acao, Configuracao inicial, String evento, Configuracao fim) {
+		if (LOG_ACAO.isDebugEnabled())
+			LOG_ACAO.debug("Ao adaptativa " + acao + " executada sobre (" + inicial + ", " + evento + ", " + fim + ").");
+	}
+
+	public void regraDescartada(Regra<?> regra) {
+		if (LOG_REGRA_ADAPTATIVA.isInfoEnabled())
+			LOG_REGRA_ADAPTATIVA.info("Regra removida ao executar ao adaptativa anterior: " + regra + ".");
+	}
+}
@@ -0,0 +1,71 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.List;
+
+import br.adaplib.adaptativo.funcao.AcaoAdaptativa;
+import br.adaplib.adaptativo.funcao.FuncaoAdaptativa;
+import br.adaplib.adaptativo.funcao.ParametroValor;
+
+/**
+ * Ouvinte que no faz nada (o padro).<br>
+ * Tambm pode ser especializado por ouvintes interessados em apenas alguns
+ * dos passos da execuo.
+ * @author FLevy
+ * @since 2.1
+ */
+public class OuvinteNulo implements OuvinteDeExecucao {
+	/**
+	 * A instncia usada por padro.
+	 */
+	public static final OuvinteNulo INSTANCIA = new OuvinteNulo();
+
+	public void execucaoIniciada(Dispositivo<?, ?, ?> dispositivo, Configuracao inicial) {
+	}
+
+	public void regraAplicada(Regra<?> regra, Configuracao resultante) {
+	}
+
+	public void configuracaoAlterada(Configuracao anterior, Configuracao nova) {
+	}
+
+	public void eventoConsumido(Evento evento) {
+	}
+
+	public void cadeiaRejeitada(Configuracao atual, Evento evento) {
+	}
+
+	public void execucaoTerminada(SimboloDeSaida saida) {
+	}
+
+	public void execucaoInterrompida(Configuracao atual, long passos) {
+	}
+
+	public void funcaoAdaptativaIniciada(FuncaoAdaptativa funcao, List<ParametroValor> parametros) {
+	}
+
+	public void funcaoAdaptativaTerminada(FuncaoAdaptativa funcao, List<ParametroValor> parametros) {
+	}
+
+	public void acaoAdaptativaExecutada(AcaoAdaptativa acao, Configuracao inicial, String evento, Configuracao fim) {
+	}
+
+	public void regraDescartada(Regra<?> regra) {
+	}
+}
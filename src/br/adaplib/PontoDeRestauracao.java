@@ -0,0 +1,30 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+/**
+ * Representa um ponto de restaurao de um dispositivo: o estado do
+ * dispositivo em um determinado momento, para o qual ele pode voltar (ver
+ * {@link DispositivoRestauravel#marcar()} e {@link DispositivoRestauravel#restaurar(PontoDeRestauracao)}).<br>
+ * O ponto s pode ser usado pelo dispositivo que o criou, quantas vezes for
+ * necessrio.
+ * @author FLevy
+ * @since 2.1
+ */
+public interface PontoDeRestauracao {
+}
@@ -17,8 +17,6 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib;
 
-import org.apache.log4j.Logger;
-
 import br.adaplib.excecao.ErroDeExecucao;
 import br.adaplib.excecao.MensagemDeErro;
 
@@ -28,7 +26,6 @@ import br.adaplib.excecao.MensagemDeErro;
  * @since 2.0
  */
 public abstract class Regra <C extends Configuracao> {
-	private static final Logger LOG = Logger.getLogger(Regra.class);
 	protected C cInicial;
 	protected C cFinal;
 	protected String evento;
@@ -82,6 +79,18 @@ public abstract class Regra <C extends Configuracao> {
 		return evento;
 	}
 
+	/**
+	 * Informa se a aplicao da regra pode alterar o dispositivo (alm de
+	 * mudar a sua configurao atual).<br>
+	 * O Executor usa essa informao para detectar ciclos de regras sem
+	 * eventos: uma seqncia de regras que no alteram o dispositivo e que
+	 * repete uma configurao sem consumir a entrada nunca termina.
+	 * @return Se a regra altera o dispositivo (por padro, falso).
+	 */
+	public boolean alteraDispositivo() {
+		return false;
+	}
+
 	/**
 	 * Executa a regra: em resposta ao estmulo Evento, muda a configurao
 	 * atual do dispositivo de Configuracao inicial para Configuracao final,
@@ -106,15 +115,12 @@ public abstract class Regra <C extends Configuracao> {
 			// Ops... Execuo errada.
 			throw new ErroDeExecucao("Regra errada: evento na cadeia no  o evento consumido pela regra.", cInicial, this, cadeiaEntrada);
 		} else if (!"".equals(evento)) {
-			LOG.info("Evento consumido: " + evento + ".");
-			cadeiaEntrada.consumir();
-		} else {
-			LOG.info("Executando regra sem consumir evento.");
+			Executor.getOuvinte().eventoConsumido(cadeiaEntrada.consumir());
 		}
 
 		// Mudando o estado
 		try {
-			LOG.info("Nova configurao: " + cFinal + ".");
+			Executor.getOuvinte().configuracaoAlterada(contexto.getConfiguracaoAtual(), cFinal);
 			contexto.mudarConfiguracao(cFinal);
 		} catch (MensagemDeErro m) {
 			throw new ErroDeExecucao(m, cInicial, this, cadeiaEntrada);
@@ -124,6 +130,7 @@ public abstract class Regra <C extends Configuracao> {
 	}
 
 	public boolean equals(Object o) {
+		if (o == this) return true;
 		if (o == null) return false;
 
 		if (o instanceof Regra) {
@@ -138,7 +145,10 @@ public abstract class Regra <C extends Configuracao> {
 	}
 
 	public int hashCode() {
-		return (cInicial.getNome() + "-" + evento + "-" + cFinal.getNome()).hashCode();
+		// as regras so usadas como chave nas tabelas dos dispositivos: o
+		// hash no cria strings (e no  guardado, pois os campos podem ser
+		// alterados pelas subclasses)
+		return 31 * (31 * cInicial.getNome().hashCode() + evento.hashCode()) + cFinal.getNome().hashCode();
 	}
 
 	public String toString() {
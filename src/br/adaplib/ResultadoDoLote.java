@@ -0,0 +1,104 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import br.adaplib.excecao.ErroDeExecucao;
+
+/**
+ * Representa o resultado da execuo de um lote de cadeias de entrada.<br>
+ * Uma cadeia  considerada aceita quando o smbolo de sada  "true" (como
+ * os smbolos de sada do autmato).
+ * @author FLevy
+ * @since 2.1
+ */
+public final class ResultadoDoLote {
+	/** A representao do smbolo de sada de aceite. */
+	public static final String ACEITE = "true";
+
+	private final BitSet aceitas;
+	private final SimboloDeSaida[] saidas;
+	private final Map<Integer, ErroDeExecucao> erros;
+
+	ResultadoDoLote(BitSet aceitas, SimboloDeSaida[] saidas, Map<Integer, ErroDeExecucao> erros) {
+		this.aceitas = aceitas;
+		this.saidas = saidas;
+		this.erros = erros;
+	}
+
+	/**
+	 * Obtm o nmero de cadeias executadas.
+	 * @return O nmero de cadeias.
+	 */
+	public int tamanho() {
+		return saidas.length;
+	}
+
+	/**
+	 * Informa se a cadeia foi aceita.
+	 * @param indice O ndice da cadeia no lote.
+	 * @return Se a cadeia foi aceita.
+	 */
+	public boolean aceita(int indice) {
+		return aceitas.get(indice);
+	}
+
+	/**
+	 * Obtm os ndices das cadeias aceitas.
+	 * @return Uma cpia do conjunto de ndices das cadeias aceitas.
+	 */
+	public BitSet getAceitas() {
+		return (BitSet) aceitas.clone();
+	}
+
+	/**
+	 * Obtm o nmero de cadeias aceitas.
+	 * @return O nmero de cadeias aceitas.
+	 */
+	public int getNumeroDeAceitas() {
+		return aceitas.cardinality();
+	}
+
+	/**
+	 * Obtm o smbolo de sada de uma cadeia.
+	 * @param indice O ndice da cadeia no lote.
+	 * @return O smbolo de sada, ou nulo caso tenha acontecido um erro.
+	 */
+	public SimboloDeSaida getSaida(int indice) {
+		return saidas[indice];
+	}
+
+	/**
+	 * Obtm o erro ocorrido ao executar uma cadeia.
+	 * @param indice O ndice da cadeia no lote.
+	 * @return O erro, ou nulo caso a execuo no tenha tido erros.
+	 */
+	public ErroDeExecucao getErro(int indice) {
+		return erros.get(indice);
+	}
+
+	/**
+	 * Obtm os erros ocorridos, indexados pelo ndice da cadeia no lote.
+	 * @return Os erros ocorridos.
+	 */
+	public Map<Integer, ErroDeExecucao> getErros() {
+		return erros;
+	}
+}
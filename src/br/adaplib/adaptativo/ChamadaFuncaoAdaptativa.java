@@ -17,11 +17,13 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib.adaptativo;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
 import br.adaplib.adaptativo.funcao.FuncaoAdaptativa;
 import br.adaplib.adaptativo.funcao.ParametroValor;
+import br.adaplib.adaptativo.funcao.ParametroValorConfiguracao;
 import br.adaplib.excecao.MensagemDeErro;
 
 /**
@@ -60,6 +62,19 @@ public class ChamadaFuncaoAdaptativa {
 		return parametros;
 	}
 
+	/**
+	 * Adiciona os nomes das configuraes passadas como parmetro.
+	 * @param nomes Os nomes encontrados.
+	 * @since 2.1
+	 */
+	public void adicionarConfiguracoesUsadas(Collection<String> nomes) {
+		if (parametros == null) return;
+		for (ParametroValor p : parametros) {
+			if (p instanceof ParametroValorConfiguracao)
+				nomes.add(p.getValor());
+		}
+	}
+
 	/**
 	 * Executa a funo adaptativa com os parmetros em questo para um
 	 * determinado dispositivo.
@@ -0,0 +1,124 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.adaptativo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import br.adaplib.Configuracao;
+import br.adaplib.Dispositivo;
+import br.adaplib.Evento;
+import br.adaplib.Regra;
+import br.adaplib.adaptativo.funcao.FuncaoAdaptativa;
+import br.adaplib.excecao.MensagemDeErro;
+
+/**
+ * Remove de um dispositivo adaptativo as configuraes inalcanveis.<br>
+ * As razes so a configurao inicial, a configurao atual da execuo (se
+ * houver) e as configuraes usadas por valor nas funes adaptativas. A
+ * partir delas, as regras so percorridas (em largura, sem recurso); as
+ * configuraes usadas por valor nas chamadas das regras adaptativas
+ * percorridas tambm passam a ser alcanveis.
+ * @author FLevy
+ * @since 2.1
+ */
+final class ColetorDeConfiguracoes<C extends Configuracao, E extends Evento, R extends Regra<C>> {
+	private final DispositivoAdaptativo<C, E, R> dispositivo;
+	private final Dispositivo<C, E, R> subjacente;
+	private final HashSet<C> alcancadas = new HashSet<C>();
+	private final ArrayDeque<C> pendentes = new ArrayDeque<C>();
+
+	ColetorDeConfiguracoes(DispositivoAdaptativo<C, E, R> dispositivo) {
+		this.dispositivo = dispositivo;
+		this.subjacente = dispositivo.getDispositivoSubjacente();
+	}
+
+	/**
+	 * Faz a coleta.
+	 * @param atual A configurao atual da execuo (ou nulo).
+	 * @return As configuraes removidas.
+	 * @throws MensagemDeErro Caso haja um erro ao remover as configuraes.
+	 */
+	List<C> coletar(C atual) throws MensagemDeErro {
+		MecanismoAdaptativo<C, E, R> mecanismo = dispositivo.getMecanismoAdaptativo();
+
+		// regras de cada configurao de origem
+		HashMap<C, List<R>> saidas = new HashMap<C, List<R>>();
+		for (R r : subjacente.regras()) {
+			List<R> daOrigem = saidas.get(r.getInicial());
+			if (daOrigem == null) {
+				daOrigem = new ArrayList<R>(2);
+				saidas.put(r.getInicial(), daOrigem);
+			}
+			daOrigem.add(r);
+		}
+
+		// razes
+		alcancar(subjacente.configuracaoInicial());
+		alcancar(atual);
+		ArrayList<String> nomes = new ArrayList<String>();
+		for (FuncaoAdaptativa f : mecanismo.getFuncoes())
+			f.adicionarConfiguracoesUsadas(nomes);
+		alcancar(nomes);
+
+		while (!pendentes.isEmpty()) {
+			List<R> daOrigem = saidas.get(pendentes.poll());
+			if (daOrigem == null) continue;
+
+			for (R r : daOrigem) {
+				alcancar(r.getFinal());
+
+				RegraAdaptativa<C, R> adaptativa = mecanismo.getRegra(r);
+				if (adaptativa != null && adaptativa.alteraDispositivo()) {
+					if (adaptativa.getAnterior() != null)
+						adaptativa.getAnterior().adicionarConfiguracoesUsadas(nomes);
+					if (adaptativa.getPosterior() != null)
+						adaptativa.getPosterior().adicionarConfiguracoesUsadas(nomes);
+					alcancar(nomes);
+				}
+			}
+		}
+
+		ArrayList<C> removidas = new ArrayList<C>();
+		for (C c : subjacente.getConfiguracoes()) {
+			if (!alcancadas.contains(c)) {
+				dispositivo.removerConfiguracao(c);
+				removidas.add(c);
+			}
+		}
+
+		return removidas;
+	}
+
+	private void alcancar(C configuracao) {
+		if (configuracao != null && alcancadas.add(configuracao))
+			pendentes.add(configuracao);
+	}
+
+	/**
+	 * Alcana as configuraes com os nomes (que so consumidos).
+	 */
+	private void alcancar(List<String> nomes) {
+		for (String nome : nomes)
+			alcancar(subjacente.getConfiguracao(nome));
+		nomes.clear();
+	}
+}
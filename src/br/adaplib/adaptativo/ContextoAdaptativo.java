@@ -18,12 +18,15 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 package br.adaplib.adaptativo;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 import br.adaplib.CadeiaDeEntrada;
 import br.adaplib.Configuracao;
 import br.adaplib.Evento;
+import br.adaplib.ContextoDeConsultaRapida;
 import br.adaplib.ContextoDeExecucao;
+import br.adaplib.Dispositivos;
 import br.adaplib.Regra;
 import br.adaplib.SimboloDeSaida;
 import br.adaplib.excecao.ErroDeExecucao;
@@ -40,10 +43,12 @@ import br.adaplib.excecao.MensagemDeErro;
  * @param <E> A classe de evento do dispositivo subjacente.
  * @param <R> A classe de regra do dispositivo subjacente.
  */
-public class ContextoAdaptativo<C extends Configuracao, E extends Evento, R extends Regra<C>> implements ContextoDeExecucao<C, E, RegraAdaptativa<C, R>> {
+public class ContextoAdaptativo<C extends Configuracao, E extends Evento, R extends Regra<C>> implements ContextoDeConsultaRapida<C, E, RegraAdaptativa<C, R>> {
 	private DispositivoAdaptativo<C, E, R> dispositivo;
 	private ContextoDeExecucao<C, E, R> contextoSubjacente;
 	private boolean terminou = false;
+	// regras subjacentes sem regra adaptativa, j encapsuladas nesta execuo
+	private IdentityHashMap<R, RegraAdaptativa<C, R>> encapsuladas = new IdentityHashMap<R, RegraAdaptativa<C, R>>();
 
 	ContextoAdaptativo(DispositivoAdaptativo<C, E, R> dispositivo) {
 		if (dispositivo == null)
@@ -72,7 +77,23 @@ public class ContextoAdaptativo<C extends Configuracao, E extends Evento, R exte
 	 */
 	public C aplicar(CadeiaDeEntrada<E> entrada, RegraAdaptativa<C, R> regra) throws ErroDeExecucao {
 		if (terminou) throw new ErroDeExecucao("Dispositivo j terminou a execuo.", getConfiguracaoAtual(), regra, entrada);
-		return regra.aplicar(entrada, this);
+		C proxima = regra.aplicar(entrada, this);
+
+		// coletando as configuraes que os geradores criaram e que deixaram
+		// de ser alcanveis
+		if (regra.alteraDispositivo() && dispositivo.coletaNecessaria()) {
+			try {
+				dispositivo.coletarConfiguracoes(getConfiguracaoAtual());
+			} catch (MensagemDeErro m) {
+				throw new ErroDeExecucao(m, getConfiguracaoAtual(), regra, entrada);
+			}
+		}
+
+		// publicando a adaptao, caso o dispositivo seja lido por outras threads
+		if (regra.alteraDispositivo() && dispositivo.isPublicacaoAutomatica())
+			dispositivo.publicar();
+
+		return proxima;
 	}
 
 	public C getConfiguracaoAtual() {
@@ -95,19 +116,38 @@ public class ContextoAdaptativo<C extends Configuracao, E extends Evento, R exte
 		}
 
 		// analisando regra a regra e tornando-as "adaptativas"
-		RegraAdaptativa<C, R> ra;
 		for (R regra : regrasSubjacentes) {
-			ra = dispositivo.getMecanismoAdaptativo().getRegra(regra);
+			lista.add(tornarAdaptativa(regra));
+		}
+
+		return lista;
+	}
+
+	public RegraAdaptativa<C, R> getRegra(E evento) {
+		R regra = Dispositivos.getRegra(this.contextoSubjacente, evento);
+		if (regra == null) return null;
+
+		return tornarAdaptativa(regra);
+	}
+
+	/**
+	 * Obtm a regra adaptativa de uma regra subjacente.
+	 * @param regra A regra subjacente.
+	 * @return A regra adaptativa.
+	 */
+	private RegraAdaptativa<C, R> tornarAdaptativa(R regra) {
+		RegraAdaptativa<C, R> ra = dispositivo.getMecanismoAdaptativo().getRegra(regra);
+		if (ra == null) {
+			// bom... No h regra adaptativa para essa regra...
+			// Encapsulando a regra subjacente (apenas uma vez por execuo)
+			ra = encapsuladas.get(regra);
 			if (ra == null) {
-				// bom... No h regra adaptativa para essa regra...
-				// Encapsulando a regra subjacente
 				ra = new RegraAdaptativa<C, R>(regra);
+				encapsuladas.put(regra, ra);
 			}
-
-			lista.add(ra);
 		}
 
-		return lista;
+		return ra;
 	}
 
 	public ContextoDeExecucao<C, E, R> getContextoDeExecucaoSubjacente() {
@@ -17,13 +17,21 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib.adaptativo;
 
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Set;
 
 import br.adaplib.Configuracao;
 import br.adaplib.Dispositivo;
+import br.adaplib.DispositivoBifurcavel;
+import br.adaplib.DispositivoColetavel;
+import br.adaplib.DispositivoComFechosVazios;
+import br.adaplib.DispositivoRestauravel;
+import br.adaplib.DispositivoVersionado;
+import br.adaplib.Dispositivos;
 import br.adaplib.Evento;
 import br.adaplib.ContextoDeExecucao;
+import br.adaplib.PontoDeRestauracao;
 import br.adaplib.Regra;
 import br.adaplib.SimboloDeSaida;
 import br.adaplib.adaptativo.funcao.FuncaoAdaptativa;
@@ -34,13 +42,33 @@ import br.adaplib.excecao.MensagemDeErro;
  * Para definir o dispositivo adaptativo  necessrio definir o dispositivo
  * da camada subjacente.<br>
  * Por enquanto, as configuraes do dispositivo adaptativo <b>so</b>
- * as regras do dispositivo subjacente.
+ * as regras do dispositivo subjacente.<br>
+ * O dispositivo no  thread-safe. Para consult-lo a partir de outras
+ * threads enquanto ele  executado, publique verses (ver
+ * {@link #publicar()} e {@link #setPublicacaoAutomatica(boolean)}) e
+ * consulte a ltima delas com {@link #getVersaoPublicada()}.<br>
+ * As configuraes criadas pelos geradores das funes adaptativas e que
+ * deixaram de ser alcanveis podem ser removidas com
+ * {@link #coletarConfiguracoes()}, ou automaticamente, definindo um limite de
+ * configuraes criadas entre as coletas ({@link #setLimiteDeColeta(int)}),
+ * caso o dispositivo subjacente implemente DispositivoColetavel.
  * @author FLevy
  * @since 2.0
  */
-public class DispositivoAdaptativo<C extends Configuracao, E extends Evento, R extends Regra<C>> implements Dispositivo<C, E, RegraAdaptativa<C, R>>{
+public class DispositivoAdaptativo<C extends Configuracao, E extends Evento, R extends Regra<C>> implements DispositivoBifurcavel<C, E, RegraAdaptativa<C, R>>, DispositivoColetavel<C, E, RegraAdaptativa<C, R>>, DispositivoComFechosVazios<C, E, RegraAdaptativa<C, R>>, DispositivoRestauravel<C, E, RegraAdaptativa<C, R>>, DispositivoVersionado<C, E, RegraAdaptativa<C, R>> {
 	private MecanismoAdaptativo<C, E, R> mecanismoAdaptativo;
 	private Dispositivo<C, E, R> subjacente;
+	// verso publicada para leitura por outras threads
+	private volatile VersaoDoDispositivo<C, E, R> publicada = null;
+	private long versoes = 0;
+	private volatile boolean publicacaoAutomatica = false;
+	// configuraes criadas desde a ltima coleta, e o limite (0: sem coleta
+	// automtica)
+	private int criadas = 0;
+	private int limiteDeColeta = 0;
+	// pontos de restaurao do incio de cada transao aberta (sem o
+	// dispositivo subjacente, que controla as suas prprias transaes)
+	private ArrayDeque<Ponto<C, E, R>> transacoes = new ArrayDeque<Ponto<C, E, R>>();
 
 	/**
 	 * Cria um autmato adaptativo a partir de um determinado dispositivo
@@ -89,11 +117,25 @@ public class DispositivoAdaptativo<C extends Configuracao, E extends Evento, R e
 		return subjacente.getConfiguracoes();
 	}
 
+	/**
+	 * O fecho  o do dispositivo subjacente (as regras adaptativas que
+	 * alteram o dispositivo no so consideradas pelo Executor). Caso o
+	 * subjacente no conhea os seus fechos, so todas as configuraes.
+	 * @since 2.1
+	 */
+	@SuppressWarnings("unchecked")
+	public Set<C> getFechoVazio(C configuracao) {
+		if (subjacente instanceof DispositivoComFechosVazios)
+			return ((DispositivoComFechosVazios<C, E, R>) subjacente).getFechoVazio(configuracao);
+		return subjacente.getConfiguracoes();
+	}
+
 	public Set<C> configuracoesDeAceite() {
 		return subjacente.configuracoesDeAceite();
 	}
 
 	public C criarConfiguracao() {
+		criadas++;
 		return subjacente.criarConfiguracao();
 	}
 
@@ -122,9 +164,105 @@ public class DispositivoAdaptativo<C extends Configuracao, E extends Evento, R e
 	 * hierarquia de dispositivos adaptativos.
 	 */
 	public RegraAdaptativa<C, R> adicionarRegra(C cInicial, String evento, C cFinal) {
-		RegraAdaptativa<C, R> nova = new RegraAdaptativa<C, R>(null, subjacente.adicionarRegra(cInicial, evento, cFinal), null);
-		this.mecanismoAdaptativo.adicionarRegraAdaptativa(null, cInicial, evento, cFinal, null);
-		return nova;
+		return this.mecanismoAdaptativo.adicionarRegra(null, cInicial, evento, cFinal, null);
+	}
+
+	/**
+	 * Remove a configurao do dispositivo subjacente, junto com as regras
+	 * adaptativas das regras removidas com ela.
+	 * @throws UnsupportedOperationException Caso o dispositivo subjacente no
+	 * implemente DispositivoColetavel.
+	 * @since 2.1
+	 */
+	public List<RegraAdaptativa<C, R>> removerConfiguracao(C configuracao) throws MensagemDeErro {
+		coletavel();
+		return mecanismoAdaptativo.removerConfiguracao(configuracao);
+	}
+
+	/**
+	 * Remove as configuraes que no so alcanveis, pelas regras, a partir
+	 * da configurao inicial ou das configuraes usadas por valor nas
+	 * funes adaptativas (junto com as suas regras).<br>
+	 * Configuraes que s seriam encontradas por aes de consulta com a
+	 * origem indefinida so consideradas inalcanveis.
+	 * @return As configuraes removidas.
+	 * @throws MensagemDeErro Caso haja um erro ao remover as configuraes.
+	 * @throws UnsupportedOperationException Caso o dispositivo subjacente no
+	 * implemente DispositivoColetavel.
+	 * @since 2.1
+	 */
+	public List<C> coletarConfiguracoes() throws MensagemDeErro {
+		return coletarConfiguracoes(null);
+	}
+
+	/**
+	 * Remove as configuraes inalcanveis, considerando tambm as
+	 * alcanveis a partir da configurao atual de uma execuo.
+	 * @param atual A configurao atual (ou nulo).
+	 * @return As configuraes removidas.
+	 * @throws MensagemDeErro Caso haja um erro ao remover as configuraes.
+	 */
+	List<C> coletarConfiguracoes(C atual) throws MensagemDeErro {
+		coletavel();
+		criadas = 0;
+		return new ColetorDeConfiguracoes<C, E, R>(this).coletar(atual);
+	}
+
+	/**
+	 * Define o nmero de configuraes criadas (pelos geradores das funes
+	 * adaptativas) a partir do qual as configuraes inalcanveis so
+	 * coletadas automaticamente durante a execuo, aps a aplicao de uma
+	 * regra adaptativa.
+	 * @param limite O limite, ou 0 para no coletar automaticamente.
+	 * @throws UnsupportedOperationException Caso o limite seja positivo e o
+	 * dispositivo subjacente no implemente DispositivoColetavel.
+	 * @since 2.1
+	 */
+	public void setLimiteDeColeta(int limite) {
+		if (limite < 0)
+			throw new IllegalArgumentException("O limite de coleta no pode ser negativo.");
+		if (limite > 0) coletavel();
+		this.limiteDeColeta = limite;
+	}
+
+	/**
+	 * Obtm o nmero de configuraes criadas a partir do qual as
+	 * configuraes inalcanveis so coletadas automaticamente.
+	 * @return O limite, ou 0 caso no haja coleta automtica.
+	 * @since 2.1
+	 */
+	public int getLimiteDeColeta() {
+		return limiteDeColeta;
+	}
+
+	/**
+	 * Obtm o dispositivo subjacente como um dispositivo cujas alteraes
+	 * podem ser desfeitas.
+	 */
+	@SuppressWarnings("unchecked")
+	private DispositivoRestauravel<C, E, R> restauravel() {
+		if (!(subjacente instanceof DispositivoRestauravel))
+			throw new UnsupportedOperationException("As alteraes do dispositivo subjacente no podem ser desfeitas: ele no implementa DispositivoRestauravel.");
+		return (DispositivoRestauravel<C, E, R>) subjacente;
+	}
+
+	/**
+	 * Obtm o dispositivo subjacente como um dispositivo do qual as
+	 * configuraes podem ser removidas.
+	 */
+	@SuppressWarnings("unchecked")
+	DispositivoColetavel<C, E, R> coletavel() {
+		if (!(subjacente instanceof DispositivoColetavel))
+			throw new UnsupportedOperationException("As configuraes do dispositivo subjacente no podem ser removidas: ele no implementa DispositivoColetavel.");
+		return (DispositivoColetavel<C, E, R>) subjacente;
+	}
+
+	/**
+	 * Informa se a coleta automtica deve ser feita.
+	 * @return Se o limite de configuraes criadas foi atingido.
+	 */
+	boolean coletaNecessaria() {
+		return limiteDeColeta > 0 && criadas >= limiteDeColeta;
 	}
 
 	public ContextoDeExecucao<C, E, RegraAdaptativa<C, R>> iniciarExecucao() {
@@ -135,9 +273,197 @@ public class DispositivoAdaptativo<C extends Configuracao, E extends Evento, R e
 		return this.mecanismoAdaptativo.removeRegrasAdaptativas(de, evento, para);
 	}
 
+	/**
+	 * Copia o dispositivo subjacente e o mecanismo adaptativo. As funes
+	 * adaptativas so compartilhadas (no so alteradas pela execuo).
+	 * @throws UnsupportedOperationException Caso o dispositivo subjacente no
+	 * implemente DispositivoBifurcavel.
+	 */
+	public DispositivoAdaptativo<C, E, R> copiar() {
+		DispositivoAdaptativo<C, E, R> copia = new DispositivoAdaptativo<C, E, R>(bifurcavel().copiar());
+		mecanismoAdaptativo.copiarPara(copia.mecanismoAdaptativo);
+		copia.limiteDeColeta = limiteDeColeta;
+		return copia;
+	}
+
+	/**
+	 * Obtm o dispositivo subjacente como um dispositivo que pode ser copiado
+	 * e bifurcado.
+	 */
+	@SuppressWarnings("unchecked")
+	private DispositivoBifurcavel<C, E, R> bifurcavel() {
+		if (!(subjacente instanceof DispositivoBifurcavel))
+			throw new UnsupportedOperationException("O dispositivo subjacente no pode ser copiado nem bifurcado: ele no implementa DispositivoBifurcavel.");
+		return (DispositivoBifurcavel<C, E, R>) subjacente;
+	}
+
+	/**
+	 * Publica uma nova verso do dispositivo, com o seu estado atual.<br>
+	 * A verso  uma bifurcao (ver {@link #bifurcar()}), portanto as
+	 * adaptaes feitas depois da publicao no so vistas por quem a
+	 * consulta. Deve ser chamado pela thread que executa (ou altera) o
+	 * dispositivo.
+	 * @return A verso publicada.
+	 * @throws UnsupportedOperationException Caso o dispositivo subjacente no
+	 * implemente DispositivoBifurcavel.
+	 */
+	public synchronized VersaoDoDispositivo<C, E, R> publicar() {
+		VersaoDoDispositivo<C, E, R> nova = new VersaoDoDispositivo<C, E, R>(++versoes, bifurcar());
+		publicada = nova;
+		return nova;
+	}
+
+	/**
+	 * Obtm a ltima verso publicada, sem nenhum bloqueio. Pode ser chamado
+	 * por qualquer thread, inclusive durante a execuo do dispositivo.
+	 * @return A ltima verso publicada, ou nulo caso nenhuma tenha sido
+	 * publicada.
+	 */
+	public VersaoDoDispositivo<C, E, R> getVersaoPublicada() {
+		return publicada;
+	}
+
+	/**
+	 * Define se uma nova verso deve ser publicada automaticamente aps cada
+	 * regra adaptativa que executa uma funo adaptativa. Ao ativar, a verso
+	 * atual  publicada imediatamente.<br>
+	 * @param automatica Se a publicao  automtica.
+	 * @throws UnsupportedOperationException Caso o dispositivo subjacente no
+	 * implemente DispositivoBifurcavel.
+	 */
+	public void setPublicacaoAutomatica(boolean automatica) {
+		this.publicacaoAutomatica = automatica;
+		if (automatica) publicar();
+	}
+
+	/**
+	 * Informa se as verses so publicadas automaticamente.
+	 * @return Se a publicao  automtica.
+	 */
+	public boolean isPublicacaoAutomatica() {
+		return publicacaoAutomatica;
+	}
+
+	/**
+	 * Bifurca o dispositivo subjacente e compartilha com ele as tabelas do
+	 * mecanismo adaptativo, sem copiar nada. Cada execuo de uma bifurcao
+	 * copia apenas o que as aes adaptativas alteram.
+	 * @throws UnsupportedOperationException Caso o dispositivo subjacente no
+	 * implemente DispositivoBifurcavel.
+	 */
+	public DispositivoAdaptativo<C, E, R> bifurcar() {
+		DispositivoAdaptativo<C, E, R> bifurcacao = new DispositivoAdaptativo<C, E, R>(bifurcavel().bifurcar());
+		mecanismoAdaptativo.bifurcarPara(bifurcacao.mecanismoAdaptativo);
+		bifurcacao.limiteDeColeta = limiteDeColeta;
+		return bifurcacao;
+	}
+
+	/**
+	 * Inicia uma transao no dispositivo subjacente e no mecanismo
+	 * adaptativo. As funes adaptativas so executadas em transaes: caso
+	 * uma ao falhe, o dispositivo volta ao estado anterior  funo.
+	 * @throws UnsupportedOperationException Caso o dispositivo subjacente no
+	 * implemente DispositivoRestauravel (nesse caso, as funes adaptativas
+	 * so executadas sem transaes).
+	 */
+	public void iniciarTransacao() {
+		restauravel().iniciarTransacao();
+		transacoes.push(new Ponto<C, E, R>(this, null));
+	}
+
+	public void confirmarTransacao() {
+		if (transacoes.isEmpty())
+			throw new IllegalStateException("No h transao aberta no dispositivo adaptativo.");
+		restauravel().confirmarTransacao();
+		transacoes.pop();
+	}
+
+	public void desfazerTransacao() {
+		if (transacoes.isEmpty())
+			throw new IllegalStateException("No h transao aberta no dispositivo adaptativo.");
+		restauravel().desfazerTransacao();
+		transacoes.pop().restaurar();
+	}
+
+	/**
+	 * Marca o estado atual do dispositivo: as configuraes e regras do
+	 * dispositivo subjacente e as regras e funes do mecanismo adaptativo.
+	 * Como o custo depende apenas do dispositivo subjacente (constante para
+	 * o autmato), pode ser usado para buscas com retrocesso, execues
+	 * especulativas ou para voltar um dispositivo ao seu modelo entre duas
+	 * execues.
+	 * @throws UnsupportedOperationException Caso o dispositivo subjacente no
+	 * implemente DispositivoRestauravel.
+	 * @since 2.1
+	 */
+	public PontoDeRestauracao marcar() {
+		return new Ponto<C, E, R>(this, restauravel().marcar());
+	}
+
+	@SuppressWarnings("unchecked")
+	public void restaurar(PontoDeRestauracao ponto) {
+		if (!(ponto instanceof Ponto) || ((Ponto<?, ?, ?>) ponto).dispositivo != this)
+			throw new IllegalArgumentException("Erro ao restaurar o dispositivo adaptativo: o ponto de restaurao no foi criado por ele.");
+		Ponto<C, E, R> p = (Ponto<C, E, R>) ponto;
+		restauravel().restaurar(p.subjacente);
+		p.restaurar();
+	}
+
+	/**
+	 * A impresso digital inclui as chamadas adaptativas atreladas s regras
+	 * (pelo nome da funo e pelos parmetros), mas no o contedo das
+	 * funes adaptativas. Caso o dispositivo subjacente no implemente
+	 * DispositivoVersionado, a sua parte  calculada a cada chamada (ver
+	 * {@link Dispositivos#getImpressaoDigital(Dispositivo)}).
+	 */
+	public long getImpressaoDigital() {
+		return Dispositivos.getImpressaoDigital(subjacente) ^ mecanismoAdaptativo.getImpressaoDigital();
+	}
+
+	/**
+	 * A reviso inclui a adio e a substituio de funes adaptativas no
+	 * mecanismo, mas no as alteraes feitas diretamente em uma funo
+	 * adaptativa j registrada (por exemplo, com
+	 * {@link FuncaoAdaptativa#setGeradores(int)},
+	 * {@link FuncaoAdaptativa#adicionarAcao(br.adaplib.adaptativo.funcao.AcaoAdaptativa)}
+	 * ou nas funes anterior e posterior de uma ao de insero).<br>
+	 * Caso o dispositivo subjacente no implemente DispositivoVersionado, a
+	 * reviso no cresce a cada alterao (ver
+	 * {@link Dispositivos#getRevisao(Dispositivo)}) e s deve ser comparada
+	 * com valores anteriores para saber se o dispositivo mudou.
+	 */
+	public long getRevisao() {
+		return Dispositivos.getRevisao(subjacente) + mecanismoAdaptativo.getRevisao();
+	}
+
 	public boolean existeRegra(RegraAdaptativa<C, R> regra) {
 		if (regra == null) return false;
 
-		return this.mecanismoAdaptativo.getRegras().contains(regra);
+		return subjacente.existeRegra(regra.getRegraSubjacente());
+	}
+
+	/**
+	 * Um estado do dispositivo adaptativo.
+	 */
+	private static final class Ponto<C extends Configuracao, E extends Evento, R extends Regra<C>> implements PontoDeRestauracao {
+		private final DispositivoAdaptativo<C, E, R> dispositivo;
+		private final PontoDeRestauracao subjacente;
+		private final MecanismoAdaptativo<C, E, R> mecanismo;
+		private final int criadas;
+
+		Ponto(DispositivoAdaptativo<C, E, R> dispositivo, PontoDeRestauracao subjacente) {
+			this.dispositivo = dispositivo;
+			this.subjacente = subjacente;
+			this.mecanismo = dispositivo.mecanismoAdaptativo.marcar();
+			this.criadas = dispositivo.criadas;
+		}
+
+		/**
+		 * Restaura o mecanismo adaptativo e o contador de configuraes.
+		 */
+		void restaurar() {
+			dispositivo.mecanismoAdaptativo.restaurar(mecanismo);
+			dispositivo.criadas = criadas;
+		}
 	}
 }
@@ -0,0 +1,545 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.adaptativo;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import br.adaplib.adaptativo.funcao.AcaoAdaptativa;
+import br.adaplib.adaptativo.funcao.AcaoAdaptativaInsercao;
+import br.adaplib.adaptativo.funcao.AcaoAdaptativaRemocao;
+import br.adaplib.adaptativo.funcao.FuncaoAdaptativa;
+import br.adaplib.adaptativo.funcao.Parametro;
+import br.adaplib.adaptativo.funcao.ParametroConfiguracao;
+import br.adaplib.adaptativo.funcao.ParametroEvento;
+import br.adaplib.adaptativo.funcao.ParametroReferencia;
+import br.adaplib.adaptativo.funcao.ParametroReferenciaConfiguracao;
+import br.adaplib.adaptativo.funcao.ParametroReferenciaEvento;
+import br.adaplib.adaptativo.funcao.ParametroReferenciaGerador;
+import br.adaplib.adaptativo.funcao.ParametroValor;
+import br.adaplib.adaptativo.funcao.ParametroValorConfiguracao;
+import br.adaplib.adaptativo.funcao.ParametroValorEvento;
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.Estado;
+import br.adaplib.subjacente.automato.ImagemDoAutomato;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.Transicao;
+import br.adaplib.util.FormatoBinario;
+
+/**
+ * Imagem binria de um dispositivo adaptativo cuja camada subjacente  um
+ * autmato.<br>
+ * Depois do cabealho (ver {@link FormatoBinario}), a imagem tem a imagem do
+ * autmato subjacente ({@link ImagemDoAutomato}), a tabela de textos e, como
+ * vetores de inteiros (cada vetor de uma vez, com os elementos de mesmo tipo
+ * juntos):
+ * <ul>
+ * <li>os parmetros: o tipo e o valor (ndice do texto ou nmero da
+ * referncia) de cada um;</li>
+ * <li>as listas de parmetros: o incio de cada lista e os parmetros de
+ * todas elas em sequncia;</li>
+ * <li>as aes adaptativas: o tipo, os parmetros de origem, evento e
+ * destino e, nas inseres, as funes anterior e posterior com as suas
+ * listas de parmetros;</li>
+ * <li>as funes adaptativas: o nome, o nmero de geradores, as aes pr e
+ * ps, as aes (como faixas de um vetor) e se a funo est registrada no
+ * mecanismo;</li>
+ * <li>as regras adaptativas: a origem, o evento e o destino da regra
+ * subjacente e as chamadas anterior e posterior (funo e lista de
+ * valores).</li>
+ * </ul>
+ * As aes e os parmetros compartilhados entre funes so gravados uma
+ * nica vez. As configuraes do dispositivo que no fazem parte da sua
+ * estrutura (a coleta e a publicao automticas) no so gravadas.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class ImagemDoAutomatoAdaptativo {
+	/**
+	 * O tipo das imagens de autmatos adaptativos.
+	 */
+	public static final int TIPO = 2;
+
+	// tipos dos parmetros
+	private static final int VALOR_CONFIGURACAO = 0;
+	private static final int VALOR_EVENTO = 1;
+	private static final int REFERENCIA_CONFIGURACAO = 2;
+	private static final int REFERENCIA_EVENTO = 3;
+	private static final int REFERENCIA_GERADOR = 4;
+
+	// tipos das aes
+	private static final int REMOCAO = 0;
+	private static final int INSERCAO = 1;
+
+	private ImagemDoAutomatoAdaptativo() {
+	}
+
+	/**
+	 * Grava a imagem de um autmato adaptativo.
+	 * @param dispositivo O dispositivo (cuja camada subjacente deve ser um
+	 * Automato).
+	 * @param saida A sada (no  fechada).
+	 * @throws IOException Caso ocorra um erro na gravao.
+	 */
+	public static void gravar(DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo, OutputStream saida) throws IOException {
+		if (dispositivo == null || !(dispositivo.getDispositivoSubjacente() instanceof Automato))
+			throw new IllegalArgumentException("Erro ao gravar a imagem: o dispositivo deve ter um autmato como camada subjacente.");
+
+		Gravacao gravacao = new Gravacao();
+		MecanismoAdaptativo<Estado, Simbolo, Transicao> mecanismo = dispositivo.getMecanismoAdaptativo();
+		for (FuncaoAdaptativa f : mecanismo.getFuncoes())
+			gravacao.funcao(f, true);
+		List<RegraAdaptativa<Estado, Transicao>> regras = mecanismo.getRegrasAdaptativas(null, null, null);
+		for (RegraAdaptativa<Estado, Transicao> r : regras) {
+			gravacao.chamada(r.getAnterior());
+			gravacao.chamada(r.getPosterior());
+		}
+
+		DataOutputStream dados = new DataOutputStream(new BufferedOutputStream(saida));
+		FormatoBinario.gravarCabecalho(dados, TIPO);
+		dados.flush();
+		ImagemDoAutomato.gravar((Automato) dispositivo.getDispositivoSubjacente(), saida);
+		FormatoBinario.Textos textos = gravacao.textos;
+
+		// parmetros
+		int numero = gravacao.parametros.size();
+		int[] tipos = new int[numero];
+		int[] valores = new int[numero];
+		for (int i = 0; i < numero; i++) {
+			Parametro p = gravacao.parametros.get(i);
+			if (p instanceof ParametroValorConfiguracao) {
+				tipos[i] = VALOR_CONFIGURACAO;
+			} else if (p instanceof ParametroValorEvento) {
+				tipos[i] = VALOR_EVENTO;
+			} else if (p instanceof ParametroReferenciaConfiguracao) {
+				tipos[i] = REFERENCIA_CONFIGURACAO;
+			} else if (p instanceof ParametroReferenciaEvento) {
+				tipos[i] = REFERENCIA_EVENTO;
+			} else if (p instanceof ParametroReferenciaGerador) {
+				tipos[i] = REFERENCIA_GERADOR;
+			} else {
+				throw new IllegalArgumentException("Erro ao gravar a imagem: tipo de parmetro desconhecido (" + p.getClass().getName() + ").");
+			}
+			valores[i] = (p instanceof ParametroValor)? textos.indice(((ParametroValor) p).getValor()) : ((ParametroReferencia) p).getValor();
+		}
+
+		// listas de parmetros
+		int[] inicios = new int[gravacao.listas.size() + 1];
+		for (int i = 0; i < gravacao.listas.size(); i++)
+			inicios[i + 1] = inicios[i] + gravacao.listas.get(i).size();
+		int[] elementos = new int[inicios[gravacao.listas.size()]];
+		int e = 0;
+		for (List<? extends Parametro> lista : gravacao.listas) {
+			for (Parametro p : lista)
+				elementos[e++] = gravacao.parametro(p);
+		}
+
+		// aes
+		numero = gravacao.acoes.size();
+		int[] tiposDeAcao = new int[numero];
+		int[] origens = new int[numero];
+		int[] eventos = new int[numero];
+		int[] destinos = new int[numero];
+		int[] anteriores = new int[numero];
+		int[] parametrosAnteriores = new int[numero];
+		int[] posteriores = new int[numero];
+		int[] parametrosPosteriores = new int[numero];
+		for (int i = 0; i < numero; i++) {
+			AcaoAdaptativa acao = gravacao.acoes.get(i);
+			origens[i] = gravacao.parametro(acao.getParametroConfiguracaoOrigem());
+			eventos[i] = gravacao.parametro(acao.getParametroEvento());
+			destinos[i] = gravacao.parametro(acao.getParametroConfiguracaoDestino());
+			anteriores[i] = parametrosAnteriores[i] = posteriores[i] = parametrosPosteriores[i] = -1;
+			if (acao instanceof AcaoAdaptativaRemocao) {
+				tiposDeAcao[i] = REMOCAO;
+			} else if (acao instanceof AcaoAdaptativaInsercao) {
+				AcaoAdaptativaInsercao insercao = (AcaoAdaptativaInsercao) acao;
+				tiposDeAcao[i] = INSERCAO;
+				anteriores[i] = textos.indice(insercao.getFuncaoAnterior());
+				parametrosAnteriores[i] = gravacao.lista(insercao.getParametrosAnterior());
+				posteriores[i] = textos.indice(insercao.getFuncaoPosterior());
+				parametrosPosteriores[i] = gravacao.lista(insercao.getParametrosPosterior());
+			} else {
+				throw new IllegalArgumentException("Erro ao gravar a imagem: tipo de ao adaptativa desconhecido (" + acao.getClass().getName() + ").");
+			}
+		}
+
+		// funes
+		numero = gravacao.funcoes.size();
+		int[] nomes = new int[numero];
+		int[] geradores = new int[numero];
+		int[] pres = new int[numero];
+		int[] poss = new int[numero];
+		int[] registradas = new int[numero];
+		int[] faixas = new int[numero + 1];
+		for (int i = 0; i < numero; i++) {
+			FuncaoAdaptativa f = gravacao.funcoes.get(i);
+			nomes[i] = textos.indice(f.getNome());
+			geradores[i] = f.getGeradores();
+			pres[i] = gravacao.acao(f.getAcaoAdaptativaPre());
+			poss[i] = gravacao.acao(f.getAcaoAdaptativaPos());
+			registradas[i] = gravacao.registradas.get(i)? 1 : 0;
+			faixas[i + 1] = faixas[i] + f.getAcoes().size();
+		}
+		int[] acoesDasFuncoes = new int[faixas[numero]];
+		int a = 0;
+		for (FuncaoAdaptativa f : gravacao.funcoes) {
+			for (AcaoAdaptativa acao : f.getAcoes())
+				acoesDasFuncoes[a++] = gravacao.acao(acao);
+		}
+
+		// regras adaptativas
+		numero = regras.size();
+		int[] deRegras = new int[numero];
+		int[] eventosDeRegras = new int[numero];
+		int[] paraRegras = new int[numero];
+		int[] funcoesAnteriores = new int[numero];
+		int[] valoresAnteriores = new int[numero];
+		int[] funcoesPosteriores = new int[numero];
+		int[] valoresPosteriores = new int[numero];
+		for (int i = 0; i < numero; i++) {
+			Transicao t = regras.get(i).getRegraSubjacente();
+			deRegras[i] = textos.indice(t.getInicial().getNome());
+			eventosDeRegras[i] = textos.indice(t.getEvento());
+			paraRegras[i] = textos.indice(t.getFinal().getNome());
+			ChamadaFuncaoAdaptativa anterior = regras.get(i).getAnterior();
+			funcoesAnteriores[i] = (anterior == null)? -1 : gravacao.funcao(anterior.getFuncao(), false);
+			valoresAnteriores[i] = (anterior == null)? -1 : gravacao.lista(anterior.getParametros());
+			ChamadaFuncaoAdaptativa posterior = regras.get(i).getPosterior();
+			funcoesPosteriores[i] = (posterior == null)? -1 : gravacao.funcao(posterior.getFuncao(), false);
+			valoresPosteriores[i] = (posterior == null)? -1 : gravacao.lista(posterior.getParametros());
+		}
+
+		FormatoBinario.gravarTextos(dados, textos.getTextos());
+		dados.writeInt(tipos.length);
+		FormatoBinario.gravarInteiros(dados, tipos);
+		FormatoBinario.gravarInteiros(dados, valores);
+		dados.writeInt(inicios.length - 1);
+		FormatoBinario.gravarInteiros(dados, inicios);
+		FormatoBinario.gravarInteiros(dados, elementos);
+		dados.writeInt(tiposDeAcao.length);
+		FormatoBinario.gravarInteiros(dados, tiposDeAcao);
+		FormatoBinario.gravarInteiros(dados, origens);
+		FormatoBinario.gravarInteiros(dados, eventos);
+		FormatoBinario.gravarInteiros(dados, destinos);
+		FormatoBinario.gravarInteiros(dados, anteriores);
+		FormatoBinario.gravarInteiros(dados, parametrosAnteriores);
+		FormatoBinario.gravarInteiros(dados, posteriores);
+		FormatoBinario.gravarInteiros(dados, parametrosPosteriores);
+		dados.writeInt(nomes.length);
+		FormatoBinario.gravarInteiros(dados, nomes);
+		FormatoBinario.gravarInteiros(dados, geradores);
+		FormatoBinario.gravarInteiros(dados, pres);
+		FormatoBinario.gravarInteiros(dados, poss);
+		FormatoBinario.gravarInteiros(dados, registradas);
+		FormatoBinario.gravarInteiros(dados, faixas);
+		FormatoBinario.gravarInteiros(dados, acoesDasFuncoes);
+		dados.writeInt(deRegras.length);
+		FormatoBinario.gravarInteiros(dados, deRegras);
+		FormatoBinario.gravarInteiros(dados, eventosDeRegras);
+		FormatoBinario.gravarInteiros(dados, paraRegras);
+		FormatoBinario.gravarInteiros(dados, funcoesAnteriores);
+		FormatoBinario.gravarInteiros(dados, valoresAnteriores);
+		FormatoBinario.gravarInteiros(dados, funcoesPosteriores);
+		FormatoBinario.gravarInteiros(dados, valoresPosteriores);
+		dados.flush();
+	}
+
+	/**
+	 * Grava a imagem de um autmato adaptativo em um arquivo.
+	 * @param dispositivo O dispositivo.
+	 * @param arquivo O arquivo ( sobrescrito, caso exista).
+	 * @throws IOException Caso ocorra um erro na gravao.
+	 */
+	public static void gravar(DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo, File arquivo) throws IOException {
+		FileOutputStream saida = new FileOutputStream(arquivo);
+		try {
+			gravar(dispositivo, saida);
+		} finally {
+			saida.close();
+		}
+	}
+
+	/**
+	 * Carrega um autmato adaptativo de uma imagem. A leitura comea na
+	 * posio atual do buffer (que deve estar em big endian, a ordem padro).
+	 * @param imagem A imagem.
+	 * @return O dispositivo.
+	 * @throws IOException Caso a imagem seja invlida ou esteja truncada.
+	 */
+	public static DispositivoAdaptativo<Estado, Simbolo, Transicao> carregar(ByteBuffer imagem) throws IOException {
+		FormatoBinario.lerCabecalho(imagem, TIPO);
+		Automato automato = ImagemDoAutomato.carregar(imagem);
+		String[] textos = FormatoBinario.lerTextos(imagem);
+
+		try {
+			// parmetros
+			int numero = FormatoBinario.lerTamanho(imagem);
+			int[] tipos = FormatoBinario.lerInteiros(imagem, numero);
+			int[] valores = FormatoBinario.lerInteiros(imagem, numero);
+			Parametro[] parametros = new Parametro[numero];
+			for (int i = 0; i < numero; i++) {
+				switch (tipos[i]) {
+				case VALOR_CONFIGURACAO: parametros[i] = new ParametroValorConfiguracao(FormatoBinario.texto(textos, valores[i])); break;
+				case VALOR_EVENTO: parametros[i] = new ParametroValorEvento(FormatoBinario.texto(textos, valores[i])); break;
+				case REFERENCIA_CONFIGURACAO: parametros[i] = new ParametroReferenciaConfiguracao(valores[i]); break;
+				case REFERENCIA_EVENTO: parametros[i] = new ParametroReferenciaEvento(valores[i]); break;
+				case REFERENCIA_GERADOR: parametros[i] = new ParametroReferenciaGerador(valores[i]); break;
+				default: throw new IOException("Erro ao carregar a imagem: tipo de parmetro desconhecido (" + tipos[i] + ").");
+				}
+			}
+
+			// listas de parmetros
+			numero = FormatoBinario.lerTamanho(imagem);
+			int[] inicios = FormatoBinario.lerInteiros(imagem, numero + 1);
+			if (inicios[0] != 0 || inicios[numero] < 0)
+				throw new IOException("Erro ao carregar a imagem: as listas de parmetros esto mal formadas.");
+			int[] elementos = FormatoBinario.lerInteiros(imagem, inicios[numero]);
+			Leitura leitura = new Leitura(parametros, inicios, elementos);
+
+			// aes
+			numero = FormatoBinario.lerTamanho(imagem);
+			int[] tiposDeAcao = FormatoBinario.lerInteiros(imagem, numero);
+			int[] origens = FormatoBinario.lerInteiros(imagem, numero);
+			int[] eventos = FormatoBinario.lerInteiros(imagem, numero);
+			int[] destinos = FormatoBinario.lerInteiros(imagem, numero);
+			int[] anteriores = FormatoBinario.lerInteiros(imagem, numero);
+			int[] parametrosAnteriores = FormatoBinario.lerInteiros(imagem, numero);
+			int[] posteriores = FormatoBinario.lerInteiros(imagem, numero);
+			int[] parametrosPosteriores = FormatoBinario.lerInteiros(imagem, numero);
+			AcaoAdaptativa[] acoes = new AcaoAdaptativa[numero];
+			for (int i = 0; i < numero; i++) {
+				ParametroConfiguracao origem = leitura.parametro(origens[i], ParametroConfiguracao.class);
+				ParametroEvento evento = leitura.parametro(eventos[i], ParametroEvento.class);
+				ParametroConfiguracao destino = leitura.parametro(destinos[i], ParametroConfiguracao.class);
+				if (tiposDeAcao[i] == REMOCAO) {
+					acoes[i] = new AcaoAdaptativaRemocao(origem, evento, destino);
+				} else if (tiposDeAcao[i] == INSERCAO) {
+					acoes[i] = new AcaoAdaptativaInsercao(origem, evento, destino,
+							FormatoBinario.texto(textos, anteriores[i]), leitura.lista(parametrosAnteriores[i], Parametro.class),
+							FormatoBinario.texto(textos, posteriores[i]), leitura.lista(parametrosPosteriores[i], Parametro.class));
+				} else {
+					throw new IOException("Erro ao carregar a imagem: tipo de ao adaptativa desconhecido (" + tiposDeAcao[i] + ").");
+				}
+			}
+
+			// funes
+			numero = FormatoBinario.lerTamanho(imagem);
+			int[] nomes = FormatoBinario.lerInteiros(imagem, numero);
+			int[] geradores = FormatoBinario.lerInteiros(imagem, numero);
+			int[] pres = FormatoBinario.lerInteiros(imagem, numero);
+			int[] poss = FormatoBinario.lerInteiros(imagem, numero);
+			int[] registradas = FormatoBinario.lerInteiros(imagem, numero);
+			int[] faixas = FormatoBinario.lerInteiros(imagem, numero + 1);
+			if (faixas[0] != 0 || faixas[numero] < 0)
+				throw new IOException("Erro ao carregar a imagem: as aes das funes esto mal formadas.");
+			int[] acoesDasFuncoes = FormatoBinario.lerInteiros(imagem, faixas[numero]);
+			FuncaoAdaptativa[] funcoes = new FuncaoAdaptativa[numero];
+			LinkedHashSet<FuncaoAdaptativa> doMecanismo = new LinkedHashSet<FuncaoAdaptativa>();
+			for (int i = 0; i < numero; i++) {
+				if (faixas[i] > faixas[i + 1] || faixas[i + 1] > acoesDasFuncoes.length)
+					throw new IOException("Erro ao carregar a imagem: as aes das funes esto mal formadas.");
+				LinkedHashSet<AcaoAdaptativa> daFuncao = new LinkedHashSet<AcaoAdaptativa>();
+				for (int j = faixas[i]; j < faixas[i + 1]; j++)
+					daFuncao.add(acoes[FormatoBinario.indice(acoesDasFuncoes[j], acoes.length)]);
+				AcaoAdaptativa pre = (pres[i] == -1)? null : acoes[FormatoBinario.indice(pres[i], acoes.length)];
+				AcaoAdaptativa pos = (poss[i] == -1)? null : acoes[FormatoBinario.indice(poss[i], acoes.length)];
+				funcoes[i] = new FuncaoAdaptativa(FormatoBinario.texto(textos, nomes[i]), pre, daFuncao, pos, geradores[i]);
+				if (registradas[i] != 0) doMecanismo.add(funcoes[i]);
+			}
+
+			DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = new DispositivoAdaptativo<Estado, Simbolo, Transicao>(automato, doMecanismo);
+			MecanismoAdaptativo<Estado, Simbolo, Transicao> mecanismo = dispositivo.getMecanismoAdaptativo();
+
+			// regras adaptativas: as regras subjacentes j esto no autmato
+			numero = FormatoBinario.lerTamanho(imagem);
+			int[] deRegras = FormatoBinario.lerInteiros(imagem, numero);
+			int[] eventosDeRegras = FormatoBinario.lerInteiros(imagem, numero);
+			int[] paraRegras = FormatoBinario.lerInteiros(imagem, numero);
+			int[] funcoesAnteriores = FormatoBinario.lerInteiros(imagem, numero);
+			int[] valoresAnteriores = FormatoBinario.lerInteiros(imagem, numero);
+			int[] funcoesPosteriores = FormatoBinario.lerInteiros(imagem, numero);
+			int[] valoresPosteriores = FormatoBinario.lerInteiros(imagem, numero);
+			for (int i = 0; i < numero; i++) {
+				Transicao transicao = transicao(automato, FormatoBinario.texto(textos, deRegras[i]),
+						FormatoBinario.texto(textos, eventosDeRegras[i]), FormatoBinario.texto(textos, paraRegras[i]));
+				ChamadaFuncaoAdaptativa anterior = (funcoesAnteriores[i] == -1)? null : new ChamadaFuncaoAdaptativa(
+						funcoes[FormatoBinario.indice(funcoesAnteriores[i], funcoes.length)], leitura.lista(valoresAnteriores[i], ParametroValor.class));
+				ChamadaFuncaoAdaptativa posterior = (funcoesPosteriores[i] == -1)? null : new ChamadaFuncaoAdaptativa(
+						funcoes[FormatoBinario.indice(funcoesPosteriores[i], funcoes.length)], leitura.lista(valoresPosteriores[i], ParametroValor.class));
+				mecanismo.adicionarRegraAdaptativa(new RegraAdaptativa<Estado, Transicao>(anterior, transicao, posterior));
+			}
+
+			return dispositivo;
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Erro ao carregar a imagem: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Carrega um autmato adaptativo de um arquivo, mapeando-o em memria.
+	 * @param arquivo O arquivo.
+	 * @return O dispositivo.
+	 * @throws IOException Caso ocorra um erro na leitura ou a imagem seja
+	 * invlida.
+	 */
+	public static DispositivoAdaptativo<Estado, Simbolo, Transicao> carregar(File arquivo) throws IOException {
+		return carregar(FormatoBinario.mapear(arquivo));
+	}
+
+	/**
+	 * Encontra a transio subjacente de uma regra adaptativa.
+	 */
+	private static Transicao transicao(Automato automato, String origem, String evento, String destino) throws IOException {
+		Estado de = (origem == null)? null : automato.getConfiguracao(origem);
+		if (de != null && evento != null) {
+			for (Transicao t : automato.getTransicoes(de, evento)) {
+				if (t.getFinal().getNome().equals(destino)) return t;
+			}
+		}
+		throw new IOException("Erro ao carregar a imagem: a regra adaptativa (" + origem + ", " + evento + ", " + destino + ") no existe no autmato.");
+	}
+
+	/**
+	 * Os elementos numerados durante a gravao, na ordem em que foram
+	 * encontrados (os mesmos objetos recebem o mesmo nmero).
+	 */
+	private static final class Gravacao {
+		private final FormatoBinario.Textos textos = new FormatoBinario.Textos();
+		private final ArrayList<FuncaoAdaptativa> funcoes = new ArrayList<FuncaoAdaptativa>();
+		private final ArrayList<Boolean> registradas = new ArrayList<Boolean>();
+		private final IdentityHashMap<FuncaoAdaptativa, Integer> indicesDeFuncoes = new IdentityHashMap<FuncaoAdaptativa, Integer>();
+		private final ArrayList<AcaoAdaptativa> acoes = new ArrayList<AcaoAdaptativa>();
+		private final IdentityHashMap<AcaoAdaptativa, Integer> indicesDeAcoes = new IdentityHashMap<AcaoAdaptativa, Integer>();
+		private final ArrayList<Parametro> parametros = new ArrayList<Parametro>();
+		private final IdentityHashMap<Parametro, Integer> indicesDeParametros = new IdentityHashMap<Parametro, Integer>();
+		private final ArrayList<List<? extends Parametro>> listas = new ArrayList<List<? extends Parametro>>();
+		private final IdentityHashMap<List<? extends Parametro>, Integer> indicesDeListas = new IdentityHashMap<List<? extends Parametro>, Integer>();
+
+		int funcao(FuncaoAdaptativa funcao, boolean registrada) {
+			Integer indice = indicesDeFuncoes.get(funcao);
+			if (indice != null) return indice;
+
+			indice = funcoes.size();
+			indicesDeFuncoes.put(funcao, indice);
+			funcoes.add(funcao);
+			registradas.add(registrada);
+			acao(funcao.getAcaoAdaptativaPre());
+			for (AcaoAdaptativa a : funcao.getAcoes())
+				acao(a);
+			acao(funcao.getAcaoAdaptativaPos());
+			return indice;
+		}
+
+		void chamada(ChamadaFuncaoAdaptativa chamada) {
+			if (chamada == null) return;
+			funcao(chamada.getFuncao(), false);
+			lista(chamada.getParametros());
+		}
+
+		int acao(AcaoAdaptativa acao) {
+			if (acao == null) return -1;
+			Integer indice = indicesDeAcoes.get(acao);
+			if (indice != null) return indice;
+
+			indice = acoes.size();
+			indicesDeAcoes.put(acao, indice);
+			acoes.add(acao);
+			parametro(acao.getParametroConfiguracaoOrigem());
+			parametro(acao.getParametroEvento());
+			parametro(acao.getParametroConfiguracaoDestino());
+			if (acao instanceof AcaoAdaptativaInsercao) {
+				textos.indice(((AcaoAdaptativaInsercao) acao).getFuncaoAnterior());
+				textos.indice(((AcaoAdaptativaInsercao) acao).getFuncaoPosterior());
+				lista(((AcaoAdaptativaInsercao) acao).getParametrosAnterior());
+				lista(((AcaoAdaptativaInsercao) acao).getParametrosPosterior());
+			}
+			return indice;
+		}
+
+		int lista(List<? extends Parametro> lista) {
+			if (lista == null) return -1;
+			Integer indice = indicesDeListas.get(lista);
+			if (indice != null) return indice;
+
+			indice = listas.size();
+			indicesDeListas.put(lista, indice);
+			listas.add(lista);
+			for (Parametro p : lista)
+				parametro(p);
+			return indice;
+		}
+
+		int parametro(Parametro parametro) {
+			if (parametro == null) return -1;
+			Integer indice = indicesDeParametros.get(parametro);
+			if (indice != null) return indice;
+
+			indice = parametros.size();
+			indicesDeParametros.put(parametro, indice);
+			parametros.add(parametro);
+			if (parametro instanceof ParametroValor) textos.indice(((ParametroValor) parametro).getValor());
+			return indice;
+		}
+	}
+
+	/**
+	 * Os parmetros e as listas de parmetros lidos da imagem.
+	 */
+	private static final class Leitura {
+		private final Parametro[] parametros;
+		private final int[] inicios;
+		private final int[] elementos;
+
+		Leitura(Parametro[] parametros, int[] inicios, int[] elementos) {
+			this.parametros = parametros;
+			this.inicios = inicios;
+			this.elementos = elementos;
+		}
+
+		<P extends Parametro> P parametro(int indice, Class<P> tipo) throws IOException {
+			if (indice == -1) return null;
+			Parametro p = parametros[FormatoBinario.indice(indice, parametros.length)];
+			if (!tipo.isInstance(p))
+				throw new IOException("Erro ao carregar a imagem: o parmetro " + indice + " no  do tipo esperado.");
+			return tipo.cast(p);
+		}
+
+		<P extends Parametro> List<P> lista(int indice, Class<P> tipo) throws IOException {
+			if (indice == -1) return null;
+			FormatoBinario.indice(indice, inicios.length - 1);
+			int inicio = inicios[indice], fim = inicios[indice + 1];
+			if (inicio < 0 || inicio > fim || fim > elementos.length)
+				throw new IOException("Erro ao carregar a imagem: as listas de parmetros esto mal formadas.");
+
+			ArrayList<P> lista = new ArrayList<P>(fim - inicio);
+			for (int i = inicio; i < fim; i++)
+				lista.add(parametro(elementos[i], tipo));
+			return lista;
+		}
+	}
+}
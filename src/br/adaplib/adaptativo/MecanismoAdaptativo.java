@@ -17,32 +17,54 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib.adaptativo;
 
-import java.util.LinkedHashSet;
-import java.util.LinkedHashMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import br.adaplib.Configuracao;
 import br.adaplib.Dispositivo;
+import br.adaplib.DispositivoColetavel;
 import br.adaplib.Evento;
+import br.adaplib.ImpressaoDigital;
 import br.adaplib.Regra;
 import br.adaplib.adaptativo.funcao.FuncaoAdaptativa;
+import br.adaplib.adaptativo.funcao.ParametroValor;
+import br.adaplib.adaptativo.funcao.PlanoDeExecucao;
 import br.adaplib.excecao.MensagemDeErro;
+import br.adaplib.util.MapaPersistente;
 
 /**
  * Representa o mecanismo adaptativo de um dispositivo adaptativo.<br>
  * O mecanismo adaptativo representa o conjunto de aes adaptativas
- * (anteriores e posteriores) atreladas s regras do dispositivo.
+ * (anteriores e posteriores) atreladas s regras do dispositivo.<br>
+ * As tabelas so mapas persistentes, para que o mecanismo de um dispositivo
+ * bifurcado seja criado sem copi-las.
  * @author FLevy
  * @since 2.0
  */
 public final class MecanismoAdaptativo<C extends Configuracao, E extends Evento, R extends Regra<C>> {
 	private Dispositivo<C, E, R> subjacente;
-	private LinkedHashMap<String, FuncaoAdaptativa> funcoes;
-	private LinkedHashMap<String, RegraAdaptativa<C,R>> regrasEvento;
-	private LinkedHashMap<R, RegraAdaptativa<C, R>> regrasSubjacente;
-	private LinkedHashSet<RegraAdaptativa<C, R>> regras = null;
+	private MapaPersistente<String, FuncaoAdaptativa> funcoes;
+	// planos de execuo ligados s funes atuais (compartilhados com as
+	// cpias e bifurcaes enquanto as funes forem as mesmas)
+	private ConcurrentHashMap<FuncaoAdaptativa, PlanoDeExecucao> planos;
+	// regras adaptativas pela regra subjacente, e os ndices pela configurao
+	// inicial (e evento), pela configurao final (e evento) e pelo evento
+	private MapaPersistente<R, RegraAdaptativa<C, R>> regrasSubjacente;
+	private MapaPersistente<C, MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>>> porInicial;
+	private MapaPersistente<C, MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>>> porFinal;
+	private MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>> porEvento;
+	// impresso digital das chamadas adaptativas atreladas s regras e
+	// reviso das tabelas
+	private long impressao;
+	private long revisao;
 
 	/**
 	 * Cria um mecanismo adaptativo a partir de um dispositivo subjacente.
@@ -50,9 +72,22 @@ public final class MecanismoAdaptativo<C extends Configuracao, E extends Evento,
 	 */
 	MecanismoAdaptativo(Dispositivo<C, E, R> subjacente) {
 		this.subjacente = subjacente;
-		funcoes = new LinkedHashMap<String, FuncaoAdaptativa>();
-		regrasEvento = new LinkedHashMap<String, RegraAdaptativa<C,R>>();
-		regrasSubjacente = new LinkedHashMap<R, RegraAdaptativa<C,R>>();
+		funcoes = MapaPersistente.vazio();
+		planos = new ConcurrentHashMap<FuncaoAdaptativa, PlanoDeExecucao>();
+		regrasSubjacente = MapaPersistente.vazio();
+		porInicial = MapaPersistente.vazio();
+		porFinal = MapaPersistente.vazio();
+		porEvento = MapaPersistente.vazio();
+	}
+
+	/**
+	 * Cria um mecanismo que compartilha as tabelas de outro (usado para
+	 * guardar as tabelas nos pontos de restaurao).
+	 * @param original O mecanismo original.
+	 */
+	private MecanismoAdaptativo(MecanismoAdaptativo<C, E, R> original) {
+		this.subjacente = original.subjacente;
+		original.bifurcarPara(this);
 	}
 
 	/**
@@ -62,13 +97,51 @@ public final class MecanismoAdaptativo<C extends Configuracao, E extends Evento,
 	 * @param funcoes Um conjunto de funes adaptativas.
 	 */
 	MecanismoAdaptativo(Dispositivo<C, E, R> subjacente, Set<FuncaoAdaptativa> funcoes) {
-		this.subjacente = subjacente;
-		this.funcoes = new LinkedHashMap<String, FuncaoAdaptativa>();
+		this(subjacente);
 		for (FuncaoAdaptativa f : funcoes) {
-			this.funcoes.put(f.getNome(), f);
+			this.funcoes = this.funcoes.com(f.getNome(), f);
 		}
 	}
 
+	/**
+	 * Guarda as tabelas atuais, sem copi-las.
+	 * @return Um mecanismo com as tabelas atuais.
+	 */
+	MecanismoAdaptativo<C, E, R> marcar() {
+		return new MecanismoAdaptativo<C, E, R>(this);
+	}
+
+	/**
+	 * Volta s tabelas guardadas.
+	 * @param ponto O mecanismo com as tabelas guardadas.
+	 */
+	void restaurar(MecanismoAdaptativo<C, E, R> ponto) {
+		long atual = revisao;
+		ponto.bifurcarPara(this);
+		revisao = atual + 1;
+	}
+
+	/**
+	 * Obtm a impresso digital das regras adaptativas: o ou-exclusivo dos
+	 * resumos das regras com chamadas adaptativas e das suas chamadas (as
+	 * regras sem chamadas j esto na impresso do dispositivo subjacente).
+	 * @return A impresso digital.
+	 */
+	long getImpressaoDigital() {
+		return impressao;
+	}
+
+	/**
+	 * Obtm a reviso das tabelas do mecanismo, que cresce a cada alterao
+	 * (inclusive quando uma funo adaptativa  adicionada ou substituda).
+	 * As alteraes feitas diretamente em uma FuncaoAdaptativa ou em uma
+	 * AcaoAdaptativaInsercao j registrada no so consideradas.
+	 * @return A reviso.
+	 */
+	long getRevisao() {
+		return revisao;
+	}
+
 	/**
 	 * Adiciona uma nova funo adaptativa.
 	 * @param nova A nova funo adaptativa.
@@ -76,7 +149,9 @@ public final class MecanismoAdaptativo<C extends Configuracao, E extends Evento,
 	public void adicionarFuncaoAdaptativa(FuncaoAdaptativa nova) {
 		if (nova == null)
 			throw new IllegalArgumentException("Erro ao adicionar uma nova funo adaptativa: ela no pode ser nula.");
-		funcoes.put(nova.getNome(), nova);
+		funcoes = funcoes.com(nova.getNome(), nova);
+		planos = new ConcurrentHashMap<FuncaoAdaptativa, PlanoDeExecucao>();
+		revisao++;
 	}
 
 	/**
@@ -88,6 +163,32 @@ public final class MecanismoAdaptativo<C extends Configuracao, E extends Evento,
 		return funcoes.get(nome);
 	}
 
+	/**
+	 * Obtm o plano de execuo de uma funo adaptativa, ligado s funes
+	 * deste mecanismo. O plano  compilado na primeira vez e recompilado
+	 * apenas quando as funes do mecanismo ou as prprias funes e aes
+	 * so alteradas.
+	 * @param funcao A funo adaptativa.
+	 * @return O plano de execuo.
+	 * @since 2.1
+	 */
+	public PlanoDeExecucao getPlano(FuncaoAdaptativa funcao) {
+		PlanoDeExecucao plano = planos.get(funcao);
+		if (plano == null || !plano.isAtual()) {
+			plano = new PlanoDeExecucao(funcao, this);
+			planos.put(funcao, plano);
+		}
+		return plano;
+	}
+
+	/**
+	 * Obtm todas as funes adaptativas registradas.
+	 * @return As funes adaptativas.
+	 */
+	Collection<FuncaoAdaptativa> getFuncoes() {
+		return funcoes.valores();
+	}
+
 	/**
 	 * Adiciona uma regra adaptativa ao dispositivo.<br>
 	 * Ao fazer isso, tambm  adicionada uma regra no dispositivo subjacente.
@@ -99,17 +200,22 @@ public final class MecanismoAdaptativo<C extends Configuracao, E extends Evento,
 	 * @return Se houve sucesso na adio ou no.
 	 */
 	public boolean adicionarRegraAdaptativa(ChamadaFuncaoAdaptativa anterior, C cInicial, String evento, C cFinal, ChamadaFuncaoAdaptativa posterior) {
+		return adicionarRegra(anterior, cInicial, evento, cFinal, posterior) != null;
+	}
+
+	/**
+	 * Adiciona uma regra adaptativa ao dispositivo (e a regra subjacente).
+	 * @return A regra adaptativa adicionada, ou nulo caso o dispositivo
+	 * subjacente no tenha criado a regra.
+	 */
+	RegraAdaptativa<C, R> adicionarRegra(ChamadaFuncaoAdaptativa anterior, C cInicial, String evento, C cFinal, ChamadaFuncaoAdaptativa posterior) {
 		R regraSubjacente = subjacente.adicionarRegra(cInicial, evento, cFinal);
-		if (regraSubjacente == null) return false;
+		if (regraSubjacente == null) return null;
 
 		RegraAdaptativa<C, R> regraAdaptativa = new RegraAdaptativa<C, R>(anterior, regraSubjacente, posterior);
-		regrasEvento.put(evento, regraAdaptativa);
-		regrasSubjacente.put(regraSubjacente, regraAdaptativa);
-
-		// zerando as regras
-		regras = null;
+		registrar(regraAdaptativa);
 
-		return true;
+		return regraAdaptativa;
 	}
 
 	/**
@@ -119,27 +225,216 @@ public final class MecanismoAdaptativo<C extends Configuracao, E extends Evento,
 	 */
 	boolean adicionarRegraAdaptativa(RegraAdaptativa<C, R> nova) {
 		if (nova == null) return false;
-		regrasEvento.put(nova.getEvento(), nova);
-		regrasSubjacente.put(nova.getRegraSubjacente(), nova);
+		registrar(nova);
 
 		return true;
 	}
 
 	/**
-	 * Obtm todas as regras definidas.
-	 * @return As regras existentes.
+	 * Obtm todas as regras do dispositivo: as regras adaptativas e as regras
+	 * subjacentes sem aes adaptativas (encapsuladas).<br>
+	 * Nada  copiado: o conjunto usa as regras do dispositivo subjacente e a
+	 * tabela de regras adaptativas atuais, e no  afetado por alteraes
+	 * posteriores (caso o dispositivo subjacente tambm devolva as suas
+	 * regras dessa forma).
+	 * @return As regras existentes (no podem ser alteradas).
 	 */
 	Set<RegraAdaptativa<C, R>> getRegras() {
-		if (regras == null)
-			regras = new LinkedHashSet<RegraAdaptativa<C,R>>(regrasEvento.values());
-
-		return regras;
+		return new Regras<C, R>(subjacente.regras(), regrasSubjacente);
 	}
 
 	RegraAdaptativa<C, R> getRegra(R regra) {
 		return regrasSubjacente.get(regra);
 	}
 
+	/**
+	 * Obtm as regras adaptativas (as que tm uma regra subjacente registrada
+	 * neste mecanismo) com uma determinada configurao inicial, evento e
+	 * configurao final. Os parmetros nulos no restringem a busca.<br>
+	 * A busca usa o ndice mais restrito entre os definidos (a configurao
+	 * inicial e o evento, a configurao final e o evento, ou apenas um
+	 * deles) e o seu custo  proporcional ao nmero de regras desse ndice.
+	 * @param de A configurao inicial, ou nulo caso no definida.
+	 * @param evento O evento, ou nulo caso no definido.
+	 * @param para A configurao final, ou nulo caso no definida.
+	 * @return As regras adaptativas encontradas.
+	 * @since 2.1
+	 */
+	public List<RegraAdaptativa<C, R>> getRegrasAdaptativas(C de, String evento, C para) {
+		ArrayList<RegraAdaptativa<C, R>> encontradas = new ArrayList<RegraAdaptativa<C, R>>();
+		MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>> deInicial = (de == null)? null : porInicial.get(de);
+		MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>> deFinal = (para == null)? null : porFinal.get(para);
+		if ((de != null && deInicial == null) || (para != null && deFinal == null)) return encontradas;
+
+		Collection<MapaPersistente<R, RegraAdaptativa<C, R>>> candidatas;
+		if (evento != null) {
+			// a menor entre as tabelas do evento
+			MapaPersistente<R, RegraAdaptativa<C, R>> doEvento = (deInicial != null)? deInicial.get(evento) : porEvento.get(evento);
+			if (deFinal != null) {
+				MapaPersistente<R, RegraAdaptativa<C, R>> paraEvento = deFinal.get(evento);
+				if (doEvento == null || paraEvento == null) return encontradas;
+				if (paraEvento.tamanho() < doEvento.tamanho()) doEvento = paraEvento;
+			}
+			if (doEvento == null) return encontradas;
+			candidatas = Collections.singletonList(doEvento);
+		} else if (deInicial != null && deFinal != null) {
+			candidatas = (deInicial.tamanho() <= deFinal.tamanho())? deInicial.valores() : deFinal.valores();
+		} else if (deInicial != null) {
+			candidatas = deInicial.valores();
+		} else if (deFinal != null) {
+			candidatas = deFinal.valores();
+		} else {
+			candidatas = Collections.singletonList(regrasSubjacente);
+		}
+
+		for (MapaPersistente<R, RegraAdaptativa<C, R>> tabela : candidatas) {
+			for (RegraAdaptativa<C, R> ra : tabela.valores()) {
+				R r = ra.getRegraSubjacente();
+				if ((de == null || de.equals(r.getInicial())) && (para == null || para.equals(r.getFinal()))
+						&& (evento == null || evento.equals(r.getEvento())))
+					encontradas.add(ra);
+			}
+		}
+		return encontradas;
+	}
+
+	/**
+	 * Registra uma regra adaptativa na tabela e nos ndices, substituindo a
+	 * regra adaptativa da mesma regra subjacente (caso exista).
+	 * @param regra A regra adaptativa.
+	 */
+	private void registrar(RegraAdaptativa<C, R> regra) {
+		R r = regra.getRegraSubjacente();
+		desregistrar(r);
+
+		regrasSubjacente = regrasSubjacente.com(r, regra);
+		porInicial = com(porInicial, r.getInicial(), r, regra);
+		porFinal = com(porFinal, r.getFinal(), r, regra);
+		porEvento = com(porEvento, r.getEvento(), r, regra);
+		impressao ^= resumo(regra);
+		revisao++;
+	}
+
+	/**
+	 * Retira a regra adaptativa de uma regra subjacente da tabela e dos
+	 * ndices.
+	 * @param r A regra subjacente.
+	 * @return A regra adaptativa retirada, ou nulo caso no exista.
+	 */
+	private RegraAdaptativa<C, R> desregistrar(R r) {
+		RegraAdaptativa<C, R> anterior = regrasSubjacente.get(r);
+		if (anterior == null) return null;
+
+		// a regra registrada tem as configuraes que esto nos ndices
+		R registrada = anterior.getRegraSubjacente();
+		regrasSubjacente = regrasSubjacente.sem(r);
+		porInicial = sem(porInicial, registrada.getInicial(), registrada);
+		porFinal = sem(porFinal, registrada.getFinal(), registrada);
+		porEvento = sem(porEvento, registrada);
+		impressao ^= resumo(anterior);
+		revisao++;
+		return anterior;
+	}
+
+	private static <K, C extends Configuracao, R extends Regra<C>> MapaPersistente<K, MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>>> com(
+			MapaPersistente<K, MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>>> indice, K chave, R r, RegraAdaptativa<C, R> regra) {
+		MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>> daChave = indice.get(chave);
+		if (daChave == null) daChave = MapaPersistente.vazio();
+		return indice.com(chave, com(daChave, r.getEvento(), r, regra));
+	}
+
+	private static <C extends Configuracao, R extends Regra<C>> MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>> com(
+			MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>> indice, String evento, R r, RegraAdaptativa<C, R> regra) {
+		MapaPersistente<R, RegraAdaptativa<C, R>> doEvento = indice.get(evento);
+		if (doEvento == null) doEvento = MapaPersistente.vazio();
+		return indice.com(evento, doEvento.com(r, regra));
+	}
+
+	private static <K, C extends Configuracao, R extends Regra<C>> MapaPersistente<K, MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>>> sem(
+			MapaPersistente<K, MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>>> indice, K chave, R r) {
+		MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>> daChave = indice.get(chave);
+		if (daChave == null) return indice;
+		daChave = sem(daChave, r);
+		return daChave.estaVazio()? indice.sem(chave) : indice.com(chave, daChave);
+	}
+
+	private static <C extends Configuracao, R extends Regra<C>> MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>> sem(
+			MapaPersistente<String, MapaPersistente<R, RegraAdaptativa<C, R>>> indice, R r) {
+		MapaPersistente<R, RegraAdaptativa<C, R>> doEvento = indice.get(r.getEvento());
+		if (doEvento == null) return indice;
+		doEvento = doEvento.sem(r);
+		return doEvento.estaVazio()? indice.sem(r.getEvento()) : indice.com(r.getEvento(), doEvento);
+	}
+
+	/**
+	 * Copia as funes e as regras adaptativas deste mecanismo para outro
+	 * mecanismo, cujo dispositivo subjacente  uma cpia deste.<br>
+	 * As regras adaptativas passam a encapsular as regras equivalentes da
+	 * cpia.
+	 * @param copia O mecanismo que recebe a cpia.
+	 */
+	void copiarPara(MecanismoAdaptativo<C, E, R> copia) {
+		copia.funcoes = this.funcoes;
+		copia.planos = this.planos;
+
+		HashMap<R, R> equivalentes = new HashMap<R, R>();
+		for (R r : copia.subjacente.regras())
+			equivalentes.put(r, r);
+
+		for (RegraAdaptativa<C, R> ra : regrasSubjacente.valores()) {
+			R equivalente = equivalentes.get(ra.getRegraSubjacente());
+			if (equivalente != null)
+				copia.registrar(new RegraAdaptativa<C, R>(ra.getAnterior(), equivalente, ra.getPosterior()));
+		}
+	}
+
+	/**
+	 * Faz outro mecanismo, cujo dispositivo subjacente  uma bifurcao do
+	 * dispositivo subjacente deste, compartilhar as funes e as regras
+	 * adaptativas deste mecanismo. No h cpia: as regras subjacentes so
+	 * as mesmas nos dois dispositivos.
+	 * @param bifurcacao O mecanismo que recebe as tabelas.
+	 */
+	void bifurcarPara(MecanismoAdaptativo<C, E, R> bifurcacao) {
+		bifurcacao.funcoes = this.funcoes;
+		bifurcacao.planos = this.planos;
+		bifurcacao.regrasSubjacente = this.regrasSubjacente;
+		bifurcacao.porInicial = this.porInicial;
+		bifurcacao.porFinal = this.porFinal;
+		bifurcacao.porEvento = this.porEvento;
+		bifurcacao.impressao = this.impressao;
+		bifurcacao.revisao = this.revisao;
+	}
+
+	/**
+	 * Calcula o resumo de uma regra adaptativa para a impresso digital.
+	 * @param regra A regra adaptativa.
+	 * @return O resumo (zero, caso a regra no tenha chamadas adaptativas).
+	 */
+	private static long resumo(RegraAdaptativa<?, ?> regra) {
+		if (regra.getAnterior() == null && regra.getPosterior() == null) return 0;
+		long h = ImpressaoDigital.misturar(ImpressaoDigital.deRegra(regra.getRegraSubjacente()) + resumo(regra.getAnterior()));
+		return ImpressaoDigital.misturar(h + 31 * resumo(regra.getPosterior()));
+	}
+
+	/**
+	 * Calcula o resumo de uma chamada adaptativa: o nome da funo e os
+	 * parmetros (tipo e valor).
+	 * @param chamada A chamada (pode ser nula).
+	 * @return O resumo.
+	 */
+	private static long resumo(ChamadaFuncaoAdaptativa chamada) {
+		if (chamada == null) return 0;
+		long h = ImpressaoDigital.deTexto((chamada.getFuncao() == null)? null : chamada.getFuncao().getNome());
+		if (chamada.getParametros() != null) {
+			for (ParametroValor p : chamada.getParametros()) {
+				h = ImpressaoDigital.misturar(h + ImpressaoDigital.deTexto(p.getClass().getName()));
+				h = ImpressaoDigital.misturar(h + ImpressaoDigital.deTexto(p.getValor()));
+			}
+		}
+		return h;
+	}
+
 	/**
 	 * Remove regras da camada subjacente.
 	 * @param de A configurao inicial, ou nulo caso no definida.
@@ -148,12 +443,11 @@ public final class MecanismoAdaptativo<C extends Configuracao, E extends Evento,
 	 * @return As regras removidas.
 	 */
 	public List<R> removeRegras(C de, String evento, C para) throws MensagemDeErro {
-		regras = null;
 		List<R> removidas = subjacente.removeRegras(de, evento, para);
 
 		// Removendo as regras da camada adaptativa
 		for (R r : removidas) {
-			regrasSubjacente.remove(r);
+			desregistrar(r);
 		}
 
 		return removidas;
@@ -167,11 +461,76 @@ public final class MecanismoAdaptativo<C extends Configuracao, E extends Evento,
 
 		// Removendo as regras da camada adaptativa e criando a lista
 		for (R r : subjacentesRemovidas) {
-			adaptativa = regrasSubjacente.remove(r);
+			adaptativa = desregistrar(r);
+			if (adaptativa == null) adaptativa = new RegraAdaptativa<C, R>(r);
+			removidas.add(adaptativa);
+		}
+
+		return removidas;
+	}
+
+	/**
+	 * Remove uma configurao do dispositivo subjacente (que deve implementar
+	 * DispositivoColetavel) e as regras adaptativas das regras subjacentes
+	 * removidas com ela.
+	 * @param configuracao A configurao.
+	 * @return As regras adaptativas removidas.
+	 * @throws MensagemDeErro Caso haja um erro ao remover as regras.
+	 */
+	@SuppressWarnings("unchecked")
+	List<RegraAdaptativa<C, R>> removerConfiguracao(C configuracao) throws MensagemDeErro {
+		List<R> subjacentesRemovidas = ((DispositivoColetavel<C, E, R>) subjacente).removerConfiguracao(configuracao);
+		LinkedList<RegraAdaptativa<C, R>> removidas = new LinkedList<RegraAdaptativa<C, R>>();
+		RegraAdaptativa<C, R> adaptativa;
+
+		for (R r : subjacentesRemovidas) {
+			adaptativa = desregistrar(r);
 			if (adaptativa == null) adaptativa = new RegraAdaptativa<C, R>(r);
 			removidas.add(adaptativa);
 		}
 
 		return removidas;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Conjunto (somente leitura) das regras do dispositivo, a partir das
+	 * regras subjacentes e da tabela de regras adaptativas de uma verso.
+	 */
+	private static final class Regras<C extends Configuracao, R extends Regra<C>> extends AbstractSet<RegraAdaptativa<C, R>> {
+		private final Set<R> subjacentes;
+		private final MapaPersistente<R, RegraAdaptativa<C, R>> adaptativas;
+
+		Regras(Set<R> subjacentes, MapaPersistente<R, RegraAdaptativa<C, R>> adaptativas) {
+			this.subjacentes = subjacentes;
+			this.adaptativas = adaptativas;
+		}
+
+		public boolean contains(Object o) {
+			if (!(o instanceof RegraAdaptativa)) return false;
+			return subjacentes.contains(((RegraAdaptativa<?, ?>) o).getRegraSubjacente());
+		}
+
+		public int size() {
+			return subjacentes.size();
+		}
+
+		public Iterator<RegraAdaptativa<C, R>> iterator() {
+			final Iterator<R> regras = subjacentes.iterator();
+			return new Iterator<RegraAdaptativa<C, R>>() {
+				public boolean hasNext() {
+					return regras.hasNext();
+				}
+
+				public RegraAdaptativa<C, R> next() {
+					R regra = regras.next();
+					RegraAdaptativa<C, R> adaptativa = adaptativas.get(regra);
+					return (adaptativa == null)? new RegraAdaptativa<C, R>(regra) : adaptativa;
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+}
@@ -17,11 +17,11 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib.adaptativo;
 
-import org.apache.log4j.Logger;
-
 import br.adaplib.CadeiaDeEntrada;
 import br.adaplib.Configuracao;
+import br.adaplib.Dispositivos;
 import br.adaplib.Evento;
+import br.adaplib.Executor;
 import br.adaplib.Regra;
 import br.adaplib.excecao.ErroDeExecucao;
 import br.adaplib.excecao.MensagemDeErro;
@@ -36,7 +36,6 @@ import br.adaplib.excecao.MensagemDeErro;
  * @since 2.0
  */
 public class RegraAdaptativa<C extends Configuracao, R extends Regra<C>> extends Regra<C> {
-	private static final Logger LOG = Logger.getLogger(RegraAdaptativa.class);
 	private ChamadaFuncaoAdaptativa anterior;
 	private ChamadaFuncaoAdaptativa posterior;
 	private R regraSubjacente;
@@ -72,6 +71,30 @@ public class RegraAdaptativa<C extends Configuracao, R extends Regra<C>> extends
 		return regraSubjacente;
 	}
 
+	/**
+	 * Informa se a regra tem funes adaptativas (que alteram o dispositivo).
+	 * @return Se a regra tem funo adaptativa anterior ou posterior.
+	 */
+	public boolean alteraDispositivo() {
+		return anterior != null || posterior != null;
+	}
+
+	/**
+	 * Obtm a chamada da funo adaptativa anterior.
+	 * @return A chamada anterior, ou nulo caso no exista.
+	 */
+	public ChamadaFuncaoAdaptativa getAnterior() {
+		return anterior;
+	}
+
+	/**
+	 * Obtm a chamada da funo adaptativa posterior.
+	 * @return A chamada posterior, ou nulo caso no exista.
+	 */
+	public ChamadaFuncaoAdaptativa getPosterior() {
+		return posterior;
+	}
+
 	/**
 	 * Executa a regra com a cadeia de entrada determinada.<br>
 	 * O procedimento de execuo  o seguinte:<br>
@@ -87,35 +110,46 @@ public class RegraAdaptativa<C extends Configuracao, R extends Regra<C>> extends
 	 * @throws ErroDeExecucao Caso haja um erro ao executar a regra.
 	 */
 	public <E extends Evento> C aplicar(CadeiaDeEntrada cadeiaEntrada, ContextoAdaptativo<C, E, R> contexto) throws ErroDeExecucao {
+		if (!alteraDispositivo())
+			return regraSubjacente.aplicar(cadeiaEntrada, contexto.getContextoDeExecucaoSubjacente());
+
+		// as duas funes so aplicadas em uma nica transao: caso uma
+		// delas falhe, o dispositivo volta ao estado anterior  regra (caso
+		// o dispositivo subjacente no possa ser restaurado, no h transao)
+		DispositivoAdaptativo<C, E, R> dispositivo = (DispositivoAdaptativo<C, E, R>) contexto.getDispositivo();
 		C retorno = null;
+		boolean transacao = Dispositivos.podeRestaurar(dispositivo);
+		boolean confirmada = false;
 
+		if (transacao) dispositivo.iniciarTransacao();
 		try {
 			if (anterior != null) {
 				// (1) A funo adaptativa anterior  executada.
-				LOG.info("Executando funo adaptativa anterior \"" + anterior.getFuncao().getNome() +"\".");
-				anterior.executar((DispositivoAdaptativo<C, E, R>) contexto.getDispositivo());
+				anterior.executar(dispositivo);
 			}
 
 			// vendo se a regra foi removida
-			if (!((DispositivoAdaptativo<C, E, R>) contexto.getDispositivo()).getDispositivoSubjacente().existeRegra(this.regraSubjacente)) {
+			if (!dispositivo.getDispositivoSubjacente().existeRegra(this.regraSubjacente)) {
 				// Essa regra foi removida ou substituda
 				// voltando
-				LOG.info("Regra removida ao executar ao adaptativa anterior.");
-				return this.regraSubjacente.getInicial();
-			}
-
-			// (2) Executando a regra subjacente
-			LOG.debug("Aplicando regra subjacente: " + regraSubjacente + ".");
-			retorno = regraSubjacente.aplicar(cadeiaEntrada, contexto.getContextoDeExecucaoSubjacente());
-
-			if (posterior != null) {
-				// (3) A funo adaptativa posterior  executada.
-				LOG.info("Executando funo adaptativa posterior \"" + posterior.getFuncao().getNome() +"\".");
-				posterior.executar((DispositivoAdaptativo<C, E, R>) contexto.getDispositivo());
+				Executor.getOuvinte().regraDescartada(this);
+				retorno = this.regraSubjacente.getInicial();
+			} else {
+				// (2) Executando a regra subjacente
+				retorno = regraSubjacente.aplicar(cadeiaEntrada, contexto.getContextoDeExecucaoSubjacente());
+
+				if (posterior != null) {
+					// (3) A funo adaptativa posterior  executada.
+					posterior.executar(dispositivo);
+				}
 			}
 
+			if (transacao) dispositivo.confirmarTransacao();
+			confirmada = true;
 		} catch (MensagemDeErro m) {
 			throw new ErroDeExecucao(m, this.regraSubjacente.getInicial(), this.regraSubjacente, cadeiaEntrada);
+		} finally {
+			if (transacao && !confirmada) dispositivo.desfazerTransacao();
 		}
 
 		return retorno;
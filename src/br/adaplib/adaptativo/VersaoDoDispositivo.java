@@ -0,0 +1,160 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.adaptativo;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import br.adaplib.Configuracao;
+import br.adaplib.Evento;
+import br.adaplib.Regra;
+
+/**
+ * Representa uma verso publicada de um dispositivo adaptativo.<br>
+ * A verso  uma bifurcao do dispositivo que nunca  alterada: o dispositivo
+ * original continua sendo adaptado pela sua execuo, enquanto outras
+ * threads consultam a verso sem nenhuma sincronizao. As colees
+ * obtidas no podem ser alteradas.<br>
+ * Para executar ou alterar a verso,  preciso obter uma bifurcao dela (ver
+ * {@link #bifurcar()}).
+ * @author FLevy
+ * @since 2.1
+ *
+ * @param <C> A classe de configurao do dispositivo subjacente.
+ * @param <E> A classe de evento do dispositivo subjacente.
+ * @param <R> A classe de regra do dispositivo subjacente.
+ */
+public final class VersaoDoDispositivo<C extends Configuracao, E extends Evento, R extends Regra<C>> {
+	private final long numero;
+	private final DispositivoAdaptativo<C, E, R> dispositivo;
+	private final C inicial;
+	// calculados na primeira consulta (a publicao no copia nada)
+	private volatile Consulta<C, R> consulta = null;
+
+	/**
+	 * Cria uma verso a partir de uma bifurcao do dispositivo.
+	 * @param numero O nmero da verso.
+	 * @param copia Uma bifurcao do dispositivo, que no ser mais alterada.
+	 */
+	VersaoDoDispositivo(long numero, DispositivoAdaptativo<C, E, R> copia) {
+		this.numero = numero;
+		this.dispositivo = copia;
+		this.inicial = copia.configuracaoInicial();
+	}
+
+	/**
+	 * Obtm as colees consultadas, calculando-as na primeira vez. O clculo
+	 *  sincronizado, j que ele preenche os caches internos da bifurcao.
+	 */
+	private Consulta<C, R> consulta() {
+		Consulta<C, R> c = consulta;
+		if (c != null) return c;
+
+		synchronized (this) {
+			if (consulta == null)
+				consulta = new Consulta<C, R>(dispositivo.getConfiguracoes(), dispositivo.configuracoesDeAceite(), dispositivo.regras());
+			return consulta;
+		}
+	}
+
+	/**
+	 * Obtm o nmero da verso. As verses de um mesmo dispositivo so
+	 * numeradas em ordem crescente, a partir de 1.
+	 * @return O nmero da verso.
+	 */
+	public long getNumero() {
+		return numero;
+	}
+
+	/**
+	 * Obtm a configurao inicial nesta verso.
+	 * @return A configurao inicial.
+	 */
+	public C configuracaoInicial() {
+		return inicial;
+	}
+
+	/**
+	 * Obtm as configuraes existentes nesta verso.
+	 * @return As configuraes (no podem ser alteradas).
+	 */
+	public Set<C> getConfiguracoes() {
+		return consulta().configuracoes;
+	}
+
+	/**
+	 * Obtm as configuraes de aceite nesta verso.
+	 * @return As configuraes de aceite (no podem ser alteradas).
+	 */
+	public Set<C> configuracoesDeAceite() {
+		return consulta().aceite;
+	}
+
+	/**
+	 * Obtm uma configurao desta verso a partir do seu nome.
+	 * @param nome O nome da configurao.
+	 * @return A configurao, ou nulo caso no exista.
+	 */
+	public C getConfiguracao(String nome) {
+		return consulta().porNome.get(nome);
+	}
+
+	/**
+	 * Obtm as regras adaptativas existentes nesta verso.
+	 * @return As regras (no podem ser alteradas).
+	 */
+	public Set<RegraAdaptativa<C, R>> regras() {
+		return consulta().regras;
+	}
+
+	/**
+	 * Cria um dispositivo independente a partir desta verso (em tempo
+	 * constante), que pode ser executado ou alterado livremente (por exemplo,
+	 * para executar um lote de cadeias ou fazer uma anlise).
+	 * @return A bifurcao do dispositivo.
+	 */
+	public DispositivoAdaptativo<C, E, R> bifurcar() {
+		return dispositivo.bifurcar();
+	}
+
+	public String toString() {
+		return "verso " + numero + " (" + getConfiguracoes().size() + " configuraes, " + regras().size() + " regras)";
+	}
+
+	/**
+	 * As colees de uma verso, que no podem ser alteradas.
+	 */
+	private static final class Consulta<C extends Configuracao, R extends Regra<C>> {
+		final Set<C> configuracoes;
+		final Set<C> aceite;
+		final Set<RegraAdaptativa<C, R>> regras;
+		final HashMap<String, C> porNome;
+
+		Consulta(Set<C> configuracoes, Set<C> aceite, Set<RegraAdaptativa<C, R>> regras) {
+			this.configuracoes = Collections.unmodifiableSet(new LinkedHashSet<C>(configuracoes));
+			this.aceite = Collections.unmodifiableSet(new LinkedHashSet<C>(aceite));
+			this.regras = Collections.unmodifiableSet(new LinkedHashSet<RegraAdaptativa<C, R>>(regras));
+
+			this.porNome = new HashMap<String, C>();
+			for (C c : this.configuracoes)
+				porNome.put(c.getNome(), c);
+		}
+	}
+}
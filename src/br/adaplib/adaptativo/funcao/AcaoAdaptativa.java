@@ -17,6 +17,7 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib.adaptativo.funcao;
 
+import java.util.Collection;
 import java.util.List;
 
 import br.adaplib.Configuracao;
@@ -48,6 +49,33 @@ public abstract class AcaoAdaptativa {
 		this.parametroConfiguracaoDestino = cFinal;
 	}
 
+	/**
+	 * Obtm o parmetro da configurao de origem.
+	 * @return O parmetro (nulo caso a ao no o restrinja).
+	 * @since 2.1
+	 */
+	public ParametroConfiguracao getParametroConfiguracaoOrigem() {
+		return parametroConfiguracaoOrigem;
+	}
+
+	/**
+	 * Obtm o parmetro do evento.
+	 * @return O parmetro (nulo caso a ao no o restrinja).
+	 * @since 2.1
+	 */
+	public ParametroEvento getParametroEvento() {
+		return parametroEvento;
+	}
+
+	/**
+	 * Obtm o parmetro da configurao de destino.
+	 * @return O parmetro (nulo caso a ao no o restrinja).
+	 * @since 2.1
+	 */
+	public ParametroConfiguracao getParametroConfiguracaoDestino() {
+		return parametroConfiguracaoDestino;
+	}
+
 	/**
 	 * Executa a ao adaptativa.
 	 * @param parametros Os parmetros passados por valor que a funo
@@ -59,6 +87,28 @@ public abstract class AcaoAdaptativa {
 	 */
 	public abstract <C extends Configuracao, E extends Evento, R extends Regra<C>> void executar(List<ParametroValor> parametros, List<C> geradores, DispositivoAdaptativo<C, E, R> dispositivo) throws MensagemDeErro;
 
+	/**
+	 * Adiciona os nomes das configuraes definidas por valor (e no por
+	 * referncia) nesta ao. Como a ao pode us-las em qualquer execuo,
+	 * elas no podem ser coletadas (ver DispositivoAdaptativo).
+	 * @param nomes Os nomes encontrados.
+	 * @since 2.1
+	 */
+	public void adicionarConfiguracoesUsadas(Collection<String> nomes) {
+		adicionarNome(parametroConfiguracaoOrigem, nomes);
+		adicionarNome(parametroConfiguracaoDestino, nomes);
+	}
+
+	/**
+	 * Adiciona o nome da configurao, caso o parmetro a defina por valor.
+	 * @param parametro O parmetro (pode ser nulo).
+	 * @param nomes Os nomes encontrados.
+	 */
+	protected static void adicionarNome(Parametro parametro, Collection<String> nomes) {
+		if (parametro instanceof ParametroValorConfiguracao)
+			nomes.add(((ParametroValorConfiguracao) parametro).getValor());
+	}
+
 	/**
 	 * Resolve a configurao passada como referncia aos parmetros.
 	 * @param referencia A posio na lista de parmetro.
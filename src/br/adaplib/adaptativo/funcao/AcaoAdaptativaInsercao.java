@@ -18,12 +18,12 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 package br.adaplib.adaptativo.funcao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
-import org.apache.log4j.Logger;
-
 import br.adaplib.Configuracao;
 import br.adaplib.Evento;
+import br.adaplib.Executor;
 import br.adaplib.Regra;
 import br.adaplib.adaptativo.ChamadaFuncaoAdaptativa;
 import br.adaplib.adaptativo.DispositivoAdaptativo;
@@ -35,11 +35,13 @@ import br.adaplib.excecao.MensagemDeErro;
  * @since 2.0
  */
 public class AcaoAdaptativaInsercao extends AcaoAdaptativa {
-	private static final Logger LOG = Logger.getLogger(AcaoAdaptativaInsercao.class);
 	private String funcaoAnterior;
 	private List<Parametro> parametrosAnterior;
 	private String funcaoPosterior;
 	private List<Parametro> parametrosPosterior;
+	// nmero de alteraes das funes anterior e posterior: os planos
+	// compilados antes de uma alterao so descartados
+	private volatile int alteracoes = 0;
 
 	/**
 	 * Cria uma ao adaptativa de insero definindo os parmetros
@@ -93,6 +95,7 @@ public class AcaoAdaptativaInsercao extends AcaoAdaptativa {
 	public void setFuncaoAdaptativaAnterior(String nomeFuncao, List<Parametro> parametros) {
 		this.funcaoAnterior = nomeFuncao;
 		this.parametrosAnterior = parametros;
+		alterada();
 	}
 
 	/**
@@ -103,6 +106,67 @@ public class AcaoAdaptativaInsercao extends AcaoAdaptativa {
 	public void setFuncaoAdaptativaPosterior(String nomeFuncao, List<Parametro> parametros) {
 		this.funcaoPosterior = nomeFuncao;
 		this.parametrosPosterior = parametros;
+		alterada();
+	}
+
+	private synchronized void alterada() {
+		alteracoes++;
+	}
+
+	/**
+	 * Obtm o nmero de alteraes feitas nas funes anterior e posterior.
+	 * @return O nmero de alteraes.
+	 */
+	int alteracoes() {
+		return alteracoes;
+	}
+
+	/**
+	 * Obtm o nome da funo adaptativa anterior da regra inserida.
+	 * @return O nome da funo, ou nulo caso no exista.
+	 */
+	public String getFuncaoAnterior() {
+		return funcaoAnterior;
+	}
+
+	/**
+	 * Obtm os parmetros da funo adaptativa anterior da regra inserida.
+	 * @return Os parmetros (podem ser nulos).
+	 */
+	public List<Parametro> getParametrosAnterior() {
+		return parametrosAnterior;
+	}
+
+	/**
+	 * Obtm o nome da funo adaptativa posterior da regra inserida.
+	 * @return O nome da funo, ou nulo caso no exista.
+	 */
+	public String getFuncaoPosterior() {
+		return funcaoPosterior;
+	}
+
+	/**
+	 * Obtm os parmetros da funo adaptativa posterior da regra inserida.
+	 * @return Os parmetros (podem ser nulos).
+	 */
+	public List<Parametro> getParametrosPosterior() {
+		return parametrosPosterior;
+	}
+
+	/**
+	 * Inclui tambm as configuraes passadas por valor s funes
+	 * adaptativas da regra inserida.
+	 */
+	public void adicionarConfiguracoesUsadas(Collection<String> nomes) {
+		super.adicionarConfiguracoesUsadas(nomes);
+		if (parametrosAnterior != null) {
+			for (Parametro p : parametrosAnterior)
+				adicionarNome(p, nomes);
+		}
+		if (parametrosPosterior != null) {
+			for (Parametro p : parametrosPosterior)
+				adicionarNome(p, nomes);
+		}
 	}
 
 	public <C extends Configuracao, E extends Evento, R extends Regra<C>> void executar(List<ParametroValor> parametros, List<C> geradores, DispositivoAdaptativo<C, E, R> dispositivo) throws MensagemDeErro {
@@ -113,31 +177,25 @@ public class AcaoAdaptativaInsercao extends AcaoAdaptativa {
 		ChamadaFuncaoAdaptativa anterior = null, posterior = null;
 		String eventoAConsumir;
 
-		LOG.debug("Executando a ao de insero: " + this + ".");
-
 		// resolvendo a configurao inicial passada
 		cInicial = super.resolverParametroConfiguracao(parametroConfiguracaoOrigem, parametros, geradores, dispositivo);
 		if (cInicial == null)
 			throw new MensagemDeErro("A configurao inicial no pode ser nula em uma ao adaptativa de insero.");
-		LOG.debug("Configurao inicial resolvida: " + cInicial);
 
 		// resolvendo a configurao final passada
 		cFinal = super.resolverParametroConfiguracao(parametroConfiguracaoDestino, parametros, geradores, dispositivo);
 		if (cFinal == null)
 			throw new MensagemDeErro("A configurao final no pode ser nula em uma ao adaptativa de insero.");
-		LOG.debug("Configurao final resolvida: " + cFinal);
 
 		// resolvendo o evento
 		if (parametroEvento == null) eventoAConsumir = "";
 		eventoAConsumir = super.resolverParametroSimbolo(parametroEvento, parametros, geradores);
-		LOG.debug("Evento resolvido: " + eventoAConsumir);
 
 		// Resolvendo a funo adaptativa anterior
 		if (funcaoAnterior != null) {
 			FuncaoAdaptativa a = dispositivo.getMecanismoAdaptativo().getFuncaoAdaptativa(funcaoAnterior);
 			if (a == null) throw new MensagemDeErro("A funo adaptativa anterior da regra a ser inserida  desconhecida: " + funcaoAnterior);
 			anterior = new ChamadaFuncaoAdaptativa(a, resolverParametros(parametrosAnterior, parametros, geradores, dispositivo));
-			LOG.debug("Funo anterior resolvida: " + a);
 		}
 
 		// Resolvendo a funo adaptativa posterior passada
@@ -145,13 +203,29 @@ public class AcaoAdaptativaInsercao extends AcaoAdaptativa {
 			FuncaoAdaptativa a = dispositivo.getMecanismoAdaptativo().getFuncaoAdaptativa(funcaoPosterior);
 			if (a == null) throw new MensagemDeErro("A funo adaptativa posterior da regra a ser inserida  desconhecida: " + funcaoAnterior);
 			posterior = new ChamadaFuncaoAdaptativa(a, resolverParametros(parametrosPosterior, parametros, geradores, dispositivo));
-			LOG.debug("Funo posterior resolvida: " + a);
 		}
 
 		// tudo resolvido. Criando a regra e adicionando-a  configurao.
-		if (!dispositivo.getMecanismoAdaptativo().adicionarRegraAdaptativa(anterior, cInicial, eventoAConsumir, cFinal, posterior))
+		inserir(this, cInicial, eventoAConsumir, cFinal, anterior, posterior, dispositivo);
+	}
+
+	/**
+	 * Insere a regra de uma ao com os parmetros j resolvidos (usado
+	 * tambm pelo plano de execuo).
+	 * @param acao A ao executada.
+	 * @param cInicial A configurao inicial.
+	 * @param evento O evento.
+	 * @param cFinal A configurao final.
+	 * @param anterior A chamada da funo adaptativa anterior (ou nulo).
+	 * @param posterior A chamada da funo adaptativa posterior (ou nulo).
+	 * @param dispositivo O dispositivo adaptativo.
+	 * @throws MensagemDeErro Caso a regra no possa ser adicionada.
+	 */
+	static <C extends Configuracao, E extends Evento, R extends Regra<C>> void inserir(AcaoAdaptativa acao, C cInicial, String evento, C cFinal,
+			ChamadaFuncaoAdaptativa anterior, ChamadaFuncaoAdaptativa posterior, DispositivoAdaptativo<C, E, R> dispositivo) throws MensagemDeErro {
+		if (!dispositivo.getMecanismoAdaptativo().adicionarRegraAdaptativa(anterior, cInicial, evento, cFinal, posterior))
 			throw new MensagemDeErro("Erro ao executar a ao adaptativa de insero: no foi possvel adicionar a regra.");
-		LOG.debug("Executando ao adaptativa de insero: regra adicionada.");
+		Executor.getOuvinte().acaoAdaptativaExecutada(acao, cInicial, evento, cFinal);
 	}
 
 	/**
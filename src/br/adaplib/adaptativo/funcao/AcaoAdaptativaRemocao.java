@@ -19,10 +19,9 @@ package br.adaplib.adaptativo.funcao;
 
 import java.util.List;
 
-import org.apache.log4j.Logger;
-
 import br.adaplib.Configuracao;
 import br.adaplib.Evento;
+import br.adaplib.Executor;
 import br.adaplib.Regra;
 import br.adaplib.adaptativo.DispositivoAdaptativo;
 import br.adaplib.excecao.MensagemDeErro;
@@ -35,7 +34,6 @@ import br.adaplib.excecao.MensagemDeErro;
  * @since 2.0
  */
 public class AcaoAdaptativaRemocao extends AcaoAdaptativa {
-	private static final Logger LOG = Logger.getLogger(AcaoAdaptativaRemocao.class);
 
 	/**
 	 * Cria uma ao adaptativa de remoo.
@@ -59,30 +57,40 @@ public class AcaoAdaptativaRemocao extends AcaoAdaptativa {
 		C cInicial, cFinal;
 		String eventoAConsumir;
 
-		LOG.debug("Executando a ao de remoo: " + this + ".");
-
 		// resolvendo o estado inicial
 		if (parametroConfiguracaoOrigem == null) cInicial = null;
 		else  cInicial = super.resolverParametroConfiguracao(parametroConfiguracaoOrigem, parametros, geradores, dispositivo);
-		LOG.debug("Configurao inicial resolvida: " + cInicial);
 
 		// resolvendo o estado final
 		if (parametroConfiguracaoDestino == null) cFinal = null;
 		else  cFinal = super.resolverParametroConfiguracao(parametroConfiguracaoDestino, parametros, geradores, dispositivo);
-		LOG.debug("Configurao final resolvida: " + cFinal);
 
 		// resolvendo o evento
 		if (parametroEvento == null) eventoAConsumir = null;
 		else  eventoAConsumir = super.resolverParametroSimbolo(parametroEvento, parametros, geradores);
-		LOG.debug("Evento resolvido: " + eventoAConsumir);
 
 		// Removendo
-		if (cInicial != null && eventoAConsumir == null && cFinal == null) {
+		remover(this, cInicial, eventoAConsumir, cFinal, dispositivo);
+	}
+
+	/**
+	 * Remove as regras de uma ao com os parmetros j resolvidos (usado
+	 * tambm pelo plano de execuo).
+	 * @param acao A ao executada.
+	 * @param cInicial A configurao inicial (ou nulo).
+	 * @param evento O evento (ou nulo).
+	 * @param cFinal A configurao final (ou nulo).
+	 * @param dispositivo O dispositivo adaptativo.
+	 * @throws MensagemDeErro Caso a remoo seja de todas as regras da
+	 * configurao ou no possa ser feita.
+	 */
+	static <C extends Configuracao, E extends Evento, R extends Regra<C>> void remover(AcaoAdaptativa acao, C cInicial, String evento, C cFinal, DispositivoAdaptativo<C, E, R> dispositivo) throws MensagemDeErro {
+		if (cInicial != null && evento == null && cFinal == null) {
 			throw new MensagemDeErro("No  possvel executa a ao adaptativa de remoo. Ela remove TODAS as transies do autmato.");
 		}
 
-		dispositivo.getMecanismoAdaptativo().removeRegras(cInicial, eventoAConsumir, cFinal);
-		LOG.debug("Removida a regra (" + cInicial + ", " + eventoAConsumir + ", " + cFinal + ")");
+		dispositivo.getMecanismoAdaptativo().removeRegras(cInicial, evento, cFinal);
+		Executor.getOuvinte().acaoAdaptativaExecutada(acao, cInicial, evento, cFinal);
 	}
 
 	public String toString() {
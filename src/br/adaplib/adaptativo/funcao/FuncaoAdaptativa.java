@@ -17,13 +17,12 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib.adaptativo.funcao;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.List;
 import java.util.LinkedHashSet;
 
-import org.apache.log4j.Logger;
-
 import br.adaplib.Configuracao;
 import br.adaplib.Evento;
 import br.adaplib.Regra;
@@ -39,11 +38,13 @@ import br.adaplib.excecao.MensagemDeErro;
  * @since 2.0
  */
 public class FuncaoAdaptativa {
-	private static final Logger LOG = Logger.getLogger(FuncaoAdaptativa.class);
 	private Set<AcaoAdaptativa> acoes;
 	private AcaoAdaptativa pre, pos;
 	private String nome;
 	private int geradores;
+	// nmero de alteraes feitas na funo (nos geradores e nas aes): os
+	// planos compilados antes de uma alterao so descartados
+	private volatile int alteracoes = 0;
 
 	/**
 	 * Cria uma funo adaptativa com o nome definido.
@@ -51,7 +52,7 @@ public class FuncaoAdaptativa {
 	 */
 	public FuncaoAdaptativa(String nome) {
 		this.nome = nome;
-		this.acoes = new LinkedHashSet<AcaoAdaptativa>();
+		this.acoes = new Acoes();
 		this.geradores = 0;
 		this.pre = null;
 		this.pos = null;
@@ -108,6 +109,11 @@ public class FuncaoAdaptativa {
 		return pre;
 	}
 
+	/**
+	 * Obtm as aes adaptativas. As alteraes feitas no conjunto retornado
+	 * alteram a funo (e so vistas pelos planos de execuo).
+	 * @return As aes.
+	 */
 	public Set<AcaoAdaptativa> getAcoes() {
 		return acoes;
 	}
@@ -124,6 +130,7 @@ public class FuncaoAdaptativa {
 	 */
 	public void setGeradores(int geradores) {
 		this.geradores = geradores;
+		alterada();
 	}
 
 	/**
@@ -138,41 +145,91 @@ public class FuncaoAdaptativa {
 	}
 
 	/**
-	 * Executa a funo adaptativa usando os parmetros passados.
+	 * Registra que a funo foi alterada.
+	 */
+	private synchronized void alterada() {
+		alteracoes++;
+	}
+
+	/**
+	 * Obtm o nmero de alteraes feitas na funo.
+	 * @return O nmero de alteraes.
+	 */
+	int alteracoes() {
+		return alteracoes;
+	}
+
+	/**
+	 * Adiciona os nomes das configuraes definidas por valor nas aes
+	 * desta funo.
+	 * @param nomes Os nomes encontrados.
+	 * @since 2.1
+	 */
+	public void adicionarConfiguracoesUsadas(Collection<String> nomes) {
+		if (pre != null) pre.adicionarConfiguracoesUsadas(nomes);
+		for (AcaoAdaptativa acao : acoes)
+			acao.adicionarConfiguracoesUsadas(nomes);
+		if (pos != null) pos.adicionarConfiguracoesUsadas(nomes);
+	}
+
+	/**
+	 * Executa a funo adaptativa usando os parmetros passados.<br>
+	 * A funo  executada pelo seu plano de execuo, compilado na primeira
+	 * execuo pelo mecanismo adaptativo do dispositivo (ver
+	 * {@link PlanoDeExecucao}).
 	 * @param parametros Os parmetros de execuo.
 	 * @param automato O dispositivo adaptativo o qual ser executada essa funo adaptativa.
 	 * @throws MensagemDeErro Caso haja um erro durante a execuo.
 	 */
 	public <C extends Configuracao, E extends Evento, R extends Regra<C>> void executar(List<ParametroValor> parametros, DispositivoAdaptativo<C, E, R> dispositivo) throws MensagemDeErro {
-		// Criando os geradores
-		List<C> gerados = new ArrayList<C>(geradores);
-		C novo;
+		dispositivo.getMecanismoAdaptativo().getPlano(this).executar(parametros, dispositivo);
+	}
 
-		for (int i = 0; i < geradores; i++) {
-			novo = dispositivo.criarConfiguracao();
-			gerados.add(novo);
-		}
+	public String toString() {
+		return this.nome;
+	}
 
-		// Executando a ao pr
-		if (pre != null) {
-			LOG.debug("Executando ao pr-funo: " + pre + ".");
-			pre.executar(parametros, gerados, dispositivo);
+	/**
+	 * O conjunto das aes, que registra as alteraes feitas nele (inclusive
+	 * pelo conjunto retornado por getAcoes).
+	 */
+	private final class Acoes extends LinkedHashSet<AcaoAdaptativa> {
+		// Para o Eclipse parar de reclamar...
+		private static final long serialVersionUID = 1L;
+
+		public boolean add(AcaoAdaptativa acao) {
+			boolean alterou = super.add(acao);
+			if (alterou) alterada();
+			return alterou;
 		}
 
-		// Executando as aes
-		LOG.debug("Executando as aes da funo.");
-		for (AcaoAdaptativa acao : acoes) {
-			acao.executar(parametros, gerados, dispositivo);
+		public boolean remove(Object acao) {
+			boolean alterou = super.remove(acao);
+			if (alterou) alterada();
+			return alterou;
 		}
 
-		// Executando a ao ps
-		if (pos != null) {
-			LOG.debug("Executando ao ps-funo: " + pos + ".");
-			pos.executar(parametros, gerados, dispositivo);
+		public void clear() {
+			super.clear();
+			alterada();
 		}
-	}
 
-	public String toString() {
-		return this.nome;
+		public Iterator<AcaoAdaptativa> iterator() {
+			final Iterator<AcaoAdaptativa> acoes = super.iterator();
+			return new Iterator<AcaoAdaptativa>() {
+				public boolean hasNext() {
+					return acoes.hasNext();
+				}
+
+				public AcaoAdaptativa next() {
+					return acoes.next();
+				}
+
+				public void remove() {
+					acoes.remove();
+					alterada();
+				}
+			};
+		}
 	}
 }
@@ -0,0 +1,370 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.adaptativo.funcao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import br.adaplib.Configuracao;
+import br.adaplib.Dispositivos;
+import br.adaplib.Evento;
+import br.adaplib.Executor;
+import br.adaplib.OuvinteDeExecucao;
+import br.adaplib.Regra;
+import br.adaplib.adaptativo.ChamadaFuncaoAdaptativa;
+import br.adaplib.adaptativo.DispositivoAdaptativo;
+import br.adaplib.adaptativo.MecanismoAdaptativo;
+import br.adaplib.excecao.MensagemDeErro;
+
+/**
+ * Plano de execuo de uma funo adaptativa: a funo compilada uma nica
+ * vez para um mecanismo adaptativo.<br>
+ * Os parmetros das aes so transformados em posies (na lista de
+ * parmetros ou no vetor de geradores) e as funes chamadas pelas regras
+ * inseridas so ligadas diretamente s funes do mecanismo, sem buscas pelo
+ * nome durante a execuo. As configuraes passadas por valor continuam
+ * sendo obtidas pelo nome, j que o mesmo plano  usado pelas cpias e
+ * bifurcaes do dispositivo.<br>
+ * Apenas as aes das prprias classes AcaoAdaptativaInsercao e
+ * AcaoAdaptativaRemocao so compiladas; as de outras classes, inclusive as
+ * subclasses dessas (que podem redefinir executar), so executadas
+ * normalmente, pelo seu mtodo executar.<br>
+ * Cada execuo  feita em uma transao do dispositivo: caso uma ao
+ * falhe, as anteriores so desfeitas.<br>
+ * O plano no  alterado depois de criado e pode ser usado por vrias
+ * threads ao mesmo tempo.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class PlanoDeExecucao {
+	// tipos dos parmetros compilados
+	private static final int DESCONHECIDO = -1;
+	private static final int NENHUM = 0;
+	private static final int VALOR = 1;
+	private static final int GERADOR = 2;
+	private static final int REFERENCIA = 3;
+
+	private final FuncaoAdaptativa funcao;
+	private final int geradores;
+	private final Passo[] passos;
+	private final int alteracoes;
+
+	/**
+	 * Compila uma funo adaptativa, ligando-a s funes de um mecanismo.
+	 * @param funcao A funo adaptativa.
+	 * @param mecanismo O mecanismo cujas funes so chamadas.
+	 */
+	public PlanoDeExecucao(FuncaoAdaptativa funcao, MecanismoAdaptativo<?, ?, ?> mecanismo) {
+		if (funcao == null)
+			throw new IllegalArgumentException("Erro ao compilar a funo adaptativa: ela no pode ser nula.");
+
+		this.alteracoes = funcao.alteracoes();
+		this.funcao = funcao;
+		this.geradores = funcao.getGeradores();
+
+		ArrayList<Passo> lista = new ArrayList<Passo>();
+		if (funcao.getAcaoAdaptativaPre() != null) lista.add(compilar(funcao.getAcaoAdaptativaPre(), mecanismo));
+		for (AcaoAdaptativa acao : funcao.getAcoes())
+			lista.add(compilar(acao, mecanismo));
+		if (funcao.getAcaoAdaptativaPos() != null) lista.add(compilar(funcao.getAcaoAdaptativaPos(), mecanismo));
+		this.passos = lista.toArray(new Passo[lista.size()]);
+	}
+
+	/**
+	 * Obtm a funo adaptativa compilada.
+	 * @return A funo adaptativa.
+	 */
+	public FuncaoAdaptativa getFuncao() {
+		return funcao;
+	}
+
+	/**
+	 * Informa se o plano ainda corresponde  funo: ele deixa de
+	 * corresponder quando a funo ou uma das suas aes de insero
+	 * compiladas  alterada.
+	 * @return Se o plano pode ser usado.
+	 */
+	public boolean isAtual() {
+		if (alteracoes != funcao.alteracoes()) return false;
+		for (Passo passo : passos) {
+			if (passo.insercao && passo.alteracoes != ((AcaoAdaptativaInsercao) passo.acao).alteracoes())
+				return false;
+		}
+		return true;
+	}
+
+	private static Passo compilar(AcaoAdaptativa acao, MecanismoAdaptativo<?, ?, ?> mecanismo) {
+		Passo passo = new Passo(acao);
+		if (acao.getClass() != AcaoAdaptativaInsercao.class && acao.getClass() != AcaoAdaptativaRemocao.class)
+			return passo;
+
+		passo.insercao = acao.getClass() == AcaoAdaptativaInsercao.class;
+		passo.origem = new Argumento(acao.parametroConfiguracaoOrigem);
+		passo.destino = new Argumento(acao.parametroConfiguracaoDestino);
+		passo.evento = new Argumento(acao.parametroEvento);
+
+		if (passo.insercao) {
+			AcaoAdaptativaInsercao insercao = (AcaoAdaptativaInsercao) acao;
+			passo.alteracoes = insercao.alteracoes();
+			passo.nomeAnterior = insercao.getFuncaoAnterior();
+			passo.nomePosterior = insercao.getFuncaoPosterior();
+			if (passo.nomeAnterior != null) {
+				passo.anterior = mecanismo.getFuncaoAdaptativa(passo.nomeAnterior);
+				passo.argumentosAnterior = argumentos(insercao.getParametrosAnterior());
+			}
+			if (passo.nomePosterior != null) {
+				passo.posterior = mecanismo.getFuncaoAdaptativa(passo.nomePosterior);
+				passo.argumentosPosterior = argumentos(insercao.getParametrosPosterior());
+			}
+		}
+
+		// parmetros de tipos desconhecidos: a ao  executada normalmente
+		passo.compilado = conhecido(passo.origem) && conhecido(passo.destino) && conhecido(passo.evento)
+				&& conhecidos(passo.argumentosAnterior) && conhecidos(passo.argumentosPosterior);
+		return passo;
+	}
+
+	private static boolean conhecido(Argumento argumento) {
+		return argumento.tipo != DESCONHECIDO;
+	}
+
+	private static boolean conhecidos(Argumento[] argumentos) {
+		if (argumentos == null) return true;
+		for (Argumento argumento : argumentos) {
+			if (!conhecido(argumento)) return false;
+		}
+		return true;
+	}
+
+	private static Argumento[] argumentos(List<Parametro> parametros) {
+		if (parametros == null || parametros.size() == 0) return null;
+		Argumento[] argumentos = new Argumento[parametros.size()];
+		for (int i = 0; i < argumentos.length; i++)
+			argumentos[i] = new Argumento(parametros.get(i));
+		return argumentos;
+	}
+
+	/**
+	 * Executa a funo adaptativa compilada.
+	 * @param parametros Os parmetros de execuo.
+	 * @param dispositivo O dispositivo adaptativo alterado.
+	 * @throws MensagemDeErro Caso haja um erro durante a execuo.
+	 */
+	@SuppressWarnings("unchecked")
+	public <C extends Configuracao, E extends Evento, R extends Regra<C>> void executar(List<ParametroValor> parametros, DispositivoAdaptativo<C, E, R> dispositivo) throws MensagemDeErro {
+		OuvinteDeExecucao ouvinte = Executor.getOuvinte();
+		ouvinte.funcaoAdaptativaIniciada(funcao, parametros);
+
+		// a funo  aplicada inteira ou no  aplicada: caso uma ao falhe,
+		// as aes anteriores e os geradores so desfeitos (caso o
+		// dispositivo subjacente no possa ser restaurado, no h transao)
+		boolean transacao = Dispositivos.podeRestaurar(dispositivo);
+		if (transacao) dispositivo.iniciarTransacao();
+		boolean confirmada = false;
+		try {
+			// Criando os geradores
+			Configuracao[] gerados = new Configuracao[geradores];
+			for (int i = 0; i < geradores; i++) {
+				gerados[i] = dispositivo.criarConfiguracao();
+				if (gerados[i] == null)
+					throw new MensagemDeErro("O gerador  nulo.");
+			}
+			List<C> lista = null;
+
+			for (Passo passo : passos) {
+				if (!passo.compilado) {
+					// ao de outra classe: recebe os geradores em uma lista
+					if (lista == null) lista = (List<C>) Arrays.asList(gerados);
+					passo.acao.executar(parametros, lista, dispositivo);
+				} else if (passo.insercao) {
+					inserir(passo, parametros, (C[]) gerados, dispositivo);
+				} else {
+					remover(passo, parametros, (C[]) gerados, dispositivo);
+				}
+			}
+
+			if (transacao) dispositivo.confirmarTransacao();
+			confirmada = true;
+		} finally {
+			if (transacao && !confirmada) dispositivo.desfazerTransacao();
+		}
+
+		ouvinte.funcaoAdaptativaTerminada(funcao, parametros);
+	}
+
+	private static <C extends Configuracao, E extends Evento, R extends Regra<C>> void inserir(Passo passo, List<ParametroValor> parametros, C[] gerados, DispositivoAdaptativo<C, E, R> dispositivo) throws MensagemDeErro {
+		C cInicial = configuracao(passo.origem, parametros, gerados, dispositivo);
+		if (cInicial == null)
+			throw new MensagemDeErro("A configurao inicial no pode ser nula em uma ao adaptativa de insero.");
+		C cFinal = configuracao(passo.destino, parametros, gerados, dispositivo);
+		if (cFinal == null)
+			throw new MensagemDeErro("A configurao final no pode ser nula em uma ao adaptativa de insero.");
+		String evento = evento(passo.evento, parametros);
+
+		ChamadaFuncaoAdaptativa anterior = null, posterior = null;
+		if (passo.nomeAnterior != null) {
+			if (passo.anterior == null) throw new MensagemDeErro("A funo adaptativa anterior da regra a ser inserida  desconhecida: " + passo.nomeAnterior);
+			anterior = new ChamadaFuncaoAdaptativa(passo.anterior, valores(passo.argumentosAnterior, parametros, gerados, dispositivo));
+		}
+		if (passo.nomePosterior != null) {
+			if (passo.posterior == null) throw new MensagemDeErro("A funo adaptativa posterior da regra a ser inserida  desconhecida: " + passo.nomePosterior);
+			posterior = new ChamadaFuncaoAdaptativa(passo.posterior, valores(passo.argumentosPosterior, parametros, gerados, dispositivo));
+		}
+
+		AcaoAdaptativaInsercao.inserir(passo.acao, cInicial, evento, cFinal, anterior, posterior, dispositivo);
+	}
+
+	private static <C extends Configuracao, E extends Evento, R extends Regra<C>> void remover(Passo passo, List<ParametroValor> parametros, C[] gerados, DispositivoAdaptativo<C, E, R> dispositivo) throws MensagemDeErro {
+		C cInicial = configuracao(passo.origem, parametros, gerados, dispositivo);
+		C cFinal = configuracao(passo.destino, parametros, gerados, dispositivo);
+		String evento = evento(passo.evento, parametros);
+		AcaoAdaptativaRemocao.remover(passo.acao, cInicial, evento, cFinal, dispositivo);
+	}
+
+	/**
+	 * Resolve um parmetro de configurao compilado.
+	 */
+	private static <C extends Configuracao> C configuracao(Argumento argumento, List<ParametroValor> parametros, C[] gerados, DispositivoAdaptativo<C, ?, ?> dispositivo) throws MensagemDeErro {
+		switch (argumento.tipo) {
+		case NENHUM:
+			return null;
+		case VALOR:
+			return dispositivo.getConfiguracao(argumento.valor.getValor());
+		case GERADOR:
+			if (argumento.indice >= gerados.length)
+				throw new MensagemDeErro("O gerador  nulo ou a lista  insuficiente definir a configuracao.");
+			return gerados[argumento.indice];
+		default:
+			ParametroValor valor = parametro(argumento.indice, parametros);
+			if (valor == null) return null;
+			if (!(valor instanceof ParametroValorConfiguracao))
+				throw new MensagemDeErro("Erro ao executar a ao adaptativa: parmetro passado no  uma configurao.");
+			return dispositivo.getConfiguracao(valor.getValor());
+		}
+	}
+
+	/**
+	 * Resolve um parmetro de evento compilado.
+	 */
+	private static String evento(Argumento argumento, List<ParametroValor> parametros) throws MensagemDeErro {
+		switch (argumento.tipo) {
+		case NENHUM:
+			return null;
+		case VALOR:
+			return argumento.valor.getValor();
+		default:
+			return parametro(argumento.indice, parametros).getValor();
+		}
+	}
+
+	/**
+	 * Resolve os argumentos de uma chamada de funo adaptativa inserida.
+	 */
+	private static <C extends Configuracao> List<ParametroValor> valores(Argumento[] argumentos, List<ParametroValor> parametros, C[] gerados, DispositivoAdaptativo<C, ?, ?> dispositivo) throws MensagemDeErro {
+		if (argumentos == null) return null;
+
+		ArrayList<ParametroValor> valores = new ArrayList<ParametroValor>(argumentos.length);
+		for (Argumento argumento : argumentos) {
+			switch (argumento.tipo) {
+			case VALOR:
+				valores.add(argumento.valor);
+				break;
+			case GERADOR:
+				if (argumento.indice >= gerados.length)
+					throw new MensagemDeErro("O gerador  nulo ou a lista  insuficiente definir o parmetro da chamada de funo adaptativa.");
+				valores.add(new ParametroValorConfiguracao(gerados[argumento.indice].getNome()));
+				break;
+			default:
+				ParametroValor valor = parametro(argumento.indice, parametros);
+				if (argumento.configuracao) {
+					// a configurao referenciada precisa existir
+					if (valor == null) throw new MensagemDeErro("O estado referenciado  nulo. No  possvel definir o parmetro.");
+					if (!(valor instanceof ParametroValorConfiguracao))
+						throw new MensagemDeErro("Erro ao executar a ao adaptativa: parmetro passado no  uma configurao.");
+					if (dispositivo.getConfiguracao(valor.getValor()) == null)
+						throw new MensagemDeErro("O estado referenciado  nulo. No  possvel definir o parmetro.");
+					valores.add(valor);
+				} else {
+					valores.add((valor instanceof ParametroValorEvento)? valor : new ParametroValorEvento(valor.getValor()));
+				}
+			}
+		}
+		return valores;
+	}
+
+	private static ParametroValor parametro(int indice, List<ParametroValor> parametros) throws MensagemDeErro {
+		if (parametros == null || parametros.size() <= indice)
+			throw new MensagemDeErro("Erro ao executar a ao adaptativa: parmetros passados so insuficientes.");
+		return parametros.get(indice);
+	}
+
+	/**
+	 * Uma ao adaptativa compilada.
+	 */
+	private static final class Passo {
+		final AcaoAdaptativa acao;
+		boolean compilado, insercao;
+		Argumento origem, evento, destino;
+		String nomeAnterior, nomePosterior;
+		FuncaoAdaptativa anterior, posterior;
+		Argumento[] argumentosAnterior, argumentosPosterior;
+		// alteraes da ao de insero quando o passo foi compilado
+		int alteracoes;
+
+		Passo(AcaoAdaptativa acao) {
+			this.acao = acao;
+		}
+	}
+
+	/**
+	 * Um parmetro compilado: o seu tipo e o valor ou a posio.
+	 */
+	private static final class Argumento {
+		final int tipo;
+		final int indice;
+		final ParametroValor valor;
+		// se a referncia  a uma configurao (e no a um evento)
+		final boolean configuracao;
+
+		Argumento(Parametro parametro) {
+			if (parametro == null) {
+				tipo = NENHUM;
+				indice = -1;
+				valor = null;
+			} else if (parametro instanceof ParametroValor) {
+				tipo = VALOR;
+				indice = -1;
+				valor = (ParametroValor) parametro;
+			} else if (parametro instanceof ParametroReferenciaGerador) {
+				tipo = GERADOR;
+				indice = ((ParametroReferencia) parametro).getValor();
+				valor = null;
+			} else if (parametro instanceof ParametroReferenciaConfiguracao || parametro instanceof ParametroReferenciaEvento) {
+				tipo = REFERENCIA;
+				indice = ((ParametroReferencia) parametro).getValor();
+				valor = null;
+			} else {
+				tipo = DESCONHECIDO;
+				indice = -1;
+				valor = null;
+			}
+			configuracao = parametro instanceof ParametroConfiguracao;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.subjacente.automato;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tabela global de smbolos cannicos.<br>
+ * Cada smbolo distinto  registrado uma nica vez e recebe um nmero
+ * (denso, a partir de zero) que pode ser usado para indexar tabelas e
+ * conjuntos de bits. Os smbolos registrados nunca so removidos.<br>
+ * A consulta no usa sincronizao; apenas o registro de novos smbolos 
+ * sincronizado.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class Alfabeto {
+	private static final ConcurrentHashMap<String, Simbolo> simbolos = new ConcurrentHashMap<String, Simbolo>();
+	private static volatile Simbolo[] porNumero = new Simbolo[64];
+	private static volatile int tamanho = 0;
+
+	private Alfabeto() {
+	}
+
+	/**
+	 * Obtm o smbolo cannico, registrando-o caso ainda no exista.
+	 * @param simbolo A representao do smbolo (no pode ser nula).
+	 * @return O smbolo cannico.
+	 */
+	public static Simbolo simbolo(String simbolo) {
+		if (simbolo == null)
+			throw new IllegalArgumentException("O smbolo interno no pode ser nulo.");
+
+		Simbolo canonico = simbolos.get(simbolo);
+		if (canonico != null) return canonico;
+
+		return registrar(simbolo);
+	}
+
+	/**
+	 * Obtm o smbolo cannico, sem registr-lo caso ainda no exista (para
+	 * os smbolos das cadeias de entrada: um smbolo desconhecido no
+	 * corresponde a nenhuma transio e no deve aumentar a tabela).
+	 * @param simbolo A representao do smbolo (no pode ser nula).
+	 * @return O smbolo cannico ou, caso ele no tenha sido registrado, um
+	 * smbolo no cannico.
+	 */
+	public static Simbolo procurar(String simbolo) {
+		if (simbolo == null)
+			throw new IllegalArgumentException("O smbolo interno no pode ser nulo.");
+
+		Simbolo canonico = simbolos.get(simbolo);
+		return (canonico != null)? canonico : new Simbolo(simbolo);
+	}
+
+	/**
+	 * Obtm o smbolo cannico a partir do seu nmero.
+	 * @param numero O nmero do smbolo.
+	 * @return O smbolo cannico.
+	 */
+	public static Simbolo simbolo(int numero) {
+		if (numero < 0 || numero >= tamanho)
+			throw new IllegalArgumentException("No existe smbolo com o nmero " + numero + ".");
+		return porNumero[numero];
+	}
+
+	/**
+	 * Obtm o nmero de um smbolo, sem registr-lo.
+	 * @param simbolo A representao do smbolo.
+	 * @return O nmero do smbolo, ou -1 caso ele no tenha sido registrado.
+	 */
+	public static int numero(String simbolo) {
+		if (simbolo == null) return -1;
+		Simbolo canonico = simbolos.get(simbolo);
+		return (canonico == null)? -1 : canonico.getNumero();
+	}
+
+	/**
+	 * Obtm o nmero de um smbolo qualquer (cannico ou no), sem registr-lo.
+	 * @param simbolo O smbolo.
+	 * @return O nmero do smbolo, ou -1 caso ele no tenha sido registrado.
+	 */
+	public static int numero(Simbolo simbolo) {
+		if (simbolo == null) return -1;
+		if (simbolo.getNumero() >= 0) return simbolo.getNumero();
+		return numero(simbolo.getSimbolo());
+	}
+
+	/**
+	 * Obtm a quantidade de smbolos registrados.
+	 * @return A quantidade de smbolos (os nmeros vo de 0 a tamanho - 1).
+	 */
+	public static int tamanho() {
+		return tamanho;
+	}
+
+	private static synchronized Simbolo registrar(String simbolo) {
+		// pode ter sido registrado enquanto esperava
+		Simbolo canonico = simbolos.get(simbolo);
+		if (canonico != null) return canonico;
+
+		Simbolo[] vetor = porNumero;
+		if (tamanho == vetor.length) {
+			Simbolo[] novo = new Simbolo[vetor.length * 2];
+			System.arraycopy(vetor, 0, novo, 0, vetor.length);
+			vetor = novo;
+		}
+
+		canonico = new Simbolo(simbolo, tamanho);
+		vetor[tamanho] = canonico;
+		porNumero = vetor;
+		tamanho++;
+		simbolos.put(simbolo, canonico);
+
+		return canonico;
+	}
+}
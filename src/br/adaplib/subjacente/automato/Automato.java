@@ -17,34 +17,81 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib.subjacente.automato;
 
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import br.adaplib.ContextoDeExecucao;
 import br.adaplib.Dispositivo;
+import br.adaplib.DispositivoBifurcavel;
+import br.adaplib.DispositivoColetavel;
+import br.adaplib.DispositivoComFechosVazios;
+import br.adaplib.DispositivoRestauravel;
+import br.adaplib.DispositivoVersionado;
+import br.adaplib.ImpressaoDigital;
+import br.adaplib.PontoDeRestauracao;
 import br.adaplib.SimboloDeSaida;
 import br.adaplib.excecao.MensagemDeErro;
+import br.adaplib.util.MapaPersistente;
 
 /**
  * Representa um autmato de estados finitos, usado como camada subjacente.<br>
- * Os possveis smbolos de sada so "true" e "false".
+ * Os possveis smbolos de sada so "true" e "false".<br>
+ * O autmato pode ser no determinstico: um estado pode ter vrias
+ * transies com o mesmo smbolo (ou em vazio), desde que para destinos
+ * diferentes. O Executor segue apenas a primeira delas (a mais antiga);
+ * para considerar todas, use o {@link SimuladorNaoDeterministico}.<br>
+ * Os estados, as transies e os estados de aceite so guardados em mapas
+ * persistentes: bifurcar o autmato no copia nada e cada alterao copia
+ * apenas a parte alterada.
  * @author FLevy
  * @since 1.0
  */
-public class Automato implements Dispositivo<Estado, Simbolo, Transicao> {
+public class Automato implements DispositivoBifurcavel<Estado, Simbolo, Transicao>, DispositivoColetavel<Estado, Simbolo, Transicao>, DispositivoComFechosVazios<Estado, Simbolo, Transicao>, DispositivoRestauravel<Estado, Simbolo, Transicao>, DispositivoVersionado<Estado, Simbolo, Transicao> {
 	protected final static Simbolo[] SAIDAS = {new Simbolo("true"), new Simbolo("false")};
 
-	private LinkedHashMap<String, Estado> estados;
+	private MapaPersistente<String, Estado> estados;
 	private Estado estadoInicial;
-	private HashSet<Estado> estadosDeAceite;
-	private HashSet<Transicao> transicoes;
+	private MapaPersistente<Estado, Estado> estadosDeAceite;
+	// transies de cada estado, pelo smbolo (em ordem de adio; os vetores
+	// nunca so alterados, apenas substitudos)
+	private MapaPersistente<Estado, MapaPersistente<String, Transicao[]>> saidas;
+	// ndices invertidos: as transies que chegam em cada estado, pelo
+	// smbolo, e as transies de cada smbolo
+	private MapaPersistente<Estado, MapaPersistente<String, MapaPersistente<Transicao, Transicao>>> chegadas;
+	private MapaPersistente<String, MapaPersistente<Transicao, Transicao>> porSimbolo;
+	private int numeroDeTransicoes;
+	// impresso digital (ver ImpressaoDigital) e reviso da estrutura
+	private long impressao;
+	private long revisao;
+	// fechos em vazio j calculados: quando uma transio em vazio muda,
+	// apenas os fechos que contm a sua origem so descartados. Os fechos e
+	// os ciclos so calculados nas consultas, que podem ser feitas por vrias
+	// threads (como nas verses publicadas): como no so alterados depois de
+	// criados, basta public-los em campos volteis (no pior caso, o mesmo
+	// fecho  calculado duas vezes)
+	private volatile MapaPersistente<Estado, Set<Estado>> fechosVazios;
+	// ciclos de transies em vazio (nulo: precisam ser calculados)
+	private volatile CiclosVazios ciclosVazios;
+	// transaes abertas (a mais interna no topo) e as origens das transies
+	// em vazio alteradas cujos fechos ainda no foram descartados
+	private ArrayDeque<Ponto> transacoes;
+	private HashSet<Estado> vaziasPendentes;
 	private final static HashSet<SimboloDeSaida> simbolosDeSaida = new HashSet<SimboloDeSaida>(Arrays.asList(SAIDAS));
-	private HashSet<Simbolo> simbolosDeEntrada;
+	private Set<Simbolo> simbolosDeEntrada;
+	private BitSet alfabeto;
 
 	/**
 	 * Cria um novo autmato sem estados e transies.
@@ -77,13 +124,27 @@ public class Automato implements Dispositivo<Estado, Simbolo, Transicao> {
 	 */
 	public Automato(Set<Estado> estados, Set<Estado> estadosFinais,
 			Estado estadoInicial, Set<Simbolo> entradas) {
-		this.estados = new LinkedHashMap<String, Estado>();
-		estadosDeAceite = new HashSet<Estado>();
+		this.estados = MapaPersistente.vazio();
+		this.estadosDeAceite = MapaPersistente.vazio();
+		this.saidas = MapaPersistente.vazio();
+		this.chegadas = MapaPersistente.vazio();
+		this.porSimbolo = MapaPersistente.vazio();
+		this.fechosVazios = MapaPersistente.vazio();
 
-		if (entradas != null)
-			simbolosDeEntrada = new HashSet<Simbolo>(entradas);
-		else
+		if (entradas != null) {
+			// usando os smbolos cannicos para que a verificao seja um teste de bit
+			HashSet<Simbolo> canonicos = new HashSet<Simbolo>();
+			alfabeto = new BitSet();
+			for (Simbolo s : entradas) {
+				Simbolo canonico = Alfabeto.simbolo(s.getSimbolo());
+				canonicos.add(canonico);
+				alfabeto.set(canonico.getNumero());
+			}
+			simbolosDeEntrada = Collections.unmodifiableSet(canonicos);
+		} else {
 			simbolosDeEntrada = null;
+			alfabeto = null;
+		}
 
 		if (estados != null) {
 			for (Estado e : estados) {
@@ -92,17 +153,90 @@ public class Automato implements Dispositivo<Estado, Simbolo, Transicao> {
 		}
 	}
 
+	/**
+	 * Cria um autmato que compartilha toda a estrutura de outro.
+	 * @param original O autmato original.
+	 */
+	private Automato(Automato original) {
+		this.estados = original.estados;
+		this.estadoInicial = original.estadoInicial;
+		this.estadosDeAceite = original.estadosDeAceite;
+		this.saidas = original.saidas;
+		this.chegadas = original.chegadas;
+		this.porSimbolo = original.porSimbolo;
+		this.numeroDeTransicoes = original.numeroDeTransicoes;
+		this.impressao = original.impressao;
+		this.revisao = original.revisao;
+		this.simbolosDeEntrada = original.simbolosDeEntrada;
+		this.alfabeto = original.alfabeto;
+		this.fechosVazios = original.fechosVazios;
+		this.ciclosVazios = original.ciclosVazios;
+	}
+
+	/**
+	 * Inicia uma transao. As transaes podem ser aninhadas.<br>
+	 * Enquanto houver uma transao aberta, os fechos em vazio afetados pelas
+	 * alteraes so descartados de uma nica vez: na confirmao ou na
+	 * primeira consulta a um fecho.
+	 * @since 2.1
+	 */
+	public void iniciarTransacao() {
+		if (transacoes == null) transacoes = new ArrayDeque<Ponto>();
+		descartarFechos();
+		transacoes.push(new Ponto(this));
+	}
+
+	/**
+	 * Confirma a transao mais interna.
+	 * @since 2.1
+	 */
+	public void confirmarTransacao() {
+		if (transacoes == null || transacoes.isEmpty())
+			throw new IllegalStateException("No h transao aberta no autmato.");
+		transacoes.pop();
+		if (transacoes.isEmpty()) descartarFechos();
+	}
+
+	/**
+	 * Desfaz todas as alteraes feitas desde o incio da transao mais
+	 * interna, em tempo constante.
+	 * @since 2.1
+	 */
+	public void desfazerTransacao() {
+		if (transacoes == null || transacoes.isEmpty())
+			throw new IllegalStateException("No h transao aberta no autmato.");
+		restaurar(transacoes.pop());
+	}
+
+	/**
+	 * Marca o estado atual do autmato, em tempo constante: como as tabelas
+	 * so persistentes, nada  copiado. Restaurar o ponto tambm leva tempo
+	 * constante, qualquer que seja o nmero de alteraes feitas depois.
+	 * @since 2.1
+	 */
+	public PontoDeRestauracao marcar() {
+		descartarFechos();
+		return new Ponto(this);
+	}
+
+	public void restaurar(PontoDeRestauracao ponto) {
+		if (!(ponto instanceof Ponto) || ((Ponto) ponto).automato != this)
+			throw new IllegalArgumentException("Erro ao restaurar o autmato: o ponto de restaurao no foi criado por ele.");
+		((Ponto) ponto).restaurar();
+		vaziasPendentes = null;
+	}
+
 	public Estado configuracaoInicial() {
 		return estadoInicial;
 	}
 
 	public Set<Estado> configuracoesDeAceite() {
-		return estadosDeAceite;
+		return estadosDeAceite.chaves();
 	}
 
 	public Estado criarConfiguracao() {
 		Estado novo = new Estado();
-		estados.put(novo.getNome(), novo);
+		colocarEstado(novo);
 		return novo;
 	}
 	
@@ -113,19 +247,358 @@ public class Automato implements Dispositivo<Estado, Simbolo, Transicao> {
 	 */
 	public Estado criarConfiguracao(String nome) {
 		Estado novo = new Estado(nome);
-		estados.put(nome, novo);
+		colocarEstado(novo);
 		return novo;
 	}
 
-	public Transicao adicionarRegra(Estado cInicial, String evento, Estado cFinal) {
-		this.transicoes = null;
+	/**
+	 * Coloca um estado na tabela de estados (substituindo o estado com o
+	 * mesmo nome, caso exista).
+	 * @param novo O estado.
+	 */
+	private void colocarEstado(Estado novo) {
+		if (estados.get(novo.getNome()) == null)
+			impressao ^= ImpressaoDigital.deConfiguracao(novo);
+		estados = estados.com(novo.getNome(), novo);
+		revisao++;
+	}
+
+	/**
+	 * Troca o estado inicial.
+	 * @param novo O novo estado inicial.
+	 */
+	private void trocarEstadoInicial(Estado novo) {
+		impressao ^= ImpressaoDigital.deInicial(estadoInicial) ^ ImpressaoDigital.deInicial(novo);
+		estadoInicial = novo;
+		revisao++;
+	}
 
+	public Transicao adicionarRegra(Estado cInicial, String evento, Estado cFinal) {
 		Transicao nova = new Transicao(cInicial, evento, cFinal);
-		cInicial.adicionarTransicao(nova);
+		adicionarTransicao(nova);
 
 		return nova;
 	}
 
+	/**
+	 * Adiciona uma transio. Caso j exista uma transio igual (mesma
+	 * origem, smbolo e destino), ela  substituda, mantendo a sua
+	 * posio; caso contrrio, a transio  colocada depois das demais
+	 * transies da origem com o mesmo smbolo.
+	 * @param nova A transio.
+	 */
+	private void adicionarTransicao(Transicao nova) {
+		Estado origem = nova.getInicial();
+		MapaPersistente<String, Transicao[]> deOrigem = tabela(saidas, origem);
+		Transicao[] anteriores = deOrigem.get(nova.getEvento());
+		Transicao[] novas;
+
+		int i = indice(anteriores, nova);
+		if (anteriores == null) {
+			novas = new Transicao[] {nova};
+		} else if (i >= 0) {
+			novas = anteriores.clone();
+			novas[i] = nova;
+			desindexar(anteriores[i]);
+		} else {
+			novas = new Transicao[anteriores.length + 1];
+			System.arraycopy(anteriores, 0, novas, 0, anteriores.length);
+			novas[anteriores.length] = nova;
+		}
+
+		saidas = saidas.com(origem, deOrigem.com(nova.getEvento(), novas));
+		indexar(nova);
+		if ("".equals(nova.getEvento())) vaziasAlteradas(origem);
+	}
+
+	/**
+	 * Remove uma transio existente.
+	 * @param transicao A transio.
+	 */
+	private void removerTransicao(Transicao transicao) {
+		Estado origem = transicao.getInicial();
+		MapaPersistente<String, Transicao[]> deOrigem = tabela(saidas, origem);
+		Transicao[] anteriores = deOrigem.get(transicao.getEvento());
+		int i = indice(anteriores, transicao);
+		if (i < 0) return;
+
+		if (anteriores.length == 1) {
+			deOrigem = deOrigem.sem(transicao.getEvento());
+		} else {
+			Transicao[] novas = new Transicao[anteriores.length - 1];
+			System.arraycopy(anteriores, 0, novas, 0, i);
+			System.arraycopy(anteriores, i + 1, novas, i, novas.length - i);
+			deOrigem = deOrigem.com(transicao.getEvento(), novas);
+		}
+		saidas = deOrigem.estaVazio()? saidas.sem(origem) : saidas.com(origem, deOrigem);
+		desindexar(anteriores[i]);
+		if ("".equals(transicao.getEvento())) vaziasAlteradas(origem);
+	}
+
+	/**
+	 * Coloca uma transio nos ndices pelo destino e pelo smbolo.
+	 * @param transicao A transio.
+	 */
+	private void indexar(Transicao transicao) {
+		Estado destino = transicao.getFinal();
+		chegadas = chegadas.com(destino, comTransicao(tabela(chegadas, destino), transicao));
+		porSimbolo = comTransicao(porSimbolo, transicao);
+		numeroDeTransicoes++;
+		impressao ^= ImpressaoDigital.deRegra(transicao);
+		revisao++;
+	}
+
+	/**
+	 * Retira uma transio dos ndices pelo destino e pelo smbolo.
+	 * @param transicao A transio (a mesma instncia que foi indexada).
+	 */
+	private void desindexar(Transicao transicao) {
+		Estado destino = transicao.getFinal();
+		MapaPersistente<String, MapaPersistente<Transicao, Transicao>> noDestino = semTransicao(tabela(chegadas, destino), transicao);
+		chegadas = noDestino.estaVazio()? chegadas.sem(destino) : chegadas.com(destino, noDestino);
+		porSimbolo = semTransicao(porSimbolo, transicao);
+		numeroDeTransicoes--;
+		impressao ^= ImpressaoDigital.deRegra(transicao);
+		revisao++;
+	}
+
+	private static MapaPersistente<String, MapaPersistente<Transicao, Transicao>> comTransicao(
+			MapaPersistente<String, MapaPersistente<Transicao, Transicao>> indice, Transicao transicao) {
+		MapaPersistente<Transicao, Transicao> doSimbolo = indice.get(transicao.getEvento());
+		if (doSimbolo == null) doSimbolo = MapaPersistente.vazio();
+		return indice.com(transicao.getEvento(), doSimbolo.com(transicao, transicao));
+	}
+
+	private static MapaPersistente<String, MapaPersistente<Transicao, Transicao>> semTransicao(
+			MapaPersistente<String, MapaPersistente<Transicao, Transicao>> indice, Transicao transicao) {
+		MapaPersistente<Transicao, Transicao> doSimbolo = indice.get(transicao.getEvento());
+		if (doSimbolo == null) return indice;
+		doSimbolo = doSimbolo.sem(transicao);
+		return doSimbolo.estaVazio()? indice.sem(transicao.getEvento()) : indice.com(transicao.getEvento(), doSimbolo);
+	}
+
+	/**
+	 * Descarta os fechos em vazio afetados pela alterao de uma transio em
+	 * vazio: apenas os dos estados que alcanam a origem dela.
+	 * @param origem A origem da transio alterada.
+	 */
+	private void vaziasAlteradas(Estado origem) {
+		ciclosVazios = null;
+		if (transacoes != null && !transacoes.isEmpty()) {
+			// descartando depois, junto com as demais alteraes da transao
+			if (vaziasPendentes == null) vaziasPendentes = new HashSet<Estado>();
+			vaziasPendentes.add(origem);
+			return;
+		}
+		for (Map.Entry<Estado, Set<Estado>> e : fechosVazios) {
+			if (e.getValue().contains(origem))
+				fechosVazios = fechosVazios.sem(e.getKey());
+		}
+	}
+
+	/**
+	 * Descarta, em uma nica passagem, os fechos afetados pelas transies em
+	 * vazio alteradas durante as transaes.
+	 */
+	private void descartarFechos() {
+		if (vaziasPendentes == null) return;
+		for (Map.Entry<Estado, Set<Estado>> e : fechosVazios) {
+			for (Estado origem : vaziasPendentes) {
+				if (e.getValue().contains(origem)) {
+					fechosVazios = fechosVazios.sem(e.getKey());
+					break;
+				}
+			}
+		}
+		vaziasPendentes = null;
+	}
+
+	/**
+	 * Obtm o fecho em vazio de um estado: ele mesmo e todos os estados
+	 * alcanveis a partir dele apenas por transies em vazio.<br>
+	 * O fecho  guardado e s  recalculado quando alguma transio em vazio
+	 * que ele usa (ou que passa a alcan-lo)  alterada.<br>
+	 * O Executor usa o fecho para detectar as execues presas em um ciclo de
+	 * transies em vazio.
+	 * @param estado O estado.
+	 * @return O fecho em vazio (no pode ser alterado).
+	 */
+	public Set<Estado> getFechoVazio(Estado estado) {
+		descartarFechos();
+		Set<Estado> fecho = fechosVazios.get(estado);
+		if (fecho != null) return fecho;
+
+		HashSet<Estado> alcancados = new HashSet<Estado>();
+		ArrayDeque<Estado> pendentes = new ArrayDeque<Estado>();
+		alcancados.add(estado);
+		pendentes.push(estado);
+		while (!pendentes.isEmpty()) {
+			for (Transicao t : getTransicoes(pendentes.pop(), "")) {
+				if (alcancados.add(t.getFinal()))
+					pendentes.push(t.getFinal());
+			}
+		}
+
+		fecho = Collections.unmodifiableSet(alcancados);
+		fechosVazios = fechosVazios.com(estado, fecho);
+		return fecho;
+	}
+
+	/**
+	 * Informa se o estado faz parte de um ciclo de transies em vazio (o que
+	 * pode fazer uma execuo nunca terminar).
+	 * @param estado O estado.
+	 * @return Se o estado est em um ciclo de transies em vazio.
+	 */
+	public boolean emCicloVazio(Estado estado) {
+		return ciclosVazios().porEstado.containsKey(estado);
+	}
+
+	/**
+	 * Obtm os ciclos de transies em vazio: os componentes fortemente
+	 * conexos do grafo das transies em vazio com mais de um estado, ou com
+	 * um estado que tem uma transio em vazio para si mesmo.<br>
+	 * Os ciclos so guardados at que alguma transio em vazio seja alterada.
+	 * @return Os ciclos (a lista no pode ser alterada).
+	 */
+	public List<Set<Estado>> getCiclosVazios() {
+		return ciclosVazios().ciclos;
+	}
+
+	private CiclosVazios ciclosVazios() {
+		CiclosVazios ciclos = ciclosVazios;
+		if (ciclos == null) {
+			ciclos = new CiclosVazios(this);
+			ciclosVazios = ciclos;
+		}
+		return ciclos;
+	}
+
+	private static int indice(Transicao[] transicoes, Transicao procurada) {
+		if (transicoes == null) return -1;
+		for (int i = 0; i < transicoes.length; i++) {
+			if (transicoes[i].equals(procurada)) return i;
+		}
+		return -1;
+	}
+
+	private static <K, V> MapaPersistente<K, V> tabela(MapaPersistente<Estado, MapaPersistente<K, V>> tabelas, Estado estado) {
+		MapaPersistente<K, V> tabela = tabelas.get(estado);
+		return (tabela == null)? MapaPersistente.<K, V>vazio() : tabela;
+	}
+
+	/**
+	 * Obtm a primeira transio (a mais antiga) de um estado que consome
+	 * um smbolo especfico.
+	 * @param origem O estado de origem.
+	 * @param simbolo O smbolo consumido pela transio ("" para a transio
+	 * em vazio).
+	 * @return A transio, ou nulo caso no exista.
+	 */
+	public Transicao getTransicao(Estado origem, String simbolo) {
+		MapaPersistente<String, Transicao[]> tabela = saidas.get(origem);
+		if (tabela == null) return null;
+		Transicao[] transicoes = tabela.get(simbolo);
+		return (transicoes == null)? null : transicoes[0];
+	}
+
+	/**
+	 * Obtm todas as transies de um estado que consomem um smbolo
+	 * especfico, em ordem de adio.
+	 * @param origem O estado de origem.
+	 * @param simbolo O smbolo consumido pelas transies ("" para as
+	 * transies em vazio).
+	 * @return As transies (a lista no pode ser alterada).
+	 */
+	public List<Transicao> getTransicoes(Estado origem, String simbolo) {
+		MapaPersistente<String, Transicao[]> tabela = saidas.get(origem);
+		Transicao[] transicoes = (tabela == null)? null : tabela.get(simbolo);
+		if (transicoes == null) return Collections.emptyList();
+		return Collections.unmodifiableList(Arrays.asList(transicoes));
+	}
+
+	/**
+	 * Obtm todas as transies que tm um estado como origem.
+	 * @param origem O estado de origem.
+	 * @return As transies.
+	 */
+	public Collection<Transicao> getTransicoes(Estado origem) {
+		ArrayList<Transicao> todas = new ArrayList<Transicao>();
+		MapaPersistente<String, Transicao[]> tabela = saidas.get(origem);
+		if (tabela != null) {
+			for (Transicao[] transicoes : tabela.valores())
+				todas.addAll(Arrays.asList(transicoes));
+		}
+		return todas;
+	}
+
+	/**
+	 * Obtm as transies de um estado agrupadas pelo smbolo, sem copi-las
+	 * (para a compilao do autmato).
+	 * @param origem O estado de origem.
+	 * @return As transies por smbolo, ou nulo caso no existam.
+	 */
+	MapaPersistente<String, Transicao[]> getTabela(Estado origem) {
+		return saidas.get(origem);
+	}
+
+	/**
+	 * Informa se o autmato  determinstico: se nenhum estado tem mais de
+	 * uma transio com o mesmo smbolo, nem mais de uma transio em vazio.
+	 * @return Se o autmato  determinstico.
+	 */
+	public boolean isDeterministico() {
+		for (MapaPersistente<String, Transicao[]> tabela : saidas.valores()) {
+			for (Transicao[] transicoes : tabela.valores()) {
+				if (transicoes.length > 1) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Obtm todas as transies que tm um estado como destino.
+	 * @param destino O estado de destino.
+	 * @return As transies.
+	 */
+	public Collection<Transicao> getTransicoesDestino(Estado destino) {
+		ArrayList<Transicao> todas = new ArrayList<Transicao>();
+		MapaPersistente<String, MapaPersistente<Transicao, Transicao>> tabela = chegadas.get(destino);
+		if (tabela != null) {
+			for (MapaPersistente<Transicao, Transicao> transicoes : tabela.valores())
+				todas.addAll(transicoes.valores());
+		}
+		return todas;
+	}
+
+	/**
+	 * Obtm as transies que tm um estado como destino e que consomem um
+	 * smbolo especfico.
+	 * @param destino O estado de destino.
+	 * @param simbolo O smbolo consumido pelas transies ("" para as
+	 * transies em vazio).
+	 * @return As transies (a coleo no pode ser alterada).
+	 */
+	public Collection<Transicao> getTransicoesDestino(Estado destino, String simbolo) {
+		MapaPersistente<String, MapaPersistente<Transicao, Transicao>> tabela = chegadas.get(destino);
+		MapaPersistente<Transicao, Transicao> transicoes = (tabela == null)? null : tabela.get(simbolo);
+		if (transicoes == null) return Collections.emptyList();
+		return transicoes.valores();
+	}
+
+	/**
+	 * Obtm todas as transies que consomem um smbolo especfico, de
+	 * qualquer origem e para qualquer destino.
+	 * @param simbolo O smbolo consumido pelas transies ("" para as
+	 * transies em vazio).
+	 * @return As transies (a coleo no pode ser alterada).
+	 */
+	public Collection<Transicao> getTransicoesDoSimbolo(String simbolo) {
+		MapaPersistente<Transicao, Transicao> transicoes = porSimbolo.get(simbolo);
+		if (transicoes == null) return Collections.emptyList();
+		return transicoes.valores();
+	}
+
 	/**
 	 * Os eventos (simbolos de entrada) podem ser nulos, indicando que as
 	 * possibilidades no foram informadas (e, portanto, qualquer uma  vlida).
@@ -134,12 +607,24 @@ public class Automato implements Dispositivo<Estado, Simbolo, Transicao> {
 		return simbolosDeEntrada;
 	}
 
+	/**
+	 * Informa se o smbolo pertence aos smbolos de entrada do autmato.
+	 * @param simbolo O smbolo.
+	 * @return Se o smbolo  vlido (sempre verdadeiro caso os smbolos de
+	 * entrada no tenham sido informados).
+	 */
+	public boolean simboloValido(Simbolo simbolo) {
+		if (alfabeto == null) return true;
+		int numero = Alfabeto.numero(simbolo);
+		return numero >= 0 && alfabeto.get(numero);
+	}
+
 	public Estado getConfiguracao(String nome) {
 		return estados.get(nome);
 	}
 
 	public Set<Estado> getConfiguracoes() {
-		return new HashSet<Estado>(estados.values());
+		return new HashSet<Estado>(estados.valores());
 	}
 
 	public ContextoDeExecucao<Estado, Simbolo, Transicao> iniciarExecucao() {
@@ -147,79 +632,83 @@ public class Automato implements Dispositivo<Estado, Simbolo, Transicao> {
 	}
 
 	/**
-	 * Obtendo todas as transies... Recomenda-se evitar usar esse mtodo!
+	 * Obtendo todas as transies.<br>
+	 * O conjunto no  copiado: ele usa o ndice pelo smbolo da verso atual
+	 * do autmato e, portanto, no  afetado por alteraes posteriores.
+	 * @return As transies (o conjunto no pode ser alterado).
 	 */
 	public Set<Transicao> regras() {
-		if (this.transicoes != null) return this.transicoes;
-
-		this.transicoes = new HashSet<Transicao>();
-
-		// j que pediu...
-		for (Estado e : estados.values()) {
-			this.transicoes.addAll(e.getTransicoes());
-		}
-
-		return this.transicoes;
+		return new Transicoes(porSimbolo, numeroDeTransicoes);
 	}
 
 	public List<Transicao> removeRegras(Estado de, String simbolo, Estado para) throws MensagemDeErro {
-		if (!estados.values().contains(de) || !estados.values().contains(para))
+		if (de != null && estados.get(de.getNome()) != de)
 			throw new MensagemDeErro("O estado de origem no existe no autmato.");
+		if (para != null && estados.get(para.getNome()) != para)
+			throw new MensagemDeErro("O estado de destino no existe no autmato.");
 		if (de == null && simbolo == null && para == null)
 			throw new MensagemDeErro("No  possvel remover todas as transies deste autmato.");
 
-		List<Transicao> removidas = null;
-
-		if (de == null) {
-			if (simbolo == null) {
-				// apagando TODAS as transies que tem "para" como destino
-				removidas = para.removeTransicoesDestino();
-			} else {
-				if (para == null) {
-					// apagando todas as transies que tem esse smbolo
-					// Extremamente ineficiente... Fazer o qu?
-					Iterator<Transicao> it = regras().iterator();
-					removidas = new LinkedList<Transicao>();
-					Transicao t;
-					while (it.hasNext()) {
-						t = it.next();
-						if (simbolo.equals(t.getEvento())) {
-							removidas.add(t);
-							it.remove();
-						}
-					}
+		// as colees percorridas so de uma verso anterior  remoo
+		ArrayList<Transicao> removidas = new ArrayList<Transicao>();
 
-					if (removidas.size() == 0) removidas = null;
-				} else {
-					// apagando as transies que tem um determinado smbolo e
-					// que tem "para" como destino
-					removidas = para.removeTransicaoDestino(simbolo);
-				}
+		if (de != null && simbolo != null) {
+			// removendo as transies do estado "de" com o simbolo
+			// "simbolo" (e, se definido, com destino "para")
+			for (Transicao t : getTransicoes(de, simbolo)) {
+				if (para == null || para.equals(t.getFinal()))
+					removidas.add(t);
 			}
-		} else {
-			if (simbolo == null) {
-				if (para == null) {
-					// removendo todas as transies desse estado
-					removidas = de.removeTransicoes();
-				} else {
-					// removendo as transies de "de" para "para"
-					removidas = de.removeTransicao(para);
-				}
-			} else {
-				if (para == null) {
-					// removendo as transies do estado "de" com o simbolo "simbolo"
-					de.removeTransicao(simbolo);
-				} else {
-					// tudo definido...
-					de.removeTransicao(simbolo, para);
+		} else if (de != null && para == null) {
+			// removendo todas as transies desse estado
+			removidas.addAll(getTransicoes(de));
+		} else if (de != null) {
+			// removendo as transies de "de" para "para": percorre os
+			// smbolos do lado com menos smbolos
+			MapaPersistente<String, Transicao[]> deOrigem = tabela(saidas, de);
+			MapaPersistente<String, MapaPersistente<Transicao, Transicao>> noDestino = tabela(chegadas, para);
+			Collection<String> simbolos = (deOrigem.tamanho() <= noDestino.tamanho())? deOrigem.chaves() : noDestino.chaves();
+			for (String s : simbolos) {
+				Transicao[] transicoes = deOrigem.get(s);
+				if (transicoes == null) continue;
+				for (Transicao t : transicoes) {
+					if (para.equals(t.getFinal()))
+						removidas.add(t);
 				}
 			}
+		} else if (para != null) {
+			// removendo as transies que tem "para" como destino (e, se
+			// definido, um determinado smbolo)
+			if (simbolo != null) removidas.addAll(getTransicoesDestino(para, simbolo));
+			else removidas.addAll(getTransicoesDestino(para));
+		} else {
+			// apagando todas as transies que tem esse smbolo
+			removidas.addAll(getTransicoesDoSimbolo(simbolo));
 		}
 
-		if (removidas == null)
-			removidas = new LinkedList<Transicao>();
-		else
-			this.transicoes = null;
+		for (Transicao t : removidas)
+			removerTransicao(t);
+
+		return removidas;
+	}
+
+	public List<Transicao> removerConfiguracao(Estado configuracao) throws MensagemDeErro {
+		if (configuracao == null || estados.get(configuracao.getNome()) != configuracao)
+			throw new IllegalArgumentException("Erro ao remover o estado do autmato: o estado no pertence ao autmato.");
+		if (configuracao == estadoInicial)
+			throw new IllegalArgumentException("Erro ao remover o estado do autmato: o estado inicial no pode ser removido.");
+
+		List<Transicao> removidas = removeRegras(configuracao, null, null);
+		removidas.addAll(removeRegras(null, null, configuracao));
+
+		estados = estados.sem(configuracao.getNome());
+		impressao ^= ImpressaoDigital.deConfiguracao(configuracao);
+		if (estadosDeAceite.contem(configuracao)) {
+			estadosDeAceite = estadosDeAceite.sem(configuracao);
+			impressao ^= ImpressaoDigital.deAceite(configuracao);
+		}
+		fechosVazios = fechosVazios.sem(configuracao);
+		revisao++;
 
 		return removidas;
 	}
@@ -239,13 +728,15 @@ public class Automato implements Dispositivo<Estado, Simbolo, Transicao> {
 		if (estados.get(novo.getNome()) != null)
 			throw new IllegalArgumentException("Erro ao adicionar o estado ao autmato: j existe um estado com o mesmo nome.");
 
-		estados.put(novo.getNome(), novo);
+		colocarEstado(novo);
 
-		if(aceite)
-			estadosDeAceite.add(novo);
+		if(aceite) {
+			estadosDeAceite = estadosDeAceite.com(novo, novo);
+			impressao ^= ImpressaoDigital.deAceite(novo);
+		}
 
 		if (inicial)
-			this.estadoInicial = novo;
+			trocarEstadoInicial(novo);
 	}
 
 	/**
@@ -257,10 +748,10 @@ public class Automato implements Dispositivo<Estado, Simbolo, Transicao> {
 		if (estadoInicial == null)
 			throw new IllegalArgumentException("Erro ao definir o estado inicial do autmato: o estado inicial no pode ser nulo.");
 
-		if (!estados.containsValue(estadoInicial))
+		if (estados.get(estadoInicial.getNome()) != estadoInicial)
 			throw new IllegalArgumentException("Erro ao definir o estado inicial do autmato: o estado inicial no foi anteriormente adicionado ao autmato.");
 
-		this.estadoInicial = estadoInicial;
+		trocarEstadoInicial(estadoInicial);
 	}
 
 	/**
@@ -269,21 +760,396 @@ public class Automato implements Dispositivo<Estado, Simbolo, Transicao> {
 	 * @param estados O conjunto de estados de aceite.
 	 */
 	public void setEstadosFinais(Set<Estado> estados) {
-		if (estados == null)
-			this.estadosDeAceite= new HashSet<Estado>();
-		else {
-			this.estadosDeAceite = new HashSet<Estado>();
+		MapaPersistente<Estado, Estado> novos = MapaPersistente.vazio();
+		if (estados != null) {
 			for (Estado e : estados) {
-				if (!estados.contains(e))
+				if (this.estados.get(e.getNome()) != e)
 					throw new IllegalArgumentException("Erro ao definir os estados finais do autmato: o estado final no foi anteriormente adicionado ao autmato.");
 
-				this.estadosDeAceite.add(e);
+				novos = novos.com(e, e);
+			}
+		}
+		for (Estado e : estadosDeAceite.chaves())
+			impressao ^= ImpressaoDigital.deAceite(e);
+		for (Estado e : novos.chaves())
+			impressao ^= ImpressaoDigital.deAceite(e);
+		this.estadosDeAceite = novos;
+		revisao++;
+	}
+
+	/**
+	 * Cria uma cpia independente do autmato: os estados (e transies) so
+	 * copiados, mantendo os nomes e as classes.<br>
+	 * Caso os estados no tenham atributos mutveis, prefira
+	 * {@link #bifurcar()}, que no copia nada.
+	 */
+	public Automato copiar() {
+		Automato copia = new Automato();
+		copia.simbolosDeEntrada = this.simbolosDeEntrada;
+		copia.alfabeto = this.alfabeto;
+
+		IdentityHashMap<Estado, Estado> copias = new IdentityHashMap<Estado, Estado>();
+		for (Estado e : estados.valores()) {
+			Estado novo = e.copiar();
+			copias.put(e, novo);
+			copia.estados = copia.estados.com(novo.getNome(), novo);
+		}
+
+		for (MapaPersistente<String, Transicao[]> tabela : saidas.valores()) {
+			for (Transicao[] transicoes : tabela.valores()) {
+				for (Transicao t : transicoes)
+					copia.adicionarTransicao(t.copiar(copias.get(t.getInicial()), copias.get(t.getFinal())));
 			}
 		}
+
+		for (Estado e : estadosDeAceite.chaves()) {
+			Estado novo = copias.get(e);
+			copia.estadosDeAceite = copia.estadosDeAceite.com(novo, novo);
+		}
+		copia.estadoInicial = copias.get(estadoInicial);
+		// a cpia mantm os nomes e, portanto, a impresso digital
+		copia.impressao = this.impressao;
+
+		return copia;
+	}
+
+	/**
+	 * Monta um autmato completo de uma s vez (para a carga de uma
+	 * {@link ImagemDoAutomato}): as tabelas so agrupadas e criadas com
+	 * {@link MapaPersistente#de(Object[], Object[])}, sem as cpias de
+	 * caminho de adies sucessivas, e a impresso digital  calculada uma
+	 * nica vez.
+	 * @param estados Os estados (com nomes distintos).
+	 * @param inicial O estado inicial (pode ser nulo).
+	 * @param aceite Os estados de aceite.
+	 * @param entradas Os smbolos de entrada (ou nulo).
+	 * @param transicoes As transies (sem repeties: duas transies com a
+	 * mesma origem, smbolo e destino no so aceitas); as transies de uma
+	 * mesma origem com o mesmo smbolo devem estar em ordem de prioridade.
+	 * @return O autmato.
+	 */
+	static Automato montar(Estado[] estados, Estado inicial, Estado[] aceite, Set<Simbolo> entradas, Transicao[] transicoes) {
+		Automato automato = new Automato(null, null, null, entradas);
+
+		String[] nomes = new String[estados.length];
+		for (int i = 0; i < estados.length; i++) {
+			nomes[i] = estados[i].getNome();
+			automato.impressao ^= ImpressaoDigital.deConfiguracao(estados[i]);
+		}
+		automato.estados = MapaPersistente.de(nomes, estados);
+		if (automato.estados.tamanho() != estados.length)
+			throw new IllegalArgumentException("Erro ao montar o autmato: h estados com o mesmo nome.");
+
+		automato.estadosDeAceite = MapaPersistente.de(aceite, aceite);
+		for (Estado e : automato.estadosDeAceite.chaves())
+			automato.impressao ^= ImpressaoDigital.deAceite(e);
+		automato.estadoInicial = inicial;
+		automato.impressao ^= ImpressaoDigital.deInicial(inicial);
+
+		HashMap<Estado, HashMap<String, ArrayList<Transicao>>> porOrigem = new HashMap<Estado, HashMap<String, ArrayList<Transicao>>>();
+		HashMap<Estado, HashMap<String, ArrayList<Transicao>>> porDestino = new HashMap<Estado, HashMap<String, ArrayList<Transicao>>>();
+		HashMap<String, ArrayList<Transicao>> doSimbolo = new HashMap<String, ArrayList<Transicao>>();
+		HashSet<Transicao> vistas = new HashSet<Transicao>();
+		for (Transicao t : transicoes) {
+			if (!vistas.add(t))
+				throw new IllegalArgumentException("Erro ao montar o autmato: a transio " + t + " est repetida.");
+			agrupar(porOrigem, t.getInicial(), t);
+			agrupar(porDestino, t.getFinal(), t);
+			agrupar(doSimbolo, t);
+			automato.impressao ^= ImpressaoDigital.deRegra(t);
+		}
+
+		Estado[] origens = porOrigem.keySet().toArray(new Estado[porOrigem.size()]);
+		Object[] tabelas = new Object[origens.length];
+		for (int i = 0; i < origens.length; i++) {
+			HashMap<String, ArrayList<Transicao>> grupos = porOrigem.get(origens[i]);
+			String[] simbolos = grupos.keySet().toArray(new String[grupos.size()]);
+			Transicao[][] vetores = new Transicao[simbolos.length][];
+			for (int j = 0; j < simbolos.length; j++) {
+				ArrayList<Transicao> grupo = grupos.get(simbolos[j]);
+				vetores[j] = grupo.toArray(new Transicao[grupo.size()]);
+			}
+			tabelas[i] = MapaPersistente.de(simbolos, vetores);
+		}
+		automato.saidas = Automato.<Estado, MapaPersistente<String, Transicao[]>>mapa(origens, tabelas);
+
+		Estado[] destinos = porDestino.keySet().toArray(new Estado[porDestino.size()]);
+		Object[] indices = new Object[destinos.length];
+		for (int i = 0; i < destinos.length; i++)
+			indices[i] = indice(porDestino.get(destinos[i]));
+		automato.chegadas = Automato.<Estado, MapaPersistente<String, MapaPersistente<Transicao, Transicao>>>mapa(destinos, indices);
+		automato.porSimbolo = indice(doSimbolo);
+		automato.numeroDeTransicoes = transicoes.length;
+
+		return automato;
+	}
+
+	private static void agrupar(HashMap<Estado, HashMap<String, ArrayList<Transicao>>> grupos, Estado estado, Transicao transicao) {
+		HashMap<String, ArrayList<Transicao>> doEstado = grupos.get(estado);
+		if (doEstado == null) {
+			doEstado = new HashMap<String, ArrayList<Transicao>>();
+			grupos.put(estado, doEstado);
+		}
+		agrupar(doEstado, transicao);
+	}
+
+	private static void agrupar(HashMap<String, ArrayList<Transicao>> grupos, Transicao transicao) {
+		ArrayList<Transicao> grupo = grupos.get(transicao.getEvento());
+		if (grupo == null) {
+			grupo = new ArrayList<Transicao>();
+			grupos.put(transicao.getEvento(), grupo);
+		}
+		grupo.add(transicao);
+	}
+
+	/**
+	 * Cria o ndice por smbolo de um grupo de transies.
+	 */
+	private static MapaPersistente<String, MapaPersistente<Transicao, Transicao>> indice(HashMap<String, ArrayList<Transicao>> grupos) {
+		String[] simbolos = grupos.keySet().toArray(new String[grupos.size()]);
+		Object[] conjuntos = new Object[simbolos.length];
+		for (int i = 0; i < simbolos.length; i++) {
+			Transicao[] grupo = grupos.get(simbolos[i]).toArray(new Transicao[0]);
+			conjuntos[i] = MapaPersistente.de(grupo, grupo);
+		}
+		return Automato.<String, MapaPersistente<Transicao, Transicao>>mapa(simbolos, conjuntos);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> MapaPersistente<K, V> mapa(K[] chaves, Object[] valores) {
+		// os valores so todos do tipo V (o vetor  Object[] por no ser possvel criar V[])
+		return MapaPersistente.de(chaves, (V[]) valores);
+	}
+
+	/**
+	 * Cria um autmato independente deste em tempo constante: os dois
+	 * compartilham os estados, as transies e as tabelas, e cada alterao
+	 * feita em um deles (inclusive por aes adaptativas) copia apenas a parte
+	 * alterada, sem afetar o outro.<br>
+	 * Os objetos Estado e Transicao passam a pertencer aos dois autmatos;
+	 * por isso, estados especializados com atributos mutveis devem usar
+	 * {@link #copiar()}.
+	 */
+	public Automato bifurcar() {
+		descartarFechos();
+		return new Automato(this);
+	}
+
+	/**
+	 * Compila o autmato em uma tabela de transies densa, para execues
+	 * mais rpidas.<br>
+	 * O resultado no acompanha as alteraes feitas no autmato depois da
+	 * compilao.
+	 * @return O autmato compilado.
+	 */
+	public AutomatoCompilado compilar() {
+		return new AutomatoCompilado(this, estados.valores());
+	}
+
+	/**
+	 * Minimiza o autmato (que deve ser determinstico), criando um novo
+	 * autmato equivalente com o menor nmero de estados.<br>
+	 * Este autmato no  alterado.
+	 * @return O autmato mnimo e a correspondncia entre os estados.
+	 */
+	public Minimizacao minimizar() {
+		return new Minimizacao(this);
+	}
+
+	/**
+	 * Cria um simulador que executa o autmato (determinstico ou no)
+	 * considerando todos os caminhos ao mesmo tempo.<br>
+	 * O simulador no acompanha as alteraes feitas no autmato depois da
+	 * sua criao.
+	 * @return O simulador.
+	 */
+	public SimuladorNaoDeterministico criarSimulador() {
+		return new SimuladorNaoDeterministico(this, estados.valores());
+	}
+
+	public long getImpressaoDigital() {
+		return impressao;
+	}
+
+	public long getRevisao() {
+		return revisao;
 	}
 
 	public boolean existeRegra(Transicao regra) {
 		if (regra == null) return false;
-		return regra.getInicial().getTransicoes().contains(regra);
+		MapaPersistente<String, Transicao[]> tabela = saidas.get(regra.getInicial());
+		return tabela != null && indice(tabela.get(regra.getEvento()), regra) >= 0;
+	}
+
+	/**
+	 * Um estado do autmato (marcado por um ponto de restaurao ou no incio
+	 * de uma transao). Como todas as tabelas so persistentes, guard-lo e
+	 * restaur-lo no copia nada.
+	 */
+	private static final class Ponto implements PontoDeRestauracao {
+		private final Automato automato;
+		private final MapaPersistente<String, Estado> estados;
+		private final Estado estadoInicial;
+		private final MapaPersistente<Estado, Estado> estadosDeAceite;
+		private final MapaPersistente<Estado, MapaPersistente<String, Transicao[]>> saidas;
+		private final MapaPersistente<Estado, MapaPersistente<String, MapaPersistente<Transicao, Transicao>>> chegadas;
+		private final MapaPersistente<String, MapaPersistente<Transicao, Transicao>> porSimbolo;
+		private final int numeroDeTransicoes;
+		private final long impressao;
+		private final MapaPersistente<Estado, Set<Estado>> fechosVazios;
+		private final CiclosVazios ciclosVazios;
+
+		Ponto(Automato automato) {
+			this.automato = automato;
+			estados = automato.estados;
+			estadoInicial = automato.estadoInicial;
+			estadosDeAceite = automato.estadosDeAceite;
+			saidas = automato.saidas;
+			chegadas = automato.chegadas;
+			porSimbolo = automato.porSimbolo;
+			numeroDeTransicoes = automato.numeroDeTransicoes;
+			impressao = automato.impressao;
+			fechosVazios = automato.fechosVazios;
+			ciclosVazios = automato.ciclosVazios;
+		}
+
+		void restaurar() {
+			automato.estados = estados;
+			automato.estadoInicial = estadoInicial;
+			automato.estadosDeAceite = estadosDeAceite;
+			automato.saidas = saidas;
+			automato.chegadas = chegadas;
+			automato.porSimbolo = porSimbolo;
+			automato.numeroDeTransicoes = numeroDeTransicoes;
+			automato.impressao = impressao;
+			automato.revisao++;
+			automato.fechosVazios = fechosVazios;
+			automato.ciclosVazios = ciclosVazios;
+		}
+	}
+
+	/**
+	 * Conjunto (somente leitura) das transies de uma verso do autmato,
+	 * apoiado no ndice pelo smbolo.
+	 */
+	private static final class Transicoes extends AbstractSet<Transicao> {
+		private final MapaPersistente<String, MapaPersistente<Transicao, Transicao>> porSimbolo;
+		private final int tamanho;
+
+		Transicoes(MapaPersistente<String, MapaPersistente<Transicao, Transicao>> porSimbolo, int tamanho) {
+			this.porSimbolo = porSimbolo;
+			this.tamanho = tamanho;
+		}
+
+		public boolean contains(Object o) {
+			if (!(o instanceof Transicao)) return false;
+			MapaPersistente<Transicao, Transicao> doSimbolo = porSimbolo.get(((Transicao) o).getEvento());
+			return doSimbolo != null && doSimbolo.contem(o);
+		}
+
+		public int size() {
+			return tamanho;
+		}
+
+		public Iterator<Transicao> iterator() {
+			final Iterator<MapaPersistente<Transicao, Transicao>> simbolos = porSimbolo.valores().iterator();
+			return new Iterator<Transicao>() {
+				private Iterator<Transicao> atual = Collections.<Transicao>emptyList().iterator();
+
+				public boolean hasNext() {
+					while (!atual.hasNext() && simbolos.hasNext())
+						atual = simbolos.next().valores().iterator();
+					return atual.hasNext();
+				}
+
+				public Transicao next() {
+					if (!hasNext()) throw new NoSuchElementException();
+					return atual.next();
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Os componentes fortemente conexos do grafo das transies em vazio
+	 * (algoritmo de Tarjan, sem recurso). No  alterado depois de criado.
+	 */
+	private static final class CiclosVazios {
+		final List<Set<Estado>> ciclos;
+		final Map<Estado, Set<Estado>> porEstado;
+
+		CiclosVazios(Automato automato) {
+			ArrayList<Set<Estado>> encontrados = new ArrayList<Set<Estado>>();
+			HashMap<Estado, Set<Estado>> indice = new HashMap<Estado, Set<Estado>>();
+
+			HashMap<Estado, Integer> ordem = new HashMap<Estado, Integer>();
+			HashMap<Estado, Integer> menor = new HashMap<Estado, Integer>();
+			ArrayDeque<Estado> componente = new ArrayDeque<Estado>();
+			HashSet<Estado> naPilha = new HashSet<Estado>();
+			ArrayDeque<Estado> caminho = new ArrayDeque<Estado>();
+			ArrayDeque<Iterator<Transicao>> proximos = new ArrayDeque<Iterator<Transicao>>();
+
+			for (MapaPersistente<String, Transicao[]> tabela : automato.saidas.valores()) {
+				Transicao[] vazias = tabela.get("");
+				if (vazias == null || ordem.containsKey(vazias[0].getInicial())) continue;
+
+				Estado raiz = vazias[0].getInicial();
+				ordem.put(raiz, ordem.size());
+				menor.put(raiz, ordem.get(raiz));
+				componente.push(raiz);
+				naPilha.add(raiz);
+				caminho.push(raiz);
+				proximos.push(automato.getTransicoes(raiz, "").iterator());
+
+				while (!caminho.isEmpty()) {
+					Estado atual = caminho.peek();
+					Iterator<Transicao> it = proximos.peek();
+					if (it.hasNext()) {
+						Estado destino = it.next().getFinal();
+						if (!ordem.containsKey(destino)) {
+							ordem.put(destino, ordem.size());
+							menor.put(destino, ordem.get(destino));
+							componente.push(destino);
+							naPilha.add(destino);
+							caminho.push(destino);
+							proximos.push(automato.getTransicoes(destino, "").iterator());
+						} else if (naPilha.contains(destino)) {
+							menor.put(atual, Math.min(menor.get(atual), ordem.get(destino)));
+						}
+						continue;
+					}
+
+					// todos os sucessores visitados
+					caminho.pop();
+					proximos.pop();
+					if (!caminho.isEmpty())
+						menor.put(caminho.peek(), Math.min(menor.get(caminho.peek()), menor.get(atual)));
+
+					if (menor.get(atual).equals(ordem.get(atual))) {
+						HashSet<Estado> scc = new HashSet<Estado>();
+						Estado e;
+						do {
+							e = componente.pop();
+							naPilha.remove(e);
+							scc.add(e);
+						} while (e != atual);
+
+						if (scc.size() > 1 || automato.getTransicoes(atual, "").contains(new Transicao(atual, "", atual))) {
+							Set<Estado> ciclo = Collections.unmodifiableSet(scc);
+							encontrados.add(ciclo);
+							for (Estado c : scc)
+								indice.put(c, ciclo);
+						}
+					}
+				}
+			}
+
+			this.ciclos = Collections.unmodifiableList(encontrados);
+			this.porEstado = indice;
+		}
 	}
 }
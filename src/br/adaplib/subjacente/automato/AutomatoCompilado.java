@@ -0,0 +1,532 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.subjacente.automato;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Set;
+
+import br.adaplib.CadeiaDeEntrada;
+import br.adaplib.Executor;
+import br.adaplib.SimboloDeSaida;
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.util.MapaPersistente;
+
+/**
+ * Representa um autmato "congelado": os estados e os smbolos so
+ * numerados e as transies ficam em uma tabela densa de inteiros.<br>
+ * A execuo  equivalente  do Executor sobre o autmato original, mas cada
+ * passo  apenas um acesso a vetor. Alteraes feitas no autmato depois da
+ * compilao no so refletidas aqui ( preciso compil-lo novamente).<br>
+ * Estados e transies especializados (que redefinem executar ou aplicar) no
+ * podem ser compilados, j que o comportamento deles seria ignorado.<br>
+ * As transies em vazio so resolvidas na compilao: para cada estado e
+ * smbolo, a tabela guarda o estado alcanado depois de seguir as transies
+ * em vazio necessrias e consumir o smbolo. A execuo, portanto, nunca
+ * segue transies em vazio uma a uma, e um ciclo de transies em vazio
+ * resulta em Executor.INTERROMPIDA (como no Executor) em vez de no terminar.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class AutomatoCompilado {
+	/** Indica a ausncia de transio na tabela. */
+	public static final int SEM_TRANSICAO = -1;
+	/**
+	 * Indica, na tabela resolvida, que as transies em vazio formam um ciclo
+	 * sem consumir o smbolo.
+	 */
+	public static final int CICLO_VAZIO = -2;
+	// valor ainda no resolvido (apenas durante a compilao)
+	private static final int PENDENTE = Integer.MIN_VALUE;
+
+	private final Estado[] estados;
+	private final String[] simbolos;
+	private final int[] colunas;
+	private final boolean[] simbolosValidos;
+	private final int numeroDeSimbolos;
+	private final int[] proximo;
+	private final int[] vazio;
+	private final boolean[] aceite;
+	// tabela com as transies em vazio j resolvidas ( a prpria tabela
+	// proximo caso no existam transies em vazio)
+	private final int[] resolvido;
+	private final SimboloDeSaida[] saidaNoFim;
+	// se as transies em vazio a partir do estado terminam em um ciclo
+	private final boolean[] cicloVazio;
+	private final int inicial;
+
+	/**
+	 * Compila o autmato.
+	 * @param automato O autmato a ser compilado.
+	 * @param todos Todos os estados do autmato.
+	 */
+	AutomatoCompilado(Automato automato, Collection<Estado> todos) {
+		if (automato.configuracaoInicial() == null)
+			throw new IllegalArgumentException(" preciso de um estado inicial para compilar o autmato.");
+
+		if (!automato.isDeterministico())
+			throw new IllegalArgumentException("No  possvel compilar um autmato no determinstico em uma tabela densa (use o SimuladorNaoDeterministico).");
+
+		// numerando os estados
+		HashMap<Estado, Integer> indiceEstados = new HashMap<Estado, Integer>(todos.size() * 4 / 3 + 1);
+		this.estados = new Estado[todos.size()];
+		int i = 0;
+		for (Estado e : todos) {
+			if (e.getClass() != Estado.class)
+				throw new IllegalArgumentException("No  possvel compilar o estado especializado " + e + ".");
+			estados[i] = e;
+			indiceEstados.put(e, i);
+			i++;
+		}
+
+		// numerando os smbolos: a coluna de cada smbolo  obtida pelo seu
+		// nmero no Alfabeto (as tabelas do autmato so percorridas
+		// diretamente, sem criar listas por estado)
+		HashMap<Simbolo, Integer> indiceSimbolos = new HashMap<Simbolo, Integer>();
+		int maiorNumero = -1;
+		for (Estado e : estados) {
+			MapaPersistente<String, Transicao[]> tabela = automato.getTabela(e);
+			if (tabela == null) continue;
+			for (String evento : tabela.chaves()) {
+				if (!"".equals(evento)) {
+					Simbolo s = Alfabeto.simbolo(evento);
+					if (!indiceSimbolos.containsKey(s)) {
+						indiceSimbolos.put(s, indiceSimbolos.size());
+						maiorNumero = Math.max(maiorNumero, s.getNumero());
+					}
+				}
+			}
+		}
+
+		this.numeroDeSimbolos = indiceSimbolos.size();
+		if ((long) estados.length * numeroDeSimbolos > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("O autmato  grande demais para ser compilado em uma tabela densa.");
+
+		this.simbolos = new String[numeroDeSimbolos];
+		this.simbolosValidos = new boolean[numeroDeSimbolos];
+		this.colunas = new int[maiorNumero + 1];
+		Arrays.fill(colunas, SEM_TRANSICAO);
+		for (Simbolo s : indiceSimbolos.keySet()) {
+			int indice = indiceSimbolos.get(s);
+			simbolos[indice] = s.getSimbolo();
+			simbolosValidos[indice] = automato.simboloValido(s);
+			colunas[s.getNumero()] = indice;
+		}
+
+		// montando a tabela
+		this.proximo = new int[estados.length * numeroDeSimbolos];
+		this.vazio = new int[estados.length];
+		this.aceite = new boolean[estados.length];
+		Arrays.fill(proximo, SEM_TRANSICAO);
+		Arrays.fill(vazio, SEM_TRANSICAO);
+
+		Integer destino;
+		Set<Estado> deAceite = automato.configuracoesDeAceite();
+		for (i = 0; i < estados.length; i++) {
+			aceite[i] = deAceite.contains(estados[i]);
+
+			MapaPersistente<String, Transicao[]> tabela = automato.getTabela(estados[i]);
+			if (tabela == null) continue;
+			for (Transicao[] transicoes : tabela.valores()) {
+				// o autmato  determinstico: uma transio por smbolo
+				Transicao t = transicoes[0];
+				if (t.getClass() != Transicao.class)
+					throw new IllegalArgumentException("No  possvel compilar a transio especializada " + t + ".");
+
+				destino = indiceEstados.get(t.getFinal());
+				if (destino == null)
+					throw new IllegalArgumentException("A transio " + t + " tem como destino um estado que no pertence ao autmato.");
+
+				if ("".equals(t.getEvento()))
+					vazio[i] = destino;
+				else
+					proximo[i * numeroDeSimbolos + indice(t.getEvento())] = destino;
+			}
+		}
+
+		Integer indiceInicial = indiceEstados.get(automato.configuracaoInicial());
+		if (indiceInicial == null)
+			throw new IllegalArgumentException("O estado inicial no pertence ao autmato.");
+		this.inicial = indiceInicial;
+
+		this.cicloVazio = resolverCiclos();
+		this.resolvido = resolverVazias();
+		this.saidaNoFim = resolverFim();
+	}
+
+	/**
+	 * Monta a tabela resolvida: para cada smbolo, os caminhos de transies
+	 * em vazio so percorridos uma nica vez, e todos os estados do caminho
+	 * recebem o mesmo resultado.
+	 * @return A tabela resolvida.
+	 */
+	private int[] resolverVazias() {
+		boolean temVazias = false;
+		for (int v : vazio) {
+			if (v != SEM_TRANSICAO) {
+				temVazias = true;
+				break;
+			}
+		}
+		if (!temVazias) return proximo;
+
+		int[] tabela = new int[proximo.length];
+		int[] caminho = new int[estados.length];
+		int[] marca = new int[estados.length];
+		int rodada = 0;
+		Arrays.fill(tabela, PENDENTE);
+
+		for (int simbolo = 0; simbolo < numeroDeSimbolos; simbolo++) {
+			for (int i = 0; i < estados.length; i++) {
+				if (tabela[i * numeroDeSimbolos + simbolo] != PENDENTE) continue;
+
+				int tamanho = 0, resultado, e = i;
+				rodada++;
+				while (true) {
+					int posicao = e * numeroDeSimbolos + simbolo;
+					if (tabela[posicao] != PENDENTE) {
+						resultado = tabela[posicao];
+						break;
+					}
+					if (marca[e] == rodada) {
+						resultado = CICLO_VAZIO;
+						break;
+					}
+					marca[e] = rodada;
+					caminho[tamanho++] = e;
+					if (proximo[posicao] != SEM_TRANSICAO) {
+						resultado = proximo[posicao];
+						break;
+					}
+					if (vazio[e] == SEM_TRANSICAO) {
+						resultado = SEM_TRANSICAO;
+						break;
+					}
+					e = vazio[e];
+				}
+
+				while (tamanho > 0)
+					tabela[caminho[--tamanho] * numeroDeSimbolos + simbolo] = resultado;
+			}
+		}
+
+		return tabela;
+	}
+
+	/**
+	 * Calcula, para cada estado, se o caminho de transies em vazio a partir
+	 * dele termina em um ciclo.
+	 * @return Se o caminho de cada estado termina em um ciclo.
+	 */
+	private boolean[] resolverCiclos() {
+		boolean[] ciclos = new boolean[estados.length];
+		boolean[] resolvidos = new boolean[estados.length];
+		boolean[] noCaminho = new boolean[estados.length];
+		int[] caminho = new int[estados.length];
+
+		for (int i = 0; i < estados.length; i++) {
+			if (resolvidos[i]) continue;
+
+			int tamanho = 0, e = i;
+			boolean resultado;
+			while (true) {
+				if (resolvidos[e]) {
+					resultado = ciclos[e];
+					break;
+				}
+				if (noCaminho[e]) {
+					resultado = true;
+					break;
+				}
+				noCaminho[e] = true;
+				caminho[tamanho++] = e;
+				if (vazio[e] == SEM_TRANSICAO) {
+					resultado = false;
+					break;
+				}
+				e = vazio[e];
+			}
+
+			while (tamanho > 0) {
+				e = caminho[--tamanho];
+				noCaminho[e] = false;
+				resolvidos[e] = true;
+				ciclos[e] = resultado;
+			}
+		}
+
+		return ciclos;
+	}
+
+	/**
+	 * Calcula a sada de cada estado ao terminar a cadeia: as transies em
+	 * vazio so seguidas at um estado de aceite.
+	 * @return A sada de cada estado.
+	 */
+	private SimboloDeSaida[] resolverFim() {
+		SimboloDeSaida[] saidas = new SimboloDeSaida[estados.length];
+		int[] caminho = new int[estados.length];
+		boolean[] noCaminho = new boolean[estados.length];
+
+		for (int i = 0; i < estados.length; i++) {
+			if (saidas[i] != null) continue;
+
+			int tamanho = 0, e = i;
+			SimboloDeSaida resultado;
+			while (true) {
+				if (saidas[e] != null) {
+					resultado = saidas[e];
+					break;
+				}
+				if (noCaminho[e]) {
+					resultado = Executor.INTERROMPIDA;
+					break;
+				}
+				if (aceite[e]) {
+					resultado = Automato.SAIDAS[0];
+					break;
+				}
+				noCaminho[e] = true;
+				caminho[tamanho++] = e;
+				if (vazio[e] == SEM_TRANSICAO) {
+					resultado = Automato.SAIDAS[1];
+					break;
+				}
+				e = vazio[e];
+			}
+
+			saidas[e] = resultado;
+			while (tamanho > 0) {
+				e = caminho[--tamanho];
+				noCaminho[e] = false;
+				saidas[e] = resultado;
+			}
+		}
+
+		return saidas;
+	}
+
+	/**
+	 * Obtm o nmero de estados compilados.
+	 * @return O nmero de estados.
+	 */
+	public int getNumeroDeEstados() {
+		return estados.length;
+	}
+
+	/**
+	 * Obtm o nmero de smbolos (no vazios) usados pelas transies.
+	 * @return O nmero de smbolos.
+	 */
+	public int getNumeroDeSimbolos() {
+		return numeroDeSimbolos;
+	}
+
+	/**
+	 * Obtm o nmero do estado inicial.
+	 * @return O nmero do estado inicial.
+	 */
+	public int getInicial() {
+		return inicial;
+	}
+
+	/**
+	 * Obtm o estado original a partir do seu nmero.
+	 * @param estado O nmero do estado.
+	 * @return O estado original.
+	 */
+	public Estado getEstado(int estado) {
+		return estados[estado];
+	}
+
+	/**
+	 * Obtm a representao de um smbolo a partir do seu nmero.
+	 * @param simbolo O nmero do smbolo.
+	 * @return A representao do smbolo.
+	 */
+	public String getSimbolo(int simbolo) {
+		return simbolos[simbolo];
+	}
+
+	/**
+	 * Informa se um smbolo pertence aos smbolos de entrada do autmato.
+	 * @param simbolo O nmero do smbolo.
+	 * @return Se o smbolo  vlido.
+	 */
+	public boolean simboloValido(int simbolo) {
+		return simbolosValidos[simbolo];
+	}
+
+	/**
+	 * Obtm o nmero de um smbolo.
+	 * @param simbolo O smbolo.
+	 * @return O nmero do smbolo, ou SEM_TRANSICAO caso nenhuma transio
+	 * o consuma.
+	 */
+	public int indice(String simbolo) {
+		return coluna(Alfabeto.numero(simbolo));
+	}
+
+	/**
+	 * Obtm o nmero de um smbolo. Para smbolos cannicos,  apenas um
+	 * acesso a vetor.
+	 * @param simbolo O smbolo.
+	 * @return O nmero do smbolo, ou SEM_TRANSICAO caso nenhuma transio
+	 * o consuma.
+	 */
+	public int indice(Simbolo simbolo) {
+		return coluna(Alfabeto.numero(simbolo));
+	}
+
+	private int coluna(int numero) {
+		if (numero < 0 || numero >= colunas.length) return SEM_TRANSICAO;
+		return colunas[numero];
+	}
+
+	/**
+	 * Informa se um estado  de aceite.
+	 * @param estado O nmero do estado.
+	 * @return Se o estado  de aceite.
+	 */
+	public boolean aceite(int estado) {
+		return aceite[estado];
+	}
+
+	/**
+	 * Obtm o prximo estado ao consumir um smbolo.
+	 * @param estado O nmero do estado atual.
+	 * @param simbolo O nmero do smbolo.
+	 * @return O nmero do prximo estado ou SEM_TRANSICAO.
+	 */
+	public int proximo(int estado, int simbolo) {
+		if (simbolo < 0) return SEM_TRANSICAO;
+		return proximo[estado * numeroDeSimbolos + simbolo];
+	}
+
+	/**
+	 * Obtm o prximo estado ao seguir a transio em vazio.
+	 * @param estado O nmero do estado atual.
+	 * @return O nmero do prximo estado ou SEM_TRANSICAO.
+	 */
+	public int proximoEmVazio(int estado) {
+		return vazio[estado];
+	}
+
+	/**
+	 * Obtm o prximo estado ao consumir um smbolo, seguindo antes as
+	 * transies em vazio necessrias (como o Executor).
+	 * @param estado O nmero do estado atual.
+	 * @param simbolo O nmero do smbolo.
+	 * @return O nmero do prximo estado, SEM_TRANSICAO ou CICLO_VAZIO.
+	 */
+	public int proximoResolvido(int estado, int simbolo) {
+		if (simbolo < 0) return semSimbolo(estado);
+		return resolvido[estado * numeroDeSimbolos + simbolo];
+	}
+
+	/**
+	 * Obtm a sada da execuo caso a cadeia termine no estado: as
+	 * transies em vazio so seguidas at um estado de aceite.
+	 * @param estado O nmero do estado.
+	 * @return Automato.SAIDAS[0], Automato.SAIDAS[1] ou Executor.INTERROMPIDA
+	 * (caso as transies em vazio formem um ciclo sem estados de aceite).
+	 */
+	public SimboloDeSaida saidaNoFim(int estado) {
+		return saidaNoFim[estado];
+	}
+
+	/**
+	 * Executa o autmato compilado, consumindo a cadeia de entrada da mesma
+	 * forma que o Executor.
+	 * @param entrada A cadeia de entrada.
+	 * @return Automato.SAIDAS[0] caso a cadeia seja aceita,
+	 * Automato.SAIDAS[1] caso contrrio, ou Executor.INTERROMPIDA caso a
+	 * execuo entre em um ciclo de transies em vazio.
+	 * @throws ErroDeExecucao Caso um smbolo fora do alfabeto seja consumido.
+	 */
+	public SimboloDeSaida executar(CadeiaDeEntrada<Simbolo> entrada) throws ErroDeExecucao {
+		int atual = inicial;
+		int prox, simbolo;
+
+		while (entrada.temProximo()) {
+			simbolo = indice(entrada.verProximo());
+			prox = (simbolo < 0)? semSimbolo(atual) : resolvido[atual * numeroDeSimbolos + simbolo];
+
+			if (prox < 0)
+				return (prox == CICLO_VAZIO)? Executor.INTERROMPIDA : Automato.SAIDAS[1];
+			if (!simbolosValidos[simbolo])
+				throw erro(atual, simbolo, entrada);
+
+			entrada.consumir();
+			atual = prox;
+		}
+
+		return saidaNoFim[atual];
+	}
+
+	/**
+	 * Executa o autmato compilado sobre uma cadeia j numerada.
+	 * @param entrada Os nmeros dos smbolos (SEM_TRANSICAO para smbolos
+	 * desconhecidos).
+	 * @return Automato.SAIDAS[0] caso a cadeia seja aceita,
+	 * Automato.SAIDAS[1] caso contrrio, ou Executor.INTERROMPIDA caso a
+	 * execuo entre em um ciclo de transies em vazio.
+	 * @throws ErroDeExecucao Caso um smbolo fora do alfabeto seja consumido.
+	 */
+	public SimboloDeSaida executar(int[] entrada) throws ErroDeExecucao {
+		int atual = inicial;
+		int prox, simbolo;
+
+		for (int posicao = 0; posicao < entrada.length; posicao++) {
+			simbolo = entrada[posicao];
+			prox = (simbolo < 0)? semSimbolo(atual) : resolvido[atual * numeroDeSimbolos + simbolo];
+
+			if (prox < 0)
+				return (prox == CICLO_VAZIO)? Executor.INTERROMPIDA : Automato.SAIDAS[1];
+			if (!simbolosValidos[simbolo])
+				throw erro(atual, simbolo, null);
+
+			atual = prox;
+		}
+
+		return saidaNoFim[atual];
+	}
+
+	/**
+	 * Resultado de um smbolo desconhecido (que nenhuma transio consome):
+	 * o Executor seguiria as transies em vazio at no haver mais nenhuma,
+	 * ou para sempre, caso elas formem um ciclo.
+	 * @param estado O estado atual.
+	 * @return SEM_TRANSICAO ou CICLO_VAZIO.
+	 */
+	private int semSimbolo(int estado) {
+		return cicloVazio[estado]? CICLO_VAZIO : SEM_TRANSICAO;
+	}
+
+	/**
+	 * Monta o erro de consumo de um smbolo invlido, encontrando o estado
+	 * (aps as transies em vazio) cuja transio consumiria o smbolo.
+	 */
+	private ErroDeExecucao erro(int atual, int simbolo, CadeiaDeEntrada<?> entrada) {
+		while (proximo[atual * numeroDeSimbolos + simbolo] == SEM_TRANSICAO)
+			atual = vazio[atual];
+		int prox = proximo[atual * numeroDeSimbolos + simbolo];
+		return new ErroDeExecucao("Smbolo invlido.", estados[atual], new Transicao(estados[atual], simbolos[simbolo], estados[prox]), entrada);
+	}
+}
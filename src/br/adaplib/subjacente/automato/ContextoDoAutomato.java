@@ -20,10 +20,8 @@ package br.adaplib.subjacente.automato;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.log4j.Logger;
-
 import br.adaplib.CadeiaDeEntrada;
-import br.adaplib.ContextoDeExecucao;
+import br.adaplib.ContextoDeConsultaRapida;
 import br.adaplib.SimboloDeSaida;
 import br.adaplib.excecao.ErroDeExecucao;
 import br.adaplib.excecao.MensagemDeErro;
@@ -33,8 +31,7 @@ import br.adaplib.excecao.MensagemDeErro;
  * @author FLevy
  * @since 2.0
  */
-class ContextoDoAutomato implements ContextoDeExecucao<Estado, Simbolo, Transicao> {
-	private static final Logger LOG = Logger.getLogger(ContextoDoAutomato.class);
+class ContextoDoAutomato implements ContextoDeConsultaRapida<Estado, Simbolo, Transicao> {
 	private Estado atual;
 	private Automato automato;
 	private boolean terminou;
@@ -53,15 +50,12 @@ class ContextoDoAutomato implements ContextoDeExecucao<Estado, Simbolo, Transica
 	public Estado aplicar(CadeiaDeEntrada<Simbolo> entrada, Transicao regra) throws ErroDeExecucao {
 		if (terminou) throw new ErroDeExecucao("Autmato j terminou a execuo.", atual, regra, entrada);
 
-		LOG.debug("Verificando se o smbolo  vlido para o autmato.");
-
 		if (regra == null)
 			throw new IllegalArgumentException("A transio a ser aplicada no pode ser nula.");
 
-		if (automato.eventos() != null && !"".equals(regra.getEvento()) && !automato.eventos().contains(entrada.verProximo()))
+		if (automato.eventos() != null && !"".equals(regra.getEvento()) && !automato.simboloValido(entrada.verProximo()))
 			throw new ErroDeExecucao("Smbolo invlido.", atual, regra, entrada);
 
-		LOG.debug("Aplicando transio: " + regra);
 		this.atual = regra.aplicar(entrada, this);
 
 		return this.atual;
@@ -81,12 +75,12 @@ class ContextoDoAutomato implements ContextoDeExecucao<Estado, Simbolo, Transica
 	}
 
 	public List<Transicao> getRegras(Simbolo evento) {
-		ArrayList<Transicao> lista = new ArrayList<Transicao>();
-
-		Transicao t = atual.getTransicao((evento==null)?"":evento.getSimbolo());
-		if (t != null) lista.add(t);
+		// todas as transies (o autmato pode ser no determinstico)
+		return new ArrayList<Transicao>(automato.getTransicoes(atual, (evento==null)?"":evento.getSimbolo()));
+	}
 
-		return lista;
+	public Transicao getRegra(Simbolo evento) {
+		return automato.getTransicao(atual, (evento==null)?"":evento.getSimbolo());
 	}
 
 	public void mudarConfiguracao(Estado nova) throws MensagemDeErro {
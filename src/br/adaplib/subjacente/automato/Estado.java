@@ -17,11 +17,7 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib.subjacente.automato;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import br.adaplib.CadeiaDeEntrada;
 import br.adaplib.Configuracao;
@@ -32,28 +28,26 @@ import br.adaplib.excecao.ErroDeExecucao;
 
 /**
  * Representa um estado do autmato.<br>
- * Os estados tm um nome e um conjunto de transies para outros estados.
- * Por simplicidade, o autmato  determinstico. <br>
+ * Os estados tm apenas um nome: as transies entre eles so guardadas pelo
+ * autmato, o que permite que o mesmo estado seja compartilhado por
+ * autmatos bifurcados (ver Automato.bifurcar). <br>
  * Caso se deseje adicionar um comportamento ao estado,  necessrio redefinir
  * a operao executar.
  * @author FLevy
  * @since 1.0
  */
-public class Estado implements Configuracao {
+public class Estado implements Configuracao, Cloneable {
 	private String nome;
-	private HashMap<String, Transicao> tabelaOrigem;
-	private HashSet<Transicao> transicoesDestino;
 
 	// Variveis para gerao automtica do nome do estado
 	private static final String SUFIXO_PADRAO = "##";
-	private static int contadorNomes = 0;
+	private static final AtomicInteger contadorNomes = new AtomicInteger();
 
 	/**
 	 * Cria um estado com um nome gerado automaticamente.
 	 */
 	public Estado() {
-		this(SUFIXO_PADRAO + contadorNomes);
-		contadorNomes++;
+		this(SUFIXO_PADRAO + contadorNomes.getAndIncrement());
 	}
 
 	/**
@@ -64,8 +58,6 @@ public class Estado implements Configuracao {
 		if (nome == null || nome == "")
 			throw new IllegalArgumentException("O nome de um estado no pode ser nulo ou vazio.");
 		this.nome = nome;
-		tabelaOrigem = new HashMap<String, Transicao>();
-		transicoesDestino = new HashSet<Transicao>();
 	}
 
 	/**
@@ -77,157 +69,18 @@ public class Estado implements Configuracao {
 	}
 
 	/**
-	 * Obtm todas as transies deste estado.
-	 * @return Uma coleo com todas as transies que tem este estado como 
-	 * origem. 
+	 * Cria uma cpia deste estado, com o mesmo nome e a mesma classe.<br>
+	 * Estados especializados que tenham atributos mutveis devem redefinir
+	 * este mtodo para copi-los.
+	 * @return A cpia do estado.
 	 */
-	protected Collection<Transicao> getTransicoes() {
-		return tabelaOrigem.values();
-	}
-
-	/**
-	 * Adiciona uma transio ao estado.
-	 * @param nova A transio a ser adicionada.
-	 */
-	protected void adicionarTransicao(Transicao nova) {
-		if (nova == null) return;
-		if (nova.getInicial() != this)
-			throw new IllegalArgumentException("A transio adicionada ao estado precisa ter ele como origem.");
-		tabelaOrigem.put(nova.getEvento(), nova);
-		nova.getFinal().transicoesDestino.add(nova);
-	}
-
-	/**
-	 * Remove a transio da tabela do estado a partir do smbolo.
-	 * @param simbolo O simbolo relacionado a essa transio.
-	 * @return A transio removida ou null caso nenhuma tenha sido encontrada.
-	 */
-	protected Transicao removeTransicao(String simbolo) {
-		if (simbolo == null) this.removeTransicoes();
-		Transicao removida = tabelaOrigem.remove(simbolo);
-		if (removida != null) removida.getFinal().transicoesDestino.remove(removida);
-
-		return removida;
-	}
-
-	/**
-	 * Remove a transio que destina neste estado com um smbolo especfico.
-	 * @param simbolo O simbolo considerado.
-	 * @return A lista de transies removidas ou null caso nenhuma tenha sido encontrada.
-	 */
-	protected  List<Transicao> removeTransicaoDestino(String simbolo) {
-		if (simbolo == null) return this.removeTransicoesDestino();
-		ArrayList<Transicao> removidas = new ArrayList<Transicao>();
-
-		for (Transicao t : transicoesDestino) {
-			if ((simbolo == null && t.getEvento() == null) || (simbolo != null && simbolo.equals(t.getEvento())))
-				removidas.add(t);
-		}
-
-		if (removidas.size() == 0) return null;
-
-		for (Transicao remover : removidas) {
-			remover.getInicial().removeTransicao(remover.getEvento());
+	protected Estado copiar() {
+		try {
+			return (Estado) super.clone();
+		} catch (CloneNotSupportedException e) {
+			// no acontece: o estado  Cloneable
+			throw new IllegalStateException(e);
 		}
-
-		return removidas;
-	}
-
-
-	/**
-	 * Remove a transio da tabela do estado a partir do estado de destino.
-	 * @param destino O estado destino considerado.
-	 * @return A lista de transies removidas, ou null caso nenhuma tenha
-	 * sido encontrada.
-	 */
-	protected List<Transicao> removeTransicao(Estado destino) {
-		if (destino == null) return null;
-		ArrayList<String> aRemover = new ArrayList<String>();
-		ArrayList<Transicao> removidas = new ArrayList<Transicao>();
-
-
-		for(Transicao t : tabelaOrigem.values()) {
-			if (destino.equals(t.getFinal()))
-				aRemover.add(t.getEvento());
-		}
-
-		for (String simbolo : aRemover) {
-			removidas.add(removeTransicao(simbolo));
-		}
-
-		if (removidas.size() == 0) return null;
-		return removidas;
-	}
-
-	/**
-	 * Remove a transio da tabela do estado a partir do smbolo e do estado
-	 * de destino.
-	 * @param simbolo O smbolo consumido pela transio.
-	 * @param destino O estado destino.
-	 * @return A lista de transies ou nulo caso nenhuma transio tenha
-	 * sido encontrada.
-	 */
-	protected List<Transicao> removeTransicao(String simbolo, Estado destino) {
-		if (simbolo == null) return this.removeTransicao(destino);
-		else if (destino == null) return this.removeTransicoes();
-
-		Transicao removida = tabelaOrigem.remove(simbolo);
-		if (removida == null) return null;
-
-		removida.getFinal().transicoesDestino.remove(removida);
-
-		ArrayList<Transicao> retorno = new ArrayList<Transicao>();
-		retorno.add(removida);
-
-		return retorno;
-	}
-
-	/**
-	 * Remove TODAS as transies da tabela do estado.
-	 * @return As transies removidas.
-	 */
-	protected List<Transicao> removeTransicoes() {
-		if (tabelaOrigem.size() == 0) return null;
-
-		ArrayList<String> aRemover = new ArrayList<String>();
-		ArrayList<Transicao> removidas = new ArrayList<Transicao>();
-
-		for(Transicao t : tabelaOrigem.values())
-			aRemover.add(t.getEvento());
-
-		for (String simbolo : aRemover)
-			removidas.add(removeTransicao(simbolo));
-
-		return removidas;
-	}
-
-	/**
-	 * Remove todas as transies que destinam a este estado.
-	 * @return A lista de transies removidas ou null caso nenhuma tenha sido encontrada.
-	 */
-	protected List<Transicao> removeTransicoesDestino() {
-		if (transicoesDestino.size() == 0) return null;
-
-		ArrayList<Transicao> removidas = new ArrayList<Transicao>();
-
-		for (Transicao t : transicoesDestino) {
-			removidas.add(t);
-		}
-
-		for (Transicao remover : removidas) {
-			remover.getInicial().removeTransicao(remover.getEvento());
-		}
-
-		return removidas;
-	}
-
-	/**
-	 * Obtm a transio que consome o smbolo especfico. No existem no-determinismos.
-	 * @param simbolo O smbolo consumido pela transio.
-	 * @return A transio relacionada a esse smbolo.
-	 */
-	protected Transicao getTransicao(String simbolo) {
-		return tabelaOrigem.get(simbolo);
 	}
 
 	public <C extends Configuracao, E extends Evento, R extends Regra<C>> void executar(CadeiaDeEntrada cadeiaEntrada, ContextoDeExecucao<C, E, R> execucao) throws ErroDeExecucao {
@@ -237,4 +90,4 @@ public class Estado implements Configuracao {
 	public String toString() {
 		return this.nome;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,213 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.subjacente.automato;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import br.adaplib.util.FormatoBinario;
+
+/**
+ * Imagem binria de um autmato, para grav-lo e carreg-lo rapidamente.<br>
+ * Depois do cabealho (ver {@link FormatoBinario}), a imagem tem a tabela de
+ * textos e, como vetores de inteiros:
+ * <ul>
+ * <li>o nmero de estados e o nome (ndice do texto) de cada um;</li>
+ * <li>o estado inicial (-1 caso no exista);</li>
+ * <li>o nmero de estados de aceite e os seus ndices;</li>
+ * <li>o nmero de smbolos de entrada (-1 caso no tenham sido
+ * informados) e os seus textos;</li>
+ * <li>o nmero de transies e, em vetores separados, a origem, o smbolo e
+ * o destino de cada uma. As transies de uma mesma origem com o mesmo
+ * smbolo ficam em ordem de prioridade.</li>
+ * </ul>
+ * A carga l cada vetor de uma s vez e monta as tabelas do autmato
+ * diretamente, sem adicionar os estados e as transies um a um. Os estados
+ * e as transies carregados so das classes Estado e Transicao (estados
+ * especializados no so preservados).
+ * @author FLevy
+ * @since 2.1
+ */
+public final class ImagemDoAutomato {
+	/**
+	 * O tipo das imagens de autmatos.
+	 */
+	public static final int TIPO = 1;
+
+	private ImagemDoAutomato() {
+	}
+
+	/**
+	 * Grava a imagem de um autmato.
+	 * @param automato O autmato.
+	 * @param saida A sada (no  fechada).
+	 * @throws IOException Caso ocorra um erro na gravao.
+	 */
+	public static void gravar(Automato automato, OutputStream saida) throws IOException {
+		if (automato == null)
+			throw new IllegalArgumentException("Erro ao gravar a imagem: o autmato no pode ser nulo.");
+
+		FormatoBinario.Textos textos = new FormatoBinario.Textos();
+		IdentityHashMap<Estado, Integer> indices = new IdentityHashMap<Estado, Integer>();
+		ArrayList<Estado> estados = new ArrayList<Estado>(automato.getConfiguracoes());
+		int[] nomes = new int[estados.size()];
+		for (int i = 0; i < nomes.length; i++) {
+			indices.put(estados.get(i), i);
+			nomes[i] = textos.indice(estados.get(i).getNome());
+		}
+
+		Set<Estado> deAceite = automato.configuracoesDeAceite();
+		int[] aceite = new int[deAceite.size()];
+		int a = 0;
+		for (Estado e : deAceite)
+			aceite[a++] = indices.get(e);
+
+		Set<Simbolo> eventos = automato.eventos();
+		int[] entradas = null;
+		if (eventos != null) {
+			entradas = new int[eventos.size()];
+			int s = 0;
+			for (Simbolo simbolo : eventos)
+				entradas[s++] = textos.indice(simbolo.getSimbolo());
+		}
+
+		int numero = automato.regras().size();
+		int[] origens = new int[numero];
+		int[] simbolos = new int[numero];
+		int[] destinos = new int[numero];
+		int t = 0;
+		for (Estado origem : estados) {
+			// por origem, para manter a prioridade das transies
+			for (Transicao transicao : automato.getTransicoes(origem)) {
+				origens[t] = indices.get(origem);
+				simbolos[t] = textos.indice(transicao.getEvento());
+				destinos[t] = indices.get(transicao.getFinal());
+				t++;
+			}
+		}
+
+		DataOutputStream dados = new DataOutputStream(new BufferedOutputStream(saida));
+		FormatoBinario.gravarCabecalho(dados, TIPO);
+		FormatoBinario.gravarTextos(dados, textos.getTextos());
+		dados.writeInt(nomes.length);
+		FormatoBinario.gravarInteiros(dados, nomes);
+		Estado inicial = automato.configuracaoInicial();
+		dados.writeInt((inicial == null)? -1 : indices.get(inicial));
+		dados.writeInt(aceite.length);
+		FormatoBinario.gravarInteiros(dados, aceite);
+		if (entradas == null) {
+			dados.writeInt(-1);
+		} else {
+			dados.writeInt(entradas.length);
+			FormatoBinario.gravarInteiros(dados, entradas);
+		}
+		dados.writeInt(numero);
+		FormatoBinario.gravarInteiros(dados, origens);
+		FormatoBinario.gravarInteiros(dados, simbolos);
+		FormatoBinario.gravarInteiros(dados, destinos);
+		dados.flush();
+	}
+
+	/**
+	 * Grava a imagem de um autmato em um arquivo.
+	 * @param automato O autmato.
+	 * @param arquivo O arquivo ( sobrescrito, caso exista).
+	 * @throws IOException Caso ocorra um erro na gravao.
+	 */
+	public static void gravar(Automato automato, File arquivo) throws IOException {
+		FileOutputStream saida = new FileOutputStream(arquivo);
+		try {
+			gravar(automato, saida);
+		} finally {
+			saida.close();
+		}
+	}
+
+	/**
+	 * Carrega um autmato de uma imagem. A leitura comea na posio atual
+	 * do buffer (que deve estar em big endian, a ordem padro) e termina logo
+	 * depois da imagem.
+	 * @param imagem A imagem.
+	 * @return O autmato.
+	 * @throws IOException Caso a imagem seja invlida ou esteja truncada.
+	 */
+	public static Automato carregar(ByteBuffer imagem) throws IOException {
+		FormatoBinario.lerCabecalho(imagem, TIPO);
+		String[] textos = FormatoBinario.lerTextos(imagem);
+
+		int[] nomes = FormatoBinario.lerInteiros(imagem, FormatoBinario.lerTamanho(imagem));
+		Estado[] estados = new Estado[nomes.length];
+		for (int i = 0; i < nomes.length; i++)
+			estados[i] = new Estado(textos[FormatoBinario.indice(nomes[i], textos.length)]);
+
+		int inicial = FormatoBinario.lerInteiro(imagem);
+		Estado estadoInicial = (inicial == -1)? null : estados[FormatoBinario.indice(inicial, estados.length)];
+
+		int[] aceite = FormatoBinario.lerInteiros(imagem, FormatoBinario.lerTamanho(imagem));
+		Estado[] deAceite = new Estado[aceite.length];
+		for (int i = 0; i < aceite.length; i++)
+			deAceite[i] = estados[FormatoBinario.indice(aceite[i], estados.length)];
+
+		Set<Simbolo> entradas = null;
+		int numeroDeEntradas = FormatoBinario.lerInteiro(imagem);
+		if (numeroDeEntradas != -1) {
+			if (numeroDeEntradas < 0)
+				throw new IOException("Erro ao carregar a imagem: nmero de smbolos de entrada invlido.");
+			entradas = new HashSet<Simbolo>();
+			for (int s : FormatoBinario.lerInteiros(imagem, numeroDeEntradas))
+				entradas.add(new Simbolo(FormatoBinario.texto(textos, s)));
+		}
+
+		int numero = FormatoBinario.lerTamanho(imagem);
+		int[] origens = FormatoBinario.lerInteiros(imagem, numero);
+		int[] simbolos = FormatoBinario.lerInteiros(imagem, numero);
+		int[] destinos = FormatoBinario.lerInteiros(imagem, numero);
+		Transicao[] transicoes = new Transicao[numero];
+		for (int i = 0; i < numero; i++) {
+			transicoes[i] = new Transicao(estados[FormatoBinario.indice(origens[i], estados.length)],
+					FormatoBinario.texto(textos, simbolos[i]),
+					estados[FormatoBinario.indice(destinos[i], estados.length)]);
+		}
+
+		try {
+			return Automato.montar(estados, estadoInicial, deAceite, entradas, transicoes);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Erro ao carregar a imagem: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Carrega um autmato de um arquivo, mapeando-o em memria.
+	 * @param arquivo O arquivo.
+	 * @return O autmato.
+	 * @throws IOException Caso ocorra um erro na leitura ou a imagem seja
+	 * invlida.
+	 */
+	public static Automato carregar(File arquivo) throws IOException {
+		return carregar(FormatoBinario.mapear(arquivo));
+	}
+}
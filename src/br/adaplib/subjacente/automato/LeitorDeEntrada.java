@@ -0,0 +1,310 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.subjacente.automato;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import br.adaplib.CadeiaDeEntrada;
+
+/**
+ * Representa uma cadeia de entrada lida aos poucos de um Reader (ou de um
+ * canal), para entradas grandes demais para serem mantidas em uma String.<br>
+ * Os smbolos so separados sob demanda, com a mesma semntica da
+ * StringDeEntrada: o separador  uma expresso regular, os smbolos vazios do
+ * fim da cadeia so descartados e, caso o separador seja "", cada caracter  um
+ * smbolo. Os smbolos so obtidos do Alfabeto, sem registrar os
+ * desconhecidos (ver {@link Alfabeto#procurar(String)}).<br>
+ * Apenas os ltimos smbolos consumidos so mantidos (o histrico), portanto
+ * consumida() e original() apresentam apenas a parte conhecida da cadeia (e
+ * no leem mais nada); apenas restante() e entrada() leem todo o resto da
+ * entrada para a memria.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class LeitorDeEntrada implements CadeiaDeEntrada<Simbolo>, Closeable {
+	/**
+	 * O nmero padro de smbolos consumidos mantidos no histrico.
+	 */
+	public static final int HISTORICO = 64;
+
+	private static final int TAMANHO_LEITURA = 8192;
+	private static final Pattern METACARACTERES = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+	private static final Simbolo VAZIO = Alfabeto.simbolo("");
+
+	private final Reader leitor;
+	private final String separador;
+	private final Matcher matcher;
+	private final boolean porCaracter;
+	private final char[] leitura;
+	private final StringBuilder pendente;
+	private int inicio;
+	private boolean fimDaLeitura;
+	private int vaziosPendentes;
+	private final ArrayDeque<Simbolo> proximos;
+	private final ArrayDeque<Simbolo> historico;
+	private final int tamanhoHistorico;
+	private long consumidos;
+
+	/**
+	 * Cria uma cadeia de entrada lida de um Reader, usando o separador padro.
+	 * @param leitor O Reader com a entrada.
+	 */
+	public LeitorDeEntrada(Reader leitor) {
+		this(leitor, StringDeEntrada.SEPARADOR);
+	}
+
+	/**
+	 * Cria uma cadeia de entrada lida de um Reader, usando um separador
+	 * especfico. <br>
+	 * Caso o separador definido seja "", a cadeia de entrada l caracter por caracter.
+	 * @param leitor O Reader com a entrada.
+	 * @param separador O separador a ser usado, como uma expresso regular.
+	 */
+	public LeitorDeEntrada(Reader leitor, String separador) {
+		this(leitor, separador, HISTORICO);
+	}
+
+	/**
+	 * Cria uma cadeia de entrada lida de um canal.
+	 * @param canal O canal com a entrada.
+	 * @param charset A codificao dos caracteres do canal.
+	 * @param separador O separador a ser usado, como uma expresso regular.
+	 */
+	public LeitorDeEntrada(ReadableByteChannel canal, Charset charset, String separador) {
+		this(Channels.newReader(canal, charset.newDecoder(), -1), separador, HISTORICO);
+	}
+
+	/**
+	 * Cria uma cadeia de entrada lida de um Reader, definindo o tamanho do
+	 * histrico.
+	 * @param leitor O Reader com a entrada.
+	 * @param separador O separador a ser usado, como uma expresso regular.
+	 * @param historico O nmero de smbolos consumidos mantidos (para
+	 * consumida() e original()).
+	 */
+	public LeitorDeEntrada(Reader leitor, String separador, int historico) {
+		if (leitor == null)
+			throw new IllegalArgumentException("A entrada no pode ser nula.");
+		if (separador == null)
+			throw new IllegalArgumentException("O separador de smbolos da cadeia de entrada no pode ser nulo.");
+		if (historico < 0)
+			throw new IllegalArgumentException("O tamanho do histrico no pode ser negativo.");
+
+		this.leitor = leitor;
+		this.separador = separador;
+		this.porCaracter = "".equals(separador);
+		// separadores sem metacaracteres so procurados diretamente
+		this.matcher = (porCaracter || !METACARACTERES.matcher(separador).find())? null : Pattern.compile(separador).matcher("");
+		this.leitura = new char[TAMANHO_LEITURA];
+		this.pendente = new StringBuilder();
+		this.proximos = new ArrayDeque<Simbolo>();
+		this.historico = new ArrayDeque<Simbolo>();
+		this.tamanhoHistorico = historico;
+	}
+
+	public Simbolo verProximo() {
+		if (proximos.isEmpty() && !separar()) return null;
+		return proximos.peekFirst();
+	}
+
+	public boolean temProximo() {
+		return !proximos.isEmpty() || separar();
+	}
+
+	public Simbolo consumir() {
+		if (proximos.isEmpty() && !separar()) return null;
+
+		Simbolo consumido = proximos.pollFirst();
+		consumidos++;
+		if (tamanhoHistorico > 0) {
+			if (historico.size() == tamanhoHistorico)
+				historico.pollFirst();
+			historico.addLast(consumido);
+		}
+
+		return consumido;
+	}
+
+	/**
+	 * Obtm o nmero de smbolos consumidos at o momento.
+	 * @return O nmero de smbolos consumidos.
+	 */
+	public long getConsumidos() {
+		return consumidos;
+	}
+
+	/**
+	 * Obtm a entrada conhecida: o histrico e todo o restante da entrada
+	 * (que  lido para a memria).
+	 */
+	public List<Simbolo> entrada() {
+		List<Simbolo> resultado = consumida();
+		resultado.addAll(restante());
+		return resultado;
+	}
+
+	/**
+	 * Obtm todo o restante da entrada, lendo-o para a memria.
+	 */
+	public List<Simbolo> restante() {
+		while (separar()) {
+			// lendo tudo
+		}
+
+		return new ArrayList<Simbolo>(proximos);
+	}
+
+	/**
+	 * Obtm os ltimos smbolos consumidos (no mximo o tamanho do histrico).
+	 */
+	public List<Simbolo> consumida() {
+		return new ArrayList<Simbolo>(historico);
+	}
+
+	/**
+	 * Obtm a parte j conhecida da entrada: o histrico e os smbolos j
+	 * separados e ainda no consumidos. Ao contrrio de entrada(), nada mais
+	 *  lido (a cadeia original  usada nas mensagens de erro).
+	 */
+	public List<Simbolo> original() {
+		List<Simbolo> resultado = consumida();
+		resultado.addAll(proximos);
+		return resultado;
+	}
+
+	public String separador() {
+		return separador;
+	}
+
+	public void close() throws IOException {
+		leitor.close();
+	}
+
+	/**
+	 * Separa o prximo smbolo da entrada, lendo-a conforme necessrio.
+	 * @return Se algum smbolo foi separado.
+	 */
+	private boolean separar() {
+		while (true) {
+			if (porCaracter) {
+				if (inicio < pendente.length()) {
+					proximos.addLast(Alfabeto.procurar(String.valueOf(pendente.charAt(inicio++))));
+					return true;
+				}
+			} else {
+				int fim, proximoInicio;
+				if (matcher == null) {
+					fim = pendente.indexOf(separador, inicio);
+					proximoInicio = fim + separador.length();
+				} else {
+					matcher.reset(pendente);
+					matcher.region(inicio, pendente.length());
+					if (matcher.find() && !(matcher.hitEnd() && !fimDaLeitura)) {
+						fim = matcher.start();
+						proximoInicio = matcher.end();
+						if (proximoInicio == inicio) {
+							// separador de tamanho zero: o smbolo tem pelo menos um caracter
+							if (inicio + 1 < pendente.length() && matcher.find(inicio + 1)) {
+								fim = matcher.start();
+								proximoInicio = matcher.end();
+							} else {
+								fim = -1;
+							}
+						}
+					} else {
+						fim = -1;
+						proximoInicio = -1;
+					}
+				}
+
+				if (fim >= 0) {
+					String simbolo = pendente.substring(inicio, fim);
+					inicio = proximoInicio;
+					if (adicionar(simbolo)) return true;
+					continue;
+				}
+
+				if (fimDaLeitura) {
+					// o ltimo smbolo no tem separador
+					if (inicio < pendente.length()) {
+						String simbolo = pendente.substring(inicio);
+						inicio = pendente.length();
+						if (adicionar(simbolo)) return true;
+					}
+					// os smbolos vazios do fim so descartados
+					vaziosPendentes = 0;
+					return false;
+				}
+			}
+
+			if (fimDaLeitura) return false;
+			ler();
+		}
+	}
+
+	/**
+	 * Adiciona um smbolo separado; os vazios s so adicionados quando
+	 * seguidos por um smbolo no vazio.
+	 * @param simbolo O smbolo separado.
+	 * @return Se algum smbolo foi adicionado.
+	 */
+	private boolean adicionar(String simbolo) {
+		if (simbolo.length() == 0) {
+			vaziosPendentes++;
+			return false;
+		}
+
+		for (; vaziosPendentes > 0; vaziosPendentes--)
+			proximos.addLast(VAZIO);
+		proximos.addLast(Alfabeto.procurar(simbolo));
+		return true;
+	}
+
+	/**
+	 * L mais caracteres, descartando os j separados.
+	 */
+	private void ler() {
+		pendente.delete(0, inicio);
+		inicio = 0;
+
+		int lidos;
+		try {
+			do {
+				lidos = leitor.read(leitura, 0, leitura.length);
+			} while (lidos == 0);
+		} catch (IOException e) {
+			throw new IllegalStateException("Erro ao ler a cadeia de entrada.", e);
+		}
+
+		if (lidos < 0) {
+			fimDaLeitura = true;
+		} else {
+			pendente.append(leitura, 0, lidos);
+		}
+	}
+}
@@ -0,0 +1,351 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.subjacente.automato;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import br.adaplib.SimboloDeSaida;
+
+/**
+ * Resultado da minimizao de um autmato determinstico: o autmato mnimo
+ * equivalente e a correspondncia entre os estados originais e os novos.<br>
+ * A minimizao usa o refinamento de parties de Hopcroft, em
+ * O(nklog n) para n estados e k smbolos, apenas com vetores de inteiros
+ * (sem recurso e sem objetos por estado, alm dos estados do resultado).<br>
+ * A equivalncia considera a execuo do Executor: as transies em vazio so
+ * resolvidas como no {@link AutomatoCompilado} e o autmato mnimo no tem
+ * transies em vazio, exceto as necessrias para manter as execues
+ * interrompidas por ciclos de transies em vazio. Estados inalcanveis e
+ * estados que nunca levam ao aceite so removidos; smbolos fora dos
+ * smbolos de entrada continuam gerando erro.<br>
+ * Os estados do autmato mnimo recebem o nome de um dos estados originais
+ * equivalentes.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class Minimizacao {
+	// classes iniciais da partio
+	private static final int REJEITA = 0;
+	private static final int ACEITA = 1;
+	// aceita ao terminar a cadeia, mas entra em um ciclo de transies em
+	// vazio caso no haja transio para o smbolo
+	private static final int ACEITA_COM_CICLO = 2;
+	private static final int INTERROMPE = 3;
+	private static final int ERRO = 4;
+
+	// nmero de um smbolo que nenhuma transio consome
+	private static final int SEM_SIMBOLO = -1;
+
+	private final Automato minimo;
+	private final Map<Estado, Estado> equivalentes;
+
+	// dados usados apenas durante a minimizao
+	private int numeroDeSimbolos;
+	private int[] delta;
+	private int[] classe;
+	private int[] bloco;
+	private int[] representante;
+	private Estado[] originais;
+	private Estado[] novos;
+	private AutomatoCompilado compilado;
+
+	/**
+	 * Minimiza o autmato.
+	 * @param automato O autmato determinstico a ser minimizado.
+	 */
+	Minimizacao(Automato automato) {
+		if (!automato.isDeterministico())
+			throw new IllegalArgumentException("No  possvel minimizar um autmato no determinstico.");
+
+		compilado = automato.compilar();
+		numeroDeSimbolos = compilado.getNumeroDeSimbolos();
+
+		// numerando os estados alcanveis (em largura, a partir do inicial)
+		int[] numero = new int[compilado.getNumeroDeEstados()];
+		int[] ordem = new int[compilado.getNumeroDeEstados()];
+		Arrays.fill(numero, -1);
+		int alcancaveis = 0;
+		numero[compilado.getInicial()] = alcancaveis;
+		ordem[alcancaveis++] = compilado.getInicial();
+		for (int i = 0; i < alcancaveis; i++) {
+			for (int s = 0; s < numeroDeSimbolos; s++) {
+				int prox = compilado.proximoResolvido(ordem[i], s);
+				if (prox >= 0 && numero[prox] < 0) {
+					numero[prox] = alcancaveis;
+					ordem[alcancaveis++] = prox;
+				}
+			}
+		}
+
+		// estados sumidouros: sem transio (rejeita), smbolo invlido
+		// (erro) e ciclo de transies em vazio (interrompe)
+		final int rejeita = alcancaveis, erro = alcancaveis + 1, interrompe = alcancaveis + 2;
+		int n = alcancaveis + 3;
+		if ((long) n * numeroDeSimbolos > Integer.MAX_VALUE - 1)
+			throw new IllegalArgumentException("O autmato  grande demais para ser minimizado.");
+
+		originais = new Estado[alcancaveis];
+		delta = new int[n * numeroDeSimbolos];
+		classe = new int[n];
+		for (int i = 0; i < alcancaveis; i++) {
+			originais[i] = compilado.getEstado(ordem[i]);
+			SimboloDeSaida saida = compilado.saidaNoFim(ordem[i]);
+			boolean ciclo = compilado.proximoResolvido(ordem[i], SEM_SIMBOLO) == AutomatoCompilado.CICLO_VAZIO;
+			if (saida == Automato.SAIDAS[0]) classe[i] = ciclo? ACEITA_COM_CICLO : ACEITA;
+			else classe[i] = (saida == Automato.SAIDAS[1])? REJEITA : INTERROMPE;
+
+			for (int s = 0; s < numeroDeSimbolos; s++) {
+				int prox = compilado.proximoResolvido(ordem[i], s);
+				int destino;
+				if (prox == AutomatoCompilado.SEM_TRANSICAO) destino = rejeita;
+				else if (prox == AutomatoCompilado.CICLO_VAZIO) destino = interrompe;
+				else if (!compilado.simboloValido(s)) destino = erro;
+				else destino = numero[prox];
+				delta[i * numeroDeSimbolos + s] = destino;
+			}
+		}
+		classe[rejeita] = REJEITA;
+		classe[erro] = ERRO;
+		classe[interrompe] = INTERROMPE;
+		for (int s = 0; s < numeroDeSimbolos; s++) {
+			delta[rejeita * numeroDeSimbolos + s] = rejeita;
+			delta[erro * numeroDeSimbolos + s] = erro;
+			delta[interrompe * numeroDeSimbolos + s] = interrompe;
+		}
+		numero = null;
+		ordem = null;
+
+		int blocos = refinar(n);
+
+		// o representante de cada bloco  o seu menor estado (um estado
+		// original, caso exista)
+		representante = new int[blocos];
+		Arrays.fill(representante, -1);
+		for (int i = n - 1; i >= 0; i--)
+			representante[bloco[i]] = i;
+
+		// montando o autmato mnimo a partir do bloco inicial
+		minimo = new Automato(null, null, null, automato.eventos());
+		novos = new Estado[blocos];
+		int[] pendentes = new int[blocos];
+		int quantos = 0;
+		novo(bloco[0], true);
+		pendentes[quantos++] = bloco[0];
+
+		int blocoRejeita = bloco[rejeita], blocoInterrompe = bloco[interrompe];
+		for (int i = 0; i < quantos; i++) {
+			int b = pendentes[i];
+			int r = representante[b];
+			boolean interrompido = classe[r] == INTERROMPE || classe[r] == ACEITA_COM_CICLO;
+
+			// sem transio para o smbolo, o Executor segue para o ciclo
+			if (interrompido) {
+				if (novos[blocoInterrompe] == null) pendentes[quantos++] = blocoInterrompe;
+				minimo.adicionarRegra(novos[b], "", novo(blocoInterrompe, false));
+			}
+
+			for (int s = 0; s < numeroDeSimbolos; s++) {
+				int destino = delta[r * numeroDeSimbolos + s];
+				int bd = bloco[destino];
+				// a ausncia de transio j tem o mesmo efeito (para smbolos
+				// invlidos, qualquer transio geraria o erro)
+				if ((bd == blocoRejeita && !interrompido) || (bd == blocoInterrompe && interrompido)
+						|| (!compilado.simboloValido(s) && destino != erro))
+					continue;
+
+				if (destino == erro) {
+					// o erro acontece ao consumir o smbolo, qualquer que seja o destino
+					minimo.adicionarRegra(novos[b], compilado.getSimbolo(s), novos[b]);
+				} else {
+					if (novos[bd] == null) pendentes[quantos++] = bd;
+					minimo.adicionarRegra(novos[b], compilado.getSimbolo(s), novo(bd, false));
+				}
+			}
+		}
+
+		HashMap<Estado, Estado> mapa = new HashMap<Estado, Estado>();
+		for (int i = 0; i < alcancaveis; i++) {
+			if (novos[bloco[i]] != null)
+				mapa.put(originais[i], novos[bloco[i]]);
+		}
+		this.equivalentes = Collections.unmodifiableMap(mapa);
+
+		delta = classe = bloco = representante = null;
+		originais = novos = null;
+		compilado = null;
+	}
+
+	/**
+	 * Obtm o autmato mnimo.
+	 * @return O autmato mnimo.
+	 */
+	public Automato getAutomato() {
+		return minimo;
+	}
+
+	/**
+	 * Obtm o estado do autmato mnimo equivalente a um estado original.
+	 * @param original O estado original.
+	 * @return O estado equivalente, ou nulo caso o estado original tenha sido
+	 * removido (por ser inalcanvel ou nunca levar ao aceite).
+	 */
+	public Estado getEquivalente(Estado original) {
+		return equivalentes.get(original);
+	}
+
+	/**
+	 * Obtm a correspondncia entre os estados originais e os do autmato
+	 * mnimo (os estados removidos no aparecem).
+	 * @return A correspondncia (no pode ser alterada).
+	 */
+	public Map<Estado, Estado> getEquivalentes() {
+		return equivalentes;
+	}
+
+	/**
+	 * Obtm (criando, se necessrio) o estado do autmato mnimo que
+	 * representa um bloco.
+	 */
+	private Estado novo(int b, boolean inicial) {
+		if (novos[b] != null) return novos[b];
+
+		int r = representante[b];
+		novos[b] = (r < originais.length)? new Estado(originais[r].getNome()) : new Estado();
+		minimo.adicionarConfiguracao(novos[b], inicial, classe[r] == ACEITA || classe[r] == ACEITA_COM_CICLO);
+		return novos[b];
+	}
+
+	/**
+	 * Refina a partio inicial (pelas classes) at que os estados de cada
+	 * bloco sejam equivalentes.<br>
+	 * Os estados ficam em um vetor ordenado por bloco; ao dividir um bloco, os
+	 * estados marcados so trocados para o seu incio. A fila guarda blocos
+	 * divisores, considerando todos os smbolos; ao dividir um bloco que no
+	 * est na fila, apenas a menor parte  colocada nela.
+	 * @param n O nmero de estados.
+	 * @return O nmero de blocos.
+	 */
+	private int refinar(int n) {
+		// transies inversas, por (destino, smbolo)
+		int[] inicioInverso = new int[n * numeroDeSimbolos + 1];
+		int[] origens = new int[n * numeroDeSimbolos];
+		for (int i = 0; i < delta.length; i++)
+			inicioInverso[delta[i] * numeroDeSimbolos + (i % numeroDeSimbolos) + 1]++;
+		for (int i = 0; i < n * numeroDeSimbolos; i++)
+			inicioInverso[i + 1] += inicioInverso[i];
+		int[] posicao = new int[n * numeroDeSimbolos];
+		System.arraycopy(inicioInverso, 0, posicao, 0, posicao.length);
+		for (int i = 0; i < delta.length; i++)
+			origens[posicao[delta[i] * numeroDeSimbolos + (i % numeroDeSimbolos)]++] = i / numeroDeSimbolos;
+		posicao = null;
+
+		int[] elementos = new int[n];
+		int[] local = new int[n];
+		int[] inicio = new int[n];
+		int[] fim = new int[n];
+		int[] marcados = new int[n];
+		int[] fila = new int[n];
+		boolean[] naFila = new boolean[n];
+		int[] tocados = new int[n];
+		int[] divisor = new int[n];
+		bloco = new int[n];
+
+		// partio inicial: um bloco por classe
+		int blocos = 0;
+		int[] blocoDaClasse = new int[ERRO + 1];
+		int[] contagem = new int[ERRO + 1];
+		for (int i = 0; i < n; i++)
+			contagem[classe[i]]++;
+		for (int c = 0, proximo = 0; c <= ERRO; c++) {
+			if (contagem[c] == 0) continue;
+			blocoDaClasse[c] = blocos;
+			inicio[blocos] = fim[blocos] = proximo;
+			proximo += contagem[c];
+			blocos++;
+		}
+		for (int i = 0; i < n; i++) {
+			int b = blocoDaClasse[classe[i]];
+			bloco[i] = b;
+			local[i] = fim[b];
+			elementos[fim[b]++] = i;
+		}
+
+		// todos os blocos iniciais, menos o maior, so divisores
+		int maior = 0, tamanhoFila = 0;
+		for (int b = 1; b < blocos; b++) {
+			if (fim[b] - inicio[b] > fim[maior] - inicio[maior]) maior = b;
+		}
+		for (int b = 0; b < blocos; b++) {
+			if (b == maior) continue;
+			fila[tamanhoFila++] = b;
+			naFila[b] = true;
+		}
+
+		while (tamanhoFila > 0) {
+			int a = fila[--tamanhoFila];
+			naFila[a] = false;
+			// o divisor pode ser dividido durante o seu uso: guarda-se uma cpia
+			int tamanhoDivisor = fim[a] - inicio[a];
+			System.arraycopy(elementos, inicio[a], divisor, 0, tamanhoDivisor);
+
+			for (int s = 0; s < numeroDeSimbolos; s++) {
+				// marcando os estados que chegam ao divisor pelo smbolo
+				int quantosTocados = 0;
+				for (int i = 0; i < tamanhoDivisor; i++) {
+					int coluna = divisor[i] * numeroDeSimbolos + s;
+					for (int j = inicioInverso[coluna]; j < inicioInverso[coluna + 1]; j++) {
+						int e = origens[j];
+						int b = bloco[e];
+						if (marcados[b] == 0) tocados[quantosTocados++] = b;
+
+						int destino = inicio[b] + marcados[b]++;
+						int outro = elementos[destino];
+						elementos[local[e]] = outro;
+						local[outro] = local[e];
+						elementos[destino] = e;
+						local[e] = destino;
+					}
+				}
+
+				// dividindo os blocos parcialmente marcados
+				for (int i = 0; i < quantosTocados; i++) {
+					int b = tocados[i];
+					int m = marcados[b];
+					marcados[b] = 0;
+					if (m == fim[b] - inicio[b]) continue;
+
+					int novo = blocos++;
+					inicio[novo] = inicio[b];
+					fim[novo] = inicio[b] + m;
+					inicio[b] = fim[novo];
+					for (int j = inicio[novo]; j < fim[novo]; j++)
+						bloco[elementos[j]] = novo;
+
+					int escolhido = (naFila[b] || m <= fim[b] - inicio[b])? novo : b;
+					fila[tamanhoFila++] = escolhido;
+					naFila[escolhido] = true;
+				}
+			}
+		}
+
+		return blocos;
+	}
+}
@@ -21,30 +21,61 @@ import br.adaplib.Evento;
 import br.adaplib.SimboloDeSaida;
 
 /**
- * Representa um smbolo simples...
+ * Representa um smbolo simples...<br>
+ * Os smbolos obtidos pelo Alfabeto so cannicos e tm um nmero; os criados
+ * diretamente no tm nmero (-1), mas continuam iguais aos cannicos com a
+ * mesma representao.
  * @author FLevy
  * @since 1.0
  */
 public class Simbolo implements Evento, SimboloDeSaida {
-	private String simbolo;
+	private final String simbolo;
+	private final int numero;
 
 	public Simbolo(String simbolo) {
+		this(simbolo, -1);
+	}
+
+	/**
+	 * Cria um smbolo cannico (usado pelo Alfabeto).
+	 * @param simbolo A representao do smbolo.
+	 * @param numero O nmero do smbolo no alfabeto.
+	 */
+	Simbolo(String simbolo, int numero) {
 		if (simbolo == null)
 			throw new IllegalArgumentException("O smbolo interno no pode ser nulo.");
 		this.simbolo = simbolo;
+		this.numero = numero;
 	}
 
 	public String getSimbolo() {
 		return this.simbolo;
 	}
 
+	/**
+	 * Obtm o nmero do smbolo no Alfabeto.
+	 * @return O nmero, ou -1 caso o smbolo no seja cannico.
+	 */
+	public int getNumero() {
+		return this.numero;
+	}
+
 	public String toString() {
 		return this.simbolo;
 	}
 
 	public boolean equals(Object o) {
-		if (o instanceof Simbolo)
-			return this.equals((Simbolo) o);
+		if (o == this) return true;
+		if (o instanceof Simbolo) {
+			Simbolo outro = (Simbolo) o;
+			if (this.numero >= 0 && outro.numero >= 0)
+				return this.numero == outro.numero;
+			return this.simbolo.equals(outro.simbolo);
+		}
 		return false;
 	}
+
+	public int hashCode() {
+		return this.simbolo.hashCode();
+	}
 }
@@ -0,0 +1,363 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.subjacente.automato;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+import br.adaplib.CadeiaDeEntrada;
+import br.adaplib.SimboloDeSaida;
+import br.adaplib.excecao.ErroDeExecucao;
+
+/**
+ * Executa um autmato no determinstico considerando todos os caminhos ao
+ * mesmo tempo, sem retrocesso.<br>
+ * Os estados so numerados e, a cada smbolo, mantm-se o conjunto de
+ * estados ativos (um conjunto esparso, que  limpo em tempo constante e
+ * percorrido em tempo proporcional ao nmero de estados ativos). As
+ * transies em vazio so seguidas sempre que um estado se torna ativo.
+ * As transies de cada estado so guardadas por smbolo, em uma lista
+ * ordenada dos smbolos que ele consome (procurada por busca binria), de
+ * forma que a memria usada  proporcional ao nmero de estados e de
+ * transies, e no ao produto de estados e smbolos. Assim, uma cadeia de
+ * tamanho n  executada em O(nmlog s), sendo m o nmero de transies e
+ * s o maior nmero de smbolos consumidos por um estado.<br>
+ * Diferentemente do Executor, que s segue uma transio em vazio quando
+ * no h transio para o smbolo, aqui as transies em vazio esto sempre
+ * disponveis (a semntica usual de autmatos no determinsticos). Para
+ * autmatos sem transies em vazio, o resultado  o mesmo.<br>
+ * Assim como o {@link AutomatoCompilado}, o simulador no acompanha as
+ * alteraes feitas no autmato depois da sua criao, ignora o
+ * comportamento dos estados (executar) e no aceita estados ou transies
+ * especializados.
+ * @author FLevy
+ * @since 2.1
+ */
+public final class SimuladorNaoDeterministico {
+	private final Estado[] estados;
+	private final int[] colunas;
+	private final boolean[] simbolosValidos;
+	// smbolos consumidos pelo estado e, em ordem: simbolos[faixa[e] ...
+	// faixa[e + 1] - 1]; destinos da clula k (um estado e um dos seus
+	// smbolos): destinos[inicio[k] ... inicio[k + 1] - 1]
+	private final int[] faixa;
+	private final int[] simbolos;
+	private final int[] inicio;
+	private final int[] destinos;
+	// destinos das transies em vazio de cada estado
+	private final int[] inicioVazio;
+	private final int[] destinosVazio;
+	private final boolean[] aceite;
+	private final int inicial;
+
+	/**
+	 * Cria o simulador de um autmato.
+	 * @param automato O autmato.
+	 * @param todos Todos os estados do autmato.
+	 */
+	SimuladorNaoDeterministico(Automato automato, Collection<Estado> todos) {
+		if (automato.configuracaoInicial() == null)
+			throw new IllegalArgumentException(" preciso de um estado inicial para simular o autmato.");
+
+		// numerando os estados
+		HashMap<Estado, Integer> indiceEstados = new HashMap<Estado, Integer>();
+		this.estados = new Estado[todos.size()];
+		int i = 0;
+		for (Estado e : todos) {
+			if (e.getClass() != Estado.class)
+				throw new IllegalArgumentException("No  possvel simular o estado especializado " + e + ".");
+			estados[i] = e;
+			indiceEstados.put(e, i);
+			i++;
+		}
+
+		// numerando os smbolos (a coluna  obtida pelo nmero no Alfabeto)
+		HashMap<Simbolo, Integer> indiceSimbolos = new HashMap<Simbolo, Integer>();
+		int maiorNumero = -1;
+		int numeroDeTransicoes = 0, numeroVazias = 0;
+		for (Estado e : estados) {
+			for (Transicao t : automato.getTransicoes(e)) {
+				if (t.getClass() != Transicao.class)
+					throw new IllegalArgumentException("No  possvel simular a transio especializada " + t + ".");
+				if ("".equals(t.getEvento())) {
+					numeroVazias++;
+					continue;
+				}
+
+				numeroDeTransicoes++;
+				Simbolo s = Alfabeto.simbolo(t.getEvento());
+				if (!indiceSimbolos.containsKey(s)) {
+					indiceSimbolos.put(s, indiceSimbolos.size());
+					maiorNumero = Math.max(maiorNumero, s.getNumero());
+				}
+			}
+		}
+
+		int numeroDeSimbolos = indiceSimbolos.size();
+		this.simbolosValidos = new boolean[numeroDeSimbolos];
+		this.colunas = new int[maiorNumero + 1];
+		Arrays.fill(colunas, -1);
+		for (Simbolo s : indiceSimbolos.keySet()) {
+			int indice = indiceSimbolos.get(s);
+			simbolosValidos[indice] = automato.simboloValido(s);
+			colunas[s.getNumero()] = indice;
+		}
+
+		// ordenando os smbolos de cada estado (sem repeties)
+		int[][] simbolosDoEstado = new int[estados.length][];
+		this.faixa = new int[estados.length + 1];
+		for (i = 0; i < estados.length; i++) {
+			Collection<Transicao> transicoes = automato.getTransicoes(estados[i]);
+			int[] doEstado = new int[transicoes.size()];
+			int n = 0;
+			for (Transicao t : transicoes) {
+				if (!"".equals(t.getEvento()))
+					doEstado[n++] = colunas[Alfabeto.numero(t.getEvento())];
+			}
+			Arrays.sort(doEstado, 0, n);
+			int distintos = 0;
+			for (int j = 0; j < n; j++) {
+				if (distintos == 0 || doEstado[j] != doEstado[distintos - 1])
+					doEstado[distintos++] = doEstado[j];
+			}
+			simbolosDoEstado[i] = Arrays.copyOf(doEstado, distintos);
+			faixa[i + 1] = faixa[i] + distintos;
+		}
+
+		this.simbolos = new int[faixa[estados.length]];
+		for (i = 0; i < estados.length; i++)
+			System.arraycopy(simbolosDoEstado[i], 0, simbolos, faixa[i], simbolosDoEstado[i].length);
+
+		// contando os destinos de cada clula e depois preenchendo
+		this.inicio = new int[simbolos.length + 1];
+		this.destinos = new int[numeroDeTransicoes];
+		this.inicioVazio = new int[estados.length + 1];
+		this.destinosVazio = new int[numeroVazias];
+		this.aceite = new boolean[estados.length];
+
+		for (i = 0; i < estados.length; i++) {
+			for (Transicao t : automato.getTransicoes(estados[i])) {
+				if ("".equals(t.getEvento()))
+					inicioVazio[i + 1]++;
+				else
+					inicio[celula(i, colunas[Alfabeto.numero(t.getEvento())]) + 1]++;
+			}
+		}
+		for (i = 1; i < inicio.length; i++)
+			inicio[i] += inicio[i - 1];
+		for (i = 1; i < inicioVazio.length; i++)
+			inicioVazio[i] += inicioVazio[i - 1];
+
+		int[] proximo = Arrays.copyOf(inicio, inicio.length - 1);
+		int[] proximoVazio = Arrays.copyOf(inicioVazio, inicioVazio.length - 1);
+		Integer destino;
+		for (i = 0; i < estados.length; i++) {
+			aceite[i] = automato.configuracoesDeAceite().contains(estados[i]);
+
+			for (Transicao t : automato.getTransicoes(estados[i])) {
+				destino = indiceEstados.get(t.getFinal());
+				if (destino == null)
+					throw new IllegalArgumentException("A transio " + t + " tem como destino um estado que no pertence ao autmato.");
+
+				if ("".equals(t.getEvento()))
+					destinosVazio[proximoVazio[i]++] = destino;
+				else
+					destinos[proximo[celula(i, colunas[Alfabeto.numero(t.getEvento())])]++] = destino;
+			}
+		}
+
+		Integer indiceInicial = indiceEstados.get(automato.configuracaoInicial());
+		if (indiceInicial == null)
+			throw new IllegalArgumentException("O estado inicial no pertence ao autmato.");
+		this.inicial = indiceInicial;
+	}
+
+	/**
+	 * Obtm a clula de um estado e um smbolo.
+	 * @param estado O nmero do estado.
+	 * @param simbolo O nmero do smbolo.
+	 * @return A clula, ou um valor negativo caso o estado no consuma o
+	 * smbolo.
+	 */
+	private int celula(int estado, int simbolo) {
+		return Arrays.binarySearch(simbolos, faixa[estado], faixa[estado + 1], simbolo);
+	}
+
+	/**
+	 * Obtm o nmero de estados.
+	 * @return O nmero de estados.
+	 */
+	public int getNumeroDeEstados() {
+		return estados.length;
+	}
+
+	/**
+	 * Obtm o estado original a partir do seu nmero.
+	 * @param estado O nmero do estado.
+	 * @return O estado original.
+	 */
+	public Estado getEstado(int estado) {
+		return estados[estado];
+	}
+
+	/**
+	 * Obtm o nmero de um smbolo.
+	 * @param simbolo O smbolo.
+	 * @return O nmero do smbolo, ou -1 caso nenhuma transio o consuma.
+	 */
+	public int indice(Simbolo simbolo) {
+		int numero = Alfabeto.numero(simbolo);
+		if (numero < 0 || numero >= colunas.length) return -1;
+		return colunas[numero];
+	}
+
+	/**
+	 * Executa o autmato sobre a cadeia de entrada.
+	 * @param entrada A cadeia de entrada.
+	 * @return Automato.SAIDAS[0] caso algum caminho aceite a cadeia, ou
+	 * Automato.SAIDAS[1] caso contrrio.
+	 * @throws ErroDeExecucao Caso um smbolo fora do alfabeto seja consumido.
+	 */
+	public SimboloDeSaida executar(CadeiaDeEntrada<Simbolo> entrada) throws ErroDeExecucao {
+		Execucao execucao = new Execucao();
+
+		while (entrada.temProximo()) {
+			int simbolo = indice(entrada.verProximo());
+			if (simbolo >= 0 && !simbolosValidos[simbolo])
+				throw new ErroDeExecucao("Smbolo invlido.", estados[execucao.atual.denso[0]], null, entrada);
+			entrada.consumir();
+
+			if (!execucao.consumir(simbolo))
+				return Automato.SAIDAS[1];
+		}
+
+		return execucao.aceita()? Automato.SAIDAS[0] : Automato.SAIDAS[1];
+	}
+
+	/**
+	 * Executa o autmato sobre uma cadeia j numerada (ver
+	 * {@link #indice(Simbolo)}).
+	 * @param entrada Os nmeros dos smbolos (-1 para smbolos
+	 * desconhecidos).
+	 * @return Automato.SAIDAS[0] caso algum caminho aceite a cadeia, ou
+	 * Automato.SAIDAS[1] caso contrrio.
+	 * @throws ErroDeExecucao Caso um smbolo fora do alfabeto seja consumido.
+	 */
+	public SimboloDeSaida executar(int[] entrada) throws ErroDeExecucao {
+		Execucao execucao = new Execucao();
+
+		for (int simbolo : entrada) {
+			if (simbolo >= 0 && !simbolosValidos[simbolo])
+				throw new ErroDeExecucao("Smbolo invlido.", estados[execucao.atual.denso[0]], null, null);
+
+			if (!execucao.consumir(simbolo))
+				return Automato.SAIDAS[1];
+		}
+
+		return execucao.aceita()? Automato.SAIDAS[0] : Automato.SAIDAS[1];
+	}
+
+	/**
+	 * Conjunto de estados com insero, teste e limpeza em tempo constante
+	 * (Briggs e Torczon).
+	 */
+	private static final class ConjuntoEsparso {
+		final int[] denso;
+		final int[] esparso;
+		int tamanho = 0;
+
+		ConjuntoEsparso(int capacidade) {
+			denso = new int[capacidade];
+			esparso = new int[capacidade];
+		}
+
+		boolean contem(int estado) {
+			int i = esparso[estado];
+			return i < tamanho && denso[i] == estado;
+		}
+
+		void adicionar(int estado) {
+			esparso[estado] = tamanho;
+			denso[tamanho++] = estado;
+		}
+	}
+
+	/**
+	 * Os conjuntos de estados ativos de uma execuo.
+	 */
+	private final class Execucao {
+		ConjuntoEsparso atual = new ConjuntoEsparso(estados.length);
+		ConjuntoEsparso proximo = new ConjuntoEsparso(estados.length);
+		final int[] pilha = new int[estados.length];
+
+		Execucao() {
+			ativar(atual, inicial);
+		}
+
+		/**
+		 * Ativa um estado e todos os alcanveis a partir dele por transies
+		 * em vazio.
+		 */
+		private void ativar(ConjuntoEsparso conjunto, int estado) {
+			if (conjunto.contem(estado)) return;
+			conjunto.adicionar(estado);
+
+			int topo = 0;
+			pilha[topo++] = estado;
+			while (topo > 0) {
+				int e = pilha[--topo];
+				for (int i = inicioVazio[e]; i < inicioVazio[e + 1]; i++) {
+					int d = destinosVazio[i];
+					if (!conjunto.contem(d)) {
+						conjunto.adicionar(d);
+						pilha[topo++] = d;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Consome um smbolo a partir de todos os estados ativos.
+		 * @return Se ainda h algum estado ativo.
+		 */
+		boolean consumir(int simbolo) {
+			proximo.tamanho = 0;
+			if (simbolo >= 0) {
+				for (int i = 0; i < atual.tamanho; i++) {
+					int celula = celula(atual.denso[i], simbolo);
+					if (celula < 0) continue;
+					for (int j = inicio[celula]; j < inicio[celula + 1]; j++)
+						ativar(proximo, destinos[j]);
+				}
+			}
+
+			ConjuntoEsparso troca = atual;
+			atual = proximo;
+			proximo = troca;
+			return atual.tamanho > 0;
+		}
+
+		boolean aceita() {
+			for (int i = 0; i < atual.tamanho; i++) {
+				if (aceite[atual.denso[i]]) return true;
+			}
+			return false;
+		}
+	}
+}
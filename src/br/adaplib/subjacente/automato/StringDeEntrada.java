@@ -17,6 +17,8 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 */
 package br.adaplib.subjacente.automato;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -29,8 +31,8 @@ import br.adaplib.CadeiaDeEntrada;
  * @since 1.0
  */
 public final class StringDeEntrada implements CadeiaDeEntrada<Simbolo> {
-	private String[] simbolos;
-	private String cadeiaOriginal;
+	private Simbolo[] simbolos;
+	private Simbolo[] originais;
 	private String separador;
 	private int posicao;
 
@@ -50,7 +52,9 @@ public final class StringDeEntrada implements CadeiaDeEntrada<Simbolo> {
 	/**
 	 * Cria uma cadeia de entrada a partir de uma cadeia qualquer e usando um
 	 * separador especfico. <br>
-	 * Caso o separador definido seja "", a cadeia de entrada l caracter por caracter.
+	 * Caso o separador definido seja "", a cadeia de entrada l caracter por caracter.<br>
+	 * Os smbolos j registrados no Alfabeto so cannicos; os desconhecidos
+	 * no so registrados (ver {@link Alfabeto#procurar(String)}).
 	 * @param cadeia A sequncia de caracteres a ser usada como cadeia de entrada.
 	 * @param separador O separador a ser usado, como uma expresso regular.
 	 */
@@ -62,27 +66,55 @@ public final class StringDeEntrada implements CadeiaDeEntrada<Simbolo> {
 
 		this.separador = separador;
 		this.posicao = 0;
-		this.cadeiaOriginal = cadeia;
 
 		if ("".equals(separador)) {
 			// separando char por char
-			this.simbolos = new String[cadeia.length()];
+			this.simbolos = new Simbolo[cadeia.length()];
 			for (int i = 0; i < cadeia.length(); i++) {
-				this.simbolos[i] = cadeia.charAt(i) + "";
+				this.simbolos[i] = Alfabeto.procurar(String.valueOf(cadeia.charAt(i)));
 			}
 
 		} else {
 			if (cadeia.length() == 0) {
-				this.simbolos = new String[0];
+				this.simbolos = new Simbolo[0];
 			} else {
-				this.simbolos = cadeia.split(this.separador);
+				String[] partes = cadeia.split(this.separador);
+				this.simbolos = new Simbolo[partes.length];
+				for (int i = 0; i < partes.length; i++) {
+					this.simbolos[i] = Alfabeto.procurar(partes[i]);
+				}
 			}
 		}
+
+		this.originais = this.simbolos;
+	}
+
+	/**
+	 * Cria uma lista de cadeias de entrada a partir de cadeias quaisquer.<br>
+	 * Cada cadeia s  separada em smbolos quando obtida da lista (til
+	 * para separ-las nas threads que as executam, como no ExecutorEmLote).
+	 * @param cadeias As sequncias de caracteres.
+	 * @param separador O separador a ser usado, como uma expresso regular.
+	 * @return A lista (no modificvel) de cadeias de entrada.
+	 */
+	public static List<StringDeEntrada> lista(final List<String> cadeias, final String separador) {
+		if (cadeias == null)
+			throw new IllegalArgumentException("As cadeias de entrada no podem ser nulas.");
+
+		return new AbstractList<StringDeEntrada>() {
+			public StringDeEntrada get(int indice) {
+				return new StringDeEntrada(cadeias.get(indice), separador);
+			}
+
+			public int size() {
+				return cadeias.size();
+			}
+		};
 	}
 
 	public Simbolo verProximo() {
 		if (posicao == simbolos.length) return null;
-		return new Simbolo(simbolos[posicao]);
+		return simbolos[posicao];
 	}
 
 	public boolean temProximo() {
@@ -93,7 +125,7 @@ public final class StringDeEntrada implements CadeiaDeEntrada<Simbolo> {
 		if (posicao >= simbolos.length) return null;
 
 		posicao++;
-		return new Simbolo(simbolos[posicao - 1]);
+		return simbolos[posicao - 1];
 	}
 
 	/**
@@ -105,20 +137,20 @@ public final class StringDeEntrada implements CadeiaDeEntrada<Simbolo> {
 		if (simbolo == null || "".equals(simbolo))
 			return;
 
-		// tem que criar um novo vetor...
-		String[] novo = new String[this.simbolos.length + 1];
+		// tem que criar um novo vetor (o original continua com a cadeia original)...
+		Simbolo[] novo = new Simbolo[this.simbolos.length + 1];
 
 		if (fim) {
 			for (int i = 0; i < this.simbolos.length; i++) {
 				novo[i] = this.simbolos[i];
 			}
 
-			novo[novo.length - 1] = simbolo;
+			novo[novo.length - 1] = Alfabeto.procurar(simbolo);
 		} else {
 			int j = 0;
 			for (int i = 0; i < novo.length; i++) {
 				if (i == posicao) {
-					novo[i] = simbolo;
+					novo[i] = Alfabeto.procurar(simbolo);
 				} else {
 					novo[i] = this.simbolos[j];
 					j++;
@@ -133,7 +165,7 @@ public final class StringDeEntrada implements CadeiaDeEntrada<Simbolo> {
 		LinkedList<Simbolo> resultado = new LinkedList<Simbolo>();
 
 		for (int i=0; i < simbolos.length; i++)
-			resultado.add(new Simbolo(simbolos[i]));
+			resultado.add(simbolos[i]);
 
 		return resultado;
 	}
@@ -142,7 +174,7 @@ public final class StringDeEntrada implements CadeiaDeEntrada<Simbolo> {
 		LinkedList<Simbolo> resultado = new LinkedList<Simbolo>();
 
 		for (int i = posicao; i < simbolos.length; i++)
-			resultado.add(new Simbolo(simbolos[i]));
+			resultado.add(simbolos[i]);
 
 		return resultado;
 	}
@@ -151,24 +183,13 @@ public final class StringDeEntrada implements CadeiaDeEntrada<Simbolo> {
 		LinkedList<Simbolo> resultado = new LinkedList<Simbolo>();
 
 		for (int i=0; i < posicao; i++)
-			resultado.add(new Simbolo(simbolos[i]));
+			resultado.add(simbolos[i]);
 
 		return resultado;
 	}
 
 	public List<Simbolo> original() {
-		LinkedList<Simbolo> resultado = new LinkedList<Simbolo>();
-
-		if ("".equals(separador)) {
-			// separando char por char
-			for (int i = 0; i < cadeiaOriginal.length(); i++)
-				resultado.add(new Simbolo(cadeiaOriginal.charAt(i) + ""));
-		} else if (cadeiaOriginal.length() != 0) {
-			for (String simbolo: cadeiaOriginal.split(this.separador))
-				resultado.add(new Simbolo(simbolo));
-		}
-
-		return resultado;
+		return new LinkedList<Simbolo>(Arrays.asList(originais));
 	}
 
 	public String separador() {
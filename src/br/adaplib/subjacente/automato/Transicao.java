@@ -23,7 +23,7 @@ import br.adaplib.Regra;
  * @author FLevy
  * @since 1.0
  */
-public class Transicao extends Regra<Estado> {
+public class Transicao extends Regra<Estado> implements Cloneable {
 
 	/**
 	 * Cria uma transio com todas as informaes.
@@ -34,4 +34,24 @@ public class Transicao extends Regra<Estado> {
 	public Transicao(Estado origem, String simbolo, Estado destino) {
 		super(origem, (simbolo==null)?"":simbolo, destino);
 	}
+
+	/**
+	 * Cria uma cpia desta transio (da mesma classe) entre outros estados.
+	 * @param origem O estado de origem da cpia.
+	 * @param destino O estado de destino da cpia.
+	 * @return A cpia da transio.
+	 */
+	protected Transicao copiar(Estado origem, Estado destino) {
+		Transicao copia;
+		try {
+			copia = (Transicao) super.clone();
+		} catch (CloneNotSupportedException e) {
+			// no acontece: a transio  Cloneable
+			throw new IllegalStateException(e);
+		}
+
+		copia.cInicial = origem;
+		copia.cFinal = destino;
+		return copia;
+	}
 }
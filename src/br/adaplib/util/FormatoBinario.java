@@ -0,0 +1,274 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.util;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Funes comuns s imagens binrias dos dispositivos.<br>
+ * Uma imagem comea com um cabealho (nmero mgico, verso do formato e
+ * tipo da imagem) e  formada apenas por inteiros de 32 bits (big endian) e
+ * por tabelas de textos, de forma que a carga seja feita com leituras de
+ * vetores inteiros em um ByteBuffer (que pode ser um arquivo mapeado em
+ * memria), sem interpretar os bytes um a um.<br>
+ * Uma tabela de textos tem o nmero de textos, o nmero total de
+ * caracteres, o tamanho de cada texto e os caracteres (UTF-16) de todos
+ * eles em sequncia, completados para um mltiplo de 4 bytes. Os textos
+ * so referenciados pelo seu ndice na tabela (-1 representa o nulo).
+ * @author FLevy
+ * @since 2.1
+ */
+public final class FormatoBinario {
+	/**
+	 * O nmero mgico das imagens ("ADLB").
+	 */
+	public static final int MAGICO = 0x41444C42;
+
+	/**
+	 * A verso atual do formato.
+	 */
+	public static final int VERSAO = 1;
+
+	private FormatoBinario() {
+	}
+
+	/**
+	 * Grava o cabealho de uma imagem.
+	 * @param saida A sada.
+	 * @param tipo O tipo da imagem.
+	 * @throws IOException Caso ocorra um erro na gravao.
+	 */
+	public static void gravarCabecalho(DataOutputStream saida, int tipo) throws IOException {
+		saida.writeInt(MAGICO);
+		saida.writeInt(VERSAO);
+		saida.writeInt(tipo);
+	}
+
+	/**
+	 * L e verifica o cabealho de uma imagem.
+	 * @param entrada A imagem, posicionada no cabealho.
+	 * @param tipo O tipo esperado.
+	 * @throws IOException Caso a imagem no seja do tipo esperado ou tenha
+	 * sido gravada com outra verso do formato.
+	 */
+	public static void lerCabecalho(ByteBuffer entrada, int tipo) throws IOException {
+		if (lerInteiro(entrada) != MAGICO)
+			throw new IOException("Erro ao carregar a imagem: os dados no so uma imagem da AdapLib.");
+		int versao = lerInteiro(entrada);
+		if (versao != VERSAO)
+			throw new IOException("Erro ao carregar a imagem: a verso " + versao + " do formato no  suportada.");
+		int lido = lerInteiro(entrada);
+		if (lido != tipo)
+			throw new IOException("Erro ao carregar a imagem: o tipo da imagem (" + lido + ") no  o esperado (" + tipo + ").");
+	}
+
+	/**
+	 * Grava um vetor de inteiros (sem o tamanho).
+	 * @param saida A sada.
+	 * @param valores Os valores.
+	 * @throws IOException Caso ocorra um erro na gravao.
+	 */
+	public static void gravarInteiros(DataOutputStream saida, int[] valores) throws IOException {
+		for (int v : valores)
+			saida.writeInt(v);
+	}
+
+	/**
+	 * L um inteiro.
+	 * @param entrada A imagem.
+	 * @return O inteiro.
+	 * @throws IOException Caso a imagem esteja truncada.
+	 */
+	public static int lerInteiro(ByteBuffer entrada) throws IOException {
+		try {
+			return entrada.getInt();
+		} catch (BufferUnderflowException e) {
+			throw truncada();
+		}
+	}
+
+	/**
+	 * L um tamanho (um inteiro no negativo).
+	 * @param entrada A imagem.
+	 * @return O tamanho.
+	 * @throws IOException Caso a imagem esteja truncada ou o tamanho seja
+	 * negativo.
+	 */
+	public static int lerTamanho(ByteBuffer entrada) throws IOException {
+		int tamanho = lerInteiro(entrada);
+		if (tamanho < 0)
+			throw new IOException("Erro ao carregar a imagem: tamanho negativo (" + tamanho + ").");
+		return tamanho;
+	}
+
+	/**
+	 * L um vetor de inteiros de uma s vez.
+	 * @param entrada A imagem.
+	 * @param tamanho O nmero de inteiros.
+	 * @return Os inteiros.
+	 * @throws IOException Caso a imagem esteja truncada.
+	 */
+	public static int[] lerInteiros(ByteBuffer entrada, int tamanho) throws IOException {
+		if (tamanho < 0 || entrada.remaining() / 4 < tamanho) throw truncada();
+		int[] valores = new int[tamanho];
+		entrada.asIntBuffer().get(valores);
+		entrada.position(entrada.position() + 4 * tamanho);
+		return valores;
+	}
+
+	/**
+	 * Grava uma tabela de textos.
+	 * @param saida A sada.
+	 * @param textos Os textos (no nulos).
+	 * @throws IOException Caso ocorra um erro na gravao.
+	 */
+	public static void gravarTextos(DataOutputStream saida, List<String> textos) throws IOException {
+		int total = 0;
+		for (String t : textos)
+			total += t.length();
+
+		saida.writeInt(textos.size());
+		saida.writeInt(total);
+		for (String t : textos)
+			saida.writeInt(t.length());
+		for (String t : textos)
+			saida.writeChars(t);
+		if (total % 2 != 0) saida.writeChar(0);
+	}
+
+	/**
+	 * L uma tabela de textos, com uma nica leitura para todos os
+	 * caracteres.
+	 * @param entrada A imagem.
+	 * @return Os textos, na ordem em que foram gravados.
+	 * @throws IOException Caso a imagem esteja truncada ou mal formada.
+	 */
+	public static String[] lerTextos(ByteBuffer entrada) throws IOException {
+		int numero = lerTamanho(entrada);
+		int total = lerTamanho(entrada);
+		int[] tamanhos = lerInteiros(entrada, numero);
+		int completo = total + (total % 2);
+		if (entrada.remaining() / 2 < completo) throw truncada();
+
+		char[] caracteres = new char[total];
+		entrada.asCharBuffer().get(caracteres);
+		entrada.position(entrada.position() + 2 * completo);
+
+		String[] textos = new String[numero];
+		int inicio = 0;
+		for (int i = 0; i < numero; i++) {
+			if (tamanhos[i] < 0 || tamanhos[i] > total - inicio)
+				throw new IOException("Erro ao carregar a imagem: a tabela de textos est mal formada.");
+			textos[i] = new String(caracteres, inicio, tamanhos[i]);
+			inicio += tamanhos[i];
+		}
+		return textos;
+	}
+
+	/**
+	 * Obtm um texto a partir do seu ndice.
+	 * @param textos A tabela de textos.
+	 * @param indice O ndice (-1 para o nulo).
+	 * @return O texto.
+	 * @throws IOException Caso o ndice seja invlido.
+	 */
+	public static String texto(String[] textos, int indice) throws IOException {
+		if (indice == -1) return null;
+		if (indice < 0 || indice >= textos.length)
+			throw new IOException("Erro ao carregar a imagem: referncia a um texto inexistente (" + indice + ").");
+		return textos[indice];
+	}
+
+	/**
+	 * Verifica um ndice lido da imagem.
+	 * @param indice O ndice.
+	 * @param tamanho O nmero de elementos referenciveis.
+	 * @return O ndice.
+	 * @throws IOException Caso o ndice seja invlido.
+	 */
+	public static int indice(int indice, int tamanho) throws IOException {
+		if (indice < 0 || indice >= tamanho)
+			throw new IOException("Erro ao carregar a imagem: referncia a um elemento inexistente (" + indice + ").");
+		return indice;
+	}
+
+	/**
+	 * Mapeia um arquivo em memria (apenas para leitura), em big endian e
+	 * posicionado no incio.
+	 * @param arquivo O arquivo.
+	 * @return O contedo do arquivo.
+	 * @throws IOException Caso ocorra um erro ao abrir ou mapear o arquivo.
+	 */
+	public static ByteBuffer mapear(File arquivo) throws IOException {
+		FileInputStream entrada = new FileInputStream(arquivo);
+		try {
+			FileChannel canal = entrada.getChannel();
+			// o mapeamento continua vlido depois de fechado o canal
+			return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()).order(ByteOrder.BIG_ENDIAN);
+		} finally {
+			entrada.close();
+		}
+	}
+
+	private static IOException truncada() {
+		return new IOException("Erro ao carregar a imagem: os dados terminam antes do esperado.");
+	}
+
+	/**
+	 * Tabela de textos em montagem: cada texto distinto  guardado uma
+	 * nica vez.
+	 */
+	public static final class Textos {
+		private final HashMap<String, Integer> indices = new HashMap<String, Integer>();
+		private final ArrayList<String> textos = new ArrayList<String>();
+
+		/**
+		 * Obtm o ndice de um texto, colocando-o na tabela caso necessrio.
+		 * @param texto O texto (ou nulo).
+		 * @return O ndice do texto (-1 para o nulo).
+		 */
+		public int indice(String texto) {
+			if (texto == null) return -1;
+			Integer indice = indices.get(texto);
+			if (indice == null) {
+				indice = textos.size();
+				indices.put(texto, indice);
+				textos.add(texto);
+			}
+			return indice;
+		}
+
+		/**
+		 * Obtm os textos, na ordem dos ndices.
+		 * @return Os textos.
+		 */
+		public List<String> getTextos() {
+			return textos;
+		}
+	}
+}
@@ -0,0 +1,607 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Mapa persistente (imutvel), implementado como uma rvore de hash com
+ * mapas de bits (HAMT).<br>
+ * As alteraes no modificam o mapa: elas criam um novo mapa que compartilha
+ * com o original tudo o que no foi alterado (apenas o caminho at a chave
+ * alterada  copiado, com no mximo 7 nveis). Assim, guardar uma "cpia" do
+ * mapa  apenas guardar a referncia, e ele pode ser lido por vrias threads
+ * sem sincronizao.<br>
+ * As chaves usam equals e hashCode; chaves e valores no podem ser nulos.
+ * @author FLevy
+ * @since 2.1
+ *
+ * @param <K> O tipo das chaves.
+ * @param <V> O tipo dos valores.
+ */
+public final class MapaPersistente<K, V> implements Iterable<Map.Entry<K, V>> {
+	private static final int BITS = 5;
+	private static final int MASCARA = (1 << BITS) - 1;
+	// 7 nveis de mapas de bits (32 bits de hash) mais o n de colises
+	private static final int PROFUNDIDADE = 8;
+
+	private static final MapaPersistente<Object, Object> VAZIO = new MapaPersistente<Object, Object>(null, 0);
+
+	private final No raiz;
+	private final int tamanho;
+	// vises (sem estado prprio), criadas sob demanda
+	private Set<K> chaves;
+	private Collection<V> valores;
+
+	private MapaPersistente(No raiz, int tamanho) {
+		this.raiz = raiz;
+		this.tamanho = tamanho;
+	}
+
+	/**
+	 * Obtm o mapa vazio.
+	 * @return O mapa vazio.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> MapaPersistente<K, V> vazio() {
+		return (MapaPersistente<K, V>) VAZIO;
+	}
+
+	/**
+	 * Cria um mapa com vrios pares de uma s vez, montando cada n da
+	 * rvore uma nica vez (sem as cpias de caminho de inseres
+	 * sucessivas). Caso uma chave se repita, vale o ltimo valor.
+	 * @param chaves As chaves (no podem ser nulas).
+	 * @param valores Os valores, na mesma ordem (no podem ser nulos).
+	 * @return O mapa.
+	 */
+	public static <K, V> MapaPersistente<K, V> de(K[] chaves, V[] valores) {
+		if (chaves.length != valores.length)
+			throw new IllegalArgumentException("O nmero de chaves e de valores de um mapa persistente deve ser o mesmo.");
+		if (chaves.length == 0) return vazio();
+
+		int[] hashes = new int[chaves.length];
+		int[] ordem = new int[chaves.length];
+		for (int i = 0; i < chaves.length; i++) {
+			if (chaves[i] == null || valores[i] == null)
+				throw new IllegalArgumentException("A chave e o valor de um mapa persistente no podem ser nulos.");
+			hashes[i] = hash(chaves[i]);
+			ordem[i] = i;
+		}
+
+		int[] tamanho = new int[1];
+		No raiz = NoMapa.montar(0, hashes, chaves, valores, ordem, 0, chaves.length, new int[chaves.length], tamanho);
+		return new MapaPersistente<K, V>(raiz, tamanho[0]);
+	}
+
+	/**
+	 * Obtm o valor associado a uma chave.
+	 * @param chave A chave.
+	 * @return O valor, ou nulo caso a chave no exista.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object chave) {
+		if (raiz == null || chave == null) return null;
+		return (V) raiz.buscar(0, hash(chave), chave);
+	}
+
+	/**
+	 * Informa se a chave existe no mapa.
+	 * @param chave A chave.
+	 * @return Se a chave existe.
+	 */
+	public boolean contem(Object chave) {
+		return get(chave) != null;
+	}
+
+	/**
+	 * Obtm um mapa com a chave associada ao valor.
+	 * @param chave A chave (no pode ser nula).
+	 * @param valor O valor (no pode ser nulo).
+	 * @return O novo mapa, ou este mesmo caso a chave j esteja associada
+	 * exatamente a esse valor.
+	 */
+	public MapaPersistente<K, V> com(K chave, V valor) {
+		if (chave == null || valor == null)
+			throw new IllegalArgumentException("A chave e o valor de um mapa persistente no podem ser nulos.");
+
+		boolean[] adicionou = new boolean[1];
+		No novaRaiz = (raiz == null)? NoMapa.VAZIO : raiz;
+		novaRaiz = novaRaiz.inserir(0, hash(chave), chave, valor, adicionou);
+		if (novaRaiz == raiz) return this;
+
+		return new MapaPersistente<K, V>(novaRaiz, adicionou[0]? tamanho + 1 : tamanho);
+	}
+
+	/**
+	 * Obtm um mapa sem a chave.
+	 * @param chave A chave.
+	 * @return O novo mapa, ou este mesmo caso a chave no exista.
+	 */
+	public MapaPersistente<K, V> sem(Object chave) {
+		if (raiz == null || chave == null) return this;
+
+		No novaRaiz = raiz.remover(0, hash(chave), chave);
+		if (novaRaiz == raiz) return this;
+		if (novaRaiz == null) return vazio();
+
+		return new MapaPersistente<K, V>(novaRaiz, tamanho - 1);
+	}
+
+	/**
+	 * Obtm o nmero de chaves.
+	 * @return O nmero de chaves.
+	 */
+	public int tamanho() {
+		return tamanho;
+	}
+
+	/**
+	 * Informa se o mapa est vazio.
+	 * @return Se o mapa est vazio.
+	 */
+	public boolean estaVazio() {
+		return tamanho == 0;
+	}
+
+	/**
+	 * Obtm as chaves do mapa, como um conjunto que no pode ser alterado.
+	 * @return As chaves.
+	 */
+	public Set<K> chaves() {
+		Set<K> visao = chaves;
+		if (visao == null) {
+			visao = new Chaves<K, V>(this);
+			chaves = visao;
+		}
+		return visao;
+	}
+
+	/**
+	 * Obtm os valores do mapa, como uma coleo que no pode ser alterada.
+	 * @return Os valores.
+	 */
+	public Collection<V> valores() {
+		Collection<V> visao = valores;
+		if (visao == null) {
+			visao = new Valores<K, V>(this);
+			valores = visao;
+		}
+		return visao;
+	}
+
+	/**
+	 * Percorre os pares (chave, valor) do mapa. A ordem no  definida.
+	 */
+	public Iterator<Map.Entry<K, V>> iterator() {
+		return new Iterador<Map.Entry<K, V>>(raiz, Iterador.PARES);
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (Map.Entry<K, V> e : this) {
+			if (sb.length() > 1) sb.append(", ");
+			sb.append(e.getKey()).append('=').append(e.getValue());
+		}
+		return sb.append('}').toString();
+	}
+
+	private static int hash(Object chave) {
+		int h = chave.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static int posicao(int hash, int deslocamento) {
+		return (hash >>> deslocamento) & MASCARA;
+	}
+
+	/**
+	 * N da rvore. Os ns nunca so alterados depois de criados.
+	 */
+	private static abstract class No {
+		/**
+		 * @return O valor, ou nulo caso a chave no exista.
+		 */
+		abstract Object buscar(int deslocamento, int hash, Object chave);
+
+		/**
+		 * @return O novo n, ou este mesmo caso nada tenha mudado.
+		 */
+		abstract No inserir(int deslocamento, int hash, Object chave, Object valor, boolean[] adicionou);
+
+		/**
+		 * @return O novo n, este mesmo caso a chave no exista, ou nulo caso
+		 * o n fique vazio.
+		 */
+		abstract No remover(int deslocamento, int hash, Object chave);
+
+		/** Nmero de posies (pares ou subns). */
+		abstract int posicoes();
+
+		/** A chave da posio, ou nulo caso ela seja um subn. */
+		abstract Object chave(int posicao);
+
+		/** O valor (ou o subn) da posio. */
+		abstract Object valor(int posicao);
+	}
+
+	/**
+	 * N com um mapa de bits: cada bit indica se a posio correspondente
+	 * (5 bits do hash) est ocupada. O vetor guarda apenas as posies
+	 * ocupadas, em pares: a chave e o valor, ou nulo e o subn.
+	 */
+	private static final class NoMapa extends No {
+		static final NoMapa VAZIO = new NoMapa(0, new Object[0]);
+
+		private final int mapa;
+		private final Object[] conteudo;
+
+		NoMapa(int mapa, Object[] conteudo) {
+			this.mapa = mapa;
+			this.conteudo = conteudo;
+		}
+
+		Object buscar(int deslocamento, int hash, Object chave) {
+			int bit = 1 << posicao(hash, deslocamento);
+			if ((mapa & bit) == 0) return null;
+
+			int i = 2 * Integer.bitCount(mapa & (bit - 1));
+			Object k = conteudo[i];
+			if (k == null) return ((No) conteudo[i + 1]).buscar(deslocamento + BITS, hash, chave);
+			return (k == chave || k.equals(chave))? conteudo[i + 1] : null;
+		}
+
+		No inserir(int deslocamento, int hash, Object chave, Object valor, boolean[] adicionou) {
+			int bit = 1 << posicao(hash, deslocamento);
+			int i = 2 * Integer.bitCount(mapa & (bit - 1));
+
+			if ((mapa & bit) == 0) {
+				adicionou[0] = true;
+				Object[] novo = new Object[conteudo.length + 2];
+				System.arraycopy(conteudo, 0, novo, 0, i);
+				novo[i] = chave;
+				novo[i + 1] = valor;
+				System.arraycopy(conteudo, i, novo, i + 2, conteudo.length - i);
+				return new NoMapa(mapa | bit, novo);
+			}
+
+			Object k = conteudo[i];
+			Object v = conteudo[i + 1];
+			if (k == null) {
+				No sub = ((No) v).inserir(deslocamento + BITS, hash, chave, valor, adicionou);
+				return (sub == v)? this : trocar(i + 1, null, sub);
+			}
+
+			if (k == chave || k.equals(chave))
+				return (v == valor)? this : trocar(i + 1, k, valor);
+
+			// duas chaves na mesma posio: descendo um nvel
+			adicionou[0] = true;
+			return trocar(i + 1, null, criar(deslocamento + BITS, k, v, hash, chave, valor));
+		}
+
+		No remover(int deslocamento, int hash, Object chave) {
+			int bit = 1 << posicao(hash, deslocamento);
+			if ((mapa & bit) == 0) return this;
+
+			int i = 2 * Integer.bitCount(mapa & (bit - 1));
+			Object k = conteudo[i];
+			Object v = conteudo[i + 1];
+			if (k == null) {
+				No sub = ((No) v).remover(deslocamento + BITS, hash, chave);
+				if (sub == v) return this;
+				if (sub != null) return trocar(i + 1, null, sub);
+			} else if (!(k == chave || k.equals(chave))) {
+				return this;
+			}
+
+			// removendo a posio
+			if (mapa == bit) return null;
+			Object[] novo = new Object[conteudo.length - 2];
+			System.arraycopy(conteudo, 0, novo, 0, i);
+			System.arraycopy(conteudo, i + 2, novo, i, conteudo.length - i - 2);
+			return new NoMapa(mapa & ~bit, novo);
+		}
+
+		int posicoes() {
+			return conteudo.length / 2;
+		}
+
+		Object chave(int posicao) {
+			return conteudo[2 * posicao];
+		}
+
+		Object valor(int posicao) {
+			return conteudo[2 * posicao + 1];
+		}
+
+		/**
+		 * Monta o n dos pares ordem[inicio..fim), separando-os pela posio
+		 * (ordenao por contagem, estvel) e montando os subns.
+		 * @param tamanho Acumula o nmero de chaves distintas.
+		 */
+		static No montar(int deslocamento, int[] hashes, Object[] chaves, Object[] valores, int[] ordem, int inicio, int fim, int[] auxiliar, int[] tamanho) {
+			int[] contagem = new int[MASCARA + 2];
+			for (int i = inicio; i < fim; i++)
+				contagem[posicao(hashes[ordem[i]], deslocamento) + 1]++;
+			int mapa = 0;
+			for (int p = 0; p <= MASCARA; p++) {
+				if (contagem[p + 1] > 0) mapa |= 1 << p;
+				contagem[p + 1] += contagem[p];
+			}
+			for (int i = inicio; i < fim; i++)
+				auxiliar[inicio + contagem[posicao(hashes[ordem[i]], deslocamento)]++] = ordem[i];
+			System.arraycopy(auxiliar, inicio, ordem, inicio, fim - inicio);
+
+			Object[] conteudo = new Object[2 * Integer.bitCount(mapa)];
+			int j = 0;
+			for (int i = inicio; i < fim; ) {
+				int p = posicao(hashes[ordem[i]], deslocamento);
+				int f = i + 1;
+				boolean iguais = true;
+				while (f < fim && posicao(hashes[ordem[f]], deslocamento) == p) {
+					if (hashes[ordem[f]] != hashes[ordem[i]]) iguais = false;
+					f++;
+				}
+
+				if (!iguais) {
+					conteudo[j + 1] = montar(deslocamento + BITS, hashes, chaves, valores, ordem, i, f, auxiliar, tamanho);
+				} else {
+					Object[] pares = colisoes(chaves, valores, ordem, i, f);
+					tamanho[0] += pares.length / 2;
+					if (pares.length == 2) {
+						conteudo[j] = pares[0];
+						conteudo[j + 1] = pares[1];
+					} else {
+						conteudo[j + 1] = new NoColisao(hashes[ordem[i]], pares);
+					}
+				}
+				j += 2;
+				i = f;
+			}
+			return new NoMapa(mapa, conteudo);
+		}
+
+		/**
+		 * Junta os pares de chaves com o mesmo hash, descartando as chaves
+		 * repetidas (vale o ltimo valor).
+		 */
+		private static Object[] colisoes(Object[] chaves, Object[] valores, int[] ordem, int inicio, int fim) {
+			Object[] pares = new Object[2 * (fim - inicio)];
+			int n = 0;
+			for (int i = inicio; i < fim; i++) {
+				Object chave = chaves[ordem[i]];
+				int k = 0;
+				while (k < n && !(pares[k] == chave || pares[k].equals(chave))) k += 2;
+				pares[k] = chave;
+				pares[k + 1] = valores[ordem[i]];
+				if (k == n) n += 2;
+			}
+			if (n == pares.length) return pares;
+			Object[] justos = new Object[n];
+			System.arraycopy(pares, 0, justos, 0, n);
+			return justos;
+		}
+
+		private NoMapa trocar(int i, Object chave, Object valor) {
+			Object[] novo = conteudo.clone();
+			novo[i - 1] = chave;
+			novo[i] = valor;
+			return new NoMapa(mapa, novo);
+		}
+
+		private static No criar(int deslocamento, Object chave1, Object valor1, int hash2, Object chave2, Object valor2) {
+			int hash1 = hash(chave1);
+			if (hash1 == hash2)
+				return new NoColisao(hash1, new Object[] {chave1, valor1, chave2, valor2});
+
+			boolean[] ignorado = new boolean[1];
+			return VAZIO.inserir(deslocamento, hash1, chave1, valor1, ignorado)
+					.inserir(deslocamento, hash2, chave2, valor2, ignorado);
+		}
+	}
+
+	/**
+	 * N com chaves diferentes que tm o mesmo hash.
+	 */
+	private static final class NoColisao extends No {
+		private final int hash;
+		private final Object[] pares;
+
+		NoColisao(int hash, Object[] pares) {
+			this.hash = hash;
+			this.pares = pares;
+		}
+
+		Object buscar(int deslocamento, int hash, Object chave) {
+			if (hash != this.hash) return null;
+			int i = indice(chave);
+			return (i < 0)? null : pares[i + 1];
+		}
+
+		No inserir(int deslocamento, int hash, Object chave, Object valor, boolean[] adicionou) {
+			if (hash != this.hash) {
+				// colocando este n abaixo de um n com mapa de bits
+				No acima = new NoMapa(1 << posicao(this.hash, deslocamento), new Object[] {null, this});
+				return acima.inserir(deslocamento, hash, chave, valor, adicionou);
+			}
+
+			int i = indice(chave);
+			if (i >= 0) {
+				if (pares[i + 1] == valor) return this;
+				Object[] novo = pares.clone();
+				novo[i + 1] = valor;
+				return new NoColisao(hash, novo);
+			}
+
+			adicionou[0] = true;
+			Object[] novo = new Object[pares.length + 2];
+			System.arraycopy(pares, 0, novo, 0, pares.length);
+			novo[pares.length] = chave;
+			novo[pares.length + 1] = valor;
+			return new NoColisao(hash, novo);
+		}
+
+		No remover(int deslocamento, int hash, Object chave) {
+			if (hash != this.hash) return this;
+			int i = indice(chave);
+			if (i < 0) return this;
+			if (pares.length == 2) return null;
+
+			Object[] novo = new Object[pares.length - 2];
+			System.arraycopy(pares, 0, novo, 0, i);
+			System.arraycopy(pares, i + 2, novo, i, pares.length - i - 2);
+			return new NoColisao(hash, novo);
+		}
+
+		int posicoes() {
+			return pares.length / 2;
+		}
+
+		Object chave(int posicao) {
+			return pares[2 * posicao];
+		}
+
+		Object valor(int posicao) {
+			return pares[2 * posicao + 1];
+		}
+
+		private int indice(Object chave) {
+			for (int i = 0; i < pares.length; i += 2) {
+				if (pares[i] == chave || pares[i].equals(chave)) return i;
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Percorre a rvore em profundidade, sem recurso.
+	 */
+	private static final class Iterador<T> implements Iterator<T> {
+		static final int PARES = 0;
+		static final int CHAVES = 1;
+		static final int VALORES = 2;
+
+		private final int tipo;
+		private final No[] nos = new No[PROFUNDIDADE];
+		private final int[] posicoes = new int[PROFUNDIDADE];
+		private int nivel;
+		private Object proximaChave;
+		private Object proximoValor;
+
+		Iterador(No raiz, int tipo) {
+			this.tipo = tipo;
+			if (raiz != null) {
+				nos[0] = raiz;
+				nivel = 0;
+			} else {
+				nivel = -1;
+			}
+			avancar();
+		}
+
+		private void avancar() {
+			proximaChave = null;
+			while (nivel >= 0) {
+				No no = nos[nivel];
+				int p = posicoes[nivel];
+				if (p == no.posicoes()) {
+					// n terminado: voltando ao anterior
+					nivel--;
+					continue;
+				}
+
+				posicoes[nivel] = p + 1;
+				Object k = no.chave(p);
+				if (k == null) {
+					nivel++;
+					nos[nivel] = (No) no.valor(p);
+					posicoes[nivel] = 0;
+				} else {
+					proximaChave = k;
+					proximoValor = no.valor(p);
+					return;
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			return proximaChave != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (proximaChave == null) throw new NoSuchElementException();
+
+			Object retorno;
+			if (tipo == CHAVES) retorno = proximaChave;
+			else if (tipo == VALORES) retorno = proximoValor;
+			else retorno = new AbstractMap.SimpleImmutableEntry<Object, Object>(proximaChave, proximoValor);
+
+			avancar();
+			return (T) retorno;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("O mapa persistente no pode ser alterado.");
+		}
+	}
+
+	private static final class Chaves<K, V> extends AbstractSet<K> {
+		private final MapaPersistente<K, V> mapa;
+
+		Chaves(MapaPersistente<K, V> mapa) {
+			this.mapa = mapa;
+		}
+
+		public boolean contains(Object o) {
+			return mapa.contem(o);
+		}
+
+		public int size() {
+			return mapa.tamanho;
+		}
+
+		public Iterator<K> iterator() {
+			return new Iterador<K>(mapa.raiz, Iterador.CHAVES);
+		}
+	}
+
+	private static final class Valores<K, V> extends AbstractCollection<V> {
+		private final MapaPersistente<K, V> mapa;
+
+		Valores(MapaPersistente<K, V> mapa) {
+			this.mapa = mapa;
+		}
+
+		public int size() {
+			return mapa.tamanho;
+		}
+
+		public Iterator<V> iterator() {
+			return new Iterador<V>(mapa.raiz, Iterador.VALORES);
+		}
+	}
+}
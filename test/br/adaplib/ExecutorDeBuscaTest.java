@@ -0,0 +1,154 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import br.adaplib.adaptativo.DispositivoAdaptativo;
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.exemplo.ExemploAutomatoAdaptativo;
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.Estado;
+import br.adaplib.subjacente.automato.SimuladorNaoDeterministico;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.StringDeEntrada;
+import br.adaplib.subjacente.automato.Transicao;
+
+/**
+ * Testes do {@link ExecutorDeBusca}: a busca (sequencial ou em paralelo)
+ * deve aceitar exatamente as cadeias aceitas pelo autmato no
+ * determinstico e, nos autmatos determinsticos, concordar com o
+ * {@link Executor}.
+ * @author FLevy
+ * @since 2.1
+ */
+public class ExecutorDeBuscaTest {
+	private static final String[] ANBNCN = {"", "abc", "aabbcc", "aaabbbccc", "aabbc", "abcc", "aabcc", "a", "cba", "abcabc"};
+
+	@Test
+	public void automatosAleatorios() throws ErroDeExecucao {
+		Random aleatorio = new Random(20);
+		for (int n = 0; n < 200; n++) {
+			Automato automato = aleatorio(aleatorio, 1 + aleatorio.nextInt(8));
+			SimuladorNaoDeterministico simulador = automato.criarSimulador();
+			// o Executor aplica s a primeira regra e, nos ciclos em vazio,
+			//  interrompido: s  comparado nos autmatos determinsticos
+			// sem transies em vazio
+			boolean deterministico = automato.isDeterministico() && automato.getTransicoesDoSimbolo("").isEmpty();
+
+			for (int q = 0; q < 20; q++) {
+				String cadeia = cadeia(aleatorio, aleatorio.nextInt(7));
+				String esperado = simulador.executar(new StringDeEntrada(cadeia, "")).getSimbolo();
+				assertEquals(cadeia, esperado, ExecutorDeBusca.executar(automato, new StringDeEntrada(cadeia, "")).getSimbolo());
+				assertEquals(cadeia, esperado, ExecutorDeBusca.executarEmParalelo(automato, new StringDeEntrada(cadeia, ""),
+						ForkJoinPool.commonPool(), 1 + aleatorio.nextInt(8)).getSimbolo());
+				if (deterministico)
+					assertEquals(cadeia, Executor.executar(automato, new StringDeEntrada(cadeia, "")).getSimbolo(), esperado);
+			}
+		}
+	}
+
+	@Test
+	public void dispositivoAdaptativo() throws ErroDeExecucao {
+		for (String cadeia : ANBNCN) {
+			DispositivoAdaptativo<Estado, Simbolo, Transicao> esperado = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+			DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+			SimboloDeSaida saida = Executor.executar(esperado, new StringDeEntrada(cadeia, ""));
+			long impressao = dispositivo.getImpressaoDigital();
+
+			assertEquals(cadeia, saida.getSimbolo(), ExecutorDeBusca.executar(dispositivo, new StringDeEntrada(cadeia, "")).getSimbolo());
+			// quando nenhuma alternativa aceita, o dispositivo volta ao
+			// estado inicial; quando aceita, fica no estado da alternativa
+			// (as configuraes criadas tm nomes diferentes, por isso s o
+			// nmero de regras  comparado)
+			if ("true".equals(saida.getSimbolo()))
+				assertEquals(cadeia, esperado.regras().size(), dispositivo.regras().size());
+			else
+				assertEquals(cadeia, impressao, dispositivo.getImpressaoDigital());
+		}
+	}
+
+	@Test
+	public void dispositivoAdaptativoEmParalelo() throws ErroDeExecucao {
+		DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+		long impressao = dispositivo.getImpressaoDigital();
+		for (String cadeia : ANBNCN) {
+			String esperado = Executor.executar(ExemploAutomatoAdaptativo.criarAutomatoANBNCN(), new StringDeEntrada(cadeia, "")).getSimbolo();
+			assertEquals(cadeia, esperado, ExecutorDeBusca.executarEmParalelo(dispositivo, new StringDeEntrada(cadeia, "")).getSimbolo());
+			// os ramos usam bifurcaes: o dispositivo no  alterado
+			assertEquals(cadeia, impressao, dispositivo.getImpressaoDigital());
+		}
+	}
+
+	@Test
+	public void cicloDeTransicoesEmVazio() throws ErroDeExecucao {
+		Automato automato = new Automato();
+		Estado p = new Estado("P"), q = new Estado("Q");
+		automato.adicionarConfiguracao(p, true, false);
+		automato.adicionarConfiguracao(q, false, false);
+		automato.adicionarRegra(p, "", q);
+		automato.adicionarRegra(q, "", p);
+
+		assertEquals("false", ExecutorDeBusca.executar(automato, new StringDeEntrada("a", "")).getSimbolo());
+		assertEquals("false", ExecutorDeBusca.executarEmParalelo(automato, new StringDeEntrada("a", "")).getSimbolo());
+	}
+
+	@Test
+	public void limiteDePassos() throws ErroDeExecucao {
+		Automato automato = new Automato();
+		Estado s = new Estado("S");
+		automato.adicionarConfiguracao(s, true, true);
+		automato.adicionarRegra(s, "a", s);
+
+		assertSame(Executor.INTERROMPIDA, ExecutorDeBusca.executar(automato, new StringDeEntrada("aaaaa", ""), 3, Executor.SEM_LIMITE, TimeUnit.NANOSECONDS));
+		assertEquals("true", ExecutorDeBusca.executar(automato, new StringDeEntrada("aaaaa", ""), 5, Executor.SEM_LIMITE, TimeUnit.NANOSECONDS).getSimbolo());
+	}
+
+	/**
+	 * Cria um autmato aleatrio sobre {a, b}, com transies em vazio.
+	 */
+	static Automato aleatorio(Random aleatorio, int estados) {
+		Automato automato = new Automato();
+		Estado[] todos = new Estado[estados];
+		for (int i = 0; i < estados; i++) {
+			todos[i] = new Estado("n" + i);
+			automato.adicionarConfiguracao(todos[i], i == 0, aleatorio.nextInt(3) == 0);
+		}
+		int transicoes = aleatorio.nextInt(3 * estados + 1);
+		for (int i = 0; i < transicoes; i++)
+			automato.adicionarRegra(todos[aleatorio.nextInt(estados)], aleatorio.nextInt(5) == 0? "" : cadeia(aleatorio, 1), todos[aleatorio.nextInt(estados)]);
+		return automato;
+	}
+
+	/**
+	 * Cria uma cadeia aleatria sobre {a, b}.
+	 */
+	static String cadeia(Random aleatorio, int tamanho) {
+		StringBuilder cadeia = new StringBuilder();
+		for (int i = 0; i < tamanho; i++)
+			cadeia.append((char) ('a' + aleatorio.nextInt(2)));
+		return cadeia.toString();
+	}
+}
@@ -0,0 +1,112 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import br.adaplib.adaptativo.DispositivoAdaptativo;
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.exemplo.ExemploAutomatoAdaptativo;
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.Estado;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.StringDeEntrada;
+import br.adaplib.subjacente.automato.Transicao;
+
+/**
+ * Testes do {@link ExecutorEmArvore}: cada cadeia do lote deve ter o mesmo
+ * resultado que teria no {@link Executor} a partir do estado inicial do
+ * dispositivo, e o dispositivo no deve ser alterado.
+ * @author FLevy
+ * @since 2.1
+ */
+public class ExecutorEmArvoreTest {
+
+	@After
+	public void removerLimites() {
+		Executor.setLimiteDePassos(Executor.SEM_LIMITE);
+	}
+
+	@Test
+	public void automatosAleatorios() throws ErroDeExecucao {
+		Random aleatorio = new Random(24);
+		Executor.setLimiteDePassos(50);
+		for (int n = 0; n < 200; n++) {
+			Automato automato = ExecutorDeBuscaTest.aleatorio(aleatorio, 1 + aleatorio.nextInt(8));
+			List<String> cadeias = new ArrayList<String>();
+			for (int q = 0; q < 30; q++)
+				cadeias.add(ExecutorDeBuscaTest.cadeia(aleatorio, aleatorio.nextInt(7)));
+			comparar(automato, cadeias);
+		}
+	}
+
+	@Test
+	public void dispositivoAdaptativo() throws ErroDeExecucao {
+		Random aleatorio = new Random(25);
+		List<String> cadeias = new ArrayList<String>();
+		for (int q = 0; q < 300; q++)
+			cadeias.add(ExecutorEmLoteTest.anbncn(aleatorio));
+		comparar(ExemploAutomatoAdaptativo.criarAutomatoANBNCN(), cadeias);
+	}
+
+	@Test
+	public void limiteDePassos() throws ErroDeExecucao {
+		Random aleatorio = new Random(26);
+		List<String> cadeias = new ArrayList<String>();
+		for (int q = 0; q < 100; q++)
+			cadeias.add(ExecutorEmLoteTest.anbncn(aleatorio));
+		for (long limite : new long[] {1, 3, 5, 8}) {
+			Executor.setLimiteDePassos(limite);
+			comparar(ExemploAutomatoAdaptativo.criarAutomatoANBNCN(), cadeias);
+		}
+	}
+
+	@Test
+	public void loteVazio() throws ErroDeExecucao {
+		ResultadoDoLote resultado = ExecutorEmArvore.executar(ExemploAutomatoAdaptativo.criarAutomatoANBNCN(), new ArrayList<StringDeEntrada>());
+		assertEquals(0, resultado.tamanho());
+		assertEquals(0, resultado.getNumeroDeAceitas());
+	}
+
+	/**
+	 * Executa as cadeias em rvore e compara o resultado de cada uma com o do
+	 * Executor sobre uma bifurcao do dispositivo.
+	 */
+	private static void comparar(Automato automato, List<String> cadeias) throws ErroDeExecucao {
+		long impressao = automato.getImpressaoDigital();
+		ResultadoDoLote resultado = ExecutorEmArvore.executar(automato, ExecutorEmLoteTest.entradas(cadeias));
+		for (int i = 0; i < cadeias.size(); i++)
+			assertEquals(cadeias.get(i), ExecutorEmLoteTest.executar(automato.bifurcar(), cadeias.get(i)), ExecutorEmLoteTest.descrever(resultado, i));
+		assertEquals(impressao, automato.getImpressaoDigital());
+	}
+
+	private static void comparar(DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo, List<String> cadeias) throws ErroDeExecucao {
+		long impressao = dispositivo.getImpressaoDigital();
+		ResultadoDoLote resultado = ExecutorEmArvore.executar(dispositivo, ExecutorEmLoteTest.entradas(cadeias));
+		for (int i = 0; i < cadeias.size(); i++)
+			assertEquals(cadeias.get(i), ExecutorEmLoteTest.executar(dispositivo.bifurcar(), cadeias.get(i)), ExecutorEmLoteTest.descrever(resultado, i));
+		assertEquals(impressao, dispositivo.getImpressaoDigital());
+	}
+}
@@ -0,0 +1,160 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import br.adaplib.adaptativo.DispositivoAdaptativo;
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.exemplo.ExemploAutomatoAdaptativo;
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.Estado;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.StringDeEntrada;
+import br.adaplib.subjacente.automato.Transicao;
+
+/**
+ * Testes do {@link ExecutorEmLote}: cada cadeia do lote deve ter o mesmo
+ * resultado que teria no {@link Executor}, executada sozinha a partir do
+ * estado inicial do dispositivo.
+ * @author FLevy
+ * @since 2.1
+ */
+public class ExecutorEmLoteTest {
+
+	@After
+	public void removerLimites() {
+		Executor.setLimiteDePassos(Executor.SEM_LIMITE);
+	}
+
+	@Test
+	public void automatosAleatorios() throws ErroDeExecucao {
+		Random aleatorio = new Random(5);
+		Executor.setLimiteDePassos(50);
+		for (int n = 0; n < 200; n++) {
+			Automato automato = ExecutorDeBuscaTest.aleatorio(aleatorio, 1 + aleatorio.nextInt(8));
+			List<String> cadeias = new ArrayList<String>();
+			for (int q = 0; q < 40; q++)
+				cadeias.add(ExecutorDeBuscaTest.cadeia(aleatorio, aleatorio.nextInt(7)));
+
+			long impressao = automato.getImpressaoDigital();
+			ResultadoDoLote resultado = ExecutorEmLote.executar(automato, entradas(cadeias), new ForkJoinPool(1 + aleatorio.nextInt(4)));
+			for (int i = 0; i < cadeias.size(); i++)
+				assertEquals(cadeias.get(i), executar(automato.bifurcar(), cadeias.get(i)), descrever(resultado, i));
+			assertEquals(impressao, automato.getImpressaoDigital());
+		}
+	}
+
+	@Test
+	public void dispositivoAdaptativo() throws ErroDeExecucao {
+		Random aleatorio = new Random(6);
+		List<String> cadeias = new ArrayList<String>();
+		for (int q = 0; q < 300; q++)
+			cadeias.add(anbncn(aleatorio));
+
+		for (long limite : new long[] {Executor.SEM_LIMITE, 4}) {
+			Executor.setLimiteDePassos(limite);
+			DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+			int regras = dispositivo.regras().size();
+			ResultadoDoLote resultado = ExecutorEmLote.executar(dispositivo, entradas(cadeias));
+
+			int aceitas = 0;
+			for (int i = 0; i < cadeias.size(); i++) {
+				String esperado = executar(ExemploAutomatoAdaptativo.criarAutomatoANBNCN(), cadeias.get(i));
+				assertEquals(cadeias.get(i), esperado, descrever(resultado, i));
+				assertEquals(cadeias.get(i), "true".equals(esperado), resultado.aceita(i));
+				if (resultado.aceita(i)) aceitas++;
+			}
+			assertEquals(aceitas, resultado.getNumeroDeAceitas());
+			// cada cadeia comea de uma bifurcao: o dispositivo no  alterado
+			assertEquals(regras, dispositivo.regras().size());
+		}
+	}
+
+	@Test
+	public void erroNaoInterrompeOLote() {
+		// sem configurao inicial, todas as cadeias terminam com erro
+		Automato automato = new Automato();
+		automato.adicionarConfiguracao(new Estado("S"), false, true);
+		List<String> cadeias = new ArrayList<String>();
+		for (int q = 0; q < 40; q++)
+			cadeias.add("a");
+
+		ResultadoDoLote resultado = ExecutorEmLote.executar(automato, entradas(cadeias));
+		assertEquals(cadeias.size(), resultado.tamanho());
+		assertEquals(cadeias.size(), resultado.getErros().size());
+		for (int i = 0; i < cadeias.size(); i++)
+			assertTrue(resultado.getErro(i) != null);
+	}
+
+	/**
+	 * Cria as cadeias de entrada do lote.
+	 */
+	static List<StringDeEntrada> entradas(List<String> cadeias) {
+		List<StringDeEntrada> entradas = new ArrayList<StringDeEntrada>();
+		for (String cadeia : cadeias)
+			entradas.add(new StringDeEntrada(cadeia, ""));
+		return entradas;
+	}
+
+	/**
+	 * Executa uma cadeia no Executor, descrevendo o resultado (ou o erro).
+	 */
+	static <C extends Configuracao, R extends Regra<C>> String executar(Dispositivo<C, Simbolo, R> dispositivo, String cadeia) {
+		try {
+			return descrever(Executor.executar(dispositivo, new StringDeEntrada(cadeia, "")));
+		} catch (ErroDeExecucao e) {
+			return "erro";
+		}
+	}
+
+	/**
+	 * Descreve o resultado de uma cadeia do lote.
+	 */
+	static String descrever(ResultadoDoLote resultado, int indice) {
+		return resultado.getErro(indice) != null? "erro" : descrever(resultado.getSaida(indice));
+	}
+
+	private static String descrever(SimboloDeSaida saida) {
+		return saida == null? "null" : saida.getSimbolo();
+	}
+
+	/**
+	 * Cria uma cadeia a^n b^n c^n, s vezes com um smbolo a mais ou a menos.
+	 */
+	static String anbncn(Random aleatorio) {
+		int a = aleatorio.nextInt(6);
+		int b = a + (aleatorio.nextInt(4) == 0? aleatorio.nextInt(3) - 1 : 0);
+		int c = a + (aleatorio.nextInt(4) == 0? aleatorio.nextInt(3) - 1 : 0);
+		StringBuilder cadeia = new StringBuilder();
+		for (int i = 0; i < a; i++) cadeia.append('a');
+		for (int i = 0; i < b; i++) cadeia.append('b');
+		for (int i = 0; i < c; i++) cadeia.append('c');
+		if (aleatorio.nextInt(10) == 0) cadeia.append('a');
+		return cadeia.toString();
+	}
+}
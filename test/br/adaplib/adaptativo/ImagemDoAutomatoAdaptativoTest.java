@@ -0,0 +1,124 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.adaptativo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import br.adaplib.Executor;
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.exemplo.ExemploAutomatoAdaptativo;
+import br.adaplib.subjacente.automato.Estado;
+import br.adaplib.subjacente.automato.ImagemDoAutomato;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.StringDeEntrada;
+import br.adaplib.subjacente.automato.Transicao;
+
+/**
+ * Testes da {@link ImagemDoAutomatoAdaptativo}: o dispositivo carregado de
+ * uma imagem deve ter as mesmas regras (inclusive as adaptativas e as suas
+ * funes), a mesma impresso digital e aceitar as mesmas cadeias que o
+ * dispositivo gravado.
+ * @author FLevy
+ * @since 2.1
+ */
+public class ImagemDoAutomatoAdaptativoTest {
+	private static final String[] CADEIAS = {"", "abc", "aabbcc", "aaabbbccc", "aaaabbbbcccc", "aabbc", "abcc", "acb", "abcabc"};
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	@Test
+	public void idaEVolta() throws IOException, ErroDeExecucao {
+		DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+		comparar(dispositivo, ImagemDoAutomatoAdaptativo.carregar(ByteBuffer.wrap(gravar(dispositivo))));
+	}
+
+	@Test
+	public void dispositivoJaAdaptado() throws IOException, ErroDeExecucao {
+		// as configuraes criadas pelas funes adaptativas tambm so
+		// gravadas
+		DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+		assertEquals("true", Executor.executar(dispositivo, new StringDeEntrada("aaabbbccc", "")).getSimbolo());
+		comparar(dispositivo, ImagemDoAutomatoAdaptativo.carregar(ByteBuffer.wrap(gravar(dispositivo))));
+	}
+
+	@Test
+	public void arquivo() throws IOException, ErroDeExecucao {
+		DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+		File arquivo = pasta.newFile("anbncn.img");
+		ImagemDoAutomatoAdaptativo.gravar(dispositivo, arquivo);
+		comparar(dispositivo, ImagemDoAutomatoAdaptativo.carregar(arquivo));
+	}
+
+	@Test
+	public void imagensInvalidas() throws IOException {
+		byte[] imagem = gravar(ExemploAutomatoAdaptativo.criarAutomatoANBNCN());
+
+		invalida(Arrays.copyOf(imagem, imagem.length - 10));
+		byte[] outraVersao = imagem.clone();
+		outraVersao[7] = 9;
+		invalida(outraVersao);
+
+		// uma imagem de autmato adaptativo no  uma imagem de autmato
+		try {
+			ImagemDoAutomato.carregar(ByteBuffer.wrap(imagem));
+			fail("O tipo da imagem deveria ser verificado.");
+		} catch (IOException e) {
+			// esperado
+		}
+	}
+
+	private static void invalida(byte[] imagem) {
+		try {
+			ImagemDoAutomatoAdaptativo.carregar(ByteBuffer.wrap(imagem));
+			fail("A imagem invlida deveria ser rejeitada.");
+		} catch (IOException e) {
+			// esperado
+		}
+	}
+
+	private static byte[] gravar(DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo) throws IOException {
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		ImagemDoAutomatoAdaptativo.gravar(dispositivo, saida);
+		return saida.toByteArray();
+	}
+
+	/**
+	 * Compara as regras e a impresso digital dos dois dispositivos e o
+	 * resultado de cada cadeia executada sobre bifurcaes deles.
+	 */
+	private static void comparar(DispositivoAdaptativo<Estado, Simbolo, Transicao> esperado, DispositivoAdaptativo<Estado, Simbolo, Transicao> carregado) throws ErroDeExecucao {
+		assertEquals(TransacaoTest.descrever(esperado), TransacaoTest.descrever(carregado));
+		assertEquals(esperado.getImpressaoDigital(), carregado.getImpressaoDigital());
+		for (String cadeia : CADEIAS) {
+			assertEquals(cadeia, Executor.executar(esperado.bifurcar(), new StringDeEntrada(cadeia, "")).getSimbolo(),
+					Executor.executar(carregado.bifurcar(), new StringDeEntrada(cadeia, "")).getSimbolo());
+		}
+	}
+}
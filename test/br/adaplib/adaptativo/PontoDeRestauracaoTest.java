@@ -0,0 +1,149 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.adaptativo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import br.adaplib.Dispositivos;
+import br.adaplib.Executor;
+import br.adaplib.PontoDeRestauracao;
+import br.adaplib.excecao.ErroDeExecucao;
+import br.adaplib.excecao.MensagemDeErro;
+import br.adaplib.exemplo.ExemploAutomatoAdaptativo;
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.Estado;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.StringDeEntrada;
+import br.adaplib.subjacente.automato.Transicao;
+
+/**
+ * Testes dos pontos de restaurao: ao restaurar um ponto, as configuraes,
+ * as regras e a impresso digital do dispositivo devem voltar a ser
+ * exatamente as do momento da marcao.
+ * @author FLevy
+ * @since 2.1
+ */
+public class PontoDeRestauracaoTest {
+
+	@Test
+	public void restaurarVoltaAsRegrasExatas() throws MensagemDeErro, ErroDeExecucao {
+		Automato automato = criarAutomato();
+		Set<String> antes = TransacaoTest.descrever(automato);
+		long impressao = automato.getImpressaoDigital();
+		PontoDeRestauracao ponto = automato.marcar();
+
+		Estado s = automato.getConfiguracao("S"), f = automato.getConfiguracao("F");
+		automato.removeRegras(s, "a", null);
+		automato.adicionarRegra(f, "c", automato.criarConfiguracao("G"));
+		automato.removerConfiguracao(automato.getConfiguracao("T"));
+		automato.setEstadoInicial(f);
+		assertFalse(antes.equals(TransacaoTest.descrever(automato)));
+
+		automato.restaurar(ponto);
+		assertEquals(antes, TransacaoTest.descrever(automato));
+		assertEquals(impressao, automato.getImpressaoDigital());
+		assertEquals("true", Executor.executar(automato, new StringDeEntrada("ab", "")).toString());
+		assertEquals("false", Executor.executar(automato, new StringDeEntrada("c", "")).toString());
+	}
+
+	@Test
+	public void restaurarOMesmoPontoVariasVezes() throws MensagemDeErro {
+		Automato automato = criarAutomato();
+		Set<String> antes = TransacaoTest.descrever(automato);
+		PontoDeRestauracao ponto = automato.marcar();
+
+		for (int i = 0; i < 3; i++) {
+			automato.adicionarRegra(automato.getConfiguracao("F"), "x" + i, automato.getConfiguracao("S"));
+			automato.removeRegras(automato.getConfiguracao("S"), null, null);
+			automato.restaurar(ponto);
+			assertEquals(antes, TransacaoTest.descrever(automato));
+		}
+	}
+
+	@Test
+	public void restaurarPontosIntermediarios() throws MensagemDeErro {
+		Automato automato = criarAutomato();
+		Set<String> inicio = TransacaoTest.descrever(automato);
+		PontoDeRestauracao primeiro = automato.marcar();
+
+		automato.adicionarRegra(automato.getConfiguracao("F"), "c", automato.getConfiguracao("S"));
+		Set<String> meio = TransacaoTest.descrever(automato);
+		PontoDeRestauracao segundo = automato.marcar();
+
+		automato.removeRegras(automato.getConfiguracao("S"), null, null);
+		automato.restaurar(segundo);
+		assertEquals(meio, TransacaoTest.descrever(automato));
+		automato.restaurar(primeiro);
+		assertEquals(inicio, TransacaoTest.descrever(automato));
+		// as tabelas so persistentes: o ponto posterior continua vlido
+		automato.restaurar(segundo);
+		assertEquals(meio, TransacaoTest.descrever(automato));
+	}
+
+	@Test
+	public void restaurarDispositivoAdaptativo() throws ErroDeExecucao {
+		DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+		Set<String> antes = TransacaoTest.descrever(dispositivo);
+		long impressao = dispositivo.getImpressaoDigital();
+		PontoDeRestauracao ponto = Dispositivos.marcar(dispositivo);
+		assertNotNull(ponto);
+
+		assertEquals("true", Executor.executar(dispositivo, new StringDeEntrada("aaabbbccc", "")).toString());
+		assertFalse(antes.equals(TransacaoTest.descrever(dispositivo)));
+
+		Dispositivos.restaurar(dispositivo, ponto);
+		assertEquals(antes, TransacaoTest.descrever(dispositivo));
+		assertEquals(impressao, dispositivo.getImpressaoDigital());
+		assertEquals("false", Executor.executar(dispositivo, new StringDeEntrada("aabbc", "")).toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void pontoDeOutroAutomato() throws MensagemDeErro {
+		criarAutomato().restaurar(criarAutomato().marcar());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void pontoDeOutroDispositivoAdaptativo() {
+		ExemploAutomatoAdaptativo.criarAutomatoANBNCN().restaurar(ExemploAutomatoAdaptativo.criarAutomatoANBNCN().marcar());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void pontoNulo() throws MensagemDeErro {
+		Dispositivos.restaurar(criarAutomato(), null);
+	}
+
+	/**
+	 * Cria um autmato que aceita "ab" (S -a-> T -b-> F).
+	 */
+	private static Automato criarAutomato() throws MensagemDeErro {
+		Automato automato = new Automato();
+		Estado s = new Estado("S"), t = new Estado("T"), f = new Estado("F");
+		automato.adicionarConfiguracao(s, true, false);
+		automato.adicionarConfiguracao(t, false, false);
+		automato.adicionarConfiguracao(f, false, true);
+		automato.adicionarRegra(s, "a", t);
+		automato.adicionarRegra(t, "b", f);
+		return automato;
+	}
+}
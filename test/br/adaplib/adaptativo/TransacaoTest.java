@@ -0,0 +1,162 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.adaptativo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import br.adaplib.Executor;
+import br.adaplib.adaptativo.funcao.AcaoAdaptativaInsercao;
+import br.adaplib.adaptativo.funcao.AcaoAdaptativaRemocao;
+import br.adaplib.adaptativo.funcao.FuncaoAdaptativa;
+import br.adaplib.adaptativo.funcao.ParametroReferenciaGerador;
+import br.adaplib.adaptativo.funcao.ParametroValor;
+import br.adaplib.adaptativo.funcao.ParametroValorConfiguracao;
+import br.adaplib.adaptativo.funcao.ParametroValorEvento;
+import br.adaplib.excecao.MensagemDeErro;
+import br.adaplib.exemplo.ExemploAutomatoAdaptativo;
+import br.adaplib.subjacente.automato.Automato;
+import br.adaplib.subjacente.automato.Estado;
+import br.adaplib.subjacente.automato.Simbolo;
+import br.adaplib.subjacente.automato.StringDeEntrada;
+import br.adaplib.subjacente.automato.Transicao;
+
+/**
+ * Testes das transaes dos dispositivos: ao desfazer uma transao (ou
+ * quando uma funo adaptativa falha), as configuraes e as regras devem
+ * voltar a ser exatamente as anteriores.
+ * @author FLevy
+ * @since 2.1
+ */
+public class TransacaoTest {
+
+	@Test
+	public void funcaoQueFalhaNaoAlteraODispositivo() throws Exception {
+		Automato automato = new Automato();
+		Estado s = new Estado("S"), f = new Estado("F");
+		automato.adicionarConfiguracao(s, true, false);
+		automato.adicionarConfiguracao(f, false, true);
+		automato.adicionarRegra(s, "", f);
+		DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = new DispositivoAdaptativo<Estado, Simbolo, Transicao>(automato);
+
+		// remove a regra, cria um gerador e insere duas regras; a ltima
+		// chama uma funo que no existe, e a funo falha
+		FuncaoAdaptativa funcao = new FuncaoAdaptativa("falha", null, 1);
+		funcao.adicionarAcao(new AcaoAdaptativaRemocao(new ParametroValorConfiguracao("S"), new ParametroValorEvento(""), null));
+		funcao.adicionarAcao(new AcaoAdaptativaInsercao(new ParametroValorConfiguracao("S"), new ParametroValorEvento("x"), new ParametroReferenciaGerador(0)));
+		funcao.adicionarAcao(new AcaoAdaptativaInsercao(new ParametroReferenciaGerador(0), new ParametroValorEvento("y"), new ParametroValorConfiguracao("F"),
+				"inexistente", null, null, null));
+		dispositivo.getMecanismoAdaptativo().adicionarFuncaoAdaptativa(funcao);
+		dispositivo.getMecanismoAdaptativo().adicionarRegraAdaptativa(null, f, "z", s, new ChamadaFuncaoAdaptativa(funcao, new ArrayList<ParametroValor>()));
+
+		Set<String> antes = descrever(dispositivo);
+		long impressao = dispositivo.getImpressaoDigital();
+		try {
+			new ChamadaFuncaoAdaptativa(funcao, null).executar(dispositivo);
+			fail("A funo deveria falhar.");
+		} catch (MensagemDeErro m) {
+			// esperado
+		}
+
+		assertEquals(antes, descrever(dispositivo));
+		assertEquals(impressao, dispositivo.getImpressaoDigital());
+	}
+
+	@Test
+	public void desfazerDepoisDeExecutar() throws Exception {
+		DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo = ExemploAutomatoAdaptativo.criarAutomatoANBNCN();
+		Set<String> antes = descrever(dispositivo);
+
+		dispositivo.iniciarTransacao();
+		assertEquals("true", Executor.executar(dispositivo, new StringDeEntrada("aaabbbccc", "")).toString());
+		assertFalse(antes.equals(descrever(dispositivo)));
+		dispositivo.desfazerTransacao();
+
+		assertEquals(antes, descrever(dispositivo));
+		// o dispositivo restaurado continua funcionando
+		assertEquals("true", Executor.executar(dispositivo, new StringDeEntrada("aabbcc", "")).toString());
+	}
+
+	@Test
+	public void transacoesAninhadas() throws MensagemDeErro {
+		Automato automato = new Automato();
+		Estado s = new Estado("S"), f = new Estado("F");
+		automato.adicionarConfiguracao(s, true, false);
+		automato.adicionarConfiguracao(f, false, true);
+		automato.adicionarRegra(s, "a", f);
+		Set<String> antes = descrever(automato);
+
+		automato.iniciarTransacao();
+		automato.adicionarRegra(f, "b", s);
+		Set<String> externa = descrever(automato);
+
+		automato.iniciarTransacao();
+		automato.removeRegras(s, null, null);
+		automato.adicionarConfiguracao(new Estado("G"), false, false);
+		automato.desfazerTransacao();
+		assertEquals(externa, descrever(automato));
+
+		automato.confirmarTransacao();
+		assertEquals(externa, descrever(automato));
+
+		automato.iniciarTransacao();
+		automato.removeRegras(f, "b", s);
+		automato.desfazerTransacao();
+		assertEquals(externa, descrever(automato));
+		assertFalse(antes.equals(externa));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void desfazerSemTransacao() {
+		ExemploAutomatoAdaptativo.criarAutomatoANBNCN().desfazerTransacao();
+	}
+
+	/**
+	 * Descreve as configuraes e as regras do autmato.
+	 */
+	static Set<String> descrever(Automato automato) {
+		Set<String> descricao = new TreeSet<String>();
+		for (Estado estado : automato.getConfiguracoes())
+			descricao.add(estado.getNome() + (automato.configuracoesDeAceite().contains(estado)? " aceite" : ""));
+		for (Transicao transicao : automato.regras())
+			descricao.add(transicao.toString());
+		descricao.add("inicial " + automato.configuracaoInicial());
+		return descricao;
+	}
+
+	/**
+	 * Descreve o dispositivo subjacente e as regras adaptativas (com as
+	 * chamadas de funes adaptativas).
+	 */
+	static Set<String> descrever(DispositivoAdaptativo<Estado, Simbolo, Transicao> dispositivo) {
+		Set<String> descricao = descrever((Automato) dispositivo.getDispositivoSubjacente());
+		List<String> regras = new ArrayList<String>();
+		for (RegraAdaptativa<Estado, Transicao> regra : dispositivo.regras())
+			regras.add("adaptativa " + regra);
+		descricao.addAll(regras);
+		return descricao;
+	}
+}
@@ -0,0 +1,205 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.subjacente.automato;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import br.adaplib.Executor;
+import br.adaplib.adaptativo.ImagemDoAutomatoAdaptativo;
+import br.adaplib.excecao.MensagemDeErro;
+
+/**
+ * Testes da {@link ImagemDoAutomato}: o autmato carregado de uma imagem
+ * deve ter os mesmos estados, as mesmas transies (na mesma ordem de
+ * prioridade), a mesma impresso digital e aceitar as mesmas cadeias que o
+ * autmato gravado.
+ * @author FLevy
+ * @since 2.1
+ */
+public class ImagemDoAutomatoTest {
+	private static final String[] SIMBOLOS = {"", "a", "b", "c"};
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	@Test
+	public void idaEVolta() throws Exception {
+		Random aleatorio = new Random(25);
+		for (int n = 0; n < 100; n++) {
+			Automato automato = aleatorio(aleatorio, 1 + aleatorio.nextInt(12));
+			Automato carregado = ImagemDoAutomato.carregar(ByteBuffer.wrap(gravar(automato)));
+			comparar(automato, carregado);
+
+			for (int q = 0; q < 50; q++) {
+				StringBuilder cadeia = new StringBuilder();
+				for (int i = aleatorio.nextInt(8); i > 0; i--)
+					cadeia.append(SIMBOLOS[1 + aleatorio.nextInt(3)]);
+				assertEquals(cadeia.toString(), executar(automato, cadeia.toString()), executar(carregado, cadeia.toString()));
+			}
+		}
+	}
+
+	@Test
+	public void automatoVazio() throws IOException {
+		Automato automato = new Automato();
+		comparar(automato, ImagemDoAutomato.carregar(ByteBuffer.wrap(gravar(automato))));
+	}
+
+	@Test
+	public void arquivo() throws IOException {
+		Automato automato = aleatorio(new Random(26), 10);
+		File arquivo = pasta.newFile("automato.img");
+		ImagemDoAutomato.gravar(automato, arquivo);
+		comparar(automato, ImagemDoAutomato.carregar(arquivo));
+	}
+
+	@Test
+	public void imagensEmSequencia() throws IOException {
+		// a carga termina logo depois da imagem, onde comea a prxima
+		Random aleatorio = new Random(27);
+		Automato primeiro = aleatorio(aleatorio, 5), segundo = aleatorio(aleatorio, 7);
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		ImagemDoAutomato.gravar(primeiro, saida);
+		ImagemDoAutomato.gravar(segundo, saida);
+
+		ByteBuffer imagem = ByteBuffer.wrap(saida.toByteArray());
+		comparar(primeiro, ImagemDoAutomato.carregar(imagem));
+		comparar(segundo, ImagemDoAutomato.carregar(imagem));
+		assertEquals(0, imagem.remaining());
+	}
+
+	@Test
+	public void carregadoPodeSerAlterado() throws IOException, MensagemDeErro {
+		Automato automato = aleatorio(new Random(28), 6);
+		String antes = descrever(automato);
+		Automato carregado = ImagemDoAutomato.carregar(ByteBuffer.wrap(gravar(automato)));
+
+		carregado.adicionarRegra(carregado.getConfiguracao("q1"), "z", carregado.getConfiguracao("q2"));
+		carregado.removeRegras(carregado.getConfiguracao("q0"), null, null);
+		assertEquals(antes, descrever(automato));
+		assertEquals(1, carregado.getTransicoes(carregado.getConfiguracao("q1"), "z").size());
+	}
+
+	@Test
+	public void imagensInvalidas() throws IOException {
+		byte[] imagem = gravar(aleatorio(new Random(29), 8));
+
+		invalida(Arrays.copyOf(imagem, imagem.length - 10));
+		byte[] outraVersao = imagem.clone();
+		outraVersao[7] = 9;
+		invalida(outraVersao);
+		byte[] semMagico = imagem.clone();
+		semMagico[0] = 0;
+		invalida(semMagico);
+
+		// uma imagem de autmato no  uma imagem de autmato adaptativo
+		try {
+			ImagemDoAutomatoAdaptativo.carregar(ByteBuffer.wrap(imagem));
+			fail("O tipo da imagem deveria ser verificado.");
+		} catch (IOException e) {
+			// esperado
+		}
+	}
+
+	private static void invalida(byte[] imagem) {
+		try {
+			ImagemDoAutomato.carregar(ByteBuffer.wrap(imagem));
+			fail("A imagem invlida deveria ser rejeitada.");
+		} catch (IOException e) {
+			// esperado
+		}
+	}
+
+	private static byte[] gravar(Automato automato) throws IOException {
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		ImagemDoAutomato.gravar(automato, saida);
+		return saida.toByteArray();
+	}
+
+	private static String executar(Automato automato, String cadeia) {
+		try {
+			return Executor.executar(automato, new StringDeEntrada(cadeia, "")).getSimbolo();
+		} catch (Exception e) {
+			return "erro";
+		}
+	}
+
+	/**
+	 * Compara os dois autmatos, inclusive a ordem de prioridade das
+	 * transies e a impresso digital.
+	 */
+	private static void comparar(Automato esperado, Automato carregado) {
+		assertEquals(descrever(esperado), descrever(carregado));
+		assertEquals(esperado.getImpressaoDigital(), carregado.getImpressaoDigital());
+		assertEquals(esperado.regras().size(), carregado.regras().size());
+	}
+
+	/**
+	 * Descreve o autmato pelos nomes dos estados: o inicial, os de aceite,
+	 * os smbolos de entrada e, para cada estado e smbolo, os destinos das
+	 * transies em ordem de prioridade.
+	 */
+	static String descrever(Automato automato) {
+		TreeMap<String, List<String>> descricao = new TreeMap<String, List<String>>();
+		for (Estado estado : automato.getConfiguracoes()) {
+			String nome = estado.getNome() + (automato.configuracoesDeAceite().contains(estado)? "*" : "");
+			for (Transicao transicao : automato.getTransicoes(estado)) {
+				String chave = nome + " " + transicao.getEvento();
+				if (descricao.containsKey(chave)) continue;
+				List<String> destinos = new ArrayList<String>();
+				for (Transicao t : automato.getTransicoes(estado, transicao.getEvento()))
+					destinos.add(t.getFinal().getNome());
+				descricao.put(chave, destinos);
+			}
+			descricao.put(nome, new ArrayList<String>());
+		}
+		Estado inicial = automato.configuracaoInicial();
+		return (inicial == null? null : inicial.getNome()) + " " + automato.eventos() + " " + descricao;
+	}
+
+	/**
+	 * Cria um autmato aleatrio, com transies em vazio e transies
+	 * repetidas para o mesmo smbolo.
+	 */
+	private static Automato aleatorio(Random aleatorio, int estados) {
+		Automato automato = new Automato();
+		Estado[] todos = new Estado[estados];
+		for (int i = 0; i < estados; i++) {
+			todos[i] = new Estado("q" + i);
+			automato.adicionarConfiguracao(todos[i], i == 0, aleatorio.nextInt(3) == 0);
+		}
+		for (int i = 4 * estados; i > 0; i--)
+			automato.adicionarRegra(todos[aleatorio.nextInt(estados)], SIMBOLOS[aleatorio.nextInt(SIMBOLOS.length)], todos[aleatorio.nextInt(estados)]);
+		return automato;
+	}
+}
@@ -0,0 +1,176 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.subjacente.automato;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import br.adaplib.Executor;
+
+/**
+ * Testes da {@link Minimizacao}, comparando o autmato mnimo com o original
+ * em todas as cadeias curtas e o seu nmero de estados com o nmero de
+ * classes de estados equivalentes calculado por fora bruta.
+ * @author FLevy
+ * @since 2.1
+ */
+public class MinimizacaoTest {
+	private static final String[] SIMBOLOS = {"a", "b", "c"};
+	private static final int TAMANHO_MAXIMO = 6;
+
+	@Test
+	public void automatosAleatoriosSemTransicoesEmVazio() throws Exception {
+		Random aleatorio = new Random(12);
+		List<String> cadeias = cadeias(TAMANHO_MAXIMO);
+
+		for (int n = 0; n < 60; n++) {
+			Automato automato = aleatorio(aleatorio, 1 + aleatorio.nextInt(8), false);
+			Minimizacao minimizacao = automato.minimizar();
+			Automato minimo = minimizacao.getAutomato();
+
+			for (String cadeia : cadeias)
+				assertEquals(cadeia, executar(automato, cadeia), executar(minimo, cadeia));
+
+			// os estados que sobram so os alcanveis que levam ao aceite,
+			// um para cada classe de estados equivalentes
+			Set<List<Boolean>> classes = new HashSet<List<Boolean>>();
+			for (Estado estado : alcancaveis(automato)) {
+				List<Boolean> assinatura = assinatura(automato, estado, cadeias);
+				if (!assinatura.contains(Boolean.TRUE)) continue;
+				classes.add(assinatura);
+
+				Estado equivalente = minimizacao.getEquivalente(estado);
+				assertNotNull(equivalente);
+				assertEquals(assinatura, assinatura(minimo, equivalente, cadeias));
+			}
+			assertTrue(minimo.getConfiguracoes().size() <= Math.max(1, classes.size()));
+			if (!classes.isEmpty())
+				assertEquals(classes.size(), minimo.getConfiguracoes().size());
+		}
+	}
+
+	@Test
+	public void automatosAleatoriosComTransicoesEmVazio() throws Exception {
+		Random aleatorio = new Random(34);
+		List<String> cadeias = cadeias(TAMANHO_MAXIMO);
+
+		for (int n = 0; n < 60; n++) {
+			Automato automato = aleatorio(aleatorio, 1 + aleatorio.nextInt(8), true);
+			Automato minimo = automato.minimizar().getAutomato();
+
+			for (String cadeia : cadeias)
+				assertEquals(cadeia, executar(automato, cadeia), executar(minimo, cadeia));
+		}
+	}
+
+	@Test
+	public void minimizacaoNaoAlteraOOriginal() {
+		Automato automato = aleatorio(new Random(5), 6, false);
+		Set<Transicao> antes = new HashSet<Transicao>(automato.regras());
+		int estados = automato.getConfiguracoes().size();
+
+		automato.minimizar();
+
+		assertEquals(antes, new HashSet<Transicao>(automato.regras()));
+		assertEquals(estados, automato.getConfiguracoes().size());
+	}
+
+	/**
+	 * Cria um autmato determinstico aleatrio.
+	 */
+	private static Automato aleatorio(Random aleatorio, int numeroDeEstados, boolean vazias) {
+		Automato automato = new Automato();
+		Estado[] estados = new Estado[numeroDeEstados];
+		for (int i = 0; i < estados.length; i++) {
+			estados[i] = new Estado("q" + i);
+			automato.adicionarConfiguracao(estados[i], i == 0, aleatorio.nextInt(3) == 0);
+		}
+
+		for (Estado origem : estados) {
+			for (String simbolo : SIMBOLOS) {
+				if (aleatorio.nextInt(10) < 7)
+					automato.adicionarRegra(origem, simbolo, estados[aleatorio.nextInt(estados.length)]);
+			}
+			if (vazias && aleatorio.nextInt(4) == 0)
+				automato.adicionarRegra(origem, "", estados[aleatorio.nextInt(estados.length)]);
+		}
+		return automato;
+	}
+
+	private static String executar(Automato automato, String cadeia) throws Exception {
+		return String.valueOf(Executor.executar(automato, new StringDeEntrada(cadeia, "")));
+	}
+
+	/**
+	 * Todas as cadeias sobre os smbolos at um tamanho.
+	 */
+	private static List<String> cadeias(int tamanho) {
+		List<String> cadeias = new ArrayList<String>();
+		cadeias.add("");
+		for (int i = 0; i < cadeias.size(); i++) {
+			if (cadeias.get(i).length() == tamanho) continue;
+			for (String simbolo : SIMBOLOS)
+				cadeias.add(cadeias.get(i) + simbolo);
+		}
+		return cadeias;
+	}
+
+	/**
+	 * Os estados alcanveis a partir do estado inicial.
+	 */
+	private static Set<Estado> alcancaveis(Automato automato) {
+		Set<Estado> alcancados = new HashSet<Estado>();
+		List<Estado> pendentes = new ArrayList<Estado>();
+		pendentes.add(automato.configuracaoInicial());
+		alcancados.add(automato.configuracaoInicial());
+		while (!pendentes.isEmpty()) {
+			Estado estado = pendentes.remove(pendentes.size() - 1);
+			for (Transicao transicao : automato.getTransicoes(estado)) {
+				if (alcancados.add(transicao.getFinal()))
+					pendentes.add(transicao.getFinal());
+			}
+		}
+		return alcancados;
+	}
+
+	/**
+	 * Se cada cadeia  aceita a partir de um estado (em um autmato
+	 * determinstico sem transies em vazio).
+	 */
+	private static List<Boolean> assinatura(Automato automato, Estado estado, List<String> cadeias) {
+		List<Boolean> assinatura = new ArrayList<Boolean>();
+		for (String cadeia : cadeias) {
+			Estado atual = estado;
+			for (int i = 0; i < cadeia.length() && atual != null; i++) {
+				List<Transicao> transicoes = automato.getTransicoes(atual, cadeia.substring(i, i + 1));
+				atual = transicoes.isEmpty()? null : transicoes.get(0).getFinal();
+			}
+			assinatura.add(atual != null && automato.configuracoesDeAceite().contains(atual));
+		}
+		return assinatura;
+	}
+}
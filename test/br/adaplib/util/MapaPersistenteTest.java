@@ -0,0 +1,196 @@
+/*
+AdapLib - Copyright (C) 2008 Fbio Levy Siqueira
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 2.1 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package br.adaplib.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Testes do {@link MapaPersistente}, comparando-o com um HashMap.
+ * @author FLevy
+ * @since 2.1
+ */
+public class MapaPersistenteTest {
+
+	@Test
+	public void mapaVazio() {
+		MapaPersistente<String, Integer> vazio = MapaPersistente.vazio();
+		assertEquals(0, vazio.tamanho());
+		assertTrue(vazio.estaVazio());
+		assertNull(vazio.get("a"));
+		assertFalse(vazio.iterator().hasNext());
+		assertSame(vazio, vazio.sem("a"));
+	}
+
+	@Test
+	public void insercaoNaoAlteraOOriginal() {
+		MapaPersistente<String, Integer> um = MapaPersistente.<String, Integer>vazio().com("a", 1);
+		MapaPersistente<String, Integer> dois = um.com("b", 2);
+		MapaPersistente<String, Integer> trocado = dois.com("a", 3);
+
+		assertEquals(1, um.tamanho());
+		assertNull(um.get("b"));
+		assertEquals(Integer.valueOf(1), dois.get("a"));
+		assertEquals(Integer.valueOf(3), trocado.get("a"));
+		assertEquals(2, trocado.tamanho());
+	}
+
+	@Test
+	public void remocaoNaoAlteraOOriginal() {
+		MapaPersistente<String, Integer> mapa = MapaPersistente.<String, Integer>vazio().com("a", 1).com("b", 2);
+		MapaPersistente<String, Integer> semA = mapa.sem("a");
+
+		assertEquals(2, mapa.tamanho());
+		assertTrue(mapa.contem("a"));
+		assertEquals(1, semA.tamanho());
+		assertFalse(semA.contem("a"));
+		assertSame(semA, semA.sem("a"));
+	}
+
+	@Test
+	public void colisoesDeHash() {
+		// todas as chaves com o mesmo hash, e pares que s diferem nos ltimos
+		// nveis da rvore
+		MapaPersistente<Chave, Integer> mapa = MapaPersistente.vazio();
+		for (int i = 0; i < 10; i++)
+			mapa = mapa.com(new Chave(i, 42), i);
+		for (int i = 10; i < 20; i++)
+			mapa = mapa.com(new Chave(i, 42 | (i << 30)), i);
+
+		assertEquals(20, mapa.tamanho());
+		for (int i = 0; i < 20; i++)
+			assertEquals(Integer.valueOf(i), mapa.get(new Chave(i, (i < 10)? 42 : 42 | (i << 30))));
+		assertNull(mapa.get(new Chave(99, 42)));
+
+		for (int i = 0; i < 20; i += 2)
+			mapa = mapa.sem(new Chave(i, (i < 10)? 42 : 42 | (i << 30)));
+		assertEquals(10, mapa.tamanho());
+		for (int i = 0; i < 20; i++)
+			assertEquals(i % 2 == 1, mapa.contem(new Chave(i, (i < 10)? 42 : 42 | (i << 30))));
+	}
+
+	@Test
+	public void operacoesAleatorias() {
+		Random aleatorio = new Random(1);
+		Map<Chave, Integer> esperado = new HashMap<Chave, Integer>();
+		MapaPersistente<Chave, Integer> mapa = MapaPersistente.vazio();
+
+		for (int i = 0; i < 20000; i++) {
+			// poucos hashes distintos, para que haja colises
+			int numero = aleatorio.nextInt(3000);
+			Chave chave = new Chave(numero, numero % 700);
+			if (aleatorio.nextInt(3) == 0) {
+				esperado.remove(chave);
+				mapa = mapa.sem(chave);
+			} else {
+				esperado.put(chave, i);
+				mapa = mapa.com(chave, i);
+			}
+		}
+
+		assertIguais(esperado, mapa);
+	}
+
+	@Test
+	public void criacaoDeUmaSoVez() {
+		Chave[] chaves = new Chave[5000];
+		Integer[] valores = new Integer[chaves.length];
+		Map<Chave, Integer> esperado = new HashMap<Chave, Integer>();
+		for (int i = 0; i < chaves.length; i++) {
+			// chaves repetidas: vale o ltimo valor
+			chaves[i] = new Chave(i % 4000, i % 900);
+			valores[i] = i;
+			esperado.put(chaves[i], i);
+		}
+
+		assertIguais(esperado, MapaPersistente.de(chaves, valores));
+	}
+
+	@Test
+	public void iteracao() {
+		MapaPersistente<Chave, Integer> mapa = MapaPersistente.vazio();
+		for (int i = 0; i < 1000; i++)
+			mapa = mapa.com(new Chave(i, i % 50), i);
+
+		Set<Chave> vistas = new HashSet<Chave>();
+		int soma = 0;
+		for (Map.Entry<Chave, Integer> par : mapa) {
+			assertTrue(vistas.add(par.getKey()));
+			assertEquals(par.getKey().numero, par.getValue().intValue());
+		}
+		for (Integer valor : mapa.valores())
+			soma += valor;
+
+		assertEquals(1000, vistas.size());
+		assertEquals(vistas, mapa.chaves());
+		assertEquals(999 * 1000 / 2, soma);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void iteradorNaoRemove() {
+		Iterator<Map.Entry<String, Integer>> pares = MapaPersistente.<String, Integer>vazio().com("a", 1).iterator();
+		pares.next();
+		pares.remove();
+	}
+
+	private static void assertIguais(Map<Chave, Integer> esperado, MapaPersistente<Chave, Integer> mapa) {
+		assertEquals(esperado.size(), mapa.tamanho());
+		for (Map.Entry<Chave, Integer> par : esperado.entrySet())
+			assertEquals(par.getValue(), mapa.get(par.getKey()));
+
+		int pares = 0;
+		for (Map.Entry<Chave, Integer> par : mapa) {
+			assertEquals(esperado.get(par.getKey()), par.getValue());
+			pares++;
+		}
+		assertEquals(esperado.size(), pares);
+	}
+
+	/**
+	 * Uma chave com o hash escolhido pelo teste.
+	 */
+	private static final class Chave {
+		final int numero;
+		final int hash;
+
+		Chave(int numero, int hash) {
+			this.numero = numero;
+			this.hash = hash;
+		}
+
+		public boolean equals(Object o) {
+			return (o instanceof Chave) && ((Chave) o).numero == numero;
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+	}
+}